@@ -47,6 +47,7 @@ public class ResponsePath {
     private final List<Trip.Leg> legs = new ArrayList<>(5);
     private final List<Integer> pointsOrder = new ArrayList<>(5);
     private final Map<String, List<PathDetail>> pathDetails = new HashMap<>();
+    private final Map<String, Double> exposures = new HashMap<>();
     private BigDecimal fare;
     private boolean impossible = false;
 
@@ -289,6 +290,23 @@ public class ResponsePath {
         return this.pathDetails;
     }
 
+    /**
+     * Adds the specified exposure to the total exposure of this route to the specified pollutant.
+     */
+    public ResponsePath addExposure(String pollutant, double exposure) {
+        Double existing = exposures.get(pollutant);
+        exposures.put(pollutant, existing == null ? exposure : existing + exposure);
+        return this;
+    }
+
+    /**
+     * @return the total exposure of this route per pollutant, i.e. the sum of the exposure path details. Only the
+     * pollutants whose exposure details were requested are contained.
+     */
+    public Map<String, Double> getExposures() {
+        return exposures;
+    }
+
     private void check(String method) {
         if (hasErrors()) {
             throw new RuntimeException("You cannot call " + method + " if response contains errors. Check this with ghResponse.hasErrors(). "
@@ -344,4 +362,36 @@ public class ResponsePath {
     public void setImpossible(boolean impossible) {
         this.impossible = impossible;
     }
+
+    /**
+     * Creates a copy of this path whose lists, maps and points can be modified without changing this path. The
+     * instructions, path details and legs themselves are shared as they are not modified once the path was created.
+     */
+    public ResponsePath copy() {
+        ResponsePath copy = new ResponsePath();
+        copy.errors.addAll(errors);
+        copy.description = description == null ? null : new ArrayList<>(description);
+        copy.distance = distance;
+        copy.ascend = ascend;
+        copy.descend = descend;
+        copy.routeWeight = routeWeight;
+        copy.time = time;
+        copy.debugInfo = debugInfo;
+        if (instructions != null) {
+            copy.instructions = new InstructionList(instructions.size(), instructions.getTr());
+            copy.instructions.addAll(instructions);
+        }
+        copy.waypointList = waypointList == PointList.EMPTY ? PointList.EMPTY : waypointList.clone(false);
+        copy.pointList = pointList == PointList.EMPTY ? PointList.EMPTY : pointList.clone(false);
+        copy.numChanges = numChanges;
+        copy.legs.addAll(legs);
+        copy.pointsOrder.addAll(pointsOrder);
+        for (Map.Entry<String, List<PathDetail>> entry : pathDetails.entrySet()) {
+            copy.pathDetails.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+        }
+        copy.exposures.putAll(exposures);
+        copy.fare = fare;
+        copy.impossible = impossible;
+        return copy;
+    }
 }
@@ -56,6 +56,18 @@ public class Parameters {
          * round trip algorithm (not yet for CH)
          */
         public static final String ROUND_TRIP = "round_trip";
+        /**
+         * ant colony optimization (not for CH)
+         */
+        public static final String ANT_COLONY = "aco";
+        /**
+         * time-dependent unidirectional Dijkstra (not for CH)
+         */
+        public static final String TD_DIJKSTRA = "td_dijkstra";
+        /**
+         * Pareto front of travel time and weight as alternatives (not for CH)
+         */
+        public static final String PARETO = "pareto";
 
         /**
          * All public properties for alternative routing.
@@ -85,6 +97,53 @@ public class Parameters {
             public static final String POINTS = ROUND_TRIP + ".points";
             public static final String INIT_MAX_RETRIES = ROUTING_INIT_PREFIX + ROUND_TRIP + ".max_retries";
         }
+
+        /**
+         * All public properties for ant colony optimization.
+         */
+        public static final class AntColony {
+            public static final String PARALLELISM = ANT_COLONY + ".parallelism";
+            public static final String SEED = ANT_COLONY + ".seed";
+            public static final String ANTS = ANT_COLONY + ".ants";
+            public static final String MAX_ITERATIONS = ANT_COLONY + ".max_iterations";
+            public static final String EVAPORATION = ANT_COLONY + ".evaporation";
+            public static final String DEPOSIT = ANT_COLONY + ".deposit";
+            public static final String ELITE_ANTS = ANT_COLONY + ".elite_ants";
+            public static final String ALPHA = ANT_COLONY + ".alpha";
+            public static final String BETA = ANT_COLONY + ".beta";
+            public static final String MAX_STAGNATION = ANT_COLONY + ".max_stagnation";
+            public static final String TIMEOUT_MS = ANT_COLONY + ".timeout_ms";
+            /**
+             * The server side limits of the ants and iterations of a request
+             */
+            public static final String INIT_MAX_ANTS = ROUTING_INIT_PREFIX + ANT_COLONY + ".max_ants";
+            public static final String INIT_MAX_ITERATIONS = ROUTING_INIT_PREFIX + MAX_ITERATIONS;
+            /**
+             * The server side timeout, which is the default and the maximum timeout of a request
+             */
+            public static final String INIT_TIMEOUT_MS = ROUTING_INIT_PREFIX + TIMEOUT_MS;
+        }
+
+        /**
+         * All public properties for the Pareto front of travel time and weight.
+         */
+        public static final class Pareto {
+            /**
+             * Drops routes that are at most 1 + epsilon times worse in both criteria than another route
+             */
+            public static final String EPSILON = PARETO + ".epsilon";
+            public static final String MAX_PATHS = PARETO + ".max_paths";
+        }
+
+        /**
+         * All public properties for time-dependent routing.
+         */
+        public static final class TimeDependent {
+            /**
+             * The departure time in milliseconds since the epoch, the current time if not specified
+             */
+            public static final String DEPARTURE_TIME = TD_DIJKSTRA + ".departure_time";
+        }
     }
 
     /**
@@ -208,6 +267,10 @@ public class Parameters {
         public static final String TIME = "time";
         public static final String WEIGHT = "weight";
         public static final String DISTANCE = "distance";
+        /**
+         * The prefix of the exposure details, which are requested per pollutant like exposure_pm10
+         */
+        public static final String EXPOSURE = "exposure";
     }
 
 }
@@ -142,3 +142,30 @@ measurement.json=true \
 measurement.count=5000 \
 measurement.use_measurement_time_as_ref_time=${USE_MEASUREMENT_TIME_AS_REF_TIME} \
 "measurement.block_area=49.394664,11.144428,49.348388,11.144943,49.355768,11.227169,49.411643,11.227512"
+
+echo "5 - small map with pollution-aware routing on a synthetic pollution grid"
+echo "slow algorithms incl. A* with the Qaira approximation and ACO, node-based CH + LM"
+java -cp tools/target/graphhopper-tools-*-jar-with-dependencies.jar com.graphhopper.tools.Measurement \
+datareader.file=${SMALL_OSM_MAP} \
+datareader.date_range_parser_day=2019-11-01 \
+measurement.name=small_map_pollution \
+measurement.folder=${SINGLE_RESULTS_DIR} \
+measurement.clean=true \
+measurement.summaryfile=${RESULTS_DIR}summary_small_pollution.dat \
+measurement.repeats=1 \
+measurement.run_slow_routing=false \
+measurement.weighting=fastest \
+measurement.ch.node=false \
+measurement.ch.edge=false \
+measurement.lm=false \
+measurement.pollution=true \
+measurement.pollution.pollutants=pm10 \
+measurement.pollution.cells=50 \
+measurement.pollution.ch=true \
+measurement.pollution.lm=true \
+graph.flag_encoders=car \
+graph.location=${TMP_DIR}measurement-small-pollution-gh \
+prepare.min_network_size=10000 \
+measurement.json=true \
+measurement.count=5000 \
+measurement.use_measurement_time_as_ref_time=${USE_MEASUREMENT_TIME_AS_REF_TIME}
@@ -23,10 +23,14 @@ import com.graphhopper.config.Profile;
 import com.graphhopper.reader.DataReader;
 import com.graphhopper.reader.dem.*;
 import com.graphhopper.reader.osm.conditional.DateRangeParser;
+import com.graphhopper.routing.ACO;
+import com.graphhopper.routing.ACOListener;
 import com.graphhopper.routing.AlgorithmOptions;
 import com.graphhopper.routing.Path;
+import com.graphhopper.routing.RouteCache;
 import com.graphhopper.routing.RoutingAlgorithmFactory;
 import com.graphhopper.routing.RoutingAlgorithmFactorySimple;
+import com.graphhopper.routing.ch.CHCustomizer;
 import com.graphhopper.routing.ch.CHPreparationHandler;
 import com.graphhopper.routing.ch.CHRoutingAlgorithmFactory;
 import com.graphhopper.routing.ev.DefaultEncodedValueFactory;
@@ -35,6 +39,16 @@ import com.graphhopper.routing.ev.EnumEncodedValue;
 import com.graphhopper.routing.ev.RoadEnvironment;
 import com.graphhopper.routing.lm.LMConfig;
 import com.graphhopper.routing.lm.LMPreparationHandler;
+import com.graphhopper.routing.pollution.EdgeExposureStorage;
+import com.graphhopper.routing.pollution.JdbcConnectionPool;
+import com.graphhopper.routing.pollution.JdbcPollutionGridLoader;
+import com.graphhopper.routing.pollution.Pollutant;
+import com.graphhopper.routing.pollution.PollutionForecast;
+import com.graphhopper.routing.pollution.PollutionGrid;
+import com.graphhopper.routing.pollution.PollutionGridFile;
+import com.graphhopper.routing.pollution.PollutionGridListener;
+import com.graphhopper.routing.pollution.PollutionGridLoader;
+import com.graphhopper.routing.pollution.PollutionGridProvider;
 import com.graphhopper.routing.querygraph.QueryGraph;
 import com.graphhopper.routing.subnetwork.PrepareRoutingSubnetworks;
 import com.graphhopper.routing.subnetwork.PrepareRoutingSubnetworks.PrepareJob;
@@ -68,6 +82,9 @@ import java.io.File;
 import java.io.IOException;
 import java.text.DateFormat;
 import java.util.*;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import static com.graphhopper.routing.weighting.TurnCostProvider.NO_TURN_COST_PROVIDER;
 import static com.graphhopper.routing.weighting.Weighting.INFINITE_U_TURN_COSTS;
@@ -96,6 +113,8 @@ public class GraphHopper implements GraphHopperAPI {
     private String ghLocation = "";
     private DAType dataAccessType = DAType.RAM_STORE;
     private boolean sortGraph = false;
+    private String sortOrder = "dfs";
+    private boolean adjacencyArray = false;
     private boolean elevation = false;
     private LockFactory lockFactory = new NativeFSLockFactory();
     private boolean allowWrites = true;
@@ -123,6 +142,27 @@ public class GraphHopper implements GraphHopperAPI {
     private EncodedValueFactory encodedValueFactory = new DefaultEncodedValueFactory();
     private TagParserFactory tagParserFactory = new DefaultTagParserFactory();
     private PathDetailsBuilderFactory pathBuilderFactory = new PathDetailsBuilderFactory();
+    // for pollution aware routing
+    private String pollutionConfigFile = "";
+    private JdbcConnectionPool pollutionConnectionPool;
+    private RouteCache routeCache;
+    private int pollutionPoolSize = 4;
+    private long pollutionPoolTimeoutMillis = 5_000;
+    private String pollutionGridLocation = "";
+    private DAType pollutionGridDAType = DAType.RAM_STORE;
+    private PollutionGridProvider pollutionGridProvider;
+    private List<String> pollutionForecastLocations = Collections.emptyList();
+    private PollutionForecast pollutionForecast;
+    private EdgeExposureStorage exposureStorage;
+    // the profiles with CH or LM preparation use the exposure that was frozen at preparation time
+    private Set<String> preparedPollutionProfiles = Collections.emptySet();
+    private EdgeExposureStorage preparedExposureStorage;
+    // the CH profiles that follow the current exposure via CHCustomizer instead of freezing it
+    private boolean pollutionCHCustomizable = false;
+    private Set<String> customizablePollutionProfiles = Collections.emptySet();
+    // the customization must not write the shortcuts while a query of these profiles unpacks them
+    private final ReadWriteLock chCustomizationLock = new ReentrantReadWriteLock();
+    private ACOListener acoListener;
 
     public GraphHopper() {
     }
@@ -196,6 +236,133 @@ public class GraphHopper implements GraphHopperAPI {
         return pathBuilderFactory;
     }
 
+    /**
+     * The provider of the air quality snapshots used by the qaira_weighting_* profiles. By default the grid is loaded
+     * from the file in pollution.grid_location if configured, see {@link PollutionGridFile}, and otherwise from the
+     * sensor database configured in pollution.db.url, see {@link #setPollutionConnectionPool}, or in the legacy ini
+     * file pollution.db_config.
+     */
+    public GraphHopper setPollutionGridProvider(PollutionGridProvider pollutionGridProvider) {
+        this.pollutionGridProvider = pollutionGridProvider;
+        return this;
+    }
+
+    public PollutionGridProvider getPollutionGridProvider() {
+        if (pollutionGridProvider == null) {
+            if (!isEmpty(pollutionGridLocation)) {
+                pollutionGridProvider = new PollutionGridProvider(new PollutionGridFile(pollutionGridLocation, pollutionGridDAType));
+            } else {
+                pollutionGridProvider = new PollutionGridProvider(new PollutionGridLoader() {
+                    @Override
+                    public synchronized PollutionGrid load() {
+                        if (pollutionConnectionPool == null) {
+                            if (isEmpty(pollutionConfigFile))
+                                throw new IllegalStateException("No pollution source configured, set pollution.grid_location or pollution.db.url");
+                            // the legacy ini file is only read when the grid is loaded the first time
+                            pollutionConnectionPool = JdbcConnectionPool.fromIni(pollutionConfigFile, pollutionPoolSize, pollutionPoolTimeoutMillis);
+                        }
+                        return new JdbcPollutionGridLoader(pollutionConnectionPool).load();
+                    }
+                });
+            }
+        }
+        return pollutionGridProvider;
+    }
+
+    /**
+     * Enables the cache of route responses for {@link #route}. The routes that depend on the pollution are cached per
+     * version of the exposure they were calculated with, so a new snapshot only affects the profiles using it. By
+     * default the cache is created with the size in routing.cache_size, if this is not 0.
+     */
+    public GraphHopper setRouteCache(RouteCache routeCache) {
+        this.routeCache = routeCache;
+        return this;
+    }
+
+    /**
+     * @return the cache of route responses or null if routes are not cached
+     */
+    public RouteCache getRouteCache() {
+        return routeCache;
+    }
+
+    /**
+     * Sets the connections to the sensor database the pollution grid is loaded from. By default the pool is created
+     * from pollution.db.url, pollution.db.user, pollution.db.password, pollution.db.pool_size and
+     * pollution.db.timeout_ms. The pool is closed with this GraphHopper instance.
+     */
+    public GraphHopper setPollutionConnectionPool(JdbcConnectionPool pollutionConnectionPool) {
+        this.pollutionConnectionPool = pollutionConnectionPool;
+        return this;
+    }
+
+    /**
+     * @return the connections to the sensor database or null if none is configured
+     */
+    public JdbcConnectionPool getPollutionConnectionPool() {
+        return pollutionConnectionPool;
+    }
+
+    /**
+     * Sets the forecast layers that make the pollution weightings time-dependent, so that the "td_dijkstra" algorithm
+     * evaluates every edge at the time it is reached. By default the layers are loaded from the files in
+     * pollution.forecast_locations, see {@link #initPollutionForecast()}.
+     */
+    public GraphHopper setPollutionForecast(PollutionForecast pollutionForecast) {
+        this.pollutionForecast = pollutionForecast;
+        return this;
+    }
+
+    /**
+     * @return the forecast layers or null if there is no forecast
+     */
+    public PollutionForecast getPollutionForecast() {
+        return pollutionForecast;
+    }
+
+    /**
+     * If enabled the CH of pollution profiles without LM is contracted independent of the edge weights and only its
+     * shortcut weights are recalculated for every new pollution snapshot, see {@link CHCustomizer}, instead of
+     * freezing the exposure at preparation time. Queries of these profiles wait while the new weights are written.
+     */
+    public GraphHopper setPollutionCHCustomizable(boolean pollutionCHCustomizable) {
+        ensureNotLoaded();
+        this.pollutionCHCustomizable = pollutionCHCustomizable;
+        return this;
+    }
+
+    public boolean isPollutionCHCustomizable() {
+        return pollutionCHCustomizable;
+    }
+
+    /**
+     * Sets the listener that is notified about the progress of every route calculated with the "aco" algorithm.
+     */
+    public GraphHopper setACOListener(ACOListener acoListener) {
+        this.acoListener = acoListener;
+        return this;
+    }
+
+    public ACOListener getACOListener() {
+        return acoListener;
+    }
+
+    /**
+     * @return the precalculated exposure of all edges or null if no profile without CH or LM preparation uses a
+     * pollution weighting
+     */
+    public EdgeExposureStorage getEdgeExposureStorage() {
+        return exposureStorage;
+    }
+
+    /**
+     * @return the exposure of all edges that was frozen for the CH and LM preparation of pollution profiles or null
+     * if there are no such profiles
+     */
+    public EdgeExposureStorage getPreparedEdgeExposureStorage() {
+        return preparedExposureStorage;
+    }
+
     /**
      * Configures the underlying storage and response to be used on a well equipped server. Result
      * also optimized for usage in the web module i.e. try reduce network IO.
@@ -447,6 +614,31 @@ public class GraphHopper implements GraphHopperAPI {
         return this;
     }
 
+    /**
+     * Specifies how the graph is sorted if {@link #setSortGraph(boolean)} is enabled: "dfs" numbers the nodes in depth
+     * first order and "hilbert" along a Hilbert curve, which keeps nodes that are close to each other also close in
+     * memory.
+     */
+    public GraphHopper setSortOrder(String sortOrder) {
+        ensureNotLoaded();
+        if (!"dfs".equals(sortOrder) && !"hilbert".equals(sortOrder))
+            throw new IllegalArgumentException("Unknown sort order " + sortOrder + ", supported are: dfs, hilbert");
+        this.sortOrder = sortOrder;
+        return this;
+    }
+
+    /**
+     * Freezes the graph after the import and iterates its edges via a compact adjacency array, which needs more RAM
+     * but makes the edge explorers more cache friendly.
+     *
+     * @see GraphHopperStorage#setUseAdjacencyArray(boolean)
+     */
+    public GraphHopper setAdjacencyArray(boolean adjacencyArray) {
+        ensureNotLoaded();
+        this.adjacencyArray = adjacencyArray;
+        return this;
+    }
+
     public boolean isAllowWrites() {
         return allowWrites;
     }
@@ -515,6 +707,8 @@ public class GraphHopper implements GraphHopperAPI {
         dataAccessType = DAType.fromString(graphDATypeStr);
 
         sortGraph = ghConfig.getBool("graph.do_sort", sortGraph);
+        setSortOrder(ghConfig.getString(SORT_ORDER_KEY, sortOrder));
+        adjacencyArray = ghConfig.getBool("graph.adjacency_array", adjacencyArray);
         removeZipped = ghConfig.getBool("graph.remove_zipped", removeZipped);
         EncodingManager encodingManager = createEncodingManager(ghConfig);
         if (encodingManager != null) {
@@ -532,6 +726,23 @@ public class GraphHopper implements GraphHopperAPI {
         ElevationProvider elevationProvider = createElevationProvider(ghConfig);
         setElevationProvider(elevationProvider);
 
+        // pollution
+        pollutionConfigFile = ghConfig.getString("pollution.db_config", pollutionConfigFile);
+        pollutionPoolSize = ghConfig.getInt("pollution.db.pool_size", pollutionPoolSize);
+        pollutionPoolTimeoutMillis = ghConfig.getLong("pollution.db.timeout_ms", pollutionPoolTimeoutMillis);
+        String pollutionDbUrl = ghConfig.getString("pollution.db.url", "");
+        if (!isEmpty(pollutionDbUrl))
+            pollutionConnectionPool = new JdbcConnectionPool(pollutionDbUrl, ghConfig.getString("pollution.db.user", null),
+                    ghConfig.getString("pollution.db.password", null), pollutionPoolSize, pollutionPoolTimeoutMillis);
+        pollutionGridLocation = ghConfig.getString("pollution.grid_location", pollutionGridLocation);
+        // the file is copied to the heap arrays of the grid anyway, so mapping it only pays off for very large files
+        pollutionGridDAType = DAType.fromString(ghConfig.getString("pollution.grid_dataaccess", "RAM_STORE")).isMMap()
+                ? DAType.MMAP_RO : DAType.RAM_STORE;
+        pollutionCHCustomizable = ghConfig.getBool("pollution.ch.customizable", pollutionCHCustomizable);
+        String forecastLocations = ghConfig.getString("pollution.forecast_locations", "");
+        if (!isEmpty(forecastLocations))
+            pollutionForecastLocations = Arrays.asList(forecastLocations.split("\\s*,\\s*"));
+
         // optimizable prepare
         minNetworkSize = ghConfig.getInt("prepare.min_network_size", minNetworkSize);
 
@@ -553,8 +764,14 @@ public class GraphHopper implements GraphHopperAPI {
 
         // routing
         routingConfig.setMaxVisitedNodes(ghConfig.getInt(Routing.INIT_MAX_VISITED_NODES, routingConfig.getMaxVisitedNodes()));
+        int routeCacheSize = ghConfig.getInt("routing.cache_size", 0);
+        if (routeCacheSize > 0)
+            routeCache = new RouteCache(routeCacheSize);
         routingConfig.setMaxRoundTripRetries(ghConfig.getInt(RoundTrip.INIT_MAX_RETRIES, routingConfig.getMaxRoundTripRetries()));
         routingConfig.setNonChMaxWaypointDistance(ghConfig.getInt(Parameters.NON_CH.MAX_NON_CH_POINT_DISTANCE, routingConfig.getNonChMaxWaypointDistance()));
+        routingConfig.setMaxACOAnts(ghConfig.getInt(AntColony.INIT_MAX_ANTS, routingConfig.getMaxACOAnts()));
+        routingConfig.setMaxACOIterations(ghConfig.getInt(AntColony.INIT_MAX_ITERATIONS, routingConfig.getMaxACOIterations()));
+        routingConfig.setACOTimeoutMillis(ghConfig.getLong(AntColony.INIT_TIMEOUT_MS, routingConfig.getACOTimeoutMillis()));
 
         return this;
     }
@@ -767,6 +984,10 @@ public class GraphHopper implements GraphHopperAPI {
 
         GHDirectory dir = new GHDirectory(ghLocation, dataAccessType);
         ghStorage = new GraphHopperStorage(dir, encodingManager, hasElevation(), encodingManager.needsTurnCostsSupport(), defaultSegmentSize);
+        customizablePollutionProfiles = findCustomizablePollutionProfiles();
+        preparedPollutionProfiles = findPreparedPollutionProfiles();
+        exposureStorage = usesPollution() ? new EdgeExposureStorage(dir) : null;
+        preparedExposureStorage = preparedPollutionProfiles.isEmpty() ? null : new EdgeExposureStorage(dir, "pollution_exposure_prepared");
 
         checkProfilesConsistency();
 
@@ -820,6 +1041,9 @@ public class GraphHopper implements GraphHopperAPI {
                         "'turn_costs=true', but the corresponding vehicle '" + profile.getVehicle() + "' does not support turn costs." +
                         "\nYou need to add `|turn_costs=true` to the vehicle in `graph.flag_encoders`");
             }
+            if (PollutionWeighting.isPollutionWeighting(profile.getWeighting()) && !hasPollutionSource())
+                throw new IllegalArgumentException("The profile '" + profile.getName() + "' uses the pollution weighting, " +
+                        "but no pollution source is configured.\nYou need to set `pollution.grid_location`, `pollution.db.url` or `pollution.db_config`");
             try {
                 createWeighting(profile, new PMap());
             } catch (IllegalArgumentException e) {
@@ -893,7 +1117,7 @@ public class GraphHopper implements GraphHopperAPI {
             }
             throw new IllegalArgumentException("Cannot find LM preparation for the requested profile: '" + profile + "'");
         } else {
-            return new RoutingAlgorithmFactorySimple();
+            return new RoutingAlgorithmFactorySimple().setACOListener(acoListener).setACOTimeoutMillis(routingConfig.getACOTimeoutMillis());
         }
     }
 
@@ -902,17 +1126,22 @@ public class GraphHopper implements GraphHopperAPI {
     }
 
     private void initCHPreparationHandler() {
-        if (chPreparationHandler.hasCHConfigs()) {
-            return;
+        if (!chPreparationHandler.hasCHConfigs())
+            createCHConfigs();
+
+        for (CHConfig chConfig : chPreparationHandler.getCHConfigs()) {
+            if (chConfig.isCompactShortcuts() && customizablePollutionProfiles.contains(chConfig.getName()))
+                throw new IllegalArgumentException("Compact shortcuts are not supported for the customizable CH profile " + chConfig.getName());
         }
+    }
 
+    private void createCHConfigs() {
         for (CHProfile chConfig : chPreparationHandler.getCHProfiles()) {
             Profile profile = profilesByName.get(chConfig.getProfile());
-            if (profile.isTurnCosts()) {
-                chPreparationHandler.addCHConfig(CHConfig.edgeBased(profile.getName(), createWeighting(profile, new PMap())));
-            } else {
-                chPreparationHandler.addCHConfig(CHConfig.nodeBased(profile.getName(), createWeighting(profile, new PMap())));
-            }
+            // the weights of a customizable CH can outgrow the bit widths of the compact shortcuts
+            boolean compactShortcuts = chPreparationHandler.isCompactShortcuts() && !customizablePollutionProfiles.contains(profile.getName());
+            chPreparationHandler.addCHConfig(new CHConfig(profile.getName(), createWeighting(profile, new PMap()),
+                    profile.isTurnCosts(), compactShortcuts, chPreparationHandler.isQuantizeShortcutWeights()));
         }
     }
 
@@ -954,15 +1183,26 @@ public class GraphHopper implements GraphHopperAPI {
         // Later: move this into the GraphStorage.optimize method
         // Or: Doing it after preparation to optimize shortcuts too. But not possible yet #12
 
-        if (sortGraph) {
+        if (sortGraph && !isSorted()) {
             if (ghStorage.isCHPossible() && isCHPrepared())
                 throw new IllegalArgumentException("Sorting a prepared CHGraph is not possible yet. See #12");
 
             GraphHopperStorage newGraph = GHUtility.newStorage(ghStorage);
-            GHUtility.sortDFS(ghStorage, newGraph);
-            logger.info("graph sorted (" + getMemInfo() + ")");
+            if ("hilbert".equals(sortOrder))
+                GHUtility.sortHilbert(ghStorage, newGraph);
+            else
+                GHUtility.sortDFS(ghStorage, newGraph);
+            // keep the import dates etc. and record the sorting so it is not repeated
+            for (Map.Entry<String, String> entry : ghStorage.getProperties().getAll().entrySet()) {
+                newGraph.getProperties().put(entry.getKey(), entry.getValue());
+            }
+            newGraph.getProperties().put(SORT_ORDER_KEY, sortOrder);
+            ghStorage.close();
+            logger.info("graph sorted via " + sortOrder + " (" + getMemInfo() + ")");
             ghStorage = newGraph;
         }
+        // the adjacency array is only useful for queries, not if the graph is closed after the import
+        ghStorage.setUseAdjacencyArray(adjacencyArray && !closeEarly);
 
         if (!hasInterpolated() && hasElevation()) {
             interpolateBridgesAndOrTunnels();
@@ -972,29 +1212,278 @@ public class GraphHopper implements GraphHopperAPI {
 
         importPublicTransit();
 
+        initPollutionGrid();
+        initPollutionForecast();
+        pathBuilderFactory.setPollutionGridProvider(getPollutionGridProvider());
+        initEdgeExposure();
+        pathBuilderFactory.setExposureStorage(exposureStorage);
+
         if (lmPreparationHandler.isEnabled())
             lmPreparationHandler.createPreparations(ghStorage, locationIndex);
         loadOrPrepareLM(closeEarly);
 
-        if (chPreparationHandler.isEnabled())
+        if (chPreparationHandler.isEnabled()) {
             chPreparationHandler.createPreparations(ghStorage);
+            for (String profile : customizablePollutionProfiles) {
+                chPreparationHandler.getPreparation(profile).setMetricIndependent(true);
+            }
+        }
         if (isCHPrepared()) {
             // check loaded profiles
             for (CHProfile profile : chPreparationHandler.getCHProfiles()) {
-                if (!getProfileVersion(profile.getProfile()).equals("" + profilesByName.get(profile.getProfile()).getVersion()))
+                if (!getProfileVersion(profile.getProfile()).equals("" + profilesByName.get(profile.getProfile()).getVersion())
+                        || getCustomizedPollutionVersion(profile.getProfile()).isEmpty() == customizablePollutionProfiles.contains(profile.getProfile()))
                     throw new IllegalArgumentException("CH preparation of " + profile.getProfile() + " already exists in storage and doesn't match configuration");
             }
         } else {
             prepareCH(closeEarly);
+            if (chPreparationHandler.isEnabled()) {
+                for (String profile : customizablePollutionProfiles) {
+                    setCustomizedPollutionVersion(profile, exposureStorage.getVersion());
+                }
+            }
         }
+        if (chPreparationHandler.isEnabled())
+            initCHCustomization();
+        // the graph is not modified anymore, freezing it builds the adjacency array if this was not done already
+        if (adjacencyArray && !closeEarly)
+            ghStorage.freeze();
     }
 
     protected void registerCustomEncodedValues(EncodingManager.Builder emBuilder) {
     }
 
+    /**
+     * Loads the air quality snapshot once if a profile needs it. The source is checked in checkProfilesConsistency, but
+     * e.g. the database can be temporarily unavailable. Then all edges have zero exposure until a snapshot is published
+     * via {@link PollutionGridProvider#refresh()}.
+     */
+    protected void initPollutionGrid() {
+        if (!usesPollution() && preparedPollutionProfiles.isEmpty() || !getPollutionGridProvider().get().isEmpty())
+            return;
+
+        StopWatch sw = new StopWatch().start();
+        try {
+            getPollutionGridProvider().refresh();
+            logger.info("pollution grid loaded in " + sw.stop().getSeconds() + "s, " + getPollutionGridProvider());
+        } catch (RuntimeException ex) {
+            logger.warn("Cannot load pollution grid, the exposure of all edges will be zero: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Loads the forecast layers from the grid files in pollution.forecast_locations, where the version of each grid is
+     * the time its layer is valid for, see {@link PollutionGridFile}.
+     */
+    protected void initPollutionForecast() {
+        if (pollutionForecast != null || pollutionForecastLocations.isEmpty() || !usesPollution())
+            return;
+
+        StopWatch sw = new StopWatch().start();
+        List<PollutionGrid> layers = new ArrayList<>();
+        for (String location : pollutionForecastLocations) {
+            layers.add(new PollutionGridFile(location, pollutionGridDAType).load());
+        }
+        Collections.sort(layers, new Comparator<PollutionGrid>() {
+            @Override
+            public int compare(PollutionGrid o1, PollutionGrid o2) {
+                return Long.compare(o1.getVersion(), o2.getVersion());
+            }
+        });
+        PollutionForecast.Builder builder = new PollutionForecast.Builder();
+        for (PollutionGrid layer : layers) {
+            builder.addLayer(layer.getVersion(), layer);
+        }
+        pollutionForecast = builder.build();
+        logger.info("pollution forecast loaded in " + sw.stop().getSeconds() + "s, " + pollutionForecast);
+    }
+
+    /**
+     * Loads or calculates the exposure of all edges and recalculates it whenever a new pollution snapshot is
+     * published. The stored exposure is kept if no snapshot could be loaded.
+     */
+    private void initEdgeExposure() {
+        if (preparedExposureStorage != null)
+            initPreparedEdgeExposure();
+        if (exposureStorage == null)
+            return;
+
+        if (!exposureStorage.loadExisting())
+            exposureStorage.create(1000);
+        PollutionGrid grid = getPollutionGridProvider().get();
+        if (!grid.isEmpty() && grid.getVersion() != exposureStorage.getVersion())
+            fillEdgeExposure(grid);
+
+        getPollutionGridProvider().addListener(new PollutionGridListener() {
+            @Override
+            public void onPublish(PollutionGrid grid) {
+                fillEdgeExposure(grid);
+            }
+        });
+    }
+
+    private void fillEdgeExposure(PollutionGrid grid) {
+        if (!allowWrites) {
+            logger.warn("Cannot update edge exposure to pollution snapshot " + grid.getVersion() + " as writes are not allowed");
+            return;
+        }
+        StopWatch sw = new StopWatch().start();
+        exposureStorage.fill(ghStorage, grid);
+        exposureStorage.flush();
+        logger.info("edge exposure calculated in " + sw.stop().getSeconds() + "s, " + exposureStorage);
+    }
+
+    /**
+     * Recalculates the shortcut weights of the customizable CH profiles if their exposure is outdated and whenever a
+     * new pollution snapshot is published. This runs after the exposure was updated by the listener of
+     * {@link #initEdgeExposure()}.
+     */
+    private void initCHCustomization() {
+        if (customizablePollutionProfiles.isEmpty())
+            return;
+
+        customizeCH();
+        getPollutionGridProvider().addListener(new PollutionGridListener() {
+            @Override
+            public void onPublish(PollutionGrid grid) {
+                customizeCH();
+            }
+        });
+    }
+
+    private void customizeCH() {
+        for (String profile : customizablePollutionProfiles) {
+            if (getCustomizedPollutionVersion(profile).equals("" + exposureStorage.getVersion()))
+                continue;
+            if (!allowWrites) {
+                logger.warn("Cannot customize CH of " + profile + " to edge exposure " + exposureStorage.getVersion() + " as writes are not allowed");
+                continue;
+            }
+            CHGraph chGraph = ghStorage.getCHGraph(profile);
+            CHCustomizer customizer = new CHCustomizer(chGraph, chGraph.getCHConfig().getWeighting()).calcWeights();
+            chCustomizationLock.writeLock().lock();
+            try {
+                customizer.apply();
+            } finally {
+                chCustomizationLock.writeLock().unlock();
+            }
+            // the new shortcut weights and this version are written with the next flush of the storage
+            setCustomizedPollutionVersion(profile, exposureStorage.getVersion());
+        }
+    }
+
+    private String getCustomizedPollutionVersion(String profile) {
+        return ghStorage.getProperties().get(CH.PREPARE + profile + ".pollution.version");
+    }
+
+    private void setCustomizedPollutionVersion(String profile, long version) {
+        ghStorage.getProperties().put(CH.PREPARE + profile + ".pollution.version", version);
+    }
+
+    private static final String POLLUTION_VERSION_KEY = "prepare.pollution.version";
+
+    /**
+     * The CH and LM data of pollution profiles is only valid for the exposure it was prepared with, so this
+     * exposure is frozen into a separate storage and the version of its snapshot is recorded in the properties.
+     */
+    private void initPreparedEdgeExposure() {
+        StorableProperties properties = ghStorage.getProperties();
+        if (preparedExposureStorage.loadExisting()) {
+            if (!properties.get(POLLUTION_VERSION_KEY).equals("" + preparedExposureStorage.getVersion()))
+                throw new IllegalStateException("The frozen pollution exposure " + preparedExposureStorage
+                        + " does not match the snapshot of the CH/LM preparation: " + properties.get(POLLUTION_VERSION_KEY));
+            logger.info("loaded frozen pollution exposure for " + preparedPollutionProfiles + ", " + preparedExposureStorage);
+            return;
+        }
+
+        for (String profile : preparedPollutionProfiles) {
+            if (!getProfileVersion(profile).isEmpty())
+                throw new IllegalStateException("CH/LM preparation of " + profile + " already exists in storage but the frozen pollution exposure is missing");
+        }
+        PollutionGrid grid = getPollutionGridProvider().get();
+        if (grid.isEmpty())
+            throw new IllegalStateException("Cannot prepare CH/LM for the pollution profiles " + preparedPollutionProfiles + " without a pollution snapshot");
+        ensureWriteAccess();
+        StopWatch sw = new StopWatch().start();
+        preparedExposureStorage.create(1000);
+        preparedExposureStorage.fill(ghStorage, grid);
+        preparedExposureStorage.flush();
+        properties.put(POLLUTION_VERSION_KEY, grid.getVersion());
+        logger.info("froze pollution exposure for " + preparedPollutionProfiles + " in " + sw.stop().getSeconds() + "s, " + preparedExposureStorage);
+    }
+
+    private Set<String> findPreparedPollutionProfiles() {
+        Set<String> preparedProfiles = new HashSet<>();
+        for (CHProfile chProfile : chPreparationHandler.getCHProfiles()) {
+            preparedProfiles.add(chProfile.getProfile());
+        }
+        preparedProfiles.removeAll(customizablePollutionProfiles);
+        preparedProfiles.addAll(findLMProfileNames());
+        Set<String> result = new TreeSet<>();
+        for (String name : preparedProfiles) {
+            Profile profile = profilesByName.get(name);
+            if (profile != null && PollutionWeighting.isPollutionWeighting(profile.getWeighting()))
+                result.add(name);
+        }
+        return result;
+    }
+
+    /**
+     * The landmarks are only valid for the exposure they were calculated with, so profiles that are also used for LM
+     * keep the frozen exposure.
+     */
+    private Set<String> findCustomizablePollutionProfiles() {
+        if (!pollutionCHCustomizable)
+            return Collections.emptySet();
+        Set<String> lmProfiles = findLMProfileNames();
+        Set<String> result = new TreeSet<>();
+        for (CHProfile chProfile : chPreparationHandler.getCHProfiles()) {
+            Profile profile = profilesByName.get(chProfile.getProfile());
+            if (profile == null || !PollutionWeighting.isPollutionWeighting(profile.getWeighting()))
+                continue;
+            if (lmProfiles.contains(profile.getName()))
+                logger.warn("CH of " + profile.getName() + " cannot be customized because the profile is also used for LM");
+            else
+                result.add(profile.getName());
+        }
+        return result;
+    }
+
+    private Set<String> findLMProfileNames() {
+        Set<String> lmProfiles = new HashSet<>();
+        for (LMProfile lmProfile : lmPreparationHandler.getLMProfiles()) {
+            lmProfiles.add(lmProfile.getProfile());
+            if (lmProfile.usesOtherPreparation())
+                lmProfiles.add(lmProfile.getPreparationProfile());
+        }
+        return lmProfiles;
+    }
+
+    private boolean hasPollutionSource() {
+        return pollutionGridProvider != null || !isEmpty(pollutionGridLocation) || pollutionConnectionPool != null
+                || !isEmpty(pollutionConfigFile);
+    }
+
+    /**
+     * @return true if a profile without CH or LM preparation uses a pollution weighting
+     */
+    private boolean usesPollution() {
+        for (Profile profile : profilesByName.values()) {
+            if (PollutionWeighting.isPollutionWeighting(profile.getWeighting()) && !preparedPollutionProfiles.contains(profile.getName()))
+                return true;
+        }
+        return false;
+    }
+
     protected void importPublicTransit() {
     }
 
+    private static final String SORT_ORDER_KEY = "graph.sort_order";
+
+    private boolean isSorted() {
+        return !ghStorage.getProperties().get(SORT_ORDER_KEY).isEmpty();
+    }
+
     private static final String INTERPOLATION_KEY = "prepare.elevation_interpolation.done";
 
     private boolean hasInterpolated() {
@@ -1026,13 +1515,18 @@ public class GraphHopper implements GraphHopperAPI {
      *                         LM preparation or Isochrones
      */
     public Weighting createWeighting(Profile profile, PMap hints, boolean disableTurnCosts) {
-        return new DefaultWeightingFactory(ghStorage, encodingManager).createWeighting(profile, hints, disableTurnCosts);
+        EdgeExposureStorage storage = preparedPollutionProfiles.contains(profile.getName()) ? preparedExposureStorage : exposureStorage;
+        return new DefaultWeightingFactory(ghStorage, encodingManager, getPollutionGridProvider(), storage, pollutionForecast).createWeighting(profile, hints, disableTurnCosts);
     }
 
+    /**
+     * Calculates the route or takes it from the route cache, see {@link #setRouteCache}. Time dependent routes are
+     * only cached if the request contains the departure time.
+     */
     @Override
     public GHResponse route(GHRequest request) {
         GHResponse response = new GHResponse();
-        calcPaths(request, response);
+        calcPaths(request, response, routeCache);
         return response;
     }
 
@@ -1040,6 +1534,14 @@ public class GraphHopper implements GraphHopperAPI {
      * This method calculates the alternative path list using the low level Path objects.
      */
     public List<Path> calcPaths(GHRequest request, GHResponse ghRsp) {
+        return calcPaths(request, ghRsp, null);
+    }
+
+    /**
+     * @param cache the cache the response paths are taken from and put into or null. If the route is taken from the
+     *              cache only the response is filled and the returned list is empty.
+     */
+    private List<Path> calcPaths(GHRequest request, GHResponse ghRsp, RouteCache cache) {
         if (ghStorage == null || !fullyLoaded)
             throw new IllegalStateException("Do a successful call to load or importOrLoad before routing");
 
@@ -1105,6 +1607,22 @@ public class GraphHopper implements GraphHopperAPI {
             int maxVisitedNodesForRequest = request.getHints().getInt(Routing.MAX_VISITED_NODES, routingConfig.getMaxVisitedNodes());
             if (maxVisitedNodesForRequest > routingConfig.getMaxVisitedNodes())
                 throw new IllegalArgumentException("The max_visited_nodes parameter has to be below or equal to:" + routingConfig.getMaxVisitedNodes());
+            if (ANT_COLONY.equalsIgnoreCase(algoStr))
+                checkACOLimits(request.getHints());
+
+            String cacheKey = null;
+            // without an explicit departure time the route depends on the time of the request
+            if (cache != null && !(TD_DIJKSTRA.equalsIgnoreCase(algoStr) && !request.getHints().has(TimeDependent.DEPARTURE_TIME))) {
+                cacheKey = RouteCache.createKey(request, qResults, getRouteVersion(profile, weighting, chPreparationHandler.isEnabled() && !disableCH));
+                List<ResponsePath> cachedPaths = cache.get(cacheKey);
+                if (cachedPaths != null) {
+                    for (ResponsePath responsePath : cachedPaths) {
+                        ghRsp.add(responsePath);
+                    }
+                    ghRsp.addDebugInfo("route cache hit");
+                    return Collections.emptyList();
+                }
+            }
 
             AlgorithmOptions algoOpts = AlgorithmOptions.start().
                     algorithm(algoStr).
@@ -1115,7 +1633,17 @@ public class GraphHopper implements GraphHopperAPI {
                     build();
 
             // do the actual route calculation !
-            List<Path> altPaths = routingTemplate.calcPaths(queryGraph, algorithmFactory, algoOpts);
+            List<Path> altPaths;
+            Lock customizationLock = chPreparationHandler.isEnabled() && !disableCH && customizablePollutionProfiles.contains(profile.getName())
+                    ? chCustomizationLock.readLock() : null;
+            if (customizationLock != null)
+                customizationLock.lock();
+            try {
+                altPaths = routingTemplate.calcPaths(queryGraph, algorithmFactory, algoOpts);
+            } finally {
+                if (customizationLock != null)
+                    customizationLock.unlock();
+            }
 
             boolean tmpEnableInstructions = request.getHints().getBool(Routing.INSTRUCTIONS, encodingManager.isEnableInstructions());
             boolean tmpCalcPoints = request.getHints().getBool(Routing.CALC_POINTS, routingConfig.isCalcPoints());
@@ -1133,6 +1661,8 @@ public class GraphHopper implements GraphHopperAPI {
                 pathMerger.setFavoredHeading(request.getHeadings().get(0));
 
             routingTemplate.finish(pathMerger, trMap.getWithFallBack(request.getLocale()));
+            if (cacheKey != null && !ghRsp.hasErrors())
+                cache.put(cacheKey, ghRsp.getAll());
             return altPaths;
         } catch (IllegalArgumentException ex) {
             ghRsp.addError(ex);
@@ -1140,6 +1670,23 @@ public class GraphHopper implements GraphHopperAPI {
         }
     }
 
+    /**
+     * @return the version of the pollution exposure the routes of the specified weighting are calculated with or 0 if
+     * they do not depend on the pollution. The exposure of a CH or LM preparation stays the same when new snapshots
+     * are published, unless the CH is customized.
+     */
+    private long getRouteVersion(Profile profile, Weighting weighting, boolean useCH) {
+        if (useCH && customizablePollutionProfiles.contains(profile.getName())) {
+            String version = getCustomizedPollutionVersion(profile.getName());
+            return Helper.isEmpty(version) ? -1 : Long.parseLong(version);
+        }
+        while (weighting instanceof AbstractAdjustedWeighting)
+            weighting = ((AbstractAdjustedWeighting) weighting).getSuperWeighting();
+        if (weighting instanceof PollutionWeighting)
+            return ((PollutionWeighting) weighting).getExposureVersion();
+        return 0;
+    }
+
     private List<String> getTurnCostProfiles() {
         List<String> turnCostProfiles = new ArrayList<>();
         for (Profile p : profilesByName.values()) {
@@ -1209,7 +1756,7 @@ public class GraphHopper implements GraphHopperAPI {
         RoutingTemplate routingTemplate;
         if (ROUND_TRIP.equalsIgnoreCase(algoStr))
             routingTemplate = new RoundTripRoutingTemplate(request, ghRsp, locationIndex, encodingManager, weighting, routingConfig.getMaxRoundTripRetries());
-        else if (ALT_ROUTE.equalsIgnoreCase(algoStr))
+        else if (ALT_ROUTE.equalsIgnoreCase(algoStr) || PARETO.equalsIgnoreCase(algoStr))
             routingTemplate = new AlternativeRoutingTemplate(request, ghRsp, locationIndex, encodingManager, weighting);
         else
             routingTemplate = new ViaRoutingTemplate(request, ghRsp, locationIndex, encodingManager, weighting);
@@ -1363,6 +1910,10 @@ public class GraphHopper implements GraphHopperAPI {
         logger.info("flushing graph " + ghStorage.toString() + ", details:" + ghStorage.toDetailsString() + ", "
                 + getMemInfo() + ")");
         ghStorage.flush();
+        if (exposureStorage != null)
+            exposureStorage.flush();
+        if (preparedExposureStorage != null)
+            preparedExposureStorage.flush();
         logger.info("flushed graph " + getMemInfo() + ")");
         setFullyLoaded();
     }
@@ -1375,9 +1926,17 @@ public class GraphHopper implements GraphHopperAPI {
         if (ghStorage != null)
             ghStorage.close();
 
+        if (exposureStorage != null)
+            exposureStorage.close();
+        if (preparedExposureStorage != null)
+            preparedExposureStorage.close();
+
         if (locationIndex != null)
             locationIndex.close();
 
+        if (pollutionConnectionPool != null)
+            pollutionConnectionPool.close();
+
         try {
             lockFactory.forceRemove(fileLockName, true);
         } catch (Exception ex) {
@@ -1418,10 +1977,18 @@ public class GraphHopper implements GraphHopperAPI {
     private static class DefaultWeightingFactory {
         private final GraphHopperStorage ghStorage;
         private final EncodingManager encodingManager;
+        private final PollutionGridProvider pollutionGridProvider;
+        private final EdgeExposureStorage exposureStorage;
+        private final PollutionForecast pollutionForecast;
 
-        public DefaultWeightingFactory(GraphHopperStorage ghStorage, EncodingManager encodingManager) {
+        public DefaultWeightingFactory(GraphHopperStorage ghStorage, EncodingManager encodingManager,
+                                       PollutionGridProvider pollutionGridProvider, EdgeExposureStorage exposureStorage,
+                                       PollutionForecast pollutionForecast) {
             this.ghStorage = ghStorage;
             this.encodingManager = encodingManager;
+            this.pollutionGridProvider = pollutionGridProvider;
+            this.exposureStorage = exposureStorage;
+            this.pollutionForecast = pollutionForecast;
         }
 
         public Weighting createWeighting(Profile profile, PMap requestHints, boolean disableTurnCosts) {
@@ -1471,28 +2038,15 @@ public class GraphHopper implements GraphHopperAPI {
 
             } else if ("short_fastest".equalsIgnoreCase(weightingStr)) {
                 weighting = new ShortFastestWeighting(encoder, hints, turnCostProvider);
-            } else if ("qaira_weighting_co".equalsIgnoreCase(weightingStr)) {
-                weighting = new QairaWeightingCO(encoder, turnCostProvider);
-                weighting.setGraph(ghStorage.getBaseGraph());
-                
-            }else if ("qaira_weighting_hs".equalsIgnoreCase(weightingStr)) {
-                weighting= new QairaWeightingH2S(encoder, turnCostProvider);
-                weighting.setGraph(ghStorage.getBaseGraph());
-            }else if ("qaira_weighting_no".equalsIgnoreCase(weightingStr)) {
-                weighting= new QairaWeightingNO2(encoder, turnCostProvider);
-                weighting.setGraph(ghStorage.getBaseGraph());
-            }else if ("qaira_weighting_o".equalsIgnoreCase(weightingStr)) {
-                weighting= new QairaWeightingO3(encoder, turnCostProvider);
-                weighting.setGraph(ghStorage.getBaseGraph());                
-            }else if ("qaira_weighting_pmd".equalsIgnoreCase(weightingStr)) {
-                weighting= new QairaWeightingPM10(encoder, turnCostProvider);
-                weighting.setGraph(ghStorage.getBaseGraph());
-            }else if("qaira_weighting_pmv".equalsIgnoreCase(weightingStr)){
-                weighting= new QairaWeightingPM25(encoder, turnCostProvider);
-                weighting.setGraph(ghStorage.getBaseGraph());
-            }else if ("qaira_weighting_so".equalsIgnoreCase(weightingStr)) {
-                weighting= new QairaWeightingSO2(encoder, turnCostProvider);
-                weighting.setGraph(ghStorage.getBaseGraph());                
+            } else if (PollutionWeighting.isPollutionWeighting(weightingStr)) {
+                // the legacy qaira_weighting_* names select a single pollutant
+                Pollutant pollutant = Pollutant.findByWeighting(weightingStr);
+                if (pollutant != null && !hints.has(PollutionWeighting.POLLUTANTS))
+                    hints.putObject(PollutionWeighting.POLLUTANTS, pollutant.toString());
+                weighting = pollutionForecast == null
+                        ? new PollutionWeighting(encoder, hints, turnCostProvider, pollutionGridProvider)
+                        : new TimeDependentPollutionWeighting(encoder, hints, turnCostProvider, pollutionGridProvider, pollutionForecast);
+                ((PollutionWeighting) weighting).setExposureStorage(exposureStorage);
             }
 
             if (weighting == null)
@@ -1502,10 +2056,22 @@ public class GraphHopper implements GraphHopperAPI {
         }
     }
 
+    private void checkACOLimits(PMap hints) {
+        if (hints.getInt(AntColony.ANTS, 0) > routingConfig.getMaxACOAnts())
+            throw new IllegalArgumentException("The " + AntColony.ANTS + " parameter has to be below or equal to:" + routingConfig.getMaxACOAnts());
+        if (hints.getInt(AntColony.MAX_ITERATIONS, 0) > routingConfig.getMaxACOIterations())
+            throw new IllegalArgumentException("The " + AntColony.MAX_ITERATIONS + " parameter has to be below or equal to:" + routingConfig.getMaxACOIterations());
+        if (hints.getLong(AntColony.TIMEOUT_MS, 0) > routingConfig.getACOTimeoutMillis())
+            throw new IllegalArgumentException("The " + AntColony.TIMEOUT_MS + " parameter has to be below or equal to:" + routingConfig.getACOTimeoutMillis());
+    }
+
     private static class RoutingConfig {
         private int maxVisitedNodes = Integer.MAX_VALUE;
         private int maxRoundTripRetries = 3;
         private int nonChMaxWaypointDistance = Integer.MAX_VALUE;
+        private int maxACOAnts = 1_000;
+        private int maxACOIterations = 1_000;
+        private long acoTimeoutMillis = ACO.DEFAULT_TIMEOUT_MILLIS;
         private boolean calcPoints = true;
         private boolean simplifyResponse = true;
 
@@ -1533,6 +2099,30 @@ public class GraphHopper implements GraphHopperAPI {
             this.nonChMaxWaypointDistance = nonChMaxWaypointDistance;
         }
 
+        public int getMaxACOAnts() {
+            return maxACOAnts;
+        }
+
+        public void setMaxACOAnts(int maxACOAnts) {
+            this.maxACOAnts = maxACOAnts;
+        }
+
+        public int getMaxACOIterations() {
+            return maxACOIterations;
+        }
+
+        public void setMaxACOIterations(int maxACOIterations) {
+            this.maxACOIterations = maxACOIterations;
+        }
+
+        public long getACOTimeoutMillis() {
+            return acoTimeoutMillis;
+        }
+
+        public void setACOTimeoutMillis(long acoTimeoutMillis) {
+            this.acoTimeoutMillis = acoTimeoutMillis;
+        }
+
         public boolean isCalcPoints() {
             return calcPoints;
         }
@@ -17,260 +17,355 @@
  */
 package com.graphhopper.routing;
 
-import com.carrotsearch.hppc.IntObjectHashMap;
-import com.carrotsearch.hppc.IntObjectMap;
-import com.carrotsearch.hppc.cursors.IntCursor;
-import com.carrotsearch.hppc.cursors.IntObjectCursor;
-import com.carrotsearch.hppc.cursors.IntShortCursor;
-import com.graphhopper.coll.GHIntObjectHashMap;
+import com.carrotsearch.hppc.DoubleArrayList;
+import com.carrotsearch.hppc.IntArrayList;
+import com.graphhopper.coll.GHBitSet;
+import com.graphhopper.coll.GHBitSetImpl;
 import com.graphhopper.routing.util.TraversalMode;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.Graph;
+import com.graphhopper.util.EdgeExplorer;
 import com.graphhopper.util.EdgeIterator;
-import com.graphhopper.util.EdgeIteratorState;
 import com.graphhopper.util.GHUtility;
-import com.graphhopper.util.Parameters;
 import com.graphhopper.util.StopWatch;
-import com.graphhopper.util.shapes.GHPoint;
-import java.io.File;
-import java.io.FileWriter;
-import java.io.IOException;
+
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.LinkedHashMap;
-import java.util.LinkedList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
-
-import java.util.PriorityQueue;
-import java.util.Queue;
 import java.util.Random;
-import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
- *  Implements Ant Colony Optimization Algorithm
+ * Implements Ant Colony Optimization Algorithm. In every iteration each ant walks from the start to the end node
+ * without visiting a node twice. At every node it picks one of the outgoing edges randomly, preferring edges with
+ * more pheromone and a lower weight of the walk so far. The best ants of an iteration deposit pheromone on their
+ * edges and then the pheromone of all edges evaporates.
+ * <p>
+ * The pheromone is stored per edge direction in a primitive array and the walk of an ant only uses buffers that are
+ * re-used for all ants, so that a step of an ant only depends on the degree of its node.
+ * <p>
+ * The ants of an iteration only read the pheromone and can therefore walk in parallel, see
+ * {@link #setParallelism(int)}. Every ant has its own random generator derived from the seed, the iteration and its
+ * index, and the walks are merged in the order of the ants, so the result for a seed does not depend on the
+ * parallelism.
  *
  * @author Jhon
  */
 public class ACO extends AbstractRoutingAlgorithm {
-    protected HashMap<String,ACOEntry> fromMap;
-    protected PriorityQueue<ACOEntry> fromHeap;
-    protected ACOEntry currEdge;
-    private ACOEntry bestPath=null;
-    private int visitedNodes;
+    // the worker threads are shared by all requests, the parallelism of a request limits how many of them it uses
+    private static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    /**
+     * The default timeout, so that a search with many ants or iterations cannot block its thread indefinitely
+     */
+    public static final long DEFAULT_TIMEOUT_MILLIS = 10_000;
+    // weights of zero would lead to infinite pheromone or probabilities
+    private static final double MIN_WEIGHT = 1e-3;
+    private int ants = 100;
+    private int maxIterations = 100;
+    private double evaporation = 0.5;
+    private double deposit = 5;
+    private int eliteAnts = 50;
+    private double alpha = 0.3;
+    private double beta = 1.2;
+    private int maxStagnation = 20;
+    private long timeoutMillis = DEFAULT_TIMEOUT_MILLIS;
+    private int iterations;
+
+    // the pheromone of every edge direction, indexed by the edge key, see GHUtility.createEdgeKey
+    private float[] pheromones;
+    // the edge keys with pheromone, only those need to evaporate
+    private final IntArrayList pheromoneKeys = new IntArrayList();
+    private final GHBitSet pheromoneKeySet;
+    private long seed = new Random().nextLong();
+    private int parallelism = 1;
+    private ACOListener listener;
+    private int from = -1;
     private int to = -1;
-    private int ANTS=100;
-    private int MAX_ITER=100;
-    private double RHO=0.5;
-    private double PHEROMONE=5;
-    private int ELITEANTS=50;
-    private double ALPHA=0.3;
-    private double BETA=1.2;
+    private int visitedNodes;
 
-    
+    // the walks of all ants of the current iteration
+    private Walk[] walks;
+    // the best walk of all iterations
+    private final IntArrayList bestEdges = new IntArrayList();
+    private final IntArrayList bestNodes = new IntArrayList();
+    private final DoubleArrayList bestEdgeWeights = new DoubleArrayList();
+    private double bestWeight = Double.POSITIVE_INFINITY;
 
     public ACO(Graph graph, Weighting weighting, TraversalMode tMode) {
         super(graph, weighting, tMode);
-        int size = Math.min(Math.max(200, graph.getNodes() / 10), 2000);
-        initCollections(size);
+        pheromones = new float[2 * graph.getEdges()];
+        pheromoneKeySet = new GHBitSetImpl(2 * graph.getEdges());
+    }
+
+    /**
+     * Makes the choices of the ants and therefore the resulting path reproducible.
+     */
+    public ACO setSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * Sets the number of ants walking in every iteration.
+     */
+    public ACO setAnts(int ants) {
+        if (ants < 1)
+            throw new IllegalArgumentException("ants must be positive but was " + ants);
+        this.ants = ants;
+        return this;
+    }
+
+    /**
+     * Sets the number of iterations after which the search stops at the latest.
+     */
+    public ACO setMaxIterations(int maxIterations) {
+        if (maxIterations < 1)
+            throw new IllegalArgumentException("max iterations must be positive but was " + maxIterations);
+        this.maxIterations = maxIterations;
+        return this;
+    }
+
+    /**
+     * Sets the share of the pheromone that evaporates after every iteration.
+     */
+    public ACO setEvaporation(double evaporation) {
+        if (evaporation < 0 || evaporation > 1)
+            throw new IllegalArgumentException("evaporation must be within [0, 1] but was " + evaporation);
+        this.evaporation = evaporation;
+        return this;
+    }
+
+    /**
+     * Sets the pheromone an elite ant deposits on an edge with weight 1, edges with a higher weight get less.
+     */
+    public ACO setDeposit(double deposit) {
+        if (deposit <= 0)
+            throw new IllegalArgumentException("deposit must be positive but was " + deposit);
+        this.deposit = deposit;
+        return this;
+    }
+
+    /**
+     * Sets how many of the best ants of an iteration deposit pheromone.
+     */
+    public ACO setEliteAnts(int eliteAnts) {
+        if (eliteAnts < 1)
+            throw new IllegalArgumentException("elite ants must be positive but was " + eliteAnts);
+        this.eliteAnts = eliteAnts;
+        return this;
+    }
+
+    /**
+     * Sets the exponent for the inverse weight of the walk when an ant chooses the next edge.
+     */
+    public ACO setAlpha(double alpha) {
+        this.alpha = alpha;
+        return this;
+    }
+
+    /**
+     * Sets the exponent for the pheromone of an edge when an ant chooses the next edge.
+     */
+    public ACO setBeta(double beta) {
+        this.beta = beta;
+        return this;
+    }
+
+    /**
+     * Stops the search once the best path did not improve for the specified number of iterations.
+     */
+    public ACO setMaxStagnation(int maxStagnation) {
+        if (maxStagnation < 1)
+            throw new IllegalArgumentException("max stagnation must be positive but was " + maxStagnation);
+        this.maxStagnation = maxStagnation;
+        return this;
+    }
+
+    /**
+     * Stops the search after the iteration that exceeds the specified time. Note that the resulting path then depends
+     * on the speed of the machine even if a seed is used.
+     */
+    public ACO setTimeoutMillis(long timeoutMillis) {
+        if (timeoutMillis < 0)
+            throw new IllegalArgumentException("timeout must not be negative but was " + timeoutMillis);
+        this.timeoutMillis = timeoutMillis;
+        return this;
+    }
+
+    /**
+     * Sets the listener that is notified after every iteration, e.g. to collect metrics.
+     */
+    public ACO setListener(ACOListener listener) {
+        this.listener = listener;
+        return this;
     }
 
-    protected void initCollections(int size) {
-        fromHeap = new PriorityQueue<>(size);
-        fromMap = new HashMap<>(size);
+    /**
+     * Sets the maximum number of threads the ants of an iteration walk in. Every thread needs its own set of buffers
+     * including a bit set for the visited nodes of the graph. The parallelism is capped at the number of shared worker
+     * threads, see {@link #getMaxParallelism()}.
+     */
+    public ACO setParallelism(int parallelism) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("parallelism must be positive but was " + parallelism);
+        this.parallelism = Math.min(parallelism, getMaxParallelism());
+        return this;
+    }
+
+    /**
+     * @return the number of worker threads shared by all requests
+     */
+    public static int getMaxParallelism() {
+        return POOL.getParallelism();
+    }
+
+    public int getParallelism() {
+        return parallelism;
     }
 
     @Override
     public Path calcPath(int from, int to) {
         checkAlreadyRun();
+        this.from = from;
         this.to = to;
-        bestPath=null;
-        
-        for (int i = 0; i < this.MAX_ITER; i++) {
+        walks = new Walk[ants];
+        for (int j = 0; j < ants; j++) {
+            walks[j] = new Walk();
+        }
+        // every chunk is a contiguous range of ants walked by one thread
+        int chunks = Math.min(parallelism, ants);
+        List<AntsTask> tasks = new ArrayList<>(chunks);
+        for (int c = 0; c < chunks; c++) {
+            tasks.add(new AntsTask(new Ant(), c * ants / chunks, (c + 1) * ants / chunks));
+        }
+        long start = System.nanoTime();
+        int stagnation = 0;
+        for (int i = 0; i < maxIterations && !isMaxVisitedNodesExceeded(); i++) {
             StopWatch sw = new StopWatch().start();
-            for (int j = 0; j < this.ANTS; j++) {// for each of the ants
-                currEdge = new ACOEntry(EdgeIterator.NO_EDGE, from, 0,0 , 0);
-                if (!traversalMode.isEdgeBased() && i==0 && j==0) {
-                    fromMap.put(String.valueOf(from), currEdge);
-                    
-                }
-                runAlgo(from);
+            iterations++;
+            for (AntsTask task : tasks) {
+                task.iteration = i;
+                task.reinitialize();
             }
-            // update pheromones
-            this.depositPheromone();
-            if(bestPath==null){
-                bestPath=fromHeap.poll();
-            }else {
-                ACOEntry aux=fromHeap.poll();
-                if(bestPath.weight>aux.weight){
-                    bestPath=aux;
-                }
-            }
-            this.evaporatePheromones();
-            String important="Iter: "+i+", duration of iter: "+sw.stop().getSeconds()+"s,";
-            this.currEdge=bestPath;
-            Path tmpPath= extractPath();
-            important+="visitedNodes: "+ tmpPath.getEdgeCount()+", distance: "+tmpPath.getDistance()+",time: "+tmpPath.getTime()+"ms";
-            File output= new File("outputIterACO.txt");
-            FileWriter writer;
-            try {
-                writer = new FileWriter(output, true);
-                writer.write(important+"\n");
-                writer.flush();
-                writer.close();
-            } catch (IOException ex) {
-                System.out.println(ex.getMessage());
+            if (chunks == 1)
+                tasks.get(0).compute();
+            else
+                POOL.invoke(new ForkAll(tasks));
+
+            boolean improved = false;
+            int iterationVisitedNodes = 0;
+            for (Walk walk : walks) {
+                iterationVisitedNodes += walk.visitedNodes;
+                if (walk.found && updateBest(walk))
+                    improved = true;
             }
+            visitedNodes += iterationVisitedNodes;
+            stagnation = improved ? 0 : stagnation + 1;
+            depositPheromone();
+            evaporatePheromones();
+
+            if (listener != null)
+                listener.onIteration(i, bestWeight, iterationVisitedNodes, sw.stop().getNanos());
+
+            // stop early once the ants keep following the best path or the time is up
+            if (stagnation >= maxStagnation || (System.nanoTime() - start) / 1_000_000 >= timeoutMillis)
+                break;
         }
-        this.currEdge=bestPath;
         return extractPath();
     }
-    public void evaporatePheromones(){
-        Set<String> array=fromMap.keySet();
-        for (String i : array) {
-            ACOEntry edge=fromMap.get(i);
-            edge.pheromone=edge.pheromone*(1-this.RHO);
-            fromMap.put(i, edge);
+
+    private float getPheromone(int key) {
+        return key < pheromones.length ? pheromones[key] : 0;
+    }
+
+    private boolean updateBest(Walk walk) {
+        if (walk.weight < bestWeight) {
+            bestWeight = walk.weight;
+            bestEdges.clear();
+            bestEdges.addAll(walk.edges);
+            bestNodes.clear();
+            bestNodes.addAll(walk.nodes);
+            bestEdgeWeights.clear();
+            bestEdgeWeights.addAll(walk.weights);
+            return true;
         }
+        return false;
     }
-    public void depositPheromone(){
-        PriorityQueue<ACOEntry> aux=new PriorityQueue<>(fromHeap);
-        for (int i = 0; i < this.ELITEANTS; i++) {
-            ACOEntry path=aux.poll();
-            ACOEntry currEntry = path;
-            while (currEntry!=null && EdgeIterator.Edge.isValid(currEntry.edge)) {
-                int key=currEntry.adjNode;
-                int key0=currEntry.getParent().adjNode;
-                ACOEntry auxEdge=fromMap.get(String.valueOf(key0)+"-"+String.valueOf(key));
-                auxEdge.addPheromone(this.PHEROMONE/auxEdge.getWeightNode());
-                fromMap.put(String.valueOf(key0)+"-"+String.valueOf(key), auxEdge);
-                currEntry = auxEdge.getParent();
+
+    /**
+     * The best eliteAnts walks of the current iteration add deposit / edge weight to the pheromone of their edges.
+     */
+    private void depositPheromone() {
+        int found = 0;
+        for (Walk walk : walks) {
+            if (walk.found)
+                found++;
+        }
+        int elites = Math.min(eliteAnts, found);
+        if (elites == 0)
+            return;
+        long[] sortedWeights = new long[found];
+        int k = 0;
+        for (Walk walk : walks) {
+            // weights are non-negative, so the order of their bits is the order of the weights
+            if (walk.found)
+                sortedWeights[k++] = Double.doubleToLongBits(walk.weight);
+        }
+        Arrays.sort(sortedWeights);
+        long maxEliteWeight = sortedWeights[elites - 1];
+        for (Walk walk : walks) {
+            if (!walk.found || Double.doubleToLongBits(walk.weight) > maxEliteWeight)
+                continue;
+            for (int e = 0; e < walk.keys.size(); e++) {
+                addPheromone(walk.keys.get(e), deposit / Math.max(MIN_WEIGHT, walk.weights.get(e)));
             }
         }
     }
 
-    protected void runAlgo(int from) {
-        this.visitedNodes=0;
-        int prevnode=-1;
-        ArrayList<Integer> prevNodes=new ArrayList<>();
-        prevNodes.add(prevnode);
-        ArrayList<Integer> prevNodes1=new ArrayList<>();
-        prevNodes1.add(from);
-        ArrayList<String> Nodes= new ArrayList<>();
-        Nodes.add(String.valueOf(from));
-        while (true) {
-            visitedNodes++;
-            if (isMaxVisitedNodesExceeded() || finished())
-                break;
-
-            int currNode = currEdge.adjNode;
-            EdgeIterator iter = edgeExplorer.setBaseNode(currNode);
-            LinkedHashMap<String,ACOEntry> candidates=new LinkedHashMap<>();
-            while (iter.next()) {
-                if(Nodes.indexOf(String.valueOf(currNode)+"-"+String.valueOf(iter.getAdjNode()))!=-1)
-                    continue;
-                if (!accept(iter, currEdge.edge))
-                    continue;
-                if(iter.getAdjNode()==from)
-                    continue;
-                if(iter.getAdjNode()==prevnode)
-                    continue;
-                if(prevNodes.indexOf(iter.getAdjNode())!=-1)
-                    continue;
-                // todo: for #1776/#1835 move the access check into weighting
-                double tmpWeight = !outEdgeFilter.accept(iter)
-                        ? Double.POSITIVE_INFINITY
-                        : (GHUtility.calcWeightWithTurnWeight(weighting, iter, false, currEdge.edge));
-                if (Double.isInfinite(tmpWeight)) {
-                    continue;
-                }
-
-                int traversalId = traversalMode.createTraversalId(iter, false);
-                ACOEntry nEdge = fromMap.get(String.valueOf(currNode)+"-"+String.valueOf(traversalId));
-                if(nEdge==null){
-                    nEdge= new ACOEntry(iter.getEdge(), iter.getAdjNode(),tmpWeight+ currEdge.weight,tmpWeight,0.0);
-                    nEdge.parent=currEdge;
-                    candidates.put(String.valueOf(currNode)+"-"+String.valueOf(iter.getAdjNode()), nEdge);
-                }else{
-                    nEdge.parent=currEdge;
-                    candidates.put(String.valueOf(currNode)+"-"+String.valueOf(iter.getAdjNode()), nEdge);
-                }
-            
-                    Nodes.add(String.valueOf(currNode)+"-"+String.valueOf(iter.getAdjNode()));
-            }   
-            // after getting all of the neighbors
-            if(candidates.size()!=0){
-            String selected= this.getNextNode(candidates,prevNodes1);
-            ACOEntry selectedE=fromMap.get(selected);
-            if(selectedE==null){
-                selectedE=candidates.get(selected);
-                selectedE.parent=currEdge;
-                fromMap.put(selected, selectedE);
-            }
-            prevNodes1.add(selectedE.adjNode);
-            this.currEdge=selectedE;
-            ACOEntry parent=selectedE.getParent();
-            if(parent!=null)
-                prevnode=parent.getParent()==null?-1: parent.getParent().adjNode;
-            else
-                prevnode=-1;
-            if(prevnode!=-1)
-                prevNodes.add(prevnode);
-            }else{
-                // if not edge that connects
-                break;
-            }
-            
+    private void addPheromone(int key, double pheromone) {
+        if (key >= pheromones.length) {
+            pheromones = Arrays.copyOf(pheromones, Math.max(key + 1, 2 * pheromones.length));
         }
-        // save the path of the ant
-        if(finished()){
-            ACOEntry pathAnt=currEdge.clone();
-            pathAnt.parent=currEdge.getParent();
-            fromHeap.add(pathAnt);
+        if (!pheromoneKeySet.contains(key)) {
+            pheromoneKeySet.add(key);
+            pheromoneKeys.add(key);
         }
-        
+        pheromones[key] += pheromone;
     }
-    public String getNextNode(LinkedHashMap<String,ACOEntry> candidates, ArrayList<Integer> prevNodes1){
-        double total=0;
-        for (Map.Entry<String, ACOEntry> entry : candidates.entrySet()) {
-            String key = entry.getKey();
-            ACOEntry val = entry.getValue();
-            if(prevNodes1.indexOf(val.adjNode)==-1){
-                total+= Math.pow(1/val.getWeightOfVisitedPath(),this.ALPHA)*Math.pow(val.getPheromone(), this.BETA);   
-            }    
-            else{
-                val.pheromone=0;
-                total+= Math.pow(1/val.getWeightOfVisitedPath(),this.ALPHA)*Math.pow(val.getPheromone(), this.BETA);      
-            }
-        }
-        Random rand= new Random();
-        if(total!=0){
-            double randomI= rand.nextDouble()*total;
-            double newTotal=0;
-            for (Map.Entry<String, ACOEntry> entry : candidates.entrySet()) {
-                String key = entry.getKey();
-                ACOEntry val = entry.getValue();
-                newTotal+=Math.pow(1/val.getWeightOfVisitedPath(),this.ALPHA)*Math.pow(val.getPheromone(), this.BETA);
-                if(newTotal>=randomI)
-                    return key;
-            }
+
+    private void evaporatePheromones() {
+        float factor = (float) (1 - evaporation);
+        for (int i = 0; i < pheromoneKeys.size(); i++) {
+            pheromones[pheromoneKeys.get(i)] *= factor;
         }
-        // if not found random with probabilities, just return a random one
-        List<String> aux=new ArrayList<String>(candidates.keySet());
-        return aux.get(rand.nextInt(aux.size()));
     }
 
     @Override
     protected boolean finished() {
-        return currEdge.adjNode == to;
+        return !bestEdges.isEmpty();
     }
 
     @Override
     protected Path extractPath() {
-        if (currEdge == null || !finished())
+        if (!finished())
             return createEmptyPath();
-        return PathExtractor.extractPath(graph, weighting, currEdge);
+        SPTEntry entry = new SPTEntry(EdgeIterator.NO_EDGE, from, 0);
+        double weight = 0;
+        for (int i = 0; i < bestEdges.size(); i++) {
+            weight += bestEdgeWeights.get(i);
+            SPTEntry next = new SPTEntry(bestEdges.get(i), bestNodes.get(i), weight);
+            next.parent = entry;
+            entry = next;
+        }
+        return PathExtractor.extractPath(graph, weighting, entry);
+    }
+
+    /**
+     * @return the number of iterations the last search took, which is less than the maximum if it stopped early
+     */
+    public int getIterations() {
+        return iterations;
     }
 
     @Override
@@ -278,47 +373,169 @@ public class ACO extends AbstractRoutingAlgorithm {
         return visitedNodes;
     }
 
-    protected void updateBestPath(EdgeIteratorState edgeState, SPTEntry bestSPTEntry, int traversalId) {
+    @Override
+    public String getName() {
+        return "ACO";
     }
 
+    /**
+     * The result of the walk of one ant in the current iteration.
+     */
+    private static class Walk {
+        final IntArrayList edges = new IntArrayList();
+        final IntArrayList nodes = new IntArrayList();
+        final IntArrayList keys = new IntArrayList();
+        final DoubleArrayList weights = new DoubleArrayList();
+        boolean found;
+        double weight;
+        int visitedNodes;
 
+        void clear() {
+            edges.clear();
+            nodes.clear();
+            keys.clear();
+            weights.clear();
+            found = false;
+            weight = 0;
+            visitedNodes = 0;
+        }
+    }
+
+    /**
+     * The state of the ants walking in one thread.
+     */
+    private class Ant {
+        private final EdgeExplorer explorer = graph.createEdgeExplorer();
+        private final GHBitSet visited = new GHBitSetImpl(graph.getNodes());
+        private final Random random = new Random();
+        // the candidates for the next step of the current ant
+        private final IntArrayList candidateEdges = new IntArrayList();
+        private final IntArrayList candidateNodes = new IntArrayList();
+        private final IntArrayList candidateKeys = new IntArrayList();
+        private final DoubleArrayList candidateWeights = new DoubleArrayList();
+        private final DoubleArrayList candidateScores = new DoubleArrayList();
 
-    public static class ACOEntry extends SPTEntry{
-        double pheromone;
-        double weightNode;
+        /**
+         * Lets the ant walk from the start node until it reaches the end node or gets stuck.
+         */
+        void walk(Walk walk, int iteration, int ant) {
+            walk.clear();
+            random.setSeed(seed ^ ((long) iteration * ants + ant) * 0x9E3779B97F4A7C15L);
+            int currNode = from;
+            int prevEdge = EdgeIterator.NO_EDGE;
+            visited.add(from);
+            try {
+                while (currNode != to) {
+                    walk.visitedNodes++;
+                    // only the nodes visited before this iteration count, so that the result is deterministic
+                    if ((long) visitedNodes + walk.visitedNodes > maxVisitedNodes)
+                        return;
+
+                    collectCandidates(currNode, prevEdge);
+                    if (candidateEdges.isEmpty())
+                        return;
 
-        public ACOEntry(int edgeId, int adjNode, double weightForHeap,double weightofNode, double pheromone) {
-            super(edgeId,adjNode,weightForHeap);
-            this.pheromone = pheromone;
-            this.weightNode=weightofNode;
+                    int next = chooseCandidate(walk.weight);
+                    currNode = candidateNodes.get(next);
+                    prevEdge = candidateEdges.get(next);
+                    walk.weight += candidateWeights.get(next);
+                    walk.edges.add(prevEdge);
+                    walk.nodes.add(currNode);
+                    walk.keys.add(candidateKeys.get(next));
+                    walk.weights.add(candidateWeights.get(next));
+                    visited.add(currNode);
+                }
+                walk.found = true;
+            } finally {
+                // only reset the nodes of this walk instead of the whole bit set
+                visited.remove(from);
+                for (int i = 0; i < walk.nodes.size(); i++) {
+                    visited.remove(walk.nodes.get(i));
+                }
+            }
         }
-        public void addPheromone(double pher){
-            this.pheromone+=pher;
+
+        private void collectCandidates(int currNode, int prevEdge) {
+            candidateEdges.clear();
+            candidateNodes.clear();
+            candidateKeys.clear();
+            candidateWeights.clear();
+            EdgeIterator iter = explorer.setBaseNode(currNode);
+            while (iter.next()) {
+                if (visited.contains(iter.getAdjNode()) || !accept(iter, prevEdge))
+                    continue;
+                // todo: for #1776/#1835 move the access check into weighting
+                if (!outEdgeFilter.accept(iter))
+                    continue;
+                double weight = GHUtility.calcWeightWithTurnWeight(weighting, iter, false, prevEdge);
+                if (Double.isInfinite(weight))
+                    continue;
+                candidateEdges.add(iter.getEdge());
+                candidateNodes.add(iter.getAdjNode());
+                candidateKeys.add(GHUtility.createEdgeKey(iter.getBaseNode(), iter.getAdjNode(), iter.getEdge(), false));
+                candidateWeights.add(weight);
+            }
         }
-        public double getPheromone(){
-                return this.pheromone;
+
+        /**
+         * Picks a candidate with a probability proportional to (1 / weight of the walk)^alpha * pheromone^beta, or
+         * any candidate with the same probability if none of them has pheromone yet.
+         */
+        private int chooseCandidate(double currWeight) {
+            candidateScores.clear();
+            double total = 0;
+            for (int i = 0; i < candidateEdges.size(); i++) {
+                double score = Math.pow(1 / Math.max(MIN_WEIGHT, currWeight + candidateWeights.get(i)), alpha)
+                        * Math.pow(getPheromone(candidateKeys.get(i)), beta);
+                candidateScores.add(score);
+                total += score;
+            }
+            if (total > 0) {
+                double selected = random.nextDouble() * total;
+                double sum = 0;
+                for (int i = 0; i < candidateScores.size(); i++) {
+                    sum += candidateScores.get(i);
+                    if (sum >= selected && candidateScores.get(i) > 0)
+                        return i;
+                }
+            }
+            return random.nextInt(candidateEdges.size());
         }
-        public double getWeightNode(){
-            return this.weightNode;
+    }
+
+    /**
+     * Walks a contiguous range of the ants of an iteration.
+     */
+    private class AntsTask extends RecursiveAction {
+        private final Ant ant;
+        private final int fromAnt;
+        private final int toAnt;
+        private int iteration;
+
+        AntsTask(Ant ant, int fromAnt, int toAnt) {
+            this.ant = ant;
+            this.fromAnt = fromAnt;
+            this.toAnt = toAnt;
         }
 
         @Override
-        public ACOEntry getParent() {
-            return (ACOEntry) parent;
+        protected void compute() {
+            for (int j = fromAnt; j < toAnt; j++) {
+                ant.walk(walks[j], iteration, j);
+            }
         }
+    }
 
-        @Override
-        public ACOEntry clone() {
-            return new ACOEntry(edge, adjNode, weight,weightNode,pheromone);
+    private static class ForkAll extends RecursiveAction {
+        private final List<AntsTask> tasks;
+
+        ForkAll(List<AntsTask> tasks) {
+            this.tasks = tasks;
         }
 
-    }
-    
-    
-    
-    
-    @Override
-    public String getName() {
-        return "ACO";
+        @Override
+        protected void compute() {
+            invokeAll(tasks);
+        }
     }
 }
@@ -0,0 +1,34 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+/**
+ * Receives the progress of {@link ACO}. It is called on the request thread after every iteration, so an
+ * implementation should be fast and, if shared between requests, thread-safe.
+ *
+ * @author Jhon
+ */
+public interface ACOListener {
+    /**
+     * @param iteration     the index of the finished iteration, starting with 0
+     * @param bestWeight    the weight of the best path found so far, infinite if no ant reached the end node yet
+     * @param visitedNodes  the number of steps all ants made in the finished iteration
+     * @param durationNanos the duration of the finished iteration
+     */
+    void onIteration(int iteration, double bestWeight, int visitedNodes, long durationNanos);
+}
@@ -20,7 +20,6 @@ package com.graphhopper.routing;
 import com.graphhopper.coll.GHIntObjectHashMap;
 import com.graphhopper.routing.util.TraversalMode;
 import com.graphhopper.routing.weighting.BeelineWeightApproximator;
-import com.graphhopper.routing.weighting.QairaWeightApproximator;
 import com.graphhopper.routing.weighting.WeightApproximator;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.Graph;
@@ -49,8 +48,7 @@ public class AStar extends AbstractRoutingAlgorithm {
         super(graph, weighting, tMode);
         int size = Math.min(Math.max(200, graph.getNodes() / 10), 2000);
         initCollections(size);
-//        BeelineWeightApproximator defaultApprox= new BeelineWeightApproximator(nodeAccess, weighting);
-        QairaWeightApproximator defaultApprox = new QairaWeightApproximator(nodeAccess, weighting);
+        BeelineWeightApproximator defaultApprox = new BeelineWeightApproximator(nodeAccess, weighting);
         defaultApprox.setDistanceCalc(Helper.DIST_PLANE);
         setApproximation(defaultApprox);
     }
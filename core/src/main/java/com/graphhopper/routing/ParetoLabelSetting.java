@@ -0,0 +1,229 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.carrotsearch.hppc.IntObjectMap;
+import com.graphhopper.coll.GHIntObjectHashMap;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.GHUtility;
+import com.graphhopper.util.Parameters;
+
+import java.util.*;
+
+/**
+ * A bi-criteria label setting search like the MultiCriteriaLabelSetting of the public transit module but on the road
+ * graph. It minimizes the travel time, see {@link Weighting#calcEdgeMillis}, and the weight at the same time, e.g.
+ * the exposure of a pollution weighting, and returns the Pareto front of all routes where neither criterion can be
+ * improved without making the other one worse, ordered from the fastest to the one with the lowest weight.
+ * <p>
+ * Every node keeps all labels that are not dominated by another label of this node. Labels are also dropped if a
+ * route that already reached the destination dominates them, as the weight and the time only grow along a route. As
+ * the front can grow large this dominance against the destination can be relaxed by an epsilon: a label is dropped if
+ * such a route is at most (1 + epsilon) times worse in both criteria. This bounds the number of labels and thus the
+ * latency at the cost of missing routes that are only slightly better in one criterion. The dominance between the
+ * labels of the other nodes is never relaxed, as it could drift along a chain of labels that are each only slightly
+ * worse.
+ *
+ * @author Jhon
+ */
+public class ParetoLabelSetting extends AbstractRoutingAlgorithm {
+    private final IntObjectMap<List<Label>> labelsByTraversalId;
+    private final PriorityQueue<Label> heap;
+    private final List<Label> targetLabels = new ArrayList<>();
+    private double epsilon;
+    private int maxPaths = Integer.MAX_VALUE;
+    private int visitedNodes;
+    private int to = -1;
+
+    public ParetoLabelSetting(Graph graph, Weighting weighting, TraversalMode tMode) {
+        super(graph, weighting, tMode);
+        int size = Math.min(Math.max(200, graph.getNodes() / 10), 2000);
+        labelsByTraversalId = new GHIntObjectHashMap<>(size);
+        heap = new PriorityQueue<>(size, new Comparator<Label>() {
+            @Override
+            public int compare(Label o1, Label o2) {
+                int result = Long.compare(o1.time, o2.time);
+                return result != 0 ? result : Double.compare(o1.weight, o2.weight);
+            }
+        });
+    }
+
+    /**
+     * @param epsilon a label is dropped if a route to the destination is at most (1 + epsilon) times worse in both
+     *                criteria, 0 calculates the exact Pareto front
+     */
+    public ParetoLabelSetting setEpsilon(double epsilon) {
+        if (epsilon < 0 || Double.isNaN(epsilon))
+            throw new IllegalArgumentException("epsilon must not be negative but was " + epsilon);
+        this.epsilon = epsilon;
+        return this;
+    }
+
+    /**
+     * Limits the number of returned routes. The fastest route and the one with the lowest weight are always
+     * included and the others are picked evenly from the front in between.
+     */
+    public ParetoLabelSetting setMaxPaths(int maxPaths) {
+        if (maxPaths < 2)
+            throw new IllegalArgumentException("At least two paths are needed for the extremes of the front but was " + maxPaths);
+        this.maxPaths = maxPaths;
+        return this;
+    }
+
+    /**
+     * @return the fastest route of the Pareto front
+     */
+    @Override
+    public Path calcPath(int from, int to) {
+        return calcPaths(from, to).get(0);
+    }
+
+    @Override
+    public List<Path> calcPaths(int from, int to) {
+        checkAlreadyRun();
+        this.to = to;
+        Label start = new Label(EdgeIterator.NO_EDGE, from, 0, 0, null);
+        if (traversalMode.isEdgeBased())
+            heap.add(start);
+        else
+            add(from, start);
+        runAlgo();
+        return extractPaths();
+    }
+
+    private void runAlgo() {
+        while (!heap.isEmpty()) {
+            Label label = heap.poll();
+            if (label.dominated)
+                continue;
+            visitedNodes++;
+            if (isMaxVisitedNodesExceeded())
+                break;
+            // the targets found since this label was added might dominate it now. this includes the targets reached
+            // via another edge in edge-based mode, as their labels are not compared in add
+            if (isDominated(label, targetLabels, 1 + epsilon))
+                continue;
+            if (label.adjNode == to) {
+                removeDominated(label, targetLabels);
+                targetLabels.add(label);
+                continue;
+            }
+
+            EdgeIterator iter = edgeExplorer.setBaseNode(label.adjNode);
+            while (iter.next()) {
+                if (!accept(iter, label.edge) || !outEdgeFilter.accept(iter))
+                    continue;
+                double weight = GHUtility.calcWeightWithTurnWeight(weighting, iter, false, label.edge) + label.weight;
+                if (Double.isInfinite(weight))
+                    continue;
+                long time = GHUtility.calcMillisWithTurnMillis(weighting, iter, false, label.edge) + label.time;
+                Label newLabel = new Label(iter.getEdge(), iter.getAdjNode(), weight, time, label);
+                if (!isDominated(newLabel, targetLabels, 1 + epsilon))
+                    add(traversalMode.createTraversalId(iter, false), newLabel);
+            }
+        }
+    }
+
+    private void add(int traversalId, Label label) {
+        List<Label> labels = labelsByTraversalId.get(traversalId);
+        if (labels == null) {
+            labels = new ArrayList<>(2);
+            labelsByTraversalId.put(traversalId, labels);
+        } else if (isDominated(label, labels, 1)) {
+            return;
+        }
+
+        removeDominated(label, labels);
+        labels.add(label);
+        heap.add(label);
+    }
+
+    private void removeDominated(Label label, List<Label> labels) {
+        for (Iterator<Label> iterator = labels.iterator(); iterator.hasNext(); ) {
+            Label other = iterator.next();
+            if (label.time <= other.time && label.weight <= other.weight) {
+                // removing it from the heap would be linear, so it is only skipped when polled
+                other.dominated = true;
+                iterator.remove();
+            }
+        }
+    }
+
+    private boolean isDominated(Label label, List<Label> others, double factor) {
+        for (int i = 0; i < others.size(); i++) {
+            Label other = others.get(i);
+            if (other.time <= label.time * factor && other.weight <= label.weight * factor)
+                return true;
+        }
+        return false;
+    }
+
+    private List<Path> extractPaths() {
+        if (targetLabels.isEmpty())
+            return Collections.singletonList(createEmptyPath());
+
+        // the labels reached the target in the order of their time and were only kept if they are not dominated by
+        // an earlier one, so the weights are decreasing
+        List<Path> paths = new ArrayList<>(Math.min(maxPaths, targetLabels.size()));
+        int count = Math.min(maxPaths, targetLabels.size());
+        for (int i = 0; i < count; i++) {
+            int index = count == 1 ? 0 : (int) Math.round((double) i * (targetLabels.size() - 1) / (count - 1));
+            paths.add(PathExtractor.extractPath(graph, weighting, targetLabels.get(index)));
+        }
+        return paths;
+    }
+
+    @Override
+    protected boolean finished() {
+        return heap.isEmpty();
+    }
+
+    @Override
+    protected Path extractPath() {
+        return extractPaths().get(0);
+    }
+
+    @Override
+    public int getVisitedNodes() {
+        return visitedNodes;
+    }
+
+    @Override
+    public String getName() {
+        return Parameters.Algorithms.PARETO;
+    }
+
+    private static class Label extends SPTEntry {
+        final long time;
+        boolean dominated;
+
+        Label(int edge, int adjNode, double weight, long time, Label parent) {
+            super(edge, adjNode, weight);
+            this.time = time;
+            this.parent = parent;
+        }
+
+        @Override
+        public String toString() {
+            return super.toString() + ", time: " + time;
+        }
+    }
+}
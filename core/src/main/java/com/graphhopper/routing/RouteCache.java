@@ -0,0 +1,150 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.GHRequest;
+import com.graphhopper.ResponsePath;
+import com.graphhopper.storage.index.QueryResult;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A bounded cache of route responses, which evicts the least recently used route when it is full. The routes are
+ * identified by the snapped locations of the request instead of the requested coordinates, so requests for nearby
+ * coordinates that snap to the same junctions share their route. Everything else that changes the route is part of
+ * the key as well, e.g. the profile, the hints and the version of the pollution exposure the route depends on.
+ * Routes of an outdated version are not removed but evicted like all other routes that are no longer requested.
+ * <p>
+ * The response paths are copied when they are cached and for every hit, so responses can be modified freely.
+ *
+ * @author Jhon
+ */
+public class RouteCache {
+    private final int maxSize;
+    private final Map<String, List<ResponsePath>> routes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public RouteCache(final int maxSize) {
+        if (maxSize < 1)
+            throw new IllegalArgumentException("maxSize has to be at least 1 but was " + maxSize);
+        this.maxSize = maxSize;
+        this.routes = new LinkedHashMap<String, List<ResponsePath>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, List<ResponsePath>> eldest) {
+                if (size() <= RouteCache.this.maxSize)
+                    return false;
+                evictions++;
+                return true;
+            }
+        };
+    }
+
+    /**
+     * @param version the version of the data the route depends on, e.g. the pollution exposure, or 0 if it does not
+     *                depend on any changing data
+     */
+    public static String createKey(GHRequest request, List<QueryResult> queryResults, long version) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(request.getProfile()).append('|').append(version).append('|');
+        for (QueryResult qr : queryResults) {
+            // a point that snapped to a junction is identified by the node, any other point by its snapped position
+            if (qr.getSnappedPosition() == QueryResult.Position.TOWER)
+                sb.append(qr.getClosestNode());
+            else
+                sb.append(qr.getClosestEdge().getEdge()).append('@').append(qr.getSnappedPoint().lat).append(',').append(qr.getSnappedPoint().lon);
+            sb.append(';');
+        }
+        sb.append('|').append(request.getAlgorithm()).
+                append('|').append(request.getHints().toMap()).
+                append('|').append(request.getPathDetails()).
+                append('|').append(request.getHeadings()).
+                append('|').append(request.getCurbsides()).
+                append('|').append(request.getPointHints()).
+                append('|').append(request.getSnapPreventions()).
+                append('|').append(request.getLocale());
+        return sb.toString();
+    }
+
+    /**
+     * @return a copy of the cached response paths or null if the route is not cached
+     */
+    public List<ResponsePath> get(String key) {
+        List<ResponsePath> paths;
+        synchronized (this) {
+            paths = routes.get(key);
+            if (paths == null) {
+                misses++;
+                return null;
+            }
+            hits++;
+        }
+        return copy(paths);
+    }
+
+    public void put(String key, List<ResponsePath> paths) {
+        List<ResponsePath> copies = copy(paths);
+        synchronized (this) {
+            routes.put(key, copies);
+        }
+    }
+
+    private static List<ResponsePath> copy(List<ResponsePath> paths) {
+        List<ResponsePath> copies = new ArrayList<>(paths.size());
+        for (ResponsePath path : paths) {
+            copies.add(path.copy());
+        }
+        return copies;
+    }
+
+    /**
+     * Removes all routes.
+     */
+    public synchronized void clear() {
+        routes.clear();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public synchronized int getSize() {
+        return routes.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "routes: " + routes.size() + "/" + maxSize + ", hits: " + hits + ", misses: " + misses;
+    }
+}
@@ -23,7 +23,6 @@ import com.graphhopper.routing.weighting.QairaWeightApproximator;
 import com.graphhopper.routing.weighting.WeightApproximator;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.Graph;
-import com.graphhopper.storage.NodeAccess;
 import com.graphhopper.util.Helper;
 
 import static com.graphhopper.util.Parameters.Algorithms.*;
@@ -36,6 +35,25 @@ import static com.graphhopper.util.Parameters.Algorithms.AltRoute.*;
  * @author Peter Karich
  */
 public class RoutingAlgorithmFactorySimple implements RoutingAlgorithmFactory {
+    private ACOListener acoListener;
+    private long acoTimeoutMillis = ACO.DEFAULT_TIMEOUT_MILLIS;
+
+    /**
+     * Sets the listener for the progress of every created {@link ACO}.
+     */
+    public RoutingAlgorithmFactorySimple setACOListener(ACOListener acoListener) {
+        this.acoListener = acoListener;
+        return this;
+    }
+
+    /**
+     * Sets the timeout of every created {@link ACO} if the request does not specify one.
+     */
+    public RoutingAlgorithmFactorySimple setACOTimeoutMillis(long acoTimeoutMillis) {
+        this.acoTimeoutMillis = acoTimeoutMillis;
+        return this;
+    }
+
     @Override
     public RoutingAlgorithm createAlgo(Graph g, AlgorithmOptions opts) {
         RoutingAlgorithm ra;
@@ -49,7 +67,7 @@ public class RoutingAlgorithmFactorySimple implements RoutingAlgorithmFactory {
         } else if (ASTAR_BI.equalsIgnoreCase(algoStr)) {
             AStarBidirection aStarBi = new AStarBidirection(g, weighting,
                     opts.getTraversalMode());
-            aStarBi.setApproximation(getApproximation(ASTAR_BI, opts, g.getNodeAccess()));
+            aStarBi.setApproximation(getApproximation(ASTAR_BI, opts, g));
             ra = aStarBi;
 
         } else if (DIJKSTRA_ONE_TO_MANY.equalsIgnoreCase(algoStr)) {
@@ -57,7 +75,7 @@ public class RoutingAlgorithmFactorySimple implements RoutingAlgorithmFactory {
 
         } else if (ASTAR.equalsIgnoreCase(algoStr)) {
             AStar aStar = new AStar(g, weighting, opts.getTraversalMode());
-            aStar.setApproximation(getApproximation(ASTAR, opts, g.getNodeAccess()));
+            aStar.setApproximation(getApproximation(ASTAR, opts, g));
             ra = aStar;
 
         } else if (ALT_ROUTE.equalsIgnoreCase(algoStr)) {
@@ -69,11 +87,35 @@ public class RoutingAlgorithmFactorySimple implements RoutingAlgorithmFactory {
             altRouteAlgo.setMaxExplorationFactor(opts.getHints().getDouble("alternative_route.max_exploration_factor", 1));
             ra = altRouteAlgo;
 
-        } else if("aco".equalsIgnoreCase(algoStr)){
-            ra= new ACO(g, weighting, TraversalMode.NODE_BASED);
-            
-        
-        }else {
+        } else if (ANT_COLONY.equalsIgnoreCase(algoStr)) {
+            ACO aco = new ACO(g, weighting, TraversalMode.NODE_BASED);
+            aco.setParallelism(opts.getHints().getInt(AntColony.PARALLELISM, 1));
+            aco.setAnts(opts.getHints().getInt(AntColony.ANTS, 100));
+            aco.setMaxIterations(opts.getHints().getInt(AntColony.MAX_ITERATIONS, 100));
+            aco.setEvaporation(opts.getHints().getDouble(AntColony.EVAPORATION, 0.5));
+            aco.setDeposit(opts.getHints().getDouble(AntColony.DEPOSIT, 5));
+            aco.setEliteAnts(opts.getHints().getInt(AntColony.ELITE_ANTS, 50));
+            aco.setAlpha(opts.getHints().getDouble(AntColony.ALPHA, 0.3));
+            aco.setBeta(opts.getHints().getDouble(AntColony.BETA, 1.2));
+            aco.setMaxStagnation(opts.getHints().getInt(AntColony.MAX_STAGNATION, 20));
+            aco.setTimeoutMillis(opts.getHints().getLong(AntColony.TIMEOUT_MS, acoTimeoutMillis));
+            aco.setListener(acoListener);
+            if (opts.getHints().has(AntColony.SEED))
+                aco.setSeed(opts.getHints().getLong(AntColony.SEED, 0L));
+            ra = aco;
+
+        } else if (TD_DIJKSTRA.equalsIgnoreCase(algoStr)) {
+            TDDijkstra tdDijkstra = new TDDijkstra(g, weighting, opts.getTraversalMode());
+            tdDijkstra.setDepartureTime(opts.getHints().getLong(TimeDependent.DEPARTURE_TIME, System.currentTimeMillis()));
+            ra = tdDijkstra;
+
+        } else if (PARETO.equalsIgnoreCase(algoStr)) {
+            ParetoLabelSetting pareto = new ParetoLabelSetting(g, weighting, opts.getTraversalMode());
+            pareto.setEpsilon(opts.getHints().getDouble(Pareto.EPSILON, 0.05));
+            pareto.setMaxPaths(opts.getHints().getInt(Pareto.MAX_PATHS, 5));
+            ra = pareto;
+
+        } else {
             throw new IllegalArgumentException("Algorithm " + algoStr + " not found in " + getClass().getName());
         }
 
@@ -81,27 +123,24 @@ public class RoutingAlgorithmFactorySimple implements RoutingAlgorithmFactory {
         return ra;
     }
 
-    public static WeightApproximator getApproximation(String prop, AlgorithmOptions opts, NodeAccess na) {
+    public static WeightApproximator getApproximation(String prop, AlgorithmOptions opts, Graph graph) {
         String approxAsStr = opts.getHints().getString(prop + ".approximation", "BeelineSimplification");
         double epsilon = opts.getHints().getDouble(prop + ".epsilon", 1);
 
         WeightApproximator approx;
-        if ("BeelineSimplification".equals(approxAsStr)){
-            approx = new BeelineWeightApproximator(na, opts.getWeighting());
+        if ("BeelineSimplification".equals(approxAsStr)) {
+            approx = new BeelineWeightApproximator(graph.getNodeAccess(), opts.getWeighting());
             approx.setEpsilon(epsilon);
             approx.setDistanceCalc(Helper.DIST_PLANE);
-        }
-        else if ("BeelineAccurate".equals(approxAsStr)){
-            approx = new BeelineWeightApproximator(na, opts.getWeighting());
+        } else if ("BeelineAccurate".equals(approxAsStr)) {
+            approx = new BeelineWeightApproximator(graph.getNodeAccess(), opts.getWeighting());
             approx.setEpsilon(epsilon);
             approx.setDistanceCalc(Helper.DIST_EARTH);
-        }
-        else if ("Qaira".equals(approxAsStr)){
-            approx = new QairaWeightApproximator(na,opts.getWeighting());
+        } else if ("Qaira".equals(approxAsStr)) {
+            approx = new QairaWeightApproximator(graph, opts.getWeighting());
             approx.setEpsilon(epsilon);
             approx.setDistanceCalc(Helper.DIST_EARTH);
-        }
-        else
+        } else
             throw new IllegalArgumentException("Approximation " + approxAsStr + " not found in " + RoutingAlgorithmFactorySimple.class.getName());
 
         return approx;
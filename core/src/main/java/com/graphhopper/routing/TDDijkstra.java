@@ -0,0 +1,170 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.carrotsearch.hppc.IntObjectMap;
+import com.graphhopper.coll.GHIntObjectHashMap;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.QueryGraphWeighting;
+import com.graphhopper.routing.weighting.TimeDependentWeighting;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.GHUtility;
+import com.graphhopper.util.Parameters;
+
+import java.util.PriorityQueue;
+
+/**
+ * A unidirectional Dijkstra that carries the arrival time along with the weight of every entry, so that a
+ * {@link TimeDependentWeighting} can weight every edge at the time it is entered. The time advances by the travel
+ * time of the edges, see {@link Weighting#calcEdgeMillis}, starting at the departure time. Other weightings are
+ * rejected, use {@link Dijkstra} for them.
+ * <p>
+ * Like all label setting algorithms this is only exact if an earlier arrival never leads to a worse weight later on,
+ * which holds approximately as long as the weights change slowly compared to the travel time of an edge.
+ *
+ * @author Jhon
+ */
+public class TDDijkstra extends AbstractRoutingAlgorithm {
+    private final TimeDependentWeighting tdWeighting;
+    private IntObjectMap<TDEntry> fromMap;
+    private PriorityQueue<TDEntry> fromHeap;
+    private TDEntry currEdge;
+    private long departureTime = System.currentTimeMillis();
+    private int visitedNodes;
+    private int to = -1;
+
+    public TDDijkstra(Graph graph, Weighting weighting, TraversalMode tMode) {
+        super(graph, weighting, tMode);
+        // the edge weights of a query graph come from the wrapped weighting, only the turn weights need the wrapper
+        Weighting edgeWeighting = weighting instanceof QueryGraphWeighting ? ((QueryGraphWeighting) weighting).getWeighting() : weighting;
+        if (!(edgeWeighting instanceof TimeDependentWeighting))
+            throw new IllegalArgumentException(Parameters.Algorithms.TD_DIJKSTRA + " requires a time-dependent weighting but got " + edgeWeighting.getName());
+        this.tdWeighting = (TimeDependentWeighting) edgeWeighting;
+        int size = Math.min(Math.max(200, graph.getNodes() / 10), 2000);
+        fromHeap = new PriorityQueue<>(size);
+        fromMap = new GHIntObjectHashMap<>(size);
+    }
+
+    /**
+     * @param departureTime the time in milliseconds since the epoch when the route starts
+     */
+    public TDDijkstra setDepartureTime(long departureTime) {
+        this.departureTime = departureTime;
+        return this;
+    }
+
+    @Override
+    public Path calcPath(int from, int to) {
+        checkAlreadyRun();
+        this.to = to;
+        currEdge = new TDEntry(EdgeIterator.NO_EDGE, from, 0, departureTime);
+        if (!traversalMode.isEdgeBased()) {
+            fromMap.put(from, currEdge);
+        }
+        runAlgo();
+        return extractPath();
+    }
+
+    private void runAlgo() {
+        while (true) {
+            visitedNodes++;
+            if (isMaxVisitedNodesExceeded() || finished())
+                break;
+
+            EdgeIterator iter = edgeExplorer.setBaseNode(currEdge.adjNode);
+            while (iter.next()) {
+                if (!accept(iter, currEdge.edge) || !outEdgeFilter.accept(iter))
+                    continue;
+
+                double tmpWeight = calcWeight(iter) + currEdge.weight;
+                if (Double.isInfinite(tmpWeight))
+                    continue;
+                long tmpTime = currEdge.time + GHUtility.calcMillisWithTurnMillis(weighting, iter, false, currEdge.edge);
+                int traversalId = traversalMode.createTraversalId(iter, false);
+
+                TDEntry nEdge = fromMap.get(traversalId);
+                if (nEdge == null) {
+                    nEdge = new TDEntry(iter.getEdge(), iter.getAdjNode(), tmpWeight, tmpTime);
+                    nEdge.parent = currEdge;
+                    fromMap.put(traversalId, nEdge);
+                    fromHeap.add(nEdge);
+                } else if (nEdge.weight > tmpWeight) {
+                    fromHeap.remove(nEdge);
+                    nEdge.edge = iter.getEdge();
+                    nEdge.weight = tmpWeight;
+                    nEdge.time = tmpTime;
+                    nEdge.parent = currEdge;
+                    fromHeap.add(nEdge);
+                }
+            }
+
+            if (fromHeap.isEmpty())
+                break;
+
+            currEdge = fromHeap.poll();
+        }
+    }
+
+    private double calcWeight(EdgeIterator iter) {
+        double weight = tdWeighting.calcEdgeWeight(iter, false, currEdge.time);
+        if (EdgeIterator.Edge.isValid(currEdge.edge))
+            weight += weighting.calcTurnWeight(currEdge.edge, iter.getBaseNode(), iter.getOrigEdgeFirst());
+        return weight;
+    }
+
+    @Override
+    protected boolean finished() {
+        return currEdge.adjNode == to;
+    }
+
+    @Override
+    protected Path extractPath() {
+        if (currEdge == null || !finished())
+            return createEmptyPath();
+
+        return PathExtractor.extractPath(graph, weighting, currEdge);
+    }
+
+    /**
+     * @return the time in milliseconds since the epoch when the destination is reached or -1 if it was not found
+     */
+    public long getArrivalTime() {
+        return currEdge != null && finished() ? currEdge.time : -1;
+    }
+
+    @Override
+    public int getVisitedNodes() {
+        return visitedNodes;
+    }
+
+    @Override
+    public String getName() {
+        return Parameters.Algorithms.TD_DIJKSTRA;
+    }
+
+    private static class TDEntry extends SPTEntry {
+        long time;
+
+        TDEntry(int edge, int adjNode, double weight, long time) {
+            super(edge, adjNode, weight);
+            this.time = time;
+        }
+    }
+}
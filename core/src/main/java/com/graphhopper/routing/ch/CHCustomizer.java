@@ -0,0 +1,253 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.carrotsearch.hppc.DoubleArrayList;
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.LongIntHashMap;
+import com.graphhopper.routing.ev.BooleanEncodedValue;
+import com.graphhopper.routing.util.AllCHEdgesIterator;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.CHGraph;
+import com.graphhopper.util.CHEdgeExplorer;
+import com.graphhopper.util.CHEdgeIterator;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.StopWatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+
+import static com.graphhopper.util.Helper.nf;
+
+/**
+ * Recalculates the weights of all shortcuts of a contracted node-based {@link CHGraph} for new edge weights while
+ * keeping its node ordering and shortcuts, i.e. the customization phase of customizable contraction hierarchies.
+ * The nodes are processed bottom-up by level: every pair of edges leading from a node to two higher nodes forms a
+ * path that is a candidate for the shortcut between these two nodes, and as all edges leading upwards from a node
+ * only skip lower nodes their weights are already final when the node is processed.
+ * <p>
+ * The result is only optimal if the graph was contracted without witness searches, see
+ * {@link PrepareContractionHierarchies#setMetricIndependent(boolean)}, otherwise a shortest path might need a
+ * shortcut that was pruned for the original weights. Further the weighting must not change which edges are accessible
+ * and shortcuts valid for both directions need the same weight for both directions of an edge.
+ * <p>
+ * The new weights are first calculated into separate arrays, see {@link #calcWeights()}, which only reads the graph
+ * and can run while the graph is queried. Writing them, see {@link #apply()}, changes the weights and skipped edges in
+ * place, so queries that unpack shortcuts must not run at the same time, e.g. by guarding both with a read/write lock.
+ */
+public class CHCustomizer {
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+    private final CHGraph chGraph;
+    private final Weighting weighting;
+    private final BooleanEncodedValue accessEnc;
+    private final int origEdges;
+    private final IntArrayList upEdges = new IntArrayList();
+    private final IntArrayList upNodes = new IntArrayList();
+    private final DoubleArrayList inWeights = new DoubleArrayList();
+    private final DoubleArrayList outWeights = new DoubleArrayList();
+    private double[] weights;
+    private int[] skippedEdges1;
+    private int[] skippedEdges2;
+    // all shortcuts between two nodes are chained, starting from the first one in shortcutsByNodes
+    private LongIntHashMap shortcutsByNodes;
+    private int[] nextShortcuts;
+    // the node with the smaller id and the directions from and towards it for every shortcut
+    private int[] smallerNodes;
+    private boolean[] fromSmaller;
+    private boolean[] toSmaller;
+
+    public CHCustomizer(CHGraph chGraph, Weighting weighting) {
+        if (chGraph.getCHConfig().isEdgeBased())
+            throw new IllegalArgumentException("Customization is only supported for node-based CH");
+        this.chGraph = chGraph;
+        this.weighting = weighting;
+        this.accessEnc = weighting.getFlagEncoder().getAccessEnc();
+        this.origEdges = chGraph.getOriginalEdges();
+    }
+
+    /**
+     * Calculates the new shortcut weights and writes them to the graph.
+     *
+     * @return the number of shortcuts that now skip different edges
+     */
+    public int customize() {
+        return calcWeights().apply();
+    }
+
+    /**
+     * Calculates the new shortcut weights without changing the graph.
+     */
+    public CHCustomizer calcWeights() {
+        StopWatch sw = new StopWatch().start();
+        int shortcuts = chGraph.getEdges() - origEdges;
+        weights = new double[shortcuts];
+        skippedEdges1 = new int[shortcuts];
+        skippedEdges2 = new int[shortcuts];
+        Arrays.fill(weights, Double.POSITIVE_INFINITY);
+        Arrays.fill(skippedEdges1, EdgeIterator.NO_EDGE);
+        Arrays.fill(skippedEdges2, EdgeIterator.NO_EDGE);
+        indexShortcuts(shortcuts);
+
+        CHEdgeExplorer explorer = chGraph.createEdgeExplorer();
+        for (int node : sortNodesByLevel()) {
+            collectUpwardEdges(explorer, node);
+            for (int i = 0; i < upNodes.size(); i++) {
+                for (int j = i + 1; j < upNodes.size(); j++) {
+                    if (upNodes.get(i) == upNodes.get(j))
+                        continue;
+                    relaxShortcuts(upNodes.get(i), upNodes.get(j),
+                            inWeights.get(i) + outWeights.get(j), inWeights.get(j) + outWeights.get(i),
+                            upEdges.get(i), upEdges.get(j));
+                }
+            }
+        }
+        shortcutsByNodes = null;
+        nextShortcuts = null;
+        smallerNodes = null;
+        fromSmaller = null;
+        toSmaller = null;
+        logger.info("calculated the weights of {} shortcuts of {} in {}s",
+                nf(shortcuts), chGraph.getCHConfig().getName(), sw.stop().getSeconds());
+        return this;
+    }
+
+    /**
+     * Writes the shortcut weights calculated by {@link #calcWeights()} to the graph.
+     *
+     * @return the number of shortcuts that now skip different edges
+     */
+    public int apply() {
+        if (weights == null)
+            throw new IllegalStateException("Call calcWeights before applying the new weights");
+        StopWatch sw = new StopWatch().start();
+        int changed = 0;
+        AllCHEdgesIterator iter = chGraph.getAllEdges();
+        while (iter.next()) {
+            if (!iter.isShortcut())
+                continue;
+            int sc = iter.getEdge() - origEdges;
+            if (skippedEdges1[sc] != EdgeIterator.NO_EDGE
+                    && (skippedEdges1[sc] != iter.getSkippedEdge1() || skippedEdges2[sc] != iter.getSkippedEdge2())) {
+                iter.setSkippedEdges(skippedEdges1[sc], skippedEdges2[sc]);
+                changed++;
+            }
+            iter.setWeight(weights[sc]);
+        }
+        logger.info("customized {} shortcuts of {} in {}s, {} skip different edges now",
+                nf(weights.length), chGraph.getCHConfig().getName(), sw.stop().getSeconds(), nf(changed));
+        weights = null;
+        skippedEdges1 = null;
+        skippedEdges2 = null;
+        return changed;
+    }
+
+    private void indexShortcuts(int shortcuts) {
+        shortcutsByNodes = new LongIntHashMap(shortcuts);
+        nextShortcuts = new int[shortcuts];
+        smallerNodes = new int[shortcuts];
+        fromSmaller = new boolean[shortcuts];
+        toSmaller = new boolean[shortcuts];
+        AllCHEdgesIterator iter = chGraph.getAllEdges();
+        while (iter.next()) {
+            if (!iter.isShortcut())
+                continue;
+            int sc = iter.getEdge() - origEdges;
+            boolean baseIsSmaller = iter.getBaseNode() <= iter.getAdjNode();
+            smallerNodes[sc] = Math.min(iter.getBaseNode(), iter.getAdjNode());
+            fromSmaller[sc] = baseIsSmaller ? iter.getFwdAccess() : iter.getBwdAccess();
+            toSmaller[sc] = baseIsSmaller ? iter.getBwdAccess() : iter.getFwdAccess();
+            long key = createKey(iter.getBaseNode(), iter.getAdjNode());
+            nextShortcuts[sc] = shortcutsByNodes.getOrDefault(key, -1);
+            shortcutsByNodes.put(key, sc);
+        }
+    }
+
+    private static long createKey(int nodeA, int nodeB) {
+        return ((long) Math.min(nodeA, nodeB) << 32) | Math.max(nodeA, nodeB);
+    }
+
+    private int[] sortNodesByLevel() {
+        int nodes = chGraph.getNodes();
+        long[] levelAndNode = new long[nodes];
+        for (int node = 0; node < nodes; node++) {
+            levelAndNode[node] = ((long) chGraph.getLevel(node) << 32) | node;
+        }
+        Arrays.sort(levelAndNode);
+        int[] sorted = new int[nodes];
+        for (int i = 0; i < nodes; i++) {
+            sorted[i] = (int) levelAndNode[i];
+        }
+        return sorted;
+    }
+
+    private void collectUpwardEdges(CHEdgeExplorer explorer, int node) {
+        upEdges.clear();
+        upNodes.clear();
+        inWeights.clear();
+        outWeights.clear();
+        int level = chGraph.getLevel(node);
+        CHEdgeIterator iter = explorer.setBaseNode(node);
+        while (iter.next()) {
+            int adjNode = iter.getAdjNode();
+            if (adjNode == node || chGraph.getLevel(adjNode) <= level)
+                continue;
+
+            double in, out;
+            if (iter.isShortcut()) {
+                // the shortcuts leading upwards skip lower nodes only and are already customized
+                double weight = weights[iter.getEdge() - origEdges];
+                in = iter.getBwdAccess() ? weight : Double.POSITIVE_INFINITY;
+                out = iter.getFwdAccess() ? weight : Double.POSITIVE_INFINITY;
+            } else {
+                in = iter.getReverse(accessEnc) ? weighting.calcEdgeWeight(iter, true) : Double.POSITIVE_INFINITY;
+                out = iter.get(accessEnc) ? weighting.calcEdgeWeight(iter, false) : Double.POSITIVE_INFINITY;
+            }
+            if (Double.isInfinite(in) && Double.isInfinite(out))
+                continue;
+            upEdges.add(iter.getEdge());
+            upNodes.add(adjNode);
+            inWeights.add(in);
+            outWeights.add(out);
+        }
+    }
+
+    /**
+     * Updates the shortcuts between the nodes a and b if the path a-node-b via edge1 and edge2 is shorter.
+     */
+    private void relaxShortcuts(int a, int b, double weightAB, double weightBA, int edge1, int edge2) {
+        if (Double.isInfinite(weightAB) && Double.isInfinite(weightBA))
+            return;
+        for (int sc = shortcutsByNodes.getOrDefault(createKey(a, b), -1); sc >= 0; sc = nextShortcuts[sc]) {
+            boolean fwd = smallerNodes[sc] == a ? fromSmaller[sc] : toSmaller[sc];
+            boolean bwd = smallerNodes[sc] == a ? toSmaller[sc] : fromSmaller[sc];
+            double weight;
+            if (fwd && bwd)
+                weight = Math.max(weightAB, weightBA);
+            else if (fwd)
+                weight = weightAB;
+            else
+                weight = weightBA;
+            if (weight < weights[sc]) {
+                weights[sc] = weight;
+                skippedEdges1[sc] = edge1;
+                skippedEdges2[sc] = edge2;
+            }
+        }
+    }
+}
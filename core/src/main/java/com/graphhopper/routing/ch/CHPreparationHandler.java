@@ -50,6 +50,8 @@ public class CHPreparationHandler {
     private final List<CHConfig> chConfigs = new ArrayList<>();
     private boolean disablingAllowed = false;
     private int preparationThreads;
+    private boolean compactShortcuts = false;
+    private boolean quantizeShortcutWeights = false;
     private ExecutorService threadPool;
     private PMap pMap = new PMap();
 
@@ -68,6 +70,8 @@ public class CHPreparationHandler {
 
         setPreparationThreads(ghConfig.getInt(CH.PREPARE + "threads", getPreparationThreads()));
         setDisablingAllowed(ghConfig.getBool(CH.INIT_DISABLING_ALLOWED, isDisablingAllowed()));
+        setCompactShortcuts(ghConfig.getBool(CH.PREPARE + "compact_shortcuts", isCompactShortcuts()));
+        setQuantizeShortcutWeights(ghConfig.getBool(CH.PREPARE + "quantize_shortcut_weights", isQuantizeShortcutWeights()));
         setCHProfiles(ghConfig.getCHProfiles());
         pMap = ghConfig.asPMap();
     }
@@ -184,6 +188,33 @@ public class CHPreparationHandler {
                 "\navailable CH profiles: " + profileNames);
     }
 
+    public boolean isCompactShortcuts() {
+        return compactShortcuts;
+    }
+
+    /**
+     * Enables the compact shortcut storage for the CH configs created from the CH profiles. This needs less memory,
+     * but the queries are slower and no shortcuts can be added after the preparation anymore. The customizable
+     * pollution CH profiles are never compacted. Use {@link CHConfig#isCompactShortcuts()} to choose it per CH config.
+     */
+    public CHPreparationHandler setCompactShortcuts(boolean compactShortcuts) {
+        this.compactShortcuts = compactShortcuts;
+        return this;
+    }
+
+    public boolean isQuantizeShortcutWeights() {
+        return quantizeShortcutWeights;
+    }
+
+    /**
+     * Stores the weights of the compact shortcuts with fewer bits, see {@link CHConfig#isQuantizeWeights()}. This has
+     * no effect if the shortcuts are not compacted.
+     */
+    public CHPreparationHandler setQuantizeShortcutWeights(boolean quantizeShortcutWeights) {
+        this.quantizeShortcutWeights = quantizeShortcutWeights;
+        return this;
+    }
+
     public PrepareContractionHierarchies getPreparation(CHConfig chConfig) {
         return getPreparation(chConfig.getName());
     }
@@ -19,6 +19,7 @@
 package com.graphhopper.routing.ch;
 
 import com.graphhopper.routing.*;
+import com.graphhopper.routing.weighting.QueryGraphWeighting;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.*;
 
@@ -53,7 +54,9 @@ public class CHRoutingAlgorithmFactory implements RoutingAlgorithmFactory {
             RoutingCHGraph g = new RoutingCHGraphImpl(graph, graph.wrapWeighting(getWeighting()));
             return createAlgoEdgeBased(g, opts);
         } else {
-            RoutingCHGraph g = new RoutingCHGraphImpl(graph, chConfig.getWeighting());
+            // the weights of virtual edges only need the query graph if they depend on their original edge
+            Weighting weighting = getWeighting();
+            RoutingCHGraph g = new RoutingCHGraphImpl(graph, QueryGraphWeighting.dependsOnOriginalEdge(weighting) ? graph.wrapWeighting(weighting) : weighting);
             return createAlgoNodeBased(g, opts);
         }
     }
@@ -61,7 +64,7 @@ public class CHRoutingAlgorithmFactory implements RoutingAlgorithmFactory {
     private RoutingAlgorithm createAlgoEdgeBased(RoutingCHGraph g, AlgorithmOptions opts) {
         if (ASTAR_BI.equals(opts.getAlgorithm())) {
             return new AStarBidirectionEdgeCHNoSOD(g)
-                    .setApproximation(RoutingAlgorithmFactorySimple.getApproximation(ASTAR_BI, opts, g.getGraph().getNodeAccess()));
+                    .setApproximation(RoutingAlgorithmFactorySimple.getApproximation(ASTAR_BI, opts, g.getGraph()));
         } else if (DIJKSTRA_BI.equals(opts.getAlgorithm())) {
             return new DijkstraBidirectionEdgeCHNoSOD(g);
         } else if (ALT_ROUTE.equalsIgnoreCase(opts.getAlgorithm())) {
@@ -74,7 +77,7 @@ public class CHRoutingAlgorithmFactory implements RoutingAlgorithmFactory {
     private RoutingAlgorithm createAlgoNodeBased(RoutingCHGraph g, AlgorithmOptions opts) {
         if (ASTAR_BI.equals(opts.getAlgorithm())) {
             return new AStarBidirectionCH(g)
-                    .setApproximation(RoutingAlgorithmFactorySimple.getApproximation(ASTAR_BI, opts, g.getGraph().getNodeAccess()));
+                    .setApproximation(RoutingAlgorithmFactorySimple.getApproximation(ASTAR_BI, opts, g.getGraph()));
         } else if (DIJKSTRA_BI.equals(opts.getAlgorithm())) {
             if (opts.getHints().getBool("stall_on_demand", true)) {
                 return new DijkstraBidirectionCH(g);
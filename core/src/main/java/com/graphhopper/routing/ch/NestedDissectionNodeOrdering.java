@@ -0,0 +1,125 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.graphhopper.storage.Graph;
+import com.graphhopper.storage.NodeAccess;
+import com.graphhopper.util.EdgeExplorer;
+import com.graphhopper.util.EdgeIterator;
+
+import java.util.Arrays;
+
+/**
+ * A node ordering for contraction without witness searches, where the number of shortcuts only depends on the
+ * ordering. The nodes are split recursively at the median of their coordinates and the nodes of one half that are
+ * adjacent to the other half form a separator, which is contracted after both halves. Contracting a node then only
+ * creates shortcuts between nodes of its own part or the separators around it.
+ */
+public class NestedDissectionNodeOrdering implements NodeOrderingProvider {
+    private final Graph graph;
+    private final NodeAccess nodeAccess;
+    private final EdgeExplorer explorer;
+    private final int[] order;
+    private final int[] stamps;
+    private int stamp;
+
+    public NestedDissectionNodeOrdering(Graph graph) {
+        this.graph = graph.getBaseGraph();
+        this.nodeAccess = graph.getNodeAccess();
+        this.explorer = this.graph.createEdgeExplorer();
+        int nodes = graph.getNodes();
+        order = new int[nodes];
+        for (int node = 0; node < nodes; node++) {
+            order[node] = node;
+        }
+        stamps = new int[nodes];
+        dissect(0, nodes);
+    }
+
+    @Override
+    public int getNodeIdForLevel(int level) {
+        return order[level];
+    }
+
+    @Override
+    public int getNumNodes() {
+        return order.length;
+    }
+
+    private void dissect(int from, int to) {
+        if (to - from <= 2)
+            return;
+
+        sortAlongWiderExtent(from, to);
+        int mid = (from + to) >>> 1;
+        stamp++;
+        for (int i = mid; i < to; i++) {
+            stamps[order[i]] = stamp;
+        }
+        // move the separator, i.e. the nodes of the first half with an edge to the second half, to the end
+        int[] separator = new int[mid - from];
+        int separatorSize = 0;
+        int firstEnd = from;
+        for (int i = from; i < mid; i++) {
+            int node = order[i];
+            if (isAdjacentToStamp(node))
+                separator[separatorSize++] = node;
+            else
+                order[firstEnd++] = node;
+        }
+        System.arraycopy(order, mid, order, firstEnd, to - mid);
+        int secondEnd = firstEnd + to - mid;
+        System.arraycopy(separator, 0, order, secondEnd, separatorSize);
+
+        dissect(from, firstEnd);
+        dissect(firstEnd, secondEnd);
+    }
+
+    private boolean isAdjacentToStamp(int node) {
+        EdgeIterator iter = explorer.setBaseNode(node);
+        while (iter.next()) {
+            if (stamps[iter.getAdjNode()] == stamp)
+                return true;
+        }
+        return false;
+    }
+
+    private void sortAlongWiderExtent(int from, int to) {
+        double minLat = Double.MAX_VALUE, maxLat = -Double.MAX_VALUE;
+        double minLon = Double.MAX_VALUE, maxLon = -Double.MAX_VALUE;
+        for (int i = from; i < to; i++) {
+            double lat = nodeAccess.getLat(order[i]), lon = nodeAccess.getLon(order[i]);
+            minLat = Math.min(minLat, lat);
+            maxLat = Math.max(maxLat, lat);
+            minLon = Math.min(minLon, lon);
+            maxLon = Math.max(maxLon, lon);
+        }
+        boolean byLat = maxLat - minLat >= (maxLon - minLon) * Math.cos(Math.toRadians((minLat + maxLat) / 2));
+        // sort the nodes by the packed coordinate and node id, so that the ordering is deterministic
+        long[] keys = new long[to - from];
+        for (int i = from; i < to; i++) {
+            double coordinate = byLat ? nodeAccess.getLat(order[i]) : nodeAccess.getLon(order[i]);
+            // coordinates are within [-180, 180] which keeps the shifted value positive and below 2^31
+            keys[i - from] = ((long) ((coordinate + 180) * 1e6) << 32) | order[i];
+        }
+        Arrays.sort(keys);
+        for (int i = from; i < to; i++) {
+            order[i] = (int) keys[i - from];
+        }
+    }
+}
@@ -17,31 +17,31 @@
  */
 package com.graphhopper.routing.ch;
 
+import com.carrotsearch.hppc.IntArrayList;
 import com.graphhopper.storage.NodeAccess;
 import com.graphhopper.util.PMap;
 import com.graphhopper.util.StopWatch;
 
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.Locale;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.graphhopper.routing.ch.CHParameters.*;
 import static com.graphhopper.util.Helper.nf;
 
 class NodeBasedNodeContractor extends AbstractNodeContractor {
-    private final Map<Shortcut, Shortcut> shortcuts = new HashMap<>();
-    private final AddShortcutHandler addScHandler = new AddShortcutHandler();
-    private final CalcShortcutHandler calcScHandler = new CalcShortcutHandler();
     private final Params params = new Params();
-    private PrepareCHEdgeExplorer allEdgeExplorer;
-    private NodeBasedWitnessPathSearcher prepareAlgo;
+    // the searcher used for serial contraction, parallel contraction uses one searcher per thread
+    private Searcher searcher;
+    private final List<Searcher> workers = new ArrayList<>();
+    private ExecutorService executor;
+    private int threads = 1;
+    private boolean deterministic = true;
     private int addedShortcutsCount;
-    private long dijkstraCount;
-    private StopWatch dijkstraSW = new StopWatch();
     // meanDegree is the number of edges / number of nodes ratio of the graph, not really the average degree, because
     // each edge can exist in both directions
     private double meanDegree;
+    private boolean witnessSearch = true;
 
     NodeBasedNodeContractor(PrepareCHGraph prepareGraph, PMap pMap) {
         super(prepareGraph);
@@ -54,11 +54,32 @@ class NodeBasedNodeContractor extends AbstractNodeContractor {
         params.contractedNeighborsWeight = pMap.getFloat(CONTRACTED_NEIGHBORS_WEIGHT, params.contractedNeighborsWeight);
     }
 
+    /**
+     * Without witness search a shortcut is added for every pair of neighbors of a contracted node, i.e. the shortcuts
+     * do not depend on the weighting and their weights can be recalculated later, see {@link CHCustomizer}.
+     */
+    void setWitnessSearch(boolean witnessSearch) {
+        this.witnessSearch = witnessSearch;
+    }
+
+    /**
+     * Sets the number of threads used by {@link #contractNodes} and {@link #calculatePriorities}. Every thread needs
+     * its own witness search with arrays as large as the graph. If deterministic the witness searches of all threads
+     * are limited by the mean degree at the start of a round, so that the hierarchy does not depend on the number of
+     * threads or their scheduling. Otherwise every thread updates its own estimate with every node it contracts, like
+     * the serial contraction does.
+     */
+    void setParallelism(int threads, boolean deterministic) {
+        if (threads < 1)
+            throw new IllegalArgumentException("threads must be positive but was " + threads);
+        this.threads = threads;
+        this.deterministic = deterministic;
+    }
+
     @Override
     public void initFromGraph() {
         super.initFromGraph();
-        allEdgeExplorer = prepareGraph.createAllEdgeExplorer();
-        prepareAlgo = new NodeBasedWitnessPathSearcher(prepareGraph, maxLevel);
+        searcher = new Searcher();
     }
 
     @Override
@@ -74,7 +95,15 @@ class NodeBasedNodeContractor extends AbstractNodeContractor {
     @Override
     public void close() {
         super.close();
-        prepareAlgo.close();
+        searcher.close();
+        for (Searcher worker : workers) {
+            worker.close();
+        }
+        workers.clear();
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
     }
 
     /**
@@ -84,10 +113,15 @@ class NodeBasedNodeContractor extends AbstractNodeContractor {
      */
     @Override
     public float calculatePriority(int node) {
+        return calculatePriority(node, searcher, getMaxVisitedNodesEstimate(meanDegree));
+    }
+
+    private float calculatePriority(int node, Searcher searcher, int maxVisitedNodes) {
         if (prepareGraph.getLevel(node) != maxLevel) {
             throw new IllegalArgumentException("Priority should only be calculated for not yet contracted nodes");
         }
-        CalcShortcutsResult calcShortcutsResult = calcShortcutCount(node);
+        searcher.findShortcuts(searcher.calcScHandler.setNode(node), maxVisitedNodes);
+        CalcShortcutsResult calcShortcutsResult = searcher.calcScHandler.calcShortcutsResult;
 
         // # huge influence: the bigger the less shortcuts gets created and the faster is the preparation
         //
@@ -103,7 +137,7 @@ class NodeBasedNodeContractor extends AbstractNodeContractor {
         // number of already contracted neighbors of v
         int contractedNeighbors = 0;
         int degree = 0;
-        PrepareCHEdgeIterator iter = allEdgeExplorer.setBaseNode(node);
+        PrepareCHEdgeIterator iter = searcher.allEdgeExplorer.setBaseNode(node);
         while (iter.next()) {
             // only increase the degree for edges going to equal level nodes (the current node is at maxLevel)
             // todo: for historic reasons increase degree also for all shortcuts, even though its wrong, see #1810
@@ -134,85 +168,105 @@ class NodeBasedNodeContractor extends AbstractNodeContractor {
 
     @Override
     public void contractNode(int node) {
-        shortcuts.clear();
-        long degree = findShortcuts(addScHandler.setNode(node));
-        addedShortcutsCount += addShortcuts(shortcuts.keySet());
-        // put weight factor on meanDegree instead of taking the average => meanDegree is more stable
-        meanDegree = (meanDegree * 2 + degree) / 3;
+        long degree = searcher.findShortcuts(searcher.addScHandler.setNode(node), getMaxVisitedNodesEstimate(meanDegree));
+        addedShortcutsCount += addShortcuts(searcher.addScHandler.shortcuts.keySet());
+        meanDegree = updateMeanDegree(meanDegree, degree);
     }
 
-    @Override
-    public String getStatisticsString() {
-        return String.format(Locale.ROOT, "meanDegree: %.2f, dijkstras: %10s, mem: %10s",
-                meanDegree, nf(dijkstraCount), prepareAlgo.getMemoryUsageAsString());
+    private static double updateMeanDegree(double meanDegree, long degree) {
+        // put weight factor on meanDegree instead of taking the average => meanDegree is more stable
+        return (meanDegree * 2 + degree) / 3;
     }
 
     /**
-     * Searches for shortcuts and calls the given handler on each shortcut that is found. The graph is not directly
-     * changed by this method.
-     * Returns the 'degree' of the handler's node (disregarding edges from/to already contracted nodes). Note that
-     * here the degree is not the total number of adjacent edges, but only the number of incoming edges
+     * Contracts the given nodes at once. None of them may be adjacent to another one and their levels have to be set
+     * already, so that the witness searches of every node avoid all others. The shortcuts of the nodes are searched
+     * concurrently without changing the graph and then added to the graph in the order of the given nodes.
      */
-    private long findShortcuts(ShortcutHandler sch) {
-        int maxVisitedNodes = getMaxVisitedNodesEstimate();
-        long degree = 0;
-        PrepareCHEdgeIterator incomingEdges = inEdgeExplorer.setBaseNode(sch.getNode());
-        // collect outgoing nodes (goal-nodes) only once
-        while (incomingEdges.next()) {
-            int fromNode = incomingEdges.getAdjNode();
-            // accept only not-contracted nodes, do not consider loops at the node that is being contracted
-            if (fromNode == sch.getNode() || isContracted(fromNode))
-                continue;
-
-            final double incomingEdgeWeight = incomingEdges.getWeight(true);
-            // this check is important to prevent calling calcMillis on inaccessible edges and also allows early exit
-            if (Double.isInfinite(incomingEdgeWeight)) {
-                continue;
+    void contractNodes(final IntArrayList nodes) {
+        final List<List<Shortcut>> shortcutsPerNode = new ArrayList<>(Collections.<List<Shortcut>>nCopies(nodes.size(), null));
+        final long[] degrees = new long[nodes.size()];
+        runConcurrently(nodes.size(), new Task() {
+            @Override
+            public void run(Searcher searcher, int index, int maxVisitedNodes) {
+                degrees[index] = searcher.findShortcuts(searcher.addScHandler.setNode(nodes.get(index)), maxVisitedNodes);
+                shortcutsPerNode.set(index, new ArrayList<>(searcher.addScHandler.shortcuts.keySet()));
+                if (!deterministic)
+                    searcher.meanDegree = updateMeanDegree(searcher.meanDegree, degrees[index]);
             }
-            int incomingEdge = incomingEdges.getEdge();
-            int inOrigEdgeCount = getOrigEdgeCount(incomingEdge);
-            // collect outgoing nodes (goal-nodes) only once
-            PrepareCHEdgeIterator outgoingEdges = outEdgeExplorer.setBaseNode(sch.getNode());
-            // force fresh maps etc as this cannot be determined by from node alone (e.g. same from node but different avoidNode)
-            prepareAlgo.clear();
-            degree++;
-            while (outgoingEdges.next()) {
-                int toNode = outgoingEdges.getAdjNode();
-                // add only not-contracted nodes, do not consider loops at the node that is being contracted
-                if (toNode == sch.getNode() || isContracted(toNode) || fromNode == toNode)
-                    continue;
-
-                // Limit weight as ferries or forbidden edges can increase local search too much.
-                // If we decrease the correct weight we only explore less and introduce more shortcuts.
-                // I.e. no change to accuracy is made.
-                double existingDirectWeight = incomingEdgeWeight + outgoingEdges.getWeight(false);
-                if (Double.isNaN(existingDirectWeight))
-                    throw new IllegalStateException("Weighting should never return NaN values"
-                            + ", in:" + getCoords(incomingEdges, prepareGraph.getNodeAccess()) + ", out:" + getCoords(outgoingEdges, prepareGraph.getNodeAccess()));
-
-                if (Double.isInfinite(existingDirectWeight))
-                    continue;
-
-                prepareAlgo.setWeightLimit(existingDirectWeight);
-                prepareAlgo.setMaxVisitedNodes(maxVisitedNodes);
-                prepareAlgo.ignoreNode(sch.getNode());
-
-                dijkstraSW.start();
-                dijkstraCount++;
-                int endNode = prepareAlgo.findEndNode(fromNode, toNode);
-                dijkstraSW.stop();
+        });
+        for (int i = 0; i < nodes.size(); i++) {
+            addedShortcutsCount += addShortcuts(shortcutsPerNode.get(i));
+            meanDegree = updateMeanDegree(meanDegree, degrees[i]);
+        }
+    }
 
-                // compare end node as the limit could force dijkstra to finish earlier
-                if (endNode == toNode && prepareAlgo.getWeight(endNode) <= existingDirectWeight)
-                    // FOUND witness path, so do not add shortcut
-                    continue;
+    /**
+     * Calculates the priorities of the given nodes concurrently and stores them in the given array at the index of
+     * each node. The graph must not change meanwhile.
+     */
+    void calculatePriorities(final IntArrayList nodes, final float[] priorities) {
+        runConcurrently(nodes.size(), new Task() {
+            @Override
+            public void run(Searcher searcher, int index, int maxVisitedNodes) {
+                int node = nodes.get(index);
+                priorities[node] = calculatePriority(node, searcher, maxVisitedNodes);
+            }
+        });
+    }
 
-                sch.foundShortcut(fromNode, toNode, existingDirectWeight,
-                        outgoingEdges.getEdge(), getOrigEdgeCount(outgoingEdges.getEdge()),
-                        incomingEdge, inOrigEdgeCount);
+    private void runConcurrently(final int count, final Task task) {
+        if (count == 0)
+            return;
+        if (executor == null)
+            executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+                private final AtomicInteger counter = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    // daemon threads do not keep the JVM alive if the preparation is aborted before close is called
+                    Thread thread = new Thread(runnable, "ch-contraction-" + counter.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        while (workers.size() < threads) {
+            workers.add(new Searcher());
+        }
+        final AtomicInteger next = new AtomicInteger();
+        final int maxVisitedNodes = getMaxVisitedNodesEstimate(meanDegree);
+        List<Future<?>> futures = new ArrayList<>(threads);
+        for (final Searcher worker : workers.subList(0, Math.min(threads, count))) {
+            worker.meanDegree = meanDegree;
+            futures.add(executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    for (int index = next.getAndIncrement(); index < count; index = next.getAndIncrement()) {
+                        task.run(worker, index, deterministic ? maxVisitedNodes : getMaxVisitedNodesEstimate(worker.meanDegree));
+                    }
+                }
+            }));
+        }
+        try {
+            for (Future<?> future : futures) {
+                future.get();
             }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Thread was interrupted", ex);
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("Parallel contraction failed", ex.getCause());
         }
-        return degree;
+    }
+
+    private interface Task {
+        void run(Searcher searcher, int index, int maxVisitedNodes);
+    }
+
+    @Override
+    public String getStatisticsString() {
+        return String.format(Locale.ROOT, "meanDegree: %.2f, dijkstras: %10s, mem: %10s",
+                meanDegree, nf(getDijkstraCount()), searcher.witnessSearcher.getMemoryUsageAsString());
     }
 
     /**
@@ -233,6 +287,11 @@ class NodeBasedNodeContractor extends AbstractNodeContractor {
                     if (status == 0)
                         continue;
 
+                    // without witness search every shortcut has to keep its directions, because a later customization
+                    // can only use paths via a contracted node that are valid for all directions of the shortcut
+                    if (status == 2 && !witnessSearch)
+                        break;
+
                     if (sc.weight >= iter.getWeight(false)) {
                         // special case if a bidirectional shortcut has worse weight and still has to be added as otherwise the opposite direction would be missing
                         // see testShortcutMergeBug
@@ -267,11 +326,6 @@ class NodeBasedNodeContractor extends AbstractNodeContractor {
         return tmpNewShortcuts;
     }
 
-    private CalcShortcutsResult calcShortcutCount(int node) {
-        findShortcuts(calcScHandler.setNode(node));
-        return calcScHandler.calcShortcutsResult;
-    }
-
     private String getCoords(PrepareCHEdgeIterator edge, NodeAccess na) {
         int base = edge.getBaseNode();
         int adj = edge.getAdjNode();
@@ -286,20 +340,126 @@ class NodeBasedNodeContractor extends AbstractNodeContractor {
 
     @Override
     public long getDijkstraCount() {
+        long dijkstraCount = searcher.dijkstraCount;
+        for (Searcher worker : workers) {
+            dijkstraCount += worker.dijkstraCount;
+        }
         return dijkstraCount;
     }
 
+    /**
+     * @return the time spent in witness searches, which is the sum of all threads for parallel contraction
+     */
     @Override
     public float getDijkstraSeconds() {
-        return dijkstraSW.getCurrentSeconds();
+        float seconds = searcher.dijkstraSW.getCurrentSeconds();
+        for (Searcher worker : workers) {
+            seconds += worker.dijkstraSW.getCurrentSeconds();
+        }
+        return seconds;
     }
 
-    private int getMaxVisitedNodesEstimate() {
+    private static int getMaxVisitedNodesEstimate(double meanDegree) {
         // todo: we return 0 here if meanDegree is < 1, which is not really what we want, but changing this changes
         // the node contraction order and requires re-optimizing the parameters of the graph contraction
         return (int) meanDegree * 100;
     }
 
+    /**
+     * The state of the shortcut search for one thread. The searches only read the graph, so that several searchers
+     * can run concurrently as long as the graph does not change.
+     */
+    private class Searcher {
+        final PrepareCHEdgeExplorer inExplorer = prepareGraph.createInEdgeExplorer();
+        final PrepareCHEdgeExplorer outExplorer = prepareGraph.createOutEdgeExplorer();
+        final PrepareCHEdgeExplorer allEdgeExplorer = prepareGraph.createAllEdgeExplorer();
+        final NodeBasedWitnessPathSearcher witnessSearcher = new NodeBasedWitnessPathSearcher(prepareGraph, maxLevel);
+        final AddShortcutHandler addScHandler = new AddShortcutHandler();
+        final CalcShortcutHandler calcScHandler = new CalcShortcutHandler();
+        final StopWatch dijkstraSW = new StopWatch();
+        long dijkstraCount;
+        // the estimate of this thread if the parallel contraction is not deterministic
+        double meanDegree;
+
+        /**
+         * Searches for shortcuts and calls the given handler on each shortcut that is found. The graph is not directly
+         * changed by this method.
+         * Returns the 'degree' of the handler's node (disregarding edges from/to already contracted nodes). Note that
+         * here the degree is not the total number of adjacent edges, but only the number of incoming edges
+         */
+        long findShortcuts(ShortcutHandler sch, int maxVisitedNodes) {
+            long degree = 0;
+            PrepareCHEdgeIterator incomingEdges = inExplorer.setBaseNode(sch.getNode());
+            // collect outgoing nodes (goal-nodes) only once
+            while (incomingEdges.next()) {
+                int fromNode = incomingEdges.getAdjNode();
+                // accept only not-contracted nodes, do not consider loops at the node that is being contracted
+                if (fromNode == sch.getNode() || isContracted(fromNode))
+                    continue;
+
+                final double incomingEdgeWeight = incomingEdges.getWeight(true);
+                // this check is important to prevent calling calcMillis on inaccessible edges and also allows early exit
+                if (Double.isInfinite(incomingEdgeWeight)) {
+                    continue;
+                }
+                int incomingEdge = incomingEdges.getEdge();
+                int inOrigEdgeCount = getOrigEdgeCount(incomingEdge);
+                // collect outgoing nodes (goal-nodes) only once
+                PrepareCHEdgeIterator outgoingEdges = outExplorer.setBaseNode(sch.getNode());
+                // force fresh maps etc as this cannot be determined by from node alone (e.g. same from node but different avoidNode)
+                witnessSearcher.clear();
+                degree++;
+                while (outgoingEdges.next()) {
+                    int toNode = outgoingEdges.getAdjNode();
+                    // add only not-contracted nodes, do not consider loops at the node that is being contracted
+                    if (toNode == sch.getNode() || isContracted(toNode) || fromNode == toNode)
+                        continue;
+
+                    // Limit weight as ferries or forbidden edges can increase local search too much.
+                    // If we decrease the correct weight we only explore less and introduce more shortcuts.
+                    // I.e. no change to accuracy is made.
+                    double existingDirectWeight = incomingEdgeWeight + outgoingEdges.getWeight(false);
+                    if (Double.isNaN(existingDirectWeight))
+                        throw new IllegalStateException("Weighting should never return NaN values"
+                                + ", in:" + getCoords(incomingEdges, prepareGraph.getNodeAccess()) + ", out:" + getCoords(outgoingEdges, prepareGraph.getNodeAccess()));
+
+                    if (Double.isInfinite(existingDirectWeight))
+                        continue;
+
+                    if (!witnessSearch) {
+                        sch.foundShortcut(fromNode, toNode, existingDirectWeight,
+                                outgoingEdges.getEdge(), getOrigEdgeCount(outgoingEdges.getEdge()),
+                                incomingEdge, inOrigEdgeCount);
+                        continue;
+                    }
+
+                    witnessSearcher.setWeightLimit(existingDirectWeight);
+                    witnessSearcher.setMaxVisitedNodes(maxVisitedNodes);
+                    witnessSearcher.ignoreNode(sch.getNode());
+
+                    dijkstraSW.start();
+                    dijkstraCount++;
+                    int endNode = witnessSearcher.findEndNode(fromNode, toNode);
+                    dijkstraSW.stop();
+
+                    // compare end node as the limit could force dijkstra to finish earlier
+                    if (endNode == toNode && witnessSearcher.getWeight(endNode) <= existingDirectWeight)
+                        // FOUND witness path, so do not add shortcut
+                        continue;
+
+                    sch.foundShortcut(fromNode, toNode, existingDirectWeight,
+                            outgoingEdges.getEdge(), getOrigEdgeCount(outgoingEdges.getEdge()),
+                            incomingEdge, inOrigEdgeCount);
+                }
+            }
+            return degree;
+        }
+
+        void close() {
+            witnessSearcher.close();
+        }
+    }
+
     private static class Shortcut {
         int from;
         int to;
@@ -355,7 +515,7 @@ class NodeBasedNodeContractor extends AbstractNodeContractor {
         int getNode();
     }
 
-    private class CalcShortcutHandler implements ShortcutHandler {
+    private static class CalcShortcutHandler implements ShortcutHandler {
         int node;
         CalcShortcutsResult calcShortcutsResult = new CalcShortcutsResult();
 
@@ -380,7 +540,8 @@ class NodeBasedNodeContractor extends AbstractNodeContractor {
         }
     }
 
-    private class AddShortcutHandler implements ShortcutHandler {
+    private static class AddShortcutHandler implements ShortcutHandler {
+        final Map<Shortcut, Shortcut> shortcuts = new HashMap<>();
         int node;
 
         @Override
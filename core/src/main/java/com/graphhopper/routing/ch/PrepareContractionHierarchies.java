@@ -17,6 +17,7 @@
  */
 package com.graphhopper.routing.ch;
 
+import com.carrotsearch.hppc.IntArrayList;
 import com.carrotsearch.hppc.IntHashSet;
 import com.carrotsearch.hppc.IntSet;
 import com.graphhopper.coll.GHTreeMapComposed;
@@ -65,6 +66,9 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
     private final Params params;
     private final NodeContractor nodeContractor;
     private NodeOrderingProvider nodeOrderingProvider;
+    private boolean metricIndependent;
+    private int contractionThreads = 1;
+    private int rounds;
     private PrepareCHEdgeExplorer allEdgeExplorer;
     private PrepareCHEdgeExplorer disconnectExplorer;
     private int maxLevel;
@@ -103,6 +107,24 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
         params.setNeighborUpdatePercentage(pMap.getInt(NEIGHBOR_UPDATES, params.getNeighborUpdatePercentage()));
         params.setNodesContractedPercentage(pMap.getInt(CONTRACTED_NODES, params.getNodesContractedPercentage()));
         params.setLogMessagesPercentage(pMap.getInt(LOG_MESSAGES, params.getLogMessagesPercentage()));
+        if (!chConfig.isEdgeBased())
+            setContractionThreads(pMap.getInt(CONTRACTION_THREADS, contractionThreads), pMap.getBool(CONTRACTION_DETERMINISTIC, true));
+        return this;
+    }
+
+    /**
+     * Contracts independent sets of nodes concurrently with the specified number of threads, see
+     * {@link #contractNodesInParallel()}. This is only supported for node-based CH with the heuristic node ordering,
+     * otherwise the nodes are contracted one after another. If deterministic the hierarchy does not depend on the
+     * number of threads, but it differs from the one of the serial contraction in any case.
+     */
+    public PrepareContractionHierarchies setContractionThreads(int contractionThreads, boolean deterministic) {
+        if (chConfig.isEdgeBased())
+            throw new IllegalArgumentException("Parallel contraction is only supported for node-based CH");
+        if (contractionThreads < 1)
+            throw new IllegalArgumentException(CONTRACTION_THREADS + " must be positive but was " + contractionThreads);
+        ((NodeBasedNodeContractor) nodeContractor).setParallelism(contractionThreads, deterministic);
+        this.contractionThreads = contractionThreads;
         return this;
     }
 
@@ -121,6 +143,23 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
         return this;
     }
 
+    /**
+     * Skips the witness searches and adds a shortcut for every pair of neighbors of a contracted node. This creates
+     * more shortcuts, but the resulting hierarchy is valid for any weighting with the same accessible edges, so that
+     * new edge weights only require a {@link CHCustomizer} pass instead of a full preparation. Unless a fixed node
+     * ordering is used the nodes are contracted in the order of a {@link NestedDissectionNodeOrdering}.
+     */
+    public PrepareContractionHierarchies setMetricIndependent(boolean metricIndependent) {
+        if (chConfig.isEdgeBased()) {
+            if (metricIndependent)
+                throw new IllegalArgumentException("Metric independent contraction is only supported for node-based CH");
+            return this;
+        }
+        ((NodeBasedNodeContractor) nodeContractor).setWitnessSearch(!metricIndependent);
+        this.metricIndependent = metricIndependent;
+        return this;
+    }
+
     @Override
     public void doSpecificWork() {
         if (!prepareGraph.isReadyForContraction()) {
@@ -132,6 +171,8 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
         allSW.start();
         initFromGraph();
         runGraphContraction();
+        if (chConfig.isCompactShortcuts())
+            ((CHGraphImpl) chGraph).compactShortcuts();
         allSW.stop();
         logFinalGraphStats();
     }
@@ -146,8 +187,14 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
         if (prepareGraph.getNodes() < 1)
             return;
         setMaxLevelOnAllNodes();
+        if (nodeOrderingProvider == null && metricIndependent) {
+            // the heuristic ordering relies on witness searches and creates far too many shortcuts without them
+            nodeOrderingProvider = new NestedDissectionNodeOrdering(chGraph);
+        }
         if (nodeOrderingProvider != null) {
             contractNodesUsingFixedNodeOrdering();
+        } else if (contractionThreads > 1) {
+            contractNodesInParallel();
         } else {
             contractNodesUsingHeuristicNodeOrdering();
         }
@@ -304,6 +351,113 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
         _close();
     }
 
+    /**
+     * Contracts the nodes in rounds. Every round contracts all remaining nodes whose priority is lower than the ones of
+     * their remaining neighbors (ties are broken by the node id). These nodes are not adjacent, so their shortcuts can
+     * be searched concurrently, when the witness searches avoid all nodes of the round. Afterwards the shortcuts are
+     * added to the graph and the priorities of all remaining neighbors are updated, both in the order of the node ids.
+     * There are no lazy or periodic updates, because the priorities of the other nodes do not change.
+     */
+    private void contractNodesInParallel() {
+        NodeBasedNodeContractor contractor = (NodeBasedNodeContractor) nodeContractor;
+        try {
+            IntArrayList remaining = new IntArrayList(prepareGraph.getNodes());
+            for (int node = 0; node < prepareGraph.getNodes(); node++) {
+                if (prepareGraph.getLevel(node) == maxLevel)
+                    remaining.add(node);
+            }
+            // like for the serial contraction the priorities are calculated before preparing the node contractor
+            periodicUpdateSW.start();
+            contractor.calculatePriorities(remaining, oldPriorities);
+            periodicUpdateSW.stop();
+            contractor.prepareContraction();
+            final int initSize = remaining.size();
+            final long logSize = params.getLogMessagesPercentage() == 0
+                    ? Long.MAX_VALUE
+                    : Math.round(Math.max(10, initSize * (params.getLogMessagesPercentage() / 100d)));
+            final long nodesToAvoidContract = Math.round(initSize * ((100 - params.getNodesContractedPercentage()) / 100d));
+            IntArrayList selected = new IntArrayList();
+            IntArrayList neighbors = new IntArrayList();
+            IntHashSet neighborSet = new IntHashSet();
+            int level = 0;
+            long nextLog = 0;
+            rounds = 0;
+            checkCounter = 0;
+            while (remaining.size() > nodesToAvoidContract) {
+                stopIfInterrupted();
+                if (checkCounter >= nextLog) {
+                    logParallelStats(remaining.size());
+                    nextLog += logSize;
+                }
+                selected.clear();
+                for (int i = 0; i < remaining.size() && remaining.size() - selected.size() > nodesToAvoidContract; i++) {
+                    int node = remaining.get(i);
+                    if (isLocalMinimum(node))
+                        selected.add(node);
+                }
+                // the witness searches skip all nodes that are contracted already
+                for (int i = 0; i < selected.size(); i++) {
+                    prepareGraph.setLevel(selected.get(i), level++);
+                }
+                contractionSW.start();
+                contractor.contractNodes(selected);
+                contractionSW.stop();
+
+                neighbors.clear();
+                neighborSet.clear();
+                for (int i = 0; i < selected.size(); i++) {
+                    PrepareCHEdgeIterator iter = allEdgeExplorer.setBaseNode(selected.get(i));
+                    while (iter.next()) {
+                        int nn = iter.getAdjNode();
+                        if (prepareGraph.getLevel(nn) != maxLevel)
+                            continue;
+                        if (neighborSet.add(nn))
+                            neighbors.add(nn);
+                        prepareGraph.disconnect(disconnectExplorer, iter);
+                    }
+                }
+                neighborUpdateSW.start();
+                contractor.calculatePriorities(neighbors, oldPriorities);
+                neighborUpdateSW.stop();
+
+                int size = 0;
+                for (int i = 0; i < remaining.size(); i++) {
+                    int node = remaining.get(i);
+                    if (prepareGraph.getLevel(node) == maxLevel)
+                        remaining.set(size++, node);
+                }
+                remaining.elementsCount = size;
+                checkCounter += selected.size();
+                rounds++;
+            }
+            logParallelStats(remaining.size());
+            logger.info("new shortcuts: " + nf(nodeContractor.getAddedShortcutsCount())
+                    + ", initSize:" + nf(initSize)
+                    + ", " + chConfig.getWeighting()
+                    + ", threads:" + contractionThreads
+                    + ", rounds:" + rounds
+                    + ", " + getTimesAsString()
+                    + ", " + Helper.getMemInfo());
+        } finally {
+            // the executor threads must be released also when the contraction fails or is interrupted
+            _close();
+        }
+    }
+
+    private boolean isLocalMinimum(int node) {
+        float priority = oldPriorities[node];
+        PrepareCHEdgeIterator iter = allEdgeExplorer.setBaseNode(node);
+        while (iter.next()) {
+            int adjNode = iter.getAdjNode();
+            if (adjNode == node || prepareGraph.getLevel(adjNode) != maxLevel)
+                continue;
+            float adjPriority = oldPriorities[adjNode];
+            if (adjPriority < priority || adjPriority == priority && adjNode < node)
+                return false;
+        }
+        return true;
+    }
+
     private void contractNodesUsingFixedNodeOrdering() {
         nodeContractor.prepareContraction();
         final int nodesToContract = nodeOrderingProvider.getNumNodes();
@@ -356,6 +510,18 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
                 Helper.getMemInfo()));
     }
 
+    private void logParallelStats(int remainingNodes) {
+        logger.info(String.format(Locale.ROOT,
+                "node, nodes: %10s, shortcuts: %10s, rounds: %5d, threads: %2d, %s, %s, %s",
+                nf(remainingNodes),
+                nf(nodeContractor.getAddedShortcutsCount()),
+                rounds,
+                contractionThreads,
+                getTimesAsString(),
+                nodeContractor.getStatisticsString(),
+                Helper.getMemInfo()));
+    }
+
     private void logFixedNodeOrderingStats(int nodesContracted, int logSize, StopWatch stopWatch) {
         logger.info(String.format(Locale.ROOT,
                 "nodes: %10s / %10s (%6.2f%%), shortcuts: %10s, speed = %6.2f nodes/ms, %s, %s",
@@ -389,6 +555,13 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
         return neighborUpdateSW.getCurrentSeconds();
     }
 
+    /**
+     * @return the number of rounds of the parallel contraction, see {@link #setContractionThreads}
+     */
+    public int getRounds() {
+        return rounds;
+    }
+
     public Weighting getWeighting() {
         return chConfig.getWeighting();
     }
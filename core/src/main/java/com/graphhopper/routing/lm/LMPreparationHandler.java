@@ -60,6 +60,7 @@ public class LMPreparationHandler {
     private int preparationThreads;
     private ExecutorService threadPool;
     private boolean logDetails = false;
+    private int explorationThreads = 1;
 
     public LMPreparationHandler() {
         setPreparationThreads(1);
@@ -82,6 +83,7 @@ public class LMPreparationHandler {
                     + " should be less or equal to landmark count of " + landmarkCount);
         logDetails = ghConfig.getBool(Landmark.PREPARE + "log_details", false);
         minNodes = ghConfig.getInt(Landmark.PREPARE + "min_network_size", -1);
+        setExplorationThreads(ghConfig.getInt(Landmark.PREPARE + "exploration_threads", explorationThreads));
 
         for (String loc : ghConfig.getString(Landmark.PREPARE + "suggestions_location", "").split(",")) {
             if (!loc.trim().isEmpty())
@@ -119,6 +121,23 @@ public class LMPreparationHandler {
         this.threadPool = java.util.concurrent.Executors.newFixedThreadPool(preparationThreads);
     }
 
+    public int getExplorationThreads() {
+        return explorationThreads;
+    }
+
+    /**
+     * This method changes the number of threads used to calculate the landmark weights within one preparation.
+     * Default is 1. Every thread needs the memory for the exploration of one landmark.
+     *
+     * @see LandmarkStorage#setExplorationThreads(int)
+     */
+    public LMPreparationHandler setExplorationThreads(int explorationThreads) {
+        if (explorationThreads < 1)
+            throw new IllegalArgumentException("exploration threads must be at least 1 but was " + explorationThreads);
+        this.explorationThreads = explorationThreads;
+        return this;
+    }
+
     public LMPreparationHandler setLMProfiles(LMProfile... lmProfiles) {
         return setLMProfiles(Arrays.asList(lmProfiles));
     }
@@ -280,6 +299,7 @@ public class LMPreparationHandler {
                     lmConfig, landmarkCount).
                     setLandmarkSuggestions(lmSuggestions).
                     setMaximumWeight(maximumWeight).
+                    setExplorationThreads(explorationThreads).
                     setLogDetails(logDetails);
             if (minNodes > 1)
                 tmpPrepareLM.setMinimumNodes(minNodes);
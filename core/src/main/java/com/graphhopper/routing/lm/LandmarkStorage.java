@@ -47,6 +47,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -92,6 +93,7 @@ public class LandmarkStorage implements Storable<LandmarkStorage> {
     private List<LandmarkSuggestion> landmarkSuggestions = Collections.emptyList();
     private SpatialRuleLookup ruleLookup;
     private boolean logDetails = false;
+    private int explorationThreads = 1;
     /**
      * 'to' and 'from' fit into 32 bit => 16 bit for each of them => 65536
      */
@@ -166,6 +168,18 @@ public class LandmarkStorage implements Storable<LandmarkStorage> {
         this.logDetails = logDetails;
     }
 
+    /**
+     * This method changes the number of threads that calculate the weights from and to the landmarks of a subnetwork
+     * concurrently. Default is 1. Every thread holds the shortest path tree of one landmark in memory, so make sure
+     * that you have enough memory when increasing this number!
+     */
+    public LandmarkStorage setExplorationThreads(int explorationThreads) {
+        if (explorationThreads < 1)
+            throw new IllegalArgumentException("exploration threads must be at least 1 but was " + explorationThreads);
+        this.explorationThreads = explorationThreads;
+        return this;
+    }
+
     /**
      * This method forces the landmark preparation to skip the landmark search and uses the specified landmark list instead.
      * Useful for manual tuning of larger areas to safe import time or improve quality.
@@ -430,37 +444,28 @@ public class LandmarkStorage implements Storable<LandmarkStorage> {
         }
 
         // 2) calculate weights for all landmarks -> 'from' and 'to' weight
-        for (int lmIdx = 0; lmIdx < tmpLandmarkNodeIds.length; lmIdx++) {
-            if (Thread.currentThread().isInterrupted()) {
-                throw new RuntimeException("Thread was interrupted for landmark " + lmIdx);
-            }
-            int lmNodeId = tmpLandmarkNodeIds[lmIdx];
-            LandmarkExplorer explorer = new LandmarkExplorer(graph, this, weighting, traversalMode, true);
-            explorer.setStartNode(lmNodeId);
-            explorer.setFilter(blockedEdges, false, true);
-            explorer.runAlgo();
-            explorer.initLandmarkWeights(lmIdx, lmNodeId, LM_ROW_LENGTH, FROM_OFFSET);
-
-            // set subnetwork id to all explored nodes, but do this only for the first landmark
-            if (lmIdx == 0) {
-                if (explorer.setSubnetworks(subnetworks, subnetworkId))
-                    return false;
-            }
-
-            explorer = new LandmarkExplorer(graph, this, weighting, traversalMode, false);
-            explorer.setStartNode(lmNodeId);
-            explorer.setFilter(blockedEdges, true, false);
-            explorer.runAlgo();
-            explorer.initLandmarkWeights(lmIdx, lmNodeId, LM_ROW_LENGTH, TO_OFFSET);
+        if (Thread.currentThread().isInterrupted()) {
+            throw new RuntimeException("Thread was interrupted for landmark 0");
+        }
+        // set subnetwork id to all explored nodes, but do this only for the first landmark
+        if (exploreLandmark(0, tmpLandmarkNodeIds[0], blockedEdges, true).setSubnetworks(subnetworks, subnetworkId))
+            return false;
+        if (exploreLandmark(0, tmpLandmarkNodeIds[0], blockedEdges, false).setSubnetworks(subnetworks, subnetworkId))
+            return false;
 
-            if (lmIdx == 0) {
-                if (explorer.setSubnetworks(subnetworks, subnetworkId))
-                    return false;
+        if (explorationThreads > 1 && tmpLandmarkNodeIds.length > 2) {
+            exploreLandmarksConcurrently(tmpLandmarkNodeIds, blockedEdges, logOffset);
+        } else {
+            for (int lmIdx = 1; lmIdx < tmpLandmarkNodeIds.length; lmIdx++) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new RuntimeException("Thread was interrupted for landmark " + lmIdx);
+                }
+                exploreLandmark(lmIdx, tmpLandmarkNodeIds[lmIdx], blockedEdges, true);
+                exploreLandmark(lmIdx, tmpLandmarkNodeIds[lmIdx], blockedEdges, false);
+                if (logDetails && lmIdx % logOffset == 0)
+                    LOGGER.info("Set landmarks weights [" + weighting + "]. "
+                            + "Progress " + (int) (100.0 * lmIdx / tmpLandmarkNodeIds.length) + "%");
             }
-
-            if (logDetails && lmIdx % logOffset == 0)
-                LOGGER.info("Set landmarks weights [" + weighting + "]. "
-                        + "Progress " + (int) (100.0 * lmIdx / tmpLandmarkNodeIds.length) + "%");
         }
 
         // TODO set weight to SHORT_MAX if entry has either no 'from' or no 'to' entry
@@ -468,6 +473,59 @@ public class LandmarkStorage implements Storable<LandmarkStorage> {
         return true;
     }
 
+    /**
+     * Runs the 'from' or 'to' exploration of the specified landmark and stores the resulting weights.
+     */
+    private LandmarkExplorer exploreLandmark(int lmIdx, int lmNodeId, IntHashSet blockedEdges, boolean from) {
+        LandmarkExplorer explorer = new LandmarkExplorer(graph, this, weighting, traversalMode, from);
+        explorer.setStartNode(lmNodeId);
+        explorer.setFilter(blockedEdges, !from, from);
+        explorer.runAlgo();
+        explorer.initLandmarkWeights(lmIdx, lmNodeId, LM_ROW_LENGTH, from ? FROM_OFFSET : TO_OFFSET);
+        return explorer;
+    }
+
+    /**
+     * Calculates the weights of all but the first landmark with one task per landmark. The tasks do not need to be
+     * synchronized as every landmark has its own 4 bytes in every row of the landmark weights, which are only written
+     * by the task of this landmark. The graph and the weighting are only read.
+     */
+    private void exploreLandmarksConcurrently(final int[] lmNodeIds, final IntHashSet blockedEdges, final int logOffset) {
+        final AtomicInteger finished = new AtomicInteger(1);
+        List<Callable<Object>> tasks = new ArrayList<>(lmNodeIds.length - 1);
+        for (int i = 1; i < lmNodeIds.length; i++) {
+            final int lmIdx = i;
+            tasks.add(new Callable<Object>() {
+                @Override
+                public Object call() {
+                    exploreLandmark(lmIdx, lmNodeIds[lmIdx], blockedEdges, true);
+                    exploreLandmark(lmIdx, lmNodeIds[lmIdx], blockedEdges, false);
+                    int count = finished.incrementAndGet();
+                    if (logDetails && count % logOffset == 0)
+                        LOGGER.info("Set landmarks weights [" + weighting + "]. "
+                                + "Progress " + (int) (100.0 * count / lmNodeIds.length) + "%");
+                    return null;
+                }
+            });
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(explorationThreads, tasks.size()));
+        try {
+            for (Future<Object> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Thread was interrupted while calculating the landmark weights", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException)
+                throw (RuntimeException) ex.getCause();
+            throw new RuntimeException(ex.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     /**
      * This method specifies the polygons which should be used to split the world wide area to improve performance and
      * quality in this scenario.
@@ -91,6 +91,14 @@ public class PrepareLandmarks extends AbstractAlgoPreparation {
         lms.setMinimumNodes(nodes);
     }
 
+    /**
+     * @see LandmarkStorage#setExplorationThreads(int)
+     */
+    public PrepareLandmarks setExplorationThreads(int explorationThreads) {
+        lms.setExplorationThreads(explorationThreads);
+        return this;
+    }
+
     public PrepareLandmarks setLogDetails(boolean logDetails) {
         lms.setLogDetails(logDetails);
         return this;
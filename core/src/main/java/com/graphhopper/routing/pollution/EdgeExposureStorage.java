@@ -0,0 +1,197 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.pollution;
+
+import com.graphhopper.routing.util.AllEdgesIterator;
+import com.graphhopper.storage.DataAccess;
+import com.graphhopper.storage.Directory;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.storage.Storable;
+import com.graphhopper.util.BitUtil;
+import com.graphhopper.util.FetchMode;
+
+/**
+ * Stores the exposure to every {@link Pollutant} along each edge of the base graph, so that the pollution
+ * weightings do not have to intersect the edge geometry with the grid for every query. The exposure is stored per
+ * meter of the edge, which makes it usable for the virtual edges that split an edge, too. The values are calculated
+ * from a {@link PollutionGrid} snapshot in one linear pass over all edges, see {@link #fill(Graph, PollutionGrid)},
+ * which can be repeated whenever a new snapshot is available without re-importing the graph.
+ * <p>
+ * A new snapshot is written to a second buffer while queries keep reading the current one. The filled buffer then
+ * replaces the current one together with its version and edge count, and the replaced buffer is re-used for the
+ * next snapshot.
+ *
+ * @author Jhon
+ */
+public class EdgeExposureStorage implements Storable<EdgeExposureStorage> {
+    private static final int POLLUTANTS = Pollutant.values().length;
+    private static final int BYTES_PER_EDGE = POLLUTANTS * 4;
+    private final Directory dir;
+    private final String name;
+    private volatile Buffer current;
+    // the buffer the next snapshot is written to, created when the storage is filled the second time
+    private DataAccess spare;
+
+    public EdgeExposureStorage(Directory dir) {
+        this(dir, "pollution_exposure");
+    }
+
+    public EdgeExposureStorage(Directory dir, String name) {
+        this.dir = dir;
+        this.name = name;
+        this.current = new Buffer(dir.find(name), 0, -1);
+    }
+
+    @Override
+    public EdgeExposureStorage create(long byteCount) {
+        current.exposures.create(byteCount);
+        return this;
+    }
+
+    /**
+     * Loads the buffer with the latest snapshot, if both buffers were stored.
+     */
+    @Override
+    public boolean loadExisting() {
+        DataAccess exposures = current.exposures;
+        DataAccess other = dir.find(name + "_swap");
+        Buffer buffer = exposures.loadExisting() ? load(exposures) : null;
+        Buffer otherBuffer = other.loadExisting() ? load(other) : null;
+        if (otherBuffer != null && (buffer == null || otherBuffer.version > buffer.version)) {
+            current = otherBuffer;
+            spare = buffer == null ? null : exposures;
+        } else if (buffer != null) {
+            current = buffer;
+            spare = otherBuffer == null ? null : other;
+        }
+        return buffer != null || otherBuffer != null;
+    }
+
+    private static Buffer load(DataAccess exposures) {
+        if (exposures.getHeader(0) != BYTES_PER_EDGE)
+            throw new IllegalStateException("Number of bytes per edge does not match the current configuration: " + exposures.getHeader(0) + " vs. " + BYTES_PER_EDGE);
+        return new Buffer(exposures, exposures.getHeader(1 * 4), BitUtil.BIG.toLong(exposures.getHeader(2 * 4), exposures.getHeader(3 * 4)));
+    }
+
+    @Override
+    public void flush() {
+        Buffer buffer = current;
+        setHeader(buffer.exposures, buffer.edgeCount, buffer.version);
+        buffer.exposures.flush();
+    }
+
+    private static void setHeader(DataAccess exposures, int edgeCount, long version) {
+        exposures.setHeader(0, BYTES_PER_EDGE);
+        exposures.setHeader(1 * 4, edgeCount);
+        exposures.setHeader(2 * 4, (int) (version >>> 32));
+        exposures.setHeader(3 * 4, (int) version);
+    }
+
+    @Override
+    public void close() {
+        current.exposures.close();
+        if (spare != null)
+            spare.close();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return current.exposures.isClosed();
+    }
+
+    @Override
+    public long getCapacity() {
+        return current.exposures.getCapacity() + (spare == null ? 0 : spare.getCapacity());
+    }
+
+    /**
+     * Calculates the exposure of all edges of the specified graph from the specified snapshot. Queries read the
+     * previous snapshot until all edges are calculated. Only one thread may fill this storage at a time.
+     */
+    public void fill(Graph graph, PollutionGrid grid) {
+        Buffer previous = current;
+        DataAccess exposures;
+        if (previous.version < 0) {
+            // nothing reads the exposure before the storage was filled once
+            exposures = previous.exposures;
+        } else {
+            if (spare == null) {
+                String spareName = previous.exposures.getName().equals(name) ? name + "_swap" : name;
+                spare = dir.find(spareName).create(previous.exposures.getCapacity());
+            }
+            exposures = spare;
+        }
+
+        int edges = graph.getEdges();
+        exposures.ensureCapacity((long) edges * BYTES_PER_EDGE);
+        double[] tmp = new double[POLLUTANTS];
+        AllEdgesIterator iter = graph.getAllEdges();
+        while (iter.next()) {
+            grid.calcExposures(iter.fetchWayGeometry(FetchMode.ALL), tmp);
+            double distance = iter.getDistance();
+            long pointer = (long) iter.getEdge() * BYTES_PER_EDGE;
+            for (int p = 0; p < POLLUTANTS; p++) {
+                float perMeter = distance > 0 ? (float) (tmp[p] / distance) : 0;
+                exposures.setInt(pointer + p * 4, Float.floatToRawIntBits(perMeter));
+            }
+        }
+        setHeader(exposures, edges, grid.getVersion());
+        current = new Buffer(exposures, edges, grid.getVersion());
+        if (exposures == spare)
+            spare = previous.exposures;
+    }
+
+    /**
+     * @return the number of edges for which an exposure is stored, 0 if this storage was not yet filled
+     */
+    public int getEdges() {
+        return current.edgeCount;
+    }
+
+    /**
+     * @return the version of the {@link PollutionGrid} this storage was filled from or -1 if it was not yet filled
+     */
+    public long getVersion() {
+        return current.version;
+    }
+
+    /**
+     * @return the exposure along the specified edge divided by its distance
+     */
+    public double getExposurePerMeter(int edge, Pollutant pollutant) {
+        return Float.intBitsToFloat(current.exposures.getInt((long) edge * BYTES_PER_EDGE + pollutant.ordinal() * 4));
+    }
+
+    @Override
+    public String toString() {
+        Buffer buffer = current;
+        return buffer.exposures.getName() + ", edges:" + buffer.edgeCount + ", version:" + buffer.version;
+    }
+
+    private static final class Buffer {
+        final DataAccess exposures;
+        final int edgeCount;
+        final long version;
+
+        Buffer(DataAccess exposures, int edgeCount, long version) {
+            this.exposures = exposures;
+            this.edgeCount = edgeCount;
+            this.version = version;
+        }
+    }
+}
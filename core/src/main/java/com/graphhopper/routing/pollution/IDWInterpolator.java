@@ -0,0 +1,174 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.pollution;
+
+import com.carrotsearch.hppc.FloatArrayList;
+import com.carrotsearch.hppc.IntArrayList;
+import com.graphhopper.util.DistanceCalc;
+import com.graphhopper.util.DistanceCalcEarth;
+import com.graphhopper.util.Helper;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Interpolates raw {@link SensorReading}s onto the cells of a {@link PollutionGrid} with inverse distance weighting:
+ * the value of a cell is sum(w_i * v_i) / sum(w_i) over all sensors i within the radius of the cell center, where
+ * w_i = 1 / distance^power. Both sums are kept per cell and pollutant, so a new reading only changes the cells
+ * around its sensor in time proportional to their number instead of recomputing the whole grid. Cells without a
+ * sensor in range keep the value of the base snapshot. The memory is constant for a fixed set of sensors.
+ * <p>
+ * This class is not thread-safe, see {@link SensorFeed}.
+ *
+ * @author Jhon
+ */
+public class IDWInterpolator {
+    private static final int POLLUTANTS = Pollutant.values().length;
+    // avoids infinite weights for sensors at the center of a cell
+    private static final double MIN_DISTANCE = 1;
+    private final DistanceCalc distCalc = Helper.DIST_EARTH;
+    private final PollutionGrid base;
+    private final double radius;
+    private final double power;
+    private final Map<String, Sensor> sensors = new HashMap<>();
+    // the weighted sum of the values and the sum of the weights, indexed like the values of the grid
+    private final double[] weightedValues;
+    private final double[] weights;
+    private final float[] values;
+    private int changedValues;
+
+    /**
+     * @param base   the snapshot that defines the cells and the values of the cells without sensor in range
+     * @param radius the maximum distance in meters between a sensor and the center of a cell it influences
+     * @param power  the exponent of the distance, 2 is common
+     */
+    public IDWInterpolator(PollutionGrid base, double radius, double power) {
+        if (radius <= 0)
+            throw new IllegalArgumentException("radius must be positive but was " + radius);
+        this.base = base;
+        this.radius = radius;
+        this.power = power;
+        int size = POLLUTANTS * base.getCellCount();
+        weightedValues = new double[size];
+        weights = new double[size];
+        values = new float[size];
+        for (Pollutant pollutant : Pollutant.values()) {
+            for (int cell = 0; cell < base.getCellCount(); cell++) {
+                values[pollutant.ordinal() * base.getCellCount() + cell] = (float) base.getValue(pollutant, cell);
+            }
+        }
+    }
+
+    /**
+     * Applies the specified reading to all cells in range of its sensor. Readings older than the last reading of the
+     * same sensor and pollutant are ignored. The location of a sensor is the one of its first reading.
+     *
+     * @return the number of values of cells that changed
+     */
+    public int add(SensorReading reading) {
+        Sensor sensor = sensors.get(reading.getSensorId());
+        if (sensor == null) {
+            sensor = createSensor(reading.getLat(), reading.getLon());
+            sensors.put(reading.getSensorId(), sensor);
+        }
+        int p = reading.getPollutant().ordinal();
+        if (reading.getTime() < sensor.times[p])
+            return 0;
+
+        double oldValue = sensor.values[p];
+        double newValue = reading.getValue();
+        sensor.times[p] = reading.getTime();
+        sensor.values[p] = newValue;
+        if (oldValue == newValue)
+            return 0;
+
+        int offset = p * base.getCellCount();
+        int changed = 0;
+        for (int i = 0; i < sensor.cells.length; i++) {
+            int index = offset + sensor.cells[i];
+            double weight = sensor.weights[i];
+            if (Double.isNaN(oldValue)) {
+                weights[index] += weight;
+                weightedValues[index] += weight * newValue;
+            } else {
+                weightedValues[index] += weight * (newValue - oldValue);
+            }
+            float value = (float) (weightedValues[index] / weights[index]);
+            if (value != values[index]) {
+                values[index] = value;
+                changed++;
+            }
+        }
+        changedValues += changed;
+        return changed;
+    }
+
+    private Sensor createSensor(double lat, double lon) {
+        // a cheap bounding box check before the exact distance to the cell center
+        double dLat = radius / DistanceCalcEarth.METERS_PER_DEGREE;
+        double dLon = dLat / Math.max(0.01, Math.cos(Math.toRadians(lat)));
+        IntArrayList cells = new IntArrayList();
+        FloatArrayList cellWeights = new FloatArrayList();
+        for (int cell = 0; cell < base.getCellCount(); cell++) {
+            double centerLat = (base.getSouth(cell) + base.getNorth(cell)) / 2;
+            double centerLon = (base.getWest(cell) + base.getEast(cell)) / 2;
+            if (Math.abs(centerLat - lat) > dLat || Math.abs(centerLon - lon) > dLon)
+                continue;
+            double distance = distCalc.calcDist(lat, lon, centerLat, centerLon);
+            if (distance > radius)
+                continue;
+            cells.add(cell);
+            cellWeights.add((float) (1 / Math.pow(Math.max(MIN_DISTANCE, distance), power)));
+        }
+        return new Sensor(cells.toArray(), cellWeights.toArray());
+    }
+
+    public int getSensorCount() {
+        return sensors.size();
+    }
+
+    /**
+     * @return the number of cell values that changed since the last snapshot
+     */
+    public int getChangedValues() {
+        return changedValues;
+    }
+
+    /**
+     * Creates a snapshot of the current values that shares the cells of the base snapshot.
+     */
+    public PollutionGrid createSnapshot(long version) {
+        changedValues = 0;
+        return base.withValues(version, values.clone());
+    }
+
+    private static class Sensor {
+        final int[] cells;
+        final float[] weights;
+        final double[] values = new double[POLLUTANTS];
+        final long[] times = new long[POLLUTANTS];
+
+        Sensor(int[] cells, float[] weights) {
+            this.cells = cells;
+            this.weights = weights;
+            Arrays.fill(values, Double.NaN);
+            Arrays.fill(times, Long.MIN_VALUE);
+        }
+    }
+}
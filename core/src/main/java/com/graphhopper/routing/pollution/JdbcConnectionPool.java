@@ -0,0 +1,264 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.pollution;
+
+import org.ini4j.Ini;
+
+import java.io.Closeable;
+import java.io.FileReader;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A small pool of JDBC connections to the sensor database, so that concurrent loads share a bounded number of
+ * connections instead of opening a new one every time. Every connection caches its prepared statements, so repeated
+ * queries are only prepared once per connection. Connections that failed are closed instead of being returned and
+ * idle connections are validated before they are used again.
+ *
+ * @author Jhon
+ */
+public class JdbcConnectionPool implements Closeable {
+    private static final long VALIDATE_AFTER_IDLE_MILLIS = 30_000;
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final String url;
+    private final Properties connectionProperties;
+    private final int maxConnections;
+    private final long timeoutMillis;
+    private final Semaphore permits;
+    // the most recently used connection is taken first, so rarely needed connections become idle for long
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final AtomicInteger openConnections = new AtomicInteger();
+    private final AtomicLong executions = new AtomicLong();
+    private final AtomicLong executionNanos = new AtomicLong();
+    private final AtomicLong waitNanos = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private volatile boolean closed;
+
+    /**
+     * Work to be done with a connection of the pool.
+     */
+    public interface Work<T> {
+        T execute(PooledConnection connection) throws SQLException;
+    }
+
+    /**
+     * @param maxConnections the maximum number of connections that are open at the same time
+     * @param timeoutMillis  the maximum time to wait for a free connection
+     */
+    public JdbcConnectionPool(String url, String user, String password, int maxConnections, long timeoutMillis) {
+        if (maxConnections < 1)
+            throw new IllegalArgumentException("maxConnections has to be at least 1 but was " + maxConnections);
+        this.url = url;
+        this.connectionProperties = new Properties();
+        if (user != null)
+            connectionProperties.setProperty("user", user);
+        if (password != null)
+            connectionProperties.setProperty("password", password);
+        this.maxConnections = maxConnections;
+        this.timeoutMillis = timeoutMillis;
+        this.permits = new Semaphore(maxConnections, true);
+    }
+
+    /**
+     * Creates a pool from an ini file with a ConnectionSettings section like sensors-config/MYSQL.config
+     */
+    public static JdbcConnectionPool fromIni(String fileName, int maxConnections, long timeoutMillis) {
+        try (FileReader reader = new FileReader(fileName)) {
+            Ini.Section settings = new Ini(reader).get("ConnectionSettings");
+            if (settings == null)
+                throw new IllegalArgumentException("No ConnectionSettings section in " + fileName);
+            String url = "jdbc:postgresql://" + settings.fetch("MYSQL_URL") + ":5432/" + settings.fetch("DATABASE")
+                    + "?currentSchema=" + settings.fetch("SCHEMA");
+            return new JdbcConnectionPool(url, settings.fetch("USER"), settings.fetch("PASSWORD"), maxConnections, timeoutMillis);
+        } catch (IOException ex) {
+            throw new IllegalArgumentException("Cannot read pollution database settings from " + fileName, ex);
+        }
+    }
+
+    /**
+     * Executes the specified work with a connection of the pool. The connection must not be used after the work
+     * returned.
+     */
+    public <T> T execute(Work<T> work) throws SQLException {
+        PooledConnection connection = borrow();
+        boolean failed = true;
+        long start = System.nanoTime();
+        try {
+            T result = work.execute(connection);
+            failed = false;
+            return result;
+        } finally {
+            executionNanos.addAndGet(System.nanoTime() - start);
+            executions.incrementAndGet();
+            if (failed)
+                failures.incrementAndGet();
+            release(connection, failed);
+        }
+    }
+
+    private PooledConnection borrow() throws SQLException {
+        if (closed)
+            throw new SQLException("The connection pool for " + url + " is closed");
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS))
+                throw new SQLException("No connection to " + url + " available within " + timeoutMillis + "ms, all "
+                        + maxConnections + " connections are in use");
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection to " + url, ex);
+        } finally {
+            waitNanos.addAndGet(System.nanoTime() - start);
+        }
+
+        try {
+            PooledConnection connection;
+            while ((connection = idle.pollFirst()) != null) {
+                if (System.currentTimeMillis() - connection.lastUsed < VALIDATE_AFTER_IDLE_MILLIS
+                        || connection.connection.isValid(VALIDATION_TIMEOUT_SECONDS))
+                    return connection;
+                close(connection);
+            }
+            connection = new PooledConnection(DriverManager.getConnection(url, connectionProperties));
+            openConnections.incrementAndGet();
+            return connection;
+        } catch (SQLException | RuntimeException ex) {
+            permits.release();
+            throw ex;
+        }
+    }
+
+    private void release(PooledConnection connection, boolean failed) {
+        connection.lastUsed = System.currentTimeMillis();
+        if (failed || closed)
+            close(connection);
+        else
+            idle.offerFirst(connection);
+        permits.release();
+    }
+
+    private void close(PooledConnection connection) {
+        openConnections.decrementAndGet();
+        connection.close();
+    }
+
+    /**
+     * Closes all idle connections. Connections in use are closed when they are returned.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        PooledConnection connection;
+        while ((connection = idle.pollFirst()) != null) {
+            close(connection);
+        }
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public int getOpenConnections() {
+        return openConnections.get();
+    }
+
+    public int getActiveConnections() {
+        return maxConnections - permits.availablePermits();
+    }
+
+    public long getExecutions() {
+        return executions.get();
+    }
+
+    public long getFailures() {
+        return failures.get();
+    }
+
+    /**
+     * @return the total time spent executing work with a connection in nanoseconds
+     */
+    public long getExecutionNanos() {
+        return executionNanos.get();
+    }
+
+    /**
+     * @return the total time spent waiting for a free connection in nanoseconds
+     */
+    public long getWaitNanos() {
+        return waitNanos.get();
+    }
+
+    @Override
+    public String toString() {
+        return url + ", connections: " + openConnections.get() + "/" + maxConnections;
+    }
+
+    /**
+     * A connection of the pool, which is only used by one thread at a time.
+     */
+    public static final class PooledConnection {
+        private final Connection connection;
+        private final Map<String, PreparedStatement> statements = new HashMap<>();
+        private long lastUsed = System.currentTimeMillis();
+
+        private PooledConnection(Connection connection) {
+            this.connection = connection;
+        }
+
+        /**
+         * @return the prepared statement for the specified query, which is only prepared when it is used the first time
+         * with this connection. The statement must not be closed.
+         */
+        public PreparedStatement prepare(String query) throws SQLException {
+            PreparedStatement statement = statements.get(query);
+            if (statement == null) {
+                statement = connection.prepareStatement(query);
+                statements.put(query, statement);
+            }
+            return statement;
+        }
+
+        private void close() {
+            for (PreparedStatement statement : statements.values()) {
+                try {
+                    statement.close();
+                } catch (SQLException ex) {
+                    // the connection is closed anyway
+                }
+            }
+            statements.clear();
+            try {
+                connection.close();
+            } catch (SQLException ex) {
+                // ignore, the connection is not used anymore
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.pollution;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Loads the cells and the interpolated values of all pollutants from the PostgreSQL sensor database with two
+ * queries, instead of querying the database for every edge. The connections and prepared statements are reused from
+ * a {@link JdbcConnectionPool}.
+ *
+ * @author Jhon
+ */
+public class JdbcPollutionGridLoader implements PollutionGridLoader {
+    /**
+     * Half of the edge length of a cell in degrees. The cells table only stores the center of every cell.
+     */
+    public static final double CELL_HALF_SIZE = 0.001 * 100 / 222;
+    private static final String CELLS_QUERY = "SELECT \"idcell\", \"midLat\", \"midLon\" FROM cellsdata ORDER BY idcell";
+    private static final String VALUES_QUERY = "SELECT i.\"idcell\", p.\"pollutantName\", i.\"interpolatedValiue\" "
+            + "FROM interpolatedmetrics i, pollutant p WHERE p.\"idPollutant\" = i.\"idPollutant\"";
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+    private final JdbcConnectionPool pool;
+
+    public JdbcPollutionGridLoader(JdbcConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public PollutionGrid load() {
+        final PollutionGrid.Builder builder = new PollutionGrid.Builder();
+        final int[] counts = new int[2];
+        try {
+            pool.execute(new JdbcConnectionPool.Work<Void>() {
+                @Override
+                public Void execute(JdbcConnectionPool.PooledConnection connection) throws SQLException {
+                    try (ResultSet rs = connection.prepare(CELLS_QUERY).executeQuery()) {
+                        while (rs.next()) {
+                            double midLat = rs.getDouble("midLat");
+                            double midLon = rs.getDouble("midLon");
+                            builder.addCell(rs.getString("idcell"), midLat - CELL_HALF_SIZE, midLon - CELL_HALF_SIZE,
+                                    midLat + CELL_HALF_SIZE, midLon + CELL_HALF_SIZE);
+                        }
+                    }
+                    try (ResultSet rs = connection.prepare(VALUES_QUERY).executeQuery()) {
+                        while (rs.next()) {
+                            int cell = builder.getCell(rs.getString("idcell"));
+                            Pollutant pollutant = Pollutant.find(rs.getString("pollutantName"));
+                            if (cell < 0 || pollutant == null) {
+                                counts[1]++;
+                                continue;
+                            }
+                            builder.setValue(pollutant, cell, rs.getDouble("interpolatedValiue"));
+                            counts[0]++;
+                        }
+                    }
+                    return null;
+                }
+            });
+        } catch (SQLException ex) {
+            throw new RuntimeException("Cannot load pollution grid from " + pool, ex);
+        }
+        PollutionGrid grid = builder.build();
+        logger.info("loaded pollution grid " + grid + ", values: " + counts[0] + ", skipped: " + counts[1]);
+        return grid;
+    }
+
+    @Override
+    public String toString() {
+        return pool.toString();
+    }
+}
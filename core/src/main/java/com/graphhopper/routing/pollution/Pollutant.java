@@ -0,0 +1,73 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.pollution;
+
+/**
+ * The pollutants measured by the Qaira sensors. The name is the one used in the pollutant table of the sensor
+ * database and in the 'pollutants' hint of the pollution weighting. The weighting name is the legacy
+ * qaira_weighting_* name that selects the pollution weighting for this pollutant only.
+ *
+ * @author Jhon
+ */
+public enum Pollutant {
+    CO("CO", "qaira_weighting_co"), H2S("H2S", "qaira_weighting_hs"), NO2("NO2", "qaira_weighting_no"),
+    O3("O3", "qaira_weighting_o"), PM10("PM10", "qaira_weighting_pmd"), PM25("PM25", "qaira_weighting_pmv"),
+    SO2("SO2", "qaira_weighting_so");
+
+    private final String name;
+    private final String weightingName;
+
+    Pollutant(String name, String weightingName) {
+        this.name = name;
+        this.weightingName = weightingName;
+    }
+
+    public String getWeightingName() {
+        return weightingName;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    /**
+     * @return the pollutant with the specified database name or null if there is none
+     */
+    public static Pollutant find(String name) {
+        if (name == null || name.isEmpty())
+            return null;
+
+        for (Pollutant pollutant : values()) {
+            if (pollutant.name.equalsIgnoreCase(name))
+                return pollutant;
+        }
+        return null;
+    }
+
+    /**
+     * @return the pollutant of the specified qaira_weighting_* name or null if there is none
+     */
+    public static Pollutant findByWeighting(String weightingName) {
+        for (Pollutant pollutant : values()) {
+            if (pollutant.weightingName.equalsIgnoreCase(weightingName))
+                return pollutant;
+        }
+        return null;
+    }
+}
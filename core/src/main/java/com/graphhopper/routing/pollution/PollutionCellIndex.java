@@ -0,0 +1,306 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.pollution;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.graphhopper.storage.index.BresenhamLine;
+import com.graphhopper.storage.index.PointEmitter;
+
+/**
+ * A uniform grid of tiles over the cells of a {@link PollutionGrid}, where every tile knows the cells overlapping it.
+ * The tile size is about the average cell size, so the cell containing a point is found in constant time. The cells
+ * crossed by a segment are found by walking the tiles along the segment with {@link BresenhamLine} and clipping the
+ * segment against every cell within each tile. As the Bresenham line is not a supercover line, the neighbours of its
+ * tiles are visited as well, every tile only once.
+ *
+ * @author Jhon
+ */
+final class PollutionCellIndex {
+    // limits the memory for grids with a few huge and many small cells
+    private static final int MAX_TILES_PER_CELL = 4;
+    private final double[] south;
+    private final double[] west;
+    private final double[] north;
+    private final double[] east;
+    private final double minLat, minLon, maxLat, maxLon;
+    private final double tileLat, tileLon;
+    private final int rows, cols;
+    // the cells of tile t are tileCells[tileStarts[t]] until tileCells[tileStarts[t + 1]], in increasing order
+    private final int[] tileStarts;
+    private final int[] tileCells;
+
+    interface CellVisitor {
+        /**
+         * @param fraction the fraction of the segment within the cell
+         */
+        void visit(int cell, double fraction);
+    }
+
+    PollutionCellIndex(double[] south, double[] west, double[] north, double[] east) {
+        this.south = south;
+        this.west = west;
+        this.north = north;
+        this.east = east;
+        int cells = south.length;
+        double minLat = Double.MAX_VALUE, minLon = Double.MAX_VALUE, maxLat = -Double.MAX_VALUE, maxLon = -Double.MAX_VALUE;
+        double sumLat = 0, sumLon = 0;
+        for (int cell = 0; cell < cells; cell++) {
+            minLat = Math.min(minLat, south[cell]);
+            minLon = Math.min(minLon, west[cell]);
+            maxLat = Math.max(maxLat, north[cell]);
+            maxLon = Math.max(maxLon, east[cell]);
+            sumLat += north[cell] - south[cell];
+            sumLon += east[cell] - west[cell];
+        }
+        this.minLat = minLat;
+        this.minLon = minLon;
+        this.maxLat = maxLat;
+        this.maxLon = maxLon;
+        double tileLat = cells == 0 ? 1 : Math.max(sumLat / cells, 1e-9);
+        double tileLon = cells == 0 ? 1 : Math.max(sumLon / cells, 1e-9);
+        while (cells > 0 && countTiles(maxLat - minLat, tileLat) * countTiles(maxLon - minLon, tileLon) > (long) MAX_TILES_PER_CELL * cells) {
+            tileLat *= 2;
+            tileLon *= 2;
+        }
+        this.tileLat = tileLat;
+        this.tileLon = tileLon;
+        rows = cells == 0 ? 0 : (int) countTiles(maxLat - minLat, tileLat);
+        cols = cells == 0 ? 0 : (int) countTiles(maxLon - minLon, tileLon);
+
+        // count the cells per tile first to store them in one array
+        tileStarts = new int[rows * cols + 1];
+        for (int cell = 0; cell < cells; cell++) {
+            for (int row = getRow(south[cell]); row <= getRow(north[cell]); row++) {
+                for (int col = getCol(west[cell]); col <= getCol(east[cell]); col++) {
+                    tileStarts[row * cols + col + 1]++;
+                }
+            }
+        }
+        for (int tile = 0; tile < rows * cols; tile++) {
+            tileStarts[tile + 1] += tileStarts[tile];
+        }
+        tileCells = new int[tileStarts[rows * cols]];
+        int[] fill = new int[rows * cols];
+        for (int cell = 0; cell < cells; cell++) {
+            for (int row = getRow(south[cell]); row <= getRow(north[cell]); row++) {
+                for (int col = getCol(west[cell]); col <= getCol(east[cell]); col++) {
+                    int tile = row * cols + col;
+                    tileCells[tileStarts[tile] + fill[tile]++] = cell;
+                }
+            }
+        }
+    }
+
+    private static long countTiles(double extent, double tileSize) {
+        return Math.max(1, (long) Math.ceil(extent / tileSize));
+    }
+
+    private int getRow(double lat) {
+        return Math.max(0, Math.min(rows - 1, (int) ((lat - minLat) / tileLat)));
+    }
+
+    private int getCol(double lon) {
+        return Math.max(0, Math.min(cols - 1, (int) ((lon - minLon) / tileLon)));
+    }
+
+    /**
+     * @return the first cell containing the specified point or -1 if there is none
+     */
+    int findCell(double lat, double lon) {
+        if (rows == 0 || lat < minLat || lat > maxLat || lon < minLon || lon > maxLon)
+            return -1;
+        int tile = getRow(lat) * cols + getCol(lon);
+        for (int i = tileStarts[tile]; i < tileStarts[tile + 1]; i++) {
+            int cell = tileCells[i];
+            if (lat >= south[cell] && lat <= north[cell] && lon >= west[cell] && lon <= east[cell])
+                return cell;
+        }
+        return -1;
+    }
+
+    /**
+     * Adds every cell that overlaps the specified rectangle to the list, every cell only once.
+     */
+    void findCells(double south, double west, double north, double east, IntArrayList cells) {
+        if (rows == 0 || south > maxLat || north < minLat || west > maxLon || east < minLon)
+            return;
+        int row1 = getRow(south), row2 = getRow(north);
+        int col1 = getCol(west), col2 = getCol(east);
+        for (int row = row1; row <= row2; row++) {
+            for (int col = col1; col <= col2; col++) {
+                int tile = row * cols + col;
+                for (int i = tileStarts[tile]; i < tileStarts[tile + 1]; i++) {
+                    int cell = tileCells[i];
+                    // a cell is stored in all tiles it overlaps, so it is only added in the first one of the rectangle
+                    if (row != Math.max(row1, getRow(this.south[cell])) || col != Math.max(col1, getCol(this.west[cell])))
+                        continue;
+                    if (this.south[cell] <= north && this.north[cell] >= south && this.west[cell] <= east && this.east[cell] >= west)
+                        cells.add(cell);
+                }
+            }
+        }
+    }
+
+    /**
+     * Calls the visitor for every cell the segment from (lat1, lon1) to (lat2, lon2) crosses. A cell that overlaps
+     * several tiles is visited once per tile with the fraction of the segment within the cell and the tile.
+     */
+    void forEachCell(final double lat1, final double lon1, final double lat2, final double lon2, final CellVisitor visitor) {
+        if (rows == 0)
+            return;
+        // only the part of the segment within the grid needs to be walked
+        double[] clipped = clip(lat1, lon1, lat2, lon2);
+        if (clipped == null)
+            return;
+
+        int y1 = getRow(clipped[0]), x1 = getCol(clipped[1]);
+        int y2 = getRow(clipped[2]), x2 = getCol(clipped[3]);
+        if (lat1 == lat2) {
+            // a segment on the border of two rows would be counted in both
+            visitRow(y1, x1, x2, lat1, lon1, lat2, lon2, visitor);
+            return;
+        }
+        if (lon1 == lon2) {
+            visitColumn(x1, y1, y2, lat1, lon1, lat2, lon2, visitor);
+            return;
+        }
+        if (y1 == y2 && x1 == x2) {
+            visitTile(y1, x1, lat1, lon1, lat2, lon2, visitor);
+            return;
+        }
+        BresenhamLine.bresenham(y1, x1, y2, x2, new PointEmitter() {
+            // the tiles along the line only move forward, so a neighbour of the current tile can only be a
+            // neighbour of one of the last few tiles, too
+            private final int[] lastY = new int[4], lastX = new int[4];
+            private int emitted;
+
+            @Override
+            public void set(double lat, double lon) {
+                int y = (int) lat, x = (int) lon;
+                for (int dy = -1; dy <= 1; dy++) {
+                    for (int dx = -1; dx <= 1; dx++) {
+                        if (!isNeighbourOfLast(y + dy, x + dx))
+                            visitTile(y + dy, x + dx, lat1, lon1, lat2, lon2, visitor);
+                    }
+                }
+                lastY[emitted % 4] = y;
+                lastX[emitted % 4] = x;
+                emitted++;
+            }
+
+            private boolean isNeighbourOfLast(int y, int x) {
+                for (int i = Math.max(0, emitted - 4); i < emitted; i++) {
+                    if (Math.abs(lastY[i % 4] - y) <= 1 && Math.abs(lastX[i % 4] - x) <= 1)
+                        return true;
+                }
+                return false;
+            }
+        });
+    }
+
+    private void visitRow(int row, int col1, int col2, double lat1, double lon1, double lat2, double lon2, CellVisitor visitor) {
+        for (int col = Math.min(col1, col2); col <= Math.max(col1, col2); col++) {
+            visitTile(row, col, lat1, lon1, lat2, lon2, visitor);
+        }
+    }
+
+    private void visitColumn(int col, int row1, int row2, double lat1, double lon1, double lat2, double lon2, CellVisitor visitor) {
+        for (int row = Math.min(row1, row2); row <= Math.max(row1, row2); row++) {
+            visitTile(row, col, lat1, lon1, lat2, lon2, visitor);
+        }
+    }
+
+    /**
+     * @return the end points of the part of the segment within the bounds of the grid as lat1, lon1, lat2, lon2 or
+     * null if the segment does not intersect the grid
+     */
+    private double[] clip(double lat1, double lon1, double lat2, double lon2) {
+        double t0 = 0, t1 = 1;
+        double dLon = lon2 - lon1;
+        if (dLon == 0) {
+            if (lon1 < minLon || lon1 > maxLon)
+                return null;
+        } else {
+            double tWest = (minLon - lon1) / dLon, tEast = (maxLon - lon1) / dLon;
+            t0 = Math.max(t0, Math.min(tWest, tEast));
+            t1 = Math.min(t1, Math.max(tWest, tEast));
+        }
+        double dLat = lat2 - lat1;
+        if (dLat == 0) {
+            if (lat1 < minLat || lat1 > maxLat)
+                return null;
+        } else {
+            double tSouth = (minLat - lat1) / dLat, tNorth = (maxLat - lat1) / dLat;
+            t0 = Math.max(t0, Math.min(tSouth, tNorth));
+            t1 = Math.min(t1, Math.max(tSouth, tNorth));
+        }
+        if (t0 > t1)
+            return null;
+        return new double[]{lat1 + t0 * dLat, lon1 + t0 * dLon, lat1 + t1 * dLat, lon1 + t1 * dLon};
+    }
+
+    private void visitTile(int row, int col, double lat1, double lon1, double lat2, double lon2, CellVisitor visitor) {
+        if (row < 0 || row >= rows || col < 0 || col >= cols)
+            return;
+        double tileSouth = minLat + row * tileLat, tileWest = minLon + col * tileLon;
+        // the last row and column reach to the border, even if the division was not exact
+        double tileNorth = row == rows - 1 ? Math.max(maxLat, tileSouth + tileLat) : tileSouth + tileLat;
+        double tileEast = col == cols - 1 ? Math.max(maxLon, tileWest + tileLon) : tileWest + tileLon;
+        if (calcFractionInside(lat1, lon1, lat2, lon2, tileSouth, tileWest, tileNorth, tileEast) == 0)
+            return;
+        int tile = row * cols + col;
+        for (int i = tileStarts[tile]; i < tileStarts[tile + 1]; i++) {
+            int cell = tileCells[i];
+            double fraction = calcFractionInside(lat1, lon1, lat2, lon2,
+                    Math.max(south[cell], tileSouth), Math.max(west[cell], tileWest),
+                    Math.min(north[cell], tileNorth), Math.min(east[cell], tileEast));
+            if (fraction > 0)
+                visitor.visit(cell, fraction);
+        }
+    }
+
+    /**
+     * Clips the segment against the rectangle (Liang-Barsky) and returns the fraction of the segment that lies within
+     * the rectangle.
+     */
+    static double calcFractionInside(double lat1, double lon1, double lat2, double lon2,
+                                     double south, double west, double north, double east) {
+        if (south > north || west > east)
+            return 0;
+        double t0 = 0, t1 = 1;
+        double dLon = lon2 - lon1;
+        if (dLon == 0) {
+            if (lon1 < west || lon1 > east)
+                return 0;
+        } else {
+            double tWest = (west - lon1) / dLon, tEast = (east - lon1) / dLon;
+            t0 = Math.max(t0, Math.min(tWest, tEast));
+            t1 = Math.min(t1, Math.max(tWest, tEast));
+        }
+        double dLat = lat2 - lat1;
+        if (dLat == 0) {
+            if (lat1 < south || lat1 > north)
+                return 0;
+        } else {
+            double tSouth = (south - lat1) / dLat, tNorth = (north - lat1) / dLat;
+            t0 = Math.max(t0, Math.min(tSouth, tNorth));
+            t1 = Math.min(t1, Math.max(tSouth, tNorth));
+        }
+        return t1 > t0 ? t1 - t0 : 0;
+    }
+}
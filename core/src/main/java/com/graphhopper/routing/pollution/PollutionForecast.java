@@ -0,0 +1,202 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.pollution;
+
+import com.carrotsearch.hppc.LongArrayList;
+import com.graphhopper.util.DistanceCalc;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.PointList;
+
+import java.util.Arrays;
+
+/**
+ * An immutable sequence of forecast layers for the cells of a {@link PollutionGrid}, e.g. one layer per hour. Every
+ * layer holds the values of all cells at its time and the value at a time between two layers is interpolated
+ * linearly. Before the first and after the last layer the values of that layer apply. All layers are stored in one
+ * float array, so many layers cost no more than their values.
+ *
+ * @author Jhon
+ */
+public final class PollutionForecast {
+    private static final DistanceCalc DIST_CALC = Helper.DIST_EARTH;
+    private static final int POLLUTANTS = Pollutant.values().length;
+
+    private final PollutionGrid cells;
+    private final long[] times;
+    // the value of cell c for pollutant p in layer l is stored at (l * POLLUTANTS + p.ordinal()) * cellCount + c
+    private final float[] values;
+
+    private PollutionForecast(PollutionGrid cells, long[] times, float[] values) {
+        this.cells = cells;
+        this.times = times;
+        this.values = values;
+    }
+
+    public int getLayerCount() {
+        return times.length;
+    }
+
+    /**
+     * @return the time in milliseconds since the epoch the specified layer is valid for
+     */
+    public long getTime(int layer) {
+        return times[layer];
+    }
+
+    /**
+     * @return the grid whose cells the layers refer to
+     */
+    public PollutionGrid getCells() {
+        return cells;
+    }
+
+    /**
+     * @return the value of the specified pollutant in the specified cell at the specified time or NaN if it is
+     * unknown in both layers around this time
+     */
+    public double getValue(Pollutant pollutant, int cell, long time) {
+        int layer = findLayer(time);
+        return interpolate(pollutant.ordinal(), cell, layer, calcFactor(layer, time));
+    }
+
+    /**
+     * Calculates the exposure along the specified geometry at the specified time, see
+     * {@link PollutionGrid#calcExposure(Pollutant, PointList)}. The whole geometry is evaluated at the same time,
+     * which is fine for a single edge as the forecast changes much slower than an edge is traveled.
+     */
+    public double calcExposure(Pollutant pollutant, PointList points, long time) {
+        if (cells.isEmpty())
+            return 0;
+        int layer = findLayer(time);
+        ExposureSum sum = new ExposureSum(pollutant.ordinal(), layer, calcFactor(layer, time));
+        for (int i = 1; i < points.size(); i++) {
+            double lat1 = points.getLat(i - 1), lon1 = points.getLon(i - 1);
+            double lat2 = points.getLat(i), lon2 = points.getLon(i);
+            sum.segmentLength = DIST_CALC.calcDist(lat1, lon1, lat2, lon2);
+            if (sum.segmentLength > 0)
+                cells.forEachCell(lat1, lon1, lat2, lon2, sum);
+        }
+        return sum.exposure;
+    }
+
+    /**
+     * @return the last layer that is valid at or before the specified time or 0 if the time is before all layers
+     */
+    private int findLayer(long time) {
+        int index = Arrays.binarySearch(times, time);
+        if (index >= 0)
+            return index;
+        return Math.max(0, -index - 2);
+    }
+
+    /**
+     * @return the weight of the layer after the specified one at the specified time
+     */
+    private double calcFactor(int layer, long time) {
+        if (layer + 1 >= times.length || time <= times[layer])
+            return 0;
+        return (double) (time - times[layer]) / (times[layer + 1] - times[layer]);
+    }
+
+    private double interpolate(int pollutant, int cell, int layer, double factor) {
+        int cellCount = cells.getCellCount();
+        float value = values[(layer * POLLUTANTS + pollutant) * cellCount + cell];
+        if (factor == 0)
+            return value;
+        float next = values[((layer + 1) * POLLUTANTS + pollutant) * cellCount + cell];
+        // a value that is unknown in one of the layers is taken from the other one
+        if (Float.isNaN(value))
+            return next;
+        if (Float.isNaN(next))
+            return value;
+        return value + factor * (next - value);
+    }
+
+    @Override
+    public String toString() {
+        return "layers:" + times.length + (times.length > 0 ? ", from:" + times[0] + ", to:" + times[times.length - 1] : "")
+                + ", cells:" + cells.getCellCount();
+    }
+
+    private class ExposureSum implements PollutionCellIndex.CellVisitor {
+        final int pollutant;
+        final int layer;
+        final double factor;
+        double segmentLength;
+        double exposure;
+
+        ExposureSum(int pollutant, int layer, double factor) {
+            this.pollutant = pollutant;
+            this.layer = layer;
+            this.factor = factor;
+        }
+
+        @Override
+        public void visit(int cell, double fraction) {
+            double value = interpolate(pollutant, cell, layer, factor);
+            if (!Double.isNaN(value))
+                exposure += value * fraction * segmentLength;
+        }
+    }
+
+    /**
+     * Collects the layers of a new forecast. All layers have to contain the same cells in the same order.
+     */
+    public static class Builder {
+        private final LongArrayList times = new LongArrayList();
+        private PollutionGrid cells;
+        private float[] values = new float[0];
+
+        /**
+         * Adds the values of the specified grid as layer for the specified time, which has to be after the time of
+         * the previous layer.
+         */
+        public Builder addLayer(long time, PollutionGrid grid) {
+            if (!times.isEmpty() && time <= times.get(times.size() - 1))
+                throw new IllegalArgumentException("Layers have to be added in increasing order of time, " + time
+                        + " is not after " + times.get(times.size() - 1));
+            if (cells == null) {
+                cells = grid;
+            } else if (grid.getCellCount() != cells.getCellCount()) {
+                throw new IllegalArgumentException("All layers need the same cells, but the layer for " + time + " has "
+                        + grid.getCellCount() + " instead of " + cells.getCellCount() + " cells");
+            }
+            int cellCount = grid.getCellCount();
+            for (int cell = 0; cell < cellCount; cell++) {
+                if (!grid.getCellId(cell).equals(cells.getCellId(cell)))
+                    throw new IllegalArgumentException("All layers need the same cells, but the layer for " + time
+                            + " has cell " + grid.getCellId(cell) + " instead of " + cells.getCellId(cell));
+            }
+            int offset = times.size() * POLLUTANTS * cellCount;
+            values = Arrays.copyOf(values, offset + POLLUTANTS * cellCount);
+            for (Pollutant pollutant : Pollutant.values()) {
+                for (int cell = 0; cell < cellCount; cell++) {
+                    values[offset + pollutant.ordinal() * cellCount + cell] = (float) grid.getValue(pollutant, cell);
+                }
+            }
+            times.add(time);
+            return this;
+        }
+
+        public PollutionForecast build() {
+            if (cells == null)
+                throw new IllegalStateException("A forecast needs at least one layer");
+            return new PollutionForecast(cells, times.toArray(), values);
+        }
+    }
+}
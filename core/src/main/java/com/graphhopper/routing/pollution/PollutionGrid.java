@@ -0,0 +1,334 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.pollution;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.ObjectIntHashMap;
+import com.graphhopper.util.DistanceCalc;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.PointList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * An immutable snapshot of the interpolated air quality grid. Every cell is an axis aligned rectangle and holds one
+ * value per {@link Pollutant}. All data is kept in primitive arrays so that the weightings can calculate the
+ * exposure of an edge without any I/O. The cells are found with a {@link PollutionCellIndex}, so looking up a point
+ * takes constant time and a segment only visits the cells it crosses. A new snapshot has to be created for every update of the values, see
+ * {@link PollutionGridProvider}.
+ *
+ * @author Jhon
+ */
+public final class PollutionGrid {
+    public static final PollutionGrid EMPTY = new Builder().setVersion(0).build();
+
+    private static final DistanceCalc DIST_CALC = Helper.DIST_EARTH;
+    private static final int POLLUTANTS = Pollutant.values().length;
+    // the weights per meter are cached for a few combinations of factors only, e.g. one per profile
+    private static final int MAX_CACHED_WEIGHTS = 16;
+
+    private final long version;
+    private final String[] cellIds;
+    private final double[] south;
+    private final double[] west;
+    private final double[] north;
+    private final double[] east;
+    // the value of cell c for pollutant p is stored at p.ordinal() * cellCount + c, NaN if unknown
+    private final float[] values;
+    private final PollutionCellIndex index;
+    private final ConcurrentMap<String, double[]> weightsPerMeter = new ConcurrentHashMap<>();
+
+    private PollutionGrid(long version, String[] cellIds, double[] south, double[] west, double[] north,
+                          double[] east, float[] values, PollutionCellIndex index) {
+        this.version = version;
+        this.cellIds = cellIds;
+        this.south = south;
+        this.west = west;
+        this.north = north;
+        this.east = east;
+        this.values = values;
+        this.index = index;
+    }
+
+    /**
+     * The version identifies this snapshot, e.g. to invalidate data that was derived from an older one. It is
+     * typically the creation time in milliseconds.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public int getCellCount() {
+        return cellIds.length;
+    }
+
+    public boolean isEmpty() {
+        return cellIds.length == 0;
+    }
+
+    public String getCellId(int cell) {
+        return cellIds[cell];
+    }
+
+    public double getSouth(int cell) {
+        return south[cell];
+    }
+
+    public double getWest(int cell) {
+        return west[cell];
+    }
+
+    public double getNorth(int cell) {
+        return north[cell];
+    }
+
+    public double getEast(int cell) {
+        return east[cell];
+    }
+
+    /**
+     * @return the interpolated value of the specified pollutant in the specified cell or NaN if it is unknown
+     */
+    public double getValue(Pollutant pollutant, int cell) {
+        return values[pollutant.ordinal() * cellIds.length + cell];
+    }
+
+    /**
+     * @return the weighted sum of the values of the specified pollutants for every cell, where unknown values count as
+     * zero. The result is calculated once per snapshot and must not be modified.
+     */
+    public double[] getWeightsPerMeter(Pollutant[] pollutants, double[] factors) {
+        String key = Arrays.toString(pollutants) + Arrays.toString(factors);
+        double[] weights = weightsPerMeter.get(key);
+        if (weights != null)
+            return weights;
+
+        weights = new double[cellIds.length];
+        for (int cell = 0; cell < weights.length; cell++) {
+            for (int i = 0; i < pollutants.length; i++) {
+                double value = getValue(pollutants[i], cell);
+                if (!Double.isNaN(value))
+                    weights[cell] += factors[i] * value;
+            }
+        }
+        if (weightsPerMeter.size() >= MAX_CACHED_WEIGHTS)
+            return weights;
+        double[] existing = weightsPerMeter.putIfAbsent(key, weights);
+        return existing == null ? weights : existing;
+    }
+
+    /**
+     * @return the index of the cell containing the specified point or -1 if the point is not covered by the grid. If
+     * cells overlap the one that was added first is returned.
+     */
+    public int findCell(double lat, double lon) {
+        return index.findCell(lat, lon);
+    }
+
+    /**
+     * @return the indices of all cells that overlap the specified rectangle, in no particular order
+     */
+    public IntArrayList findCells(double south, double west, double north, double east) {
+        IntArrayList cells = new IntArrayList();
+        index.findCells(south, west, north, east, cells);
+        return cells;
+    }
+
+    /**
+     * Calculates the exposure along the specified geometry, i.e. the sum of the interpolated value times the length
+     * in meters of the part of the geometry that lies within each cell. Parts that are not covered by the grid or
+     * cells without a value for the pollutant do not contribute.
+     */
+    public double calcExposure(Pollutant pollutant, PointList points) {
+        double exposure = 0;
+        for (int i = 1; i < points.size(); i++) {
+            exposure += calcExposure(pollutant, points.getLat(i - 1), points.getLon(i - 1), points.getLat(i), points.getLon(i));
+        }
+        return exposure;
+    }
+
+    /**
+     * Calculates the exposure along the straight segment from (lat1, lon1) to (lat2, lon2).
+     */
+    public double calcExposure(Pollutant pollutant, double lat1, double lon1, double lat2, double lon2) {
+        double segmentLength = DIST_CALC.calcDist(lat1, lon1, lat2, lon2);
+        if (segmentLength == 0 || cellIds.length == 0)
+            return 0;
+
+        ExposureSum sum = new ExposureSum(pollutant.ordinal() * cellIds.length, 1, segmentLength);
+        index.forEachCell(lat1, lon1, lat2, lon2, sum);
+        return sum.exposures[0];
+    }
+
+    /**
+     * Calculates the exposure to all pollutants along the specified geometry in one pass, see
+     * {@link #calcExposure(Pollutant, PointList)}.
+     *
+     * @param exposures acts as output and is indexed by {@link Pollutant#ordinal()}
+     */
+    public void calcExposures(PointList points, double[] exposures) {
+        if (exposures.length != POLLUTANTS)
+            throw new IllegalArgumentException("exposures must have length " + POLLUTANTS + " but was " + exposures.length);
+        Arrays.fill(exposures, 0);
+        if (cellIds.length == 0)
+            return;
+        ExposureSum sum = new ExposureSum(0, POLLUTANTS, 0);
+        for (int i = 1; i < points.size(); i++) {
+            double lat1 = points.getLat(i - 1), lon1 = points.getLon(i - 1);
+            double lat2 = points.getLat(i), lon2 = points.getLon(i);
+            sum.segmentLength = DIST_CALC.calcDist(lat1, lon1, lat2, lon2);
+            if (sum.segmentLength > 0)
+                index.forEachCell(lat1, lon1, lat2, lon2, sum);
+        }
+        System.arraycopy(sum.exposures, 0, exposures, 0, POLLUTANTS);
+    }
+
+    /**
+     * Calls the visitor for every cell the specified segment crosses, see {@link PollutionCellIndex#forEachCell}.
+     */
+    void forEachCell(double lat1, double lon1, double lat2, double lon2, PollutionCellIndex.CellVisitor visitor) {
+        index.forEachCell(lat1, lon1, lat2, lon2, visitor);
+    }
+
+    /**
+     * Sums up the value times the length of the segment within every visited cell for consecutive pollutants.
+     */
+    private class ExposureSum implements PollutionCellIndex.CellVisitor {
+        final int offset;
+        final double[] exposures;
+        double segmentLength;
+
+        ExposureSum(int offset, int pollutants, double segmentLength) {
+            this.offset = offset;
+            this.exposures = new double[pollutants];
+            this.segmentLength = segmentLength;
+        }
+
+        @Override
+        public void visit(int cell, double fraction) {
+            double length = fraction * segmentLength;
+            int cells = cellIds.length;
+            for (int p = 0; p < exposures.length; p++) {
+                float value = values[offset + p * cells + cell];
+                if (!Float.isNaN(value))
+                    exposures[p] += value * length;
+            }
+        }
+    }
+
+    /**
+     * Creates a snapshot with the cells of this one but other values, without copying the cells.
+     *
+     * @param values the values of all cells for every pollutant in the same layout as this snapshot stores them,
+     *               i.e. the value of cell c for pollutant p is at p.ordinal() * getCellCount() + c. The array must not
+     *               be changed afterwards.
+     */
+    PollutionGrid withValues(long version, float[] values) {
+        if (values.length != this.values.length)
+            throw new IllegalArgumentException("Expected " + this.values.length + " values but was " + values.length);
+        return new PollutionGrid(version, cellIds, south, west, north, east, values, index);
+    }
+
+    @Override
+    public String toString() {
+        return "version:" + version + ", cells:" + cellIds.length;
+    }
+
+    /**
+     * Collects the cells and values of a new snapshot. Cells need to be added before their values are set.
+     */
+    public static class Builder {
+        private final List<String> ids = new ArrayList<>();
+        private final ObjectIntHashMap<String> cellsById = new ObjectIntHashMap<>();
+        private double[] south = new double[16];
+        private double[] west = new double[16];
+        private double[] north = new double[16];
+        private double[] east = new double[16];
+        private float[][] values = new float[POLLUTANTS][16];
+        private long version = System.currentTimeMillis();
+
+        public Builder setVersion(long version) {
+            this.version = version;
+            return this;
+        }
+
+        /**
+         * Adds a new cell with the specified bounds. All of its values are initially unknown.
+         *
+         * @return the index of the new cell
+         */
+        public int addCell(String cellId, double south, double west, double north, double east) {
+            if (cellsById.containsKey(cellId))
+                throw new IllegalArgumentException("Cell " + cellId + " was already added");
+            if (south > north || west > east)
+                throw new IllegalArgumentException("Invalid bounds for cell " + cellId + ": " + south + "," + west + "," + north + "," + east);
+
+            int cell = ids.size();
+            if (cell == this.south.length) {
+                int newSize = cell * 2;
+                this.south = Arrays.copyOf(this.south, newSize);
+                this.west = Arrays.copyOf(this.west, newSize);
+                this.north = Arrays.copyOf(this.north, newSize);
+                this.east = Arrays.copyOf(this.east, newSize);
+                for (int p = 0; p < POLLUTANTS; p++) {
+                    values[p] = Arrays.copyOf(values[p], newSize);
+                }
+            }
+            ids.add(cellId);
+            cellsById.put(cellId, cell);
+            this.south[cell] = south;
+            this.west[cell] = west;
+            this.north[cell] = north;
+            this.east[cell] = east;
+            for (int p = 0; p < POLLUTANTS; p++) {
+                values[p][cell] = Float.NaN;
+            }
+            return cell;
+        }
+
+        /**
+         * @return the index of the cell with the specified id or -1 if it was not added
+         */
+        public int getCell(String cellId) {
+            return cellsById.getOrDefault(cellId, -1);
+        }
+
+        public Builder setValue(Pollutant pollutant, int cell, double value) {
+            if (cell < 0 || cell >= ids.size())
+                throw new IllegalArgumentException("Unknown cell " + cell);
+            values[pollutant.ordinal()][cell] = (float) value;
+            return this;
+        }
+
+        public PollutionGrid build() {
+            int cells = ids.size();
+            float[] allValues = new float[POLLUTANTS * cells];
+            for (int p = 0; p < POLLUTANTS; p++) {
+                System.arraycopy(values[p], 0, allValues, p * cells, cells);
+            }
+            double[] south = Arrays.copyOf(this.south, cells), west = Arrays.copyOf(this.west, cells);
+            double[] north = Arrays.copyOf(this.north, cells), east = Arrays.copyOf(this.east, cells);
+            return new PollutionGrid(version, ids.toArray(new String[0]), south, west, north, east, allValues,
+                    new PollutionCellIndex(south, west, north, east));
+        }
+    }
+}
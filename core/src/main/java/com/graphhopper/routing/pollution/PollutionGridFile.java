@@ -0,0 +1,190 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.pollution;
+
+import com.graphhopper.storage.DAType;
+import com.graphhopper.storage.DataAccess;
+import com.graphhopper.storage.Directory;
+import com.graphhopper.storage.GHDirectory;
+import com.graphhopper.util.BitUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads and writes a {@link PollutionGrid} snapshot as a binary file via {@link DataAccess}, so that pollution
+ * profiles can be used without the sensor database. The header holds the format version, the number of cells and
+ * pollutants and the version of the snapshot. It is followed by the bounds of all cells as doubles, the values as
+ * one float matrix with a row per pollutant and finally the names of the pollutants and the ids of the cells. The
+ * pollutants are mapped by name when reading, so a file stays readable if pollutants are added. Loading copies the
+ * snapshot to the heap arrays of the {@link PollutionGrid}, i.e. it is one linear read of the file.
+ *
+ * @author Jhon
+ */
+public class PollutionGridFile implements PollutionGridLoader {
+    private static final String NAME = "pollution_grid";
+    private static final int FORMAT_VERSION = 1;
+    private static final int BYTES_PER_BOUNDS = 4 * 8;
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+    private final String location;
+    private final DAType daType;
+
+    /**
+     * @param location the directory of the file
+     * @param daType   how the file is read while loading, usually {@link DAType#RAM_STORE}
+     */
+    public PollutionGridFile(String location, DAType daType) {
+        this.location = location;
+        this.daType = daType;
+    }
+
+    public boolean exists() {
+        Directory dir = new GHDirectory(location, daType);
+        try {
+            return dir.find(NAME).loadExisting();
+        } finally {
+            dir.close();
+        }
+    }
+
+    /**
+     * Writes the specified snapshot and replaces the existing file.
+     */
+    public void write(PollutionGrid grid) {
+        Directory dir = new GHDirectory(location, DAType.RAM_STORE).create();
+        try {
+            DataAccess da = dir.find(NAME).create(1000);
+            int cells = grid.getCellCount();
+            Pollutant[] pollutants = Pollutant.values();
+            long pointer = 0;
+            da.ensureCapacity((long) cells * BYTES_PER_BOUNDS + (long) pollutants.length * cells * 4);
+            for (int cell = 0; cell < cells; cell++) {
+                pointer = setDouble(da, pointer, grid.getSouth(cell));
+                pointer = setDouble(da, pointer, grid.getWest(cell));
+                pointer = setDouble(da, pointer, grid.getNorth(cell));
+                pointer = setDouble(da, pointer, grid.getEast(cell));
+            }
+            for (Pollutant pollutant : pollutants) {
+                for (int cell = 0; cell < cells; cell++) {
+                    da.setInt(pointer, Float.floatToRawIntBits((float) grid.getValue(pollutant, cell)));
+                    pointer += 4;
+                }
+            }
+            for (Pollutant pollutant : pollutants) {
+                pointer = setString(da, pointer, pollutant.toString());
+            }
+            for (int cell = 0; cell < cells; cell++) {
+                pointer = setString(da, pointer, grid.getCellId(cell));
+            }
+            da.setHeader(0, FORMAT_VERSION);
+            da.setHeader(1 * 4, cells);
+            da.setHeader(2 * 4, pollutants.length);
+            da.setHeader(3 * 4, (int) (grid.getVersion() >>> 32));
+            da.setHeader(4 * 4, (int) grid.getVersion());
+            da.flush();
+        } finally {
+            dir.close();
+        }
+    }
+
+    @Override
+    public PollutionGrid load() {
+        Directory dir = new GHDirectory(location, daType);
+        try {
+            DataAccess da = dir.find(NAME);
+            if (!da.loadExisting())
+                throw new IllegalStateException("No pollution grid found in " + location);
+            if (da.getHeader(0) != FORMAT_VERSION)
+                throw new IllegalStateException("Unsupported pollution grid format " + da.getHeader(0) + " in " + location
+                        + ", expected " + FORMAT_VERSION);
+            int cells = da.getHeader(1 * 4);
+            int pollutantCount = da.getHeader(2 * 4);
+            long version = BitUtil.BIG.toLong(da.getHeader(3 * 4), da.getHeader(4 * 4));
+
+            long valuesPointer = (long) cells * BYTES_PER_BOUNDS;
+            long pointer = valuesPointer + (long) pollutantCount * cells * 4;
+            Pollutant[] pollutants = new Pollutant[pollutantCount];
+            for (int p = 0; p < pollutantCount; p++) {
+                String name = getString(da, pointer);
+                // null for pollutants that are no longer known, their values are skipped
+                pollutants[p] = Pollutant.find(name);
+                pointer += 2 + name.getBytes(StandardCharsets.UTF_8).length;
+            }
+            PollutionGrid.Builder builder = new PollutionGrid.Builder().setVersion(version);
+            for (int cell = 0; cell < cells; cell++) {
+                String cellId = getString(da, pointer);
+                pointer += 2 + cellId.getBytes(StandardCharsets.UTF_8).length;
+                long boundsPointer = (long) cell * BYTES_PER_BOUNDS;
+                builder.addCell(cellId, getDouble(da, boundsPointer), getDouble(da, boundsPointer + 8),
+                        getDouble(da, boundsPointer + 16), getDouble(da, boundsPointer + 24));
+            }
+            for (int p = 0; p < pollutantCount; p++) {
+                if (pollutants[p] == null)
+                    continue;
+                for (int cell = 0; cell < cells; cell++) {
+                    float value = Float.intBitsToFloat(da.getInt(valuesPointer + ((long) p * cells + cell) * 4));
+                    if (!Float.isNaN(value))
+                        builder.setValue(pollutants[p], cell, value);
+                }
+            }
+            PollutionGrid grid = builder.build();
+            logger.info("loaded pollution grid " + grid + " from " + location);
+            return grid;
+        } finally {
+            dir.close();
+        }
+    }
+
+    private static long setDouble(DataAccess da, long pointer, double value) {
+        long bits = Double.doubleToRawLongBits(value);
+        da.setInt(pointer, (int) (bits >>> 32));
+        da.setInt(pointer + 4, (int) bits);
+        return pointer + 8;
+    }
+
+    private static double getDouble(DataAccess da, long pointer) {
+        return Double.longBitsToDouble(BitUtil.BIG.toLong(da.getInt(pointer), da.getInt(pointer + 4)));
+    }
+
+    /**
+     * Writes the string with its length as two bytes in front, which avoids the alignment that setShort requires.
+     */
+    private static long setString(DataAccess da, long pointer, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF)
+            throw new IllegalArgumentException("String too long: " + value);
+        da.ensureCapacity(pointer + 2 + bytes.length);
+        da.setByte(pointer, (byte) (bytes.length >>> 8));
+        da.setByte(pointer + 1, (byte) bytes.length);
+        da.setBytes(pointer + 2, bytes, bytes.length);
+        return pointer + 2 + bytes.length;
+    }
+
+    private static String getString(DataAccess da, long pointer) {
+        int length = (da.getByte(pointer) & 0xFF) << 8 | (da.getByte(pointer + 1) & 0xFF);
+        byte[] bytes = new byte[length];
+        da.getBytes(pointer + 2, bytes, length);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String toString() {
+        return location + "/" + NAME;
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.pollution;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the current {@link PollutionGrid} snapshot. Routing threads read the snapshot via {@link #get()} without
+ * locking while a refresh creates a complete new snapshot and swaps it in atomically.
+ *
+ * @author Jhon
+ */
+public class PollutionGridProvider {
+    private final AtomicReference<PollutionGrid> current = new AtomicReference<>(PollutionGrid.EMPTY);
+    private final List<PollutionGridListener> listeners = new CopyOnWriteArrayList<>();
+    private final PollutionGridLoader loader;
+
+    public PollutionGridProvider(PollutionGridLoader loader) {
+        this.loader = loader;
+    }
+
+    /**
+     * Creates a provider that only serves the specified snapshot until a new one is published.
+     */
+    public static PollutionGridProvider of(PollutionGrid grid) {
+        PollutionGridProvider provider = new PollutionGridProvider(new PollutionGridLoader() {
+            @Override
+            public PollutionGrid load() {
+                throw new IllegalStateException("This PollutionGridProvider has no loader");
+            }
+        });
+        provider.publish(grid);
+        return provider;
+    }
+
+    /**
+     * @return the current snapshot, never null
+     */
+    public PollutionGrid get() {
+        return current.get();
+    }
+
+    public void addListener(PollutionGridListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Makes the specified snapshot visible to all subsequent calls of {@link #get()} and notifies the listeners.
+     */
+    public void publish(PollutionGrid grid) {
+        if (grid == null)
+            throw new IllegalArgumentException("grid cannot be null");
+        current.set(grid);
+        for (PollutionGridListener listener : listeners) {
+            listener.onPublish(grid);
+        }
+    }
+
+    /**
+     * Loads a new snapshot and publishes it. While loading the previous snapshot stays available.
+     */
+    public PollutionGrid refresh() {
+        PollutionGrid grid = loader.load();
+        publish(grid);
+        return grid;
+    }
+
+    @Override
+    public String toString() {
+        return "loader: " + loader + ", current: " + current.get();
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.pollution;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Feeds a stream of {@link SensorReading}s into an {@link IDWInterpolator} and publishes the interpolated grid to a
+ * {@link PollutionGridProvider}. As every publish updates the exposure of all edges, new snapshots are published at
+ * most once per interval. The cells and the values of cells without sensors are taken from the snapshot of the
+ * provider at construction time.
+ *
+ * @author Jhon
+ */
+public class SensorFeed {
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+    private final PollutionGridProvider provider;
+    private final IDWInterpolator interpolator;
+    private final long publishIntervalMillis;
+    private long lastPublish;
+    private long lastVersion;
+
+    /**
+     * @param radius                the maximum distance in meters of a sensor to the cells it influences
+     * @param power                 the exponent of the inverse distance weighting
+     * @param publishIntervalMillis the minimum time between two published snapshots
+     */
+    public SensorFeed(PollutionGridProvider provider, double radius, double power, long publishIntervalMillis) {
+        PollutionGrid base = provider.get();
+        if (base.isEmpty())
+            throw new IllegalStateException("The pollution grid has no cells to interpolate the sensor readings onto");
+        this.provider = provider;
+        this.interpolator = new IDWInterpolator(base, radius, power);
+        this.publishIntervalMillis = publishIntervalMillis;
+        this.lastVersion = base.getVersion();
+    }
+
+    /**
+     * Adds the reading and publishes a new snapshot if the interval since the last one has passed.
+     */
+    public synchronized void accept(SensorReading reading) {
+        interpolator.add(reading);
+        if (System.currentTimeMillis() - lastPublish >= publishIntervalMillis)
+            publish();
+    }
+
+    /**
+     * Publishes a new snapshot if any cell changed since the last one.
+     *
+     * @return true if a snapshot was published
+     */
+    public synchronized boolean publish() {
+        int changed = interpolator.getChangedValues();
+        if (changed == 0)
+            return false;
+        lastPublish = System.currentTimeMillis();
+        // the version has to change for every snapshot, even if two are published within the same millisecond
+        lastVersion = Math.max(lastVersion + 1, lastPublish);
+        PollutionGrid grid = interpolator.createSnapshot(lastVersion);
+        provider.publish(grid);
+        logger.info("published pollution grid " + grid + " with " + changed + " changed values from "
+                + interpolator.getSensorCount() + " sensors");
+        return true;
+    }
+}
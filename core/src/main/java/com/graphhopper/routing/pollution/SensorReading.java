@@ -0,0 +1,79 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.pollution;
+
+/**
+ * A raw measurement of one pollutant by one sensor at a fixed location.
+ *
+ * @author Jhon
+ */
+public final class SensorReading {
+    private final String sensorId;
+    private final double lat;
+    private final double lon;
+    private final Pollutant pollutant;
+    private final double value;
+    private final long time;
+
+    /**
+     * @param time the time of the measurement in milliseconds, used to ignore readings that arrive out of order
+     */
+    public SensorReading(String sensorId, double lat, double lon, Pollutant pollutant, double value, long time) {
+        if (sensorId == null || sensorId.isEmpty())
+            throw new IllegalArgumentException("sensorId cannot be empty");
+        if (pollutant == null)
+            throw new IllegalArgumentException("pollutant cannot be null");
+        if (Double.isNaN(value) || Double.isInfinite(value))
+            throw new IllegalArgumentException("Invalid value " + value + " of sensor " + sensorId);
+        this.sensorId = sensorId;
+        this.lat = lat;
+        this.lon = lon;
+        this.pollutant = pollutant;
+        this.value = value;
+        this.time = time;
+    }
+
+    public String getSensorId() {
+        return sensorId;
+    }
+
+    public double getLat() {
+        return lat;
+    }
+
+    public double getLon() {
+        return lon;
+    }
+
+    public Pollutant getPollutant() {
+        return pollutant;
+    }
+
+    public double getValue() {
+        return value;
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+    @Override
+    public String toString() {
+        return sensorId + " " + lat + "," + lon + " " + pollutant + ":" + value + " at " + time;
+    }
+}
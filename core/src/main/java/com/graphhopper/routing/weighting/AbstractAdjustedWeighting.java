@@ -25,7 +25,7 @@ import com.graphhopper.util.EdgeIteratorState;
  *
  * @author Robin Boldt
  */
-public abstract class AbstractAdjustedWeighting implements Weighting {
+public abstract class AbstractAdjustedWeighting implements VirtualEdgeWeighting {
     protected final Weighting superWeighting;
 
     public AbstractAdjustedWeighting(Weighting superWeighting) {
@@ -34,6 +34,13 @@ public abstract class AbstractAdjustedWeighting implements Weighting {
         this.superWeighting = superWeighting;
     }
 
+    /**
+     * @return the weighting that is adjusted by this weighting
+     */
+    public Weighting getSuperWeighting() {
+        return superWeighting;
+    }
+
     @Override
     public double getMinWeight(double distance) {
         return superWeighting.getMinWeight(distance);
@@ -44,6 +51,19 @@ public abstract class AbstractAdjustedWeighting implements Weighting {
         return superWeighting.calcEdgeWeight(edgeState, reverse);
     }
 
+    /**
+     * Subclasses that adjust {@link #calcEdgeWeight(EdgeIteratorState, boolean)} have to adjust this method as well.
+     */
+    @Override
+    public double calcVirtualEdgeWeight(EdgeIteratorState virtualEdgeState, boolean reverse, int originalEdge) {
+        return QueryGraphWeighting.calcVirtualEdgeWeight(superWeighting, virtualEdgeState, reverse, originalEdge);
+    }
+
+    @Override
+    public boolean dependsOnOriginalEdge() {
+        return QueryGraphWeighting.dependsOnOriginalEdge(superWeighting);
+    }
+
     @Override
     public long calcEdgeMillis(EdgeIteratorState edgeState, boolean reverse) {
         return superWeighting.calcEdgeMillis(edgeState, reverse);
@@ -66,6 +66,15 @@ public class AvoidEdgesWeighting extends AbstractAdjustedWeighting {
         return weight;
     }
 
+    @Override
+    public double calcVirtualEdgeWeight(EdgeIteratorState virtualEdgeState, boolean reverse, int originalEdge) {
+        double weight = super.calcVirtualEdgeWeight(virtualEdgeState, reverse, originalEdge);
+        if (visitedEdges.contains(virtualEdgeState.getEdge()))
+            return weight * edgePenaltyFactor;
+
+        return weight;
+    }
+
     @Override
     public String getName() {
         return "avoid_edges";
@@ -29,6 +29,14 @@ public class BlockAreaWeighting extends AbstractAdjustedWeighting {
         return superWeighting.calcEdgeWeight(edgeState, reverse);
     }
 
+    @Override
+    public double calcVirtualEdgeWeight(EdgeIteratorState virtualEdgeState, boolean reverse, int originalEdge) {
+        if (blockArea.intersects(virtualEdgeState))
+            return Double.POSITIVE_INFINITY;
+
+        return super.calcVirtualEdgeWeight(virtualEdgeState, reverse, originalEdge);
+    }
+
     @Override
     public String getName() {
         return "block_area";
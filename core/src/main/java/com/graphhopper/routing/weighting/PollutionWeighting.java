@@ -0,0 +1,186 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.weighting;
+
+import com.graphhopper.routing.pollution.EdgeExposureStorage;
+import com.graphhopper.routing.pollution.Pollutant;
+import com.graphhopper.routing.pollution.PollutionGrid;
+import com.graphhopper.routing.pollution.PollutionGridProvider;
+import com.graphhopper.routing.util.FlagEncoder;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.FetchMode;
+import com.graphhopper.util.PMap;
+import com.graphhopper.util.PointList;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.graphhopper.routing.weighting.TurnCostProvider.NO_TURN_COST_PROVIDER;
+
+/**
+ * Calculates the route with the lowest exposure to air pollution. The weight of an edge is the exposure along its
+ * geometry to the pollutants specified in the 'pollutants' hint, e.g. "co" or "pm10,no2:0.5", where the optional
+ * factor after the colon weights the exposure to this pollutant. The exposure is read from the
+ * {@link EdgeExposureStorage} if available and otherwise calculated from the current {@link PollutionGrid}
+ * snapshot. Virtual edges use the stored exposure of their original edge, see {@link #calcVirtualEdgeWeight}.
+ *
+ * @author Jhon
+ */
+public class PollutionWeighting extends AbstractWeighting implements VirtualEdgeWeighting {
+    public static final String NAME = "pollution";
+    public static final String POLLUTANTS = "pollutants";
+    private final PollutionGridProvider gridProvider;
+    protected final Pollutant[] pollutants;
+    protected final double[] factors;
+    private EdgeExposureStorage exposureStorage;
+
+    public PollutionWeighting(FlagEncoder flagEncoder, PMap hints, PollutionGridProvider gridProvider) {
+        this(flagEncoder, hints, NO_TURN_COST_PROVIDER, gridProvider);
+    }
+
+    public PollutionWeighting(FlagEncoder flagEncoder, PMap hints, TurnCostProvider turnCostProvider,
+                              PollutionGridProvider gridProvider) {
+        super(flagEncoder, turnCostProvider);
+        this.gridProvider = gridProvider;
+
+        String pollutantsStr = hints.getString(POLLUTANTS, "");
+        if (pollutantsStr.trim().isEmpty())
+            throw new IllegalArgumentException("The " + NAME + " weighting requires the hint '" + POLLUTANTS + "', e.g. " + POLLUTANTS + "=co");
+        List<Pollutant> pollutantList = new ArrayList<>();
+        List<Double> factorList = new ArrayList<>();
+        for (String entry : pollutantsStr.split(",")) {
+            String[] pair = entry.split(":");
+            Pollutant pollutant = Pollutant.find(pair[0].trim());
+            if (pollutant == null)
+                throw new IllegalArgumentException("Unknown pollutant '" + pair[0].trim() + "' in " + POLLUTANTS + "=" + pollutantsStr);
+            if (pollutantList.contains(pollutant))
+                throw new IllegalArgumentException("Pollutant " + pollutant + " was specified twice in " + POLLUTANTS + "=" + pollutantsStr);
+            double factor = pair.length > 1 ? Double.parseDouble(pair[1].trim()) : 1;
+            if (pair.length > 2 || factor < 0 || Double.isInfinite(factor) || Double.isNaN(factor))
+                throw new IllegalArgumentException("Invalid factor for pollutant " + pollutant + " in " + POLLUTANTS + "=" + pollutantsStr);
+            pollutantList.add(pollutant);
+            factorList.add(factor);
+        }
+        pollutants = pollutantList.toArray(new Pollutant[0]);
+        factors = new double[factorList.size()];
+        for (int i = 0; i < factors.length; i++) {
+            factors[i] = factorList.get(i);
+        }
+    }
+
+    /**
+     * @return true if the specified weighting string selects this weighting, which includes the legacy
+     * qaira_weighting_* names, see {@link Pollutant#findByWeighting(String)}
+     */
+    public static boolean isPollutionWeighting(String weighting) {
+        return NAME.equalsIgnoreCase(weighting) || Pollutant.findByWeighting(weighting) != null;
+    }
+
+    /**
+     * Uses the precalculated exposure of all edges that are contained in the specified storage.
+     */
+    public PollutionWeighting setExposureStorage(EdgeExposureStorage exposureStorage) {
+        this.exposureStorage = exposureStorage;
+        return this;
+    }
+
+    /**
+     * @return the storage of the precalculated exposure or null if the exposure is calculated from the grid
+     */
+    public EdgeExposureStorage getExposureStorage() {
+        return exposureStorage;
+    }
+
+    public Pollutant[] getPollutants() {
+        return pollutants.clone();
+    }
+
+    public PollutionGridProvider getGridProvider() {
+        return gridProvider;
+    }
+
+    /**
+     * @return the version of the snapshot the stored exposure was calculated from or, if no exposure is stored, the
+     * version of the current snapshot. These differ e.g. for the exposure that was frozen for a CH or LM preparation.
+     */
+    public long getExposureVersion() {
+        if (exposureStorage != null && exposureStorage.getEdges() > 0)
+            return exposureStorage.getVersion();
+        return gridProvider.get().getVersion();
+    }
+
+    /**
+     * @return the weight of one meter within every cell of the specified grid, i.e. the weighted sum of its pollutant
+     * values. The result is shared by all weightings with the same pollutants and must not be modified.
+     */
+    public double[] getWeightsPerMeter(PollutionGrid grid) {
+        return grid.getWeightsPerMeter(pollutants, factors);
+    }
+
+    /**
+     * Parts of a route that are not covered by the grid have no exposure, so without further knowledge the only
+     * lower bound is zero. See {@link QairaWeightApproximator} for a better bound.
+     */
+    @Override
+    public double getMinWeight(double currDistToGoal) {
+        return 0;
+    }
+
+    @Override
+    public double calcEdgeWeight(EdgeIteratorState edgeState, boolean reverse) {
+        return calcEdgeWeight(edgeState, edgeState.getEdge());
+    }
+
+    /**
+     * Virtual edges use the same stored exposure per meter as the edge they split.
+     */
+    @Override
+    public double calcVirtualEdgeWeight(EdgeIteratorState virtualEdgeState, boolean reverse, int originalEdge) {
+        return calcEdgeWeight(virtualEdgeState, originalEdge);
+    }
+
+    @Override
+    public boolean dependsOnOriginalEdge() {
+        return exposureStorage != null;
+    }
+
+    /**
+     * Calculates the weight of the specified edge state from the stored exposure of the specified edge.
+     */
+    private double calcEdgeWeight(EdgeIteratorState edgeState, int storedEdge) {
+        double weight = 0;
+        if (exposureStorage != null && storedEdge >= 0 && storedEdge < exposureStorage.getEdges()) {
+            for (int i = 0; i < pollutants.length; i++) {
+                weight += factors[i] * exposureStorage.getExposurePerMeter(storedEdge, pollutants[i]);
+            }
+            return weight * edgeState.getDistance();
+        }
+
+        PollutionGrid grid = gridProvider.get();
+        PointList points = edgeState.fetchWayGeometry(FetchMode.ALL);
+        for (int i = 0; i < pollutants.length; i++) {
+            weight += factors[i] * grid.calcExposure(pollutants[i], points);
+        }
+        return weight;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+}
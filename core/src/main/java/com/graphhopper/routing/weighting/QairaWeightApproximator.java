@@ -1,120 +1,101 @@
 /*
- * Copyright 2021 Jhon.
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
  *
- * Licensed under the Apache License, Version 2.0 (the "License");
- * you may not use this file except in compliance with the License.
- * You may obtain a copy of the License at
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
  *
- *      http://www.apache.org/licenses/LICENSE-2.0
+ *       http://www.apache.org/licenses/LICENSE-2.0
  *
- * Unless required by applicable law or agreed to in writing, software
- * distributed under the License is distributed on an "AS IS" BASIS,
- * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
- * See the License for the specific language governing permissions and
- * limitations under the License.
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
  */
 package com.graphhopper.routing.weighting;
 
+import com.graphhopper.routing.pollution.PollutionGrid;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.querygraph.VirtualEdgeIteratorState;
+import com.graphhopper.storage.Graph;
 import com.graphhopper.storage.NodeAccess;
 import com.graphhopper.util.DistanceCalc;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.GHUtility;
 import com.graphhopper.util.Helper;
-import java.io.FileReader;
-import java.sql.Connection;
-import java.sql.DriverManager;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
-import java.util.Properties;
-import org.ini4j.Ini;
+
 /**
+ * Approximates the exposure to the goal node for the {@link PollutionWeighting}. Every route from a node to the goal
+ * has to leave the cell of the node and enter the cell of the goal, so the weight per meter of these cells times the
+ * distance to their boundary is a lower bound. If both are in the same cell the route either stays within the cell
+ * or leaves and re-enters it. The weight per meter of all cells is calculated once per snapshot, see
+ * {@link PollutionGrid#getWeightsPerMeter}, so no I/O is necessary while routing. This is only a lower bound if the
+ * weighting uses the exposure of the same snapshot, see {@link PollutionWeighting#getExposureVersion()}.
+ * <p>
+ * The virtual edges of a query graph use the exposure per meter of the edge they split, which can be lower than the
+ * weight of the cells they are in. The weight per meter of every cell is therefore capped at the lowest weight per
+ * meter of the virtual edges.
  *
  * @author Jhon
  */
-public class QairaWeightApproximator implements WeightApproximator{
+public class QairaWeightApproximator implements WeightApproximator {
     private final NodeAccess nodeAccess;
-    private final Weighting weighting;
+    private final PollutionWeighting weighting;
+    private final PollutionGrid grid;
+    // the weight of one meter within a cell
+    private final double[] cellWeights;
+    // the lowest weight of one meter of a virtual edge
+    private final double virtualWeight;
     private DistanceCalc distanceCalc = Helper.DIST_EARTH;
     private double toLat, toLon;
-    private double contaminationTo=0;
-    private String cellTo="";
+    private int toCell = -1;
+    private double toCellDist;
     private double epsilon = 1;
-    private Connection con;
 
-    public QairaWeightApproximator(NodeAccess nodeAccess, Weighting weighting) {
-        this.nodeAccess = nodeAccess;
-        this.weighting = weighting;
-        String realPath=System.getProperty("user.dir");
-        //String fileName = "./sensors-config/" + MYSQL ".config";
-        String fileName = realPath+"\\sensors-config\\MYSQL.config";
-        String host="";
-        String user="";
-        String password="";
-        String schema ="";
-        String database="";
-        System.out.println("filename= "+fileName);
-        try {
-            Ini ini = new Ini(new FileReader(fileName));
-            host = ini.get("ConnectionSettings").fetch("MYSQL_URL");
-            user = ini.get("ConnectionSettings").fetch("USER");
-            password = ini.get("ConnectionSettings").fetch("PASSWORD");
-            schema = ini.get("ConnectionSettings").fetch("SCHEMA");   
-            database = ini.get("ConnectionSettings").fetch("DATABASE"); 
-            
-        } catch (Exception e) {
-            System.out.println("com.graphhopper.routing.weighting.QairaWeightingCO.<init>()");
-        }
-        String url="jdbc:postgresql://"+host+":5432/"+database+"?currentSchema="+schema;
-        try {
-            Class.forName("org.postgresql.Driver").newInstance();
-        } catch (Exception ex) {
-            System.out.println(ex.getMessage());
-        }
-        try {
-            Properties props = new Properties();
-            props.setProperty("user", user);
-            props.setProperty("password", password);
-            
-            this.con= DriverManager.getConnection(url,props);
-            
-        } catch (SQLException ex) {
-            //TODO: handle exception
-            System.out.println("SQLException: " + ex.getMessage());
-            System.out.println("SQLState: " + ex.getSQLState());
-            System.out.println("VendorError: " + ex.getErrorCode());
+    public QairaWeightApproximator(Graph graph, Weighting weighting) {
+        if (!(weighting instanceof PollutionWeighting))
+            throw new IllegalArgumentException("The Qaira approximation requires the " + PollutionWeighting.NAME + " weighting but was " + weighting);
+        this.nodeAccess = graph.getNodeAccess();
+        this.weighting = (PollutionWeighting) weighting;
+        this.grid = this.weighting.getGridProvider().get();
+        if (this.weighting.getExposureVersion() != grid.getVersion())
+            throw new IllegalArgumentException("The Qaira approximation requires the exposure of the current pollution snapshot "
+                    + grid.getVersion() + " but the weighting uses the exposure of snapshot " + this.weighting.getExposureVersion()
+                    + ", e.g. because it was frozen for the CH or LM preparation");
+        this.cellWeights = this.weighting.getWeightsPerMeter(grid);
+        this.virtualWeight = graph instanceof QueryGraph ? calcVirtualWeight((QueryGraph) graph, this.weighting) : Double.POSITIVE_INFINITY;
+    }
+
+    private static double calcVirtualWeight(QueryGraph queryGraph, Weighting weighting) {
+        double minWeight = Double.POSITIVE_INFINITY;
+        for (int edge = queryGraph.getEdges() - 1; edge >= 0 && queryGraph.isVirtualEdge(edge); edge--) {
+            EdgeIteratorState edgeState = queryGraph.getEdgeIteratorState(edge, Integer.MIN_VALUE);
+            if (edgeState.getDistance() <= 0)
+                continue;
+            int originalEdge = GHUtility.getEdgeFromEdgeKey(((VirtualEdgeIteratorState) edgeState).getOriginalEdgeKey());
+            double weight = QueryGraphWeighting.calcVirtualEdgeWeight(weighting, edgeState, false, originalEdge);
+            minWeight = Math.min(minWeight, weight / edgeState.getDistance());
         }
+        return minWeight;
+    }
 
-        
+    private QairaWeightApproximator(QairaWeightApproximator other) {
+        this.nodeAccess = other.nodeAccess;
+        this.weighting = other.weighting;
+        this.grid = other.grid;
+        this.cellWeights = other.cellWeights;
+        this.virtualWeight = other.virtualWeight;
     }
 
     @Override
     public void setTo(int toNode) {
         toLat = nodeAccess.getLatitude(toNode);
         toLon = nodeAccess.getLongitude(toNode);
-        String query= "SELECT \"idcell\",\"midLat\"-(0.001*100/222) as \"southLat\", \"midLat\"+(0.001*100/222) as \"northLat\", \"midLon\"-(0.001*100/222) as \"westLon\" , \"midLon\"+(0.001*100/222) as \"eastLon\" FROM mydb.cellsdata where ?>=(\"midLon\"-(0.001*100/222)) and ?<=(\"midLon\"+(0.001*100/222)) and ?<=(\"midLat\"+(0.001*100/222)) and ?>=(\"midLat\"-(0.001*100/222)) order by idcell;";
-        try {
-            PreparedStatement ps= this.con.prepareStatement(query);
-            ps.setDouble(1, toLat);
-            ps.setDouble(2, toLat);
-            ps.setDouble(3, toLon);
-            ps.setDouble(4, toLon);
-            ResultSet rs = ps.executeQuery();
-            if(!rs.next()){
-                return;
-            }
-            this.cellTo=rs.getString("idcell");
-            String query2="SELECT m.\"interpolatedValiue\" FROM mydb.interpolatedmetrics as m , mydb.pollutant as p   where m.\"idPollutant\"=p.\"idPollutant\" and  m.\"idinterpolation_algorithm\"=\"IDW\" and m.idcell=? and p.\"pollutantName\"=?;"; 
-            PreparedStatement ps2=this.con.prepareStatement(query2);
-            ps2.setString(1, this.cellTo);
-            ps2.setString(2, this.weighting.getName().substring(this.weighting.getName().length()-2).toUpperCase());
-            ResultSet rs2=ps2.executeQuery();
-            if(!rs.next())
-                return;
-            this.contaminationTo=rs.getDouble("interpolatedValiue");
-            
-            
-        } catch (Exception e) {
-            System.out.println(e.getMessage());
-        }
+        toCell = grid.findCell(toLat, toLon);
+        toCellDist = toCell < 0 ? 0 : calcDistToBoundary(toCell, toLat, toLon);
     }
 
     @Override
@@ -125,7 +106,7 @@ public class QairaWeightApproximator implements WeightApproximator{
 
     @Override
     public WeightApproximator reverse() {
-        return new QairaWeightApproximator(nodeAccess, weighting).setDistanceCalc(distanceCalc).setEpsilon(epsilon);
+        return new QairaWeightApproximator(this).setDistanceCalc(distanceCalc).setEpsilon(epsilon);
     }
 
     @Override
@@ -137,50 +118,39 @@ public class QairaWeightApproximator implements WeightApproximator{
     public double approximate(int fromNode) {
         double fromLat = nodeAccess.getLatitude(fromNode);
         double fromLon = nodeAccess.getLongitude(fromNode);
-        double weightFrom=0;
-        String query= "SELECT \"idcell\",\"midLat\"-(0.001*100/222) as \"southLat\", \"midLat\"+(0.001*100/222) as \"northLat\", \"midLon\"-(0.001*100/222) as \"westLon\" , \"midLon\"+(0.001*100/222) as \"eastLon\" FROM mydb.cellsdata where ?>=(\"midLon\"-(0.001*100/222)) and ?<=(\"midLon\"+(0.001*100/222)) and ?<=(\"midLat\"+(0.001*100/222)) and ?>=(\"midLat\"-(0.001*100/222)) order by idcell;";
-        try {
-            String cellFrom="";
-            PreparedStatement ps= this.con.prepareStatement(query);
-            ps.setDouble(1, fromLat);
-            ps.setDouble(2, fromLat);
-            ps.setDouble(3, fromLon);
-            ps.setDouble(4, fromLon);
-            ResultSet rs = ps.executeQuery();
-            if(!rs.next()){
-                
-                weightFrom= 0;
-            }else{
-                cellFrom=rs.getString("idcell");
-                String query2="SELECT m.\"interpolatedValiue\" FROM mydb.interpolatedmetrics as m , mydb.pollutant as p   where m.\"idPollutant\"=p.\"idPollutant\" and  m.\"idinterpolation_algorithm\"=\"IDW\" and m.\"idcell\"=? and p.\"pollutantName\"=?;"; 
-                PreparedStatement ps2=this.con.prepareStatement(query2);
-                ps2.setString(1, cellFrom);
-                ps2.setString(2, this.weighting.getName().substring(this.weighting.getName().length()-2).toUpperCase());
-                ResultSet rs2=ps2.executeQuery();
-                if(!rs.next())
-                    weightFrom= 0 ;
-                else
-                weightFrom=rs.getDouble("interpolatedValiue");
-            }
-            
-        } catch (Exception e) {
-            System.out.println(e.getMessage());
+        int fromCell = grid.findCell(fromLat, fromLon);
+        double fromCellDist = fromCell < 0 ? 0 : calcDistToBoundary(fromCell, fromLat, fromLon);
+
+        double weight2goal;
+        if (fromCell >= 0 && fromCell == toCell) {
+            double dist2goal = distanceCalc.calcDist(toLat, toLon, fromLat, fromLon);
+            weight2goal = getCellWeight(fromCell) * Math.min(dist2goal, fromCellDist + toCellDist);
+        } else {
+            weight2goal = (fromCell < 0 ? 0 : getCellWeight(fromCell) * fromCellDist)
+                    + (toCell < 0 ? 0 : getCellWeight(toCell) * toCellDist);
         }
-        double dist2goal = distanceCalc.calcDist(toLat, toLon, fromLat, fromLon);
-        double weight2goal = weighting.getMinWeight(dist2goal);
-        weight2goal=weight2goal*weightFrom+((this.contaminationTo-weightFrom)*weight2goal/2);
         return weight2goal * epsilon;
     }
 
+    private double getCellWeight(int cell) {
+        return Math.min(cellWeights[cell], virtualWeight);
+    }
+
+    private double calcDistToBoundary(int cell, double lat, double lon) {
+        double dist = distanceCalc.calcDist(lat, lon, grid.getSouth(cell), lon);
+        dist = Math.min(dist, distanceCalc.calcDist(lat, lon, grid.getNorth(cell), lon));
+        dist = Math.min(dist, distanceCalc.calcDist(lat, lon, lat, grid.getWest(cell)));
+        return Math.min(dist, distanceCalc.calcDist(lat, lon, lat, grid.getEast(cell)));
+    }
+
     @Override
-    public WeightApproximator setDistanceCalc(DistanceCalc distanceCalc) {
+    public QairaWeightApproximator setDistanceCalc(DistanceCalc distanceCalc) {
         this.distanceCalc = distanceCalc;
         return this;
     }
 
     @Override
     public String toString() {
-        return "qairapproximator";
+        return "qaira";
     }
-    
 }
@@ -35,12 +35,21 @@ public class QueryGraphWeighting implements Weighting {
     private final int firstVirtualNodeId;
     private final int firstVirtualEdgeId;
     private final IntArrayList closestEdges;
+    private final boolean dependsOnOriginalEdge;
 
     public QueryGraphWeighting(Weighting weighting, int firstVirtualNodeId, int firstVirtualEdgeId, IntArrayList closestEdges) {
         this.weighting = weighting;
         this.firstVirtualNodeId = firstVirtualNodeId;
         this.firstVirtualEdgeId = firstVirtualEdgeId;
         this.closestEdges = closestEdges;
+        this.dependsOnOriginalEdge = dependsOnOriginalEdge(weighting);
+    }
+
+    /**
+     * @return the weighting that is wrapped for the query graph
+     */
+    public Weighting getWeighting() {
+        return weighting;
     }
 
     @Override
@@ -53,9 +62,29 @@ public class QueryGraphWeighting implements Weighting {
         }
     @Override
     public double calcEdgeWeight(EdgeIteratorState edgeState, boolean reverse) {
+        if (dependsOnOriginalEdge && isVirtualEdge(edgeState.getEdge()))
+            return ((VirtualEdgeWeighting) weighting).calcVirtualEdgeWeight(edgeState, reverse, getOriginalEdge(edgeState.getEdge()));
         return weighting.calcEdgeWeight(edgeState, reverse);
     }
 
+    /**
+     * @return true if the specified weighting calculates the weight of virtual edges from their original edge, see
+     * {@link VirtualEdgeWeighting}
+     */
+    public static boolean dependsOnOriginalEdge(Weighting weighting) {
+        return weighting instanceof VirtualEdgeWeighting && ((VirtualEdgeWeighting) weighting).dependsOnOriginalEdge();
+    }
+
+    /**
+     * @return the weight of the specified virtual edge, which only depends on the edge state itself unless the
+     * weighting is a {@link VirtualEdgeWeighting}
+     */
+    public static double calcVirtualEdgeWeight(Weighting weighting, EdgeIteratorState virtualEdgeState, boolean reverse, int originalEdge) {
+        if (weighting instanceof VirtualEdgeWeighting)
+            return ((VirtualEdgeWeighting) weighting).calcVirtualEdgeWeight(virtualEdgeState, reverse, originalEdge);
+        return weighting.calcEdgeWeight(virtualEdgeState, reverse);
+    }
+
     @Override
     public double calcTurnWeight(int inEdge, int viaNode, int outEdge) {
         if (!EdgeIterator.Edge.isValid(inEdge) || !EdgeIterator.Edge.isValid(outEdge)) {
@@ -0,0 +1,57 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.weighting;
+
+import com.graphhopper.routing.pollution.PollutionForecast;
+import com.graphhopper.routing.pollution.PollutionGridProvider;
+import com.graphhopper.routing.util.FlagEncoder;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.FetchMode;
+import com.graphhopper.util.PMap;
+import com.graphhopper.util.PointList;
+
+/**
+ * A {@link PollutionWeighting} that calculates the exposure of an edge at the time it is entered from the layers of a
+ * {@link PollutionForecast}. Without a time it behaves like the {@link PollutionWeighting}, i.e. uses the current
+ * snapshot.
+ *
+ * @author Jhon
+ */
+public class TimeDependentPollutionWeighting extends PollutionWeighting implements TimeDependentWeighting {
+    private final PollutionForecast forecast;
+
+    public TimeDependentPollutionWeighting(FlagEncoder flagEncoder, PMap hints, TurnCostProvider turnCostProvider,
+                                           PollutionGridProvider gridProvider, PollutionForecast forecast) {
+        super(flagEncoder, hints, turnCostProvider, gridProvider);
+        this.forecast = forecast;
+    }
+
+    public PollutionForecast getForecast() {
+        return forecast;
+    }
+
+    @Override
+    public double calcEdgeWeight(EdgeIteratorState edgeState, boolean reverse, long time) {
+        PointList points = edgeState.fetchWayGeometry(FetchMode.ALL);
+        double weight = 0;
+        for (int i = 0; i < pollutants.length; i++) {
+            weight += factors[i] * forecast.calcExposure(pollutants[i], points, time);
+        }
+        return weight;
+    }
+}
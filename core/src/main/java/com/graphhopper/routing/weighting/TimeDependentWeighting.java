@@ -0,0 +1,36 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.weighting;
+
+import com.graphhopper.util.EdgeIteratorState;
+
+/**
+ * A weighting whose edge weights depend on the time the edge is entered, see
+ * {@link com.graphhopper.routing.TDDijkstra}. The time independent {@link #calcEdgeWeight(EdgeIteratorState, boolean)}
+ * is still used by all other algorithms.
+ *
+ * @author Jhon
+ */
+public interface TimeDependentWeighting extends Weighting {
+    /**
+     * Like {@link #calcEdgeWeight(EdgeIteratorState, boolean)} but for the specified time.
+     *
+     * @param time the time in milliseconds since the epoch when the edge is entered
+     */
+    double calcEdgeWeight(EdgeIteratorState edgeState, boolean reverse, long time);
+}
@@ -0,0 +1,41 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.weighting;
+
+import com.graphhopper.util.EdgeIteratorState;
+
+/**
+ * A {@link Weighting} whose weight of a virtual edge of a {@link com.graphhopper.routing.querygraph.QueryGraph} can
+ * depend on the original edge it was created from, e.g. because the weighting looks up per-edge data. All other
+ * weightings use {@link Weighting#calcEdgeWeight(EdgeIteratorState, boolean)} for virtual edges as well and do not
+ * need to implement this interface.
+ *
+ * @author Jhon
+ */
+public interface VirtualEdgeWeighting extends Weighting {
+    /**
+     * Calculates the weight of a virtual edge that was created by splitting the specified original edge.
+     */
+    double calcVirtualEdgeWeight(EdgeIteratorState virtualEdgeState, boolean reverse, int originalEdge);
+
+    /**
+     * @return true if {@link #calcVirtualEdgeWeight} differs from {@link #calcEdgeWeight}, i.e. if the weighting has
+     * to be wrapped with a {@link QueryGraphWeighting}
+     */
+    boolean dependsOnOriginalEdge();
+}
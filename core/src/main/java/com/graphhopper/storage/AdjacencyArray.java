@@ -0,0 +1,108 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import com.graphhopper.util.EdgeIterator;
+
+/**
+ * A read-only compressed sparse row view of the adjacency lists of a frozen {@link BaseGraph}. The edges of node n
+ * are stored in entries[2 * offsets[n]] until entries[2 * offsets[n + 1]] as pairs of edge and adjacent node, in the
+ * same order as in the linked lists of the edges. The edge is stored as ~edge if it is traversed against its storage
+ * direction. So iterating the edges of a node reads one contiguous block instead of following the 'next edge'
+ * pointers through the edges DataAccess.
+ *
+ * @author Jhon
+ */
+final class AdjacencyArray {
+    private final int[] offsets;
+    private final int[] entries;
+
+    private AdjacencyArray(int[] offsets, int[] entries) {
+        this.offsets = offsets;
+        this.entries = entries;
+    }
+
+    static AdjacencyArray build(BaseGraph baseGraph) {
+        EdgeAccess edgeAccess = baseGraph.edgeAccess;
+        int nodes = baseGraph.getNodes();
+        int[] offsets = new int[nodes + 1];
+        long entryCount = 0;
+        for (int node = 0; node < nodes; node++) {
+            offsets[node] = (int) entryCount;
+            int edge = edgeAccess.getEdgeRef(node);
+            while (EdgeIterator.Edge.isValid(edge)) {
+                long edgePointer = edgeAccess.toPointer(edge);
+                edge = node == edgeAccess.getNodeA(edgePointer) ? edgeAccess.getLinkA(edgePointer) : edgeAccess.getLinkB(edgePointer);
+                entryCount++;
+            }
+            if (2 * entryCount > Integer.MAX_VALUE - 8)
+                throw new IllegalStateException("Too many edges for the adjacency array: " + baseGraph.getEdges()
+                        + ", disable graph.adjacency_array for this graph");
+        }
+        offsets[nodes] = (int) entryCount;
+
+        int[] entries = new int[(int) (2 * entryCount)];
+        int index = 0;
+        for (int node = 0; node < nodes; node++) {
+            int edge = edgeAccess.getEdgeRef(node);
+            while (EdgeIterator.Edge.isValid(edge)) {
+                long edgePointer = edgeAccess.toPointer(edge);
+                int nodeA = edgeAccess.getNodeA(edgePointer);
+                if (node == nodeA) {
+                    entries[index++] = edge;
+                    entries[index++] = edgeAccess.getNodeB(edgePointer);
+                    edge = edgeAccess.getLinkA(edgePointer);
+                } else {
+                    entries[index++] = ~edge;
+                    entries[index++] = nodeA;
+                    edge = edgeAccess.getLinkB(edgePointer);
+                }
+            }
+        }
+        return new AdjacencyArray(offsets, entries);
+    }
+
+    /**
+     * @return the index of the first entry of the specified node
+     */
+    int getStart(int node) {
+        return offsets[node];
+    }
+
+    /**
+     * @return the index after the last entry of the specified node
+     */
+    int getEnd(int node) {
+        return offsets[node + 1];
+    }
+
+    /**
+     * @return the edge of the specified entry, which is negative (~edge) if the edge is traversed in reverse
+     */
+    int getEdge(int entry) {
+        return entries[2 * entry];
+    }
+
+    int getAdjNode(int entry) {
+        return entries[2 * entry + 1];
+    }
+
+    long getCapacity() {
+        return 4L * (offsets.length + entries.length);
+    }
+}
@@ -99,6 +99,9 @@ class BaseGraph implements Graph {
     private int edgeEntryIndex, nodeEntryIndex;
     private long maxGeoRef;
     private boolean frozen = false;
+    private boolean useAdjacencyArray = false;
+    // only available if the graph is frozen and useAdjacencyArray is enabled
+    private AdjacencyArray adjacencyArray;
 
     public BaseGraph(Directory dir, final EncodingManager encodingManager, boolean withElevation,
                      InternalGraphEventListener listener, boolean withTurnCosts, int segmentSize) {
@@ -378,9 +381,24 @@ class BaseGraph implements Graph {
             throw new IllegalStateException("base graph already frozen");
 
         frozen = true;
+        if (useAdjacencyArray)
+            adjacencyArray = AdjacencyArray.build(this);
         listener.freeze();
     }
 
+    /**
+     * Enables or disables the adjacency array, which is built when the graph is frozen or immediately if it is
+     * frozen already. The edge explorers created afterwards iterate the adjacency array instead of the linked lists
+     * of the edges.
+     */
+    synchronized void setUseAdjacencyArray(boolean useAdjacencyArray) {
+        this.useAdjacencyArray = useAdjacencyArray;
+        if (!useAdjacencyArray)
+            adjacencyArray = null;
+        else if (isFrozen() && adjacencyArray == null)
+            adjacencyArray = AdjacencyArray.build(this);
+    }
+
     synchronized boolean isFrozen() {
         return frozen;
     }
@@ -412,6 +430,7 @@ class BaseGraph implements Graph {
                 + "nodes:" + nf(getNodes()) + "(" + nodes.getCapacity() / Helper.MB + "MB), "
                 + "name:(" + stringIndex.getCapacity() / Helper.MB + "MB), "
                 + "geo:" + nf(maxGeoRef) + "(" + wayGeometry.getCapacity() / Helper.MB + "MB), "
+                + (adjacencyArray == null ? "" : "adjacency:(" + adjacencyArray.getCapacity() / Helper.MB + "MB), ")
                 + "bounds:" + bounds;
     }
 
@@ -479,6 +498,7 @@ class BaseGraph implements Graph {
     }
 
     public void close() {
+        adjacencyArray = null;
         if (!wayGeometry.isClosed())
             wayGeometry.close();
         if (!stringIndex.isClosed())
@@ -526,6 +546,8 @@ class BaseGraph implements Graph {
         loadNodesHeader();
         loadEdgesHeader();
         loadWayGeometryHeader();
+        if (frozen && useAdjacencyArray)
+            adjacencyArray = AdjacencyArray.build(this);
     }
 
     /**
@@ -598,6 +620,9 @@ class BaseGraph implements Graph {
 
     @Override
     public EdgeExplorer createEdgeExplorer(EdgeFilter filter) {
+        AdjacencyArray adjacency = adjacencyArray;
+        if (adjacency != null)
+            return new AdjacencyEdgeIterable(this, adjacency, filter);
         return new EdgeIterable(this, edgeAccess, filter);
     }
 
@@ -1143,6 +1168,62 @@ class BaseGraph implements Graph {
         }
     }
 
+    /**
+     * Iterates the edges of a node in the same order as {@link EdgeIterable}, but reads them from the adjacency array.
+     */
+    protected static class AdjacencyEdgeIterable extends CommonEdgeIterator implements EdgeExplorer, EdgeIterator {
+        private final AdjacencyArray adjacency;
+        private final EdgeFilter filter;
+        private int entry;
+        private int endEntry;
+
+        AdjacencyEdgeIterable(BaseGraph baseGraph, AdjacencyArray adjacency, EdgeFilter filter) {
+            super(-1, baseGraph.edgeAccess, baseGraph);
+            if (filter == null)
+                throw new IllegalArgumentException("Instead null filter use EdgeFilter.ALL_EDGES");
+            this.adjacency = adjacency;
+            this.filter = filter;
+        }
+
+        @Override
+        public EdgeIterator setBaseNode(int baseNode) {
+            this.baseNode = baseNode;
+            entry = adjacency.getStart(baseNode);
+            endEntry = adjacency.getEnd(baseNode);
+            edgeId = EdgeIterator.NO_EDGE;
+            return this;
+        }
+
+        @Override
+        public final boolean next() {
+            while (entry < endEntry) {
+                int edge = adjacency.getEdge(entry);
+                adjNode = adjacency.getAdjNode(entry);
+                entry++;
+                reverse = edge < 0;
+                edgeId = reverse ? ~edge : edge;
+                edgePointer = edgeAccess.toPointer(edgeId);
+                freshFlags = false;
+                if (filter.accept(this))
+                    return true;
+            }
+            return false;
+        }
+
+        @Override
+        public EdgeIteratorState detach(boolean reverseArg) {
+            if (!EdgeIterator.Edge.isValid(edgeId))
+                throw new IllegalStateException("call next before detaching (edgeId:" + edgeId + ")");
+
+            EdgeIteratorState iter = edgeAccess.getEdgeProps(edgeId, reverseArg ? baseNode : adjNode, filter);
+            assert iter != null;
+            if (reverseArg) {
+                ((EdgeIterable) iter).reverse = !reverse;
+            }
+            return iter;
+        }
+    }
+
     /**
      * Include all edges of this storage in the iterator.
      */
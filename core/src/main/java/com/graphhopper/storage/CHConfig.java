@@ -18,6 +18,8 @@ public class CHConfig {
     private final String chGraphName;
     private final Weighting weighting;
     private final boolean edgeBased;
+    private final boolean compactShortcuts;
+    private final boolean quantizeWeights;
 
     public static CHConfig nodeBased(String chGraphName, Weighting weighting) {
         return new CHConfig(chGraphName, weighting, false);
@@ -28,10 +30,29 @@ public class CHConfig {
     }
 
     public CHConfig(String chGraphName, Weighting weighting, boolean edgeBased) {
+        this(chGraphName, weighting, edgeBased, false);
+    }
+
+    /**
+     * @param compactShortcuts true if the shortcuts shall be bit packed after the preparation to reduce the memory
+     *                         usage, see CHGraphImpl#compactShortcuts
+     */
+    public CHConfig(String chGraphName, Weighting weighting, boolean edgeBased, boolean compactShortcuts) {
+        this(chGraphName, weighting, edgeBased, compactShortcuts, false);
+    }
+
+    /**
+     * @param quantizeWeights true if the compacted shortcuts shall store their weights with fewer bits. The weights
+     *                        are then rounded up by at most 0.05%, so the routes can be slightly longer than the best
+     *                        ones. Only used if compactShortcuts is true.
+     */
+    public CHConfig(String chGraphName, Weighting weighting, boolean edgeBased, boolean compactShortcuts, boolean quantizeWeights) {
         validateProfileName(chGraphName);
         this.chGraphName = chGraphName;
         this.weighting = weighting;
         this.edgeBased = edgeBased;
+        this.compactShortcuts = compactShortcuts;
+        this.quantizeWeights = quantizeWeights;
     }
 
     public Weighting getWeighting() {
@@ -42,6 +63,14 @@ public class CHConfig {
         return edgeBased;
     }
 
+    public boolean isCompactShortcuts() {
+        return compactShortcuts;
+    }
+
+    public boolean isQuantizeWeights() {
+        return quantizeWeights;
+    }
+
     public TraversalMode getTraversalMode() {
         return edgeBased ? TraversalMode.EDGE_BASED : TraversalMode.NODE_BASED;
     }
@@ -56,7 +56,7 @@ public class CHGraphImpl implements CHGraph, Storable<CHGraph> {
     final int scDirMask = PrepareEncoder.getScDirMask();
     private final CHConfig chConfig;
     private final BaseGraph baseGraph;
-    private final CHEdgeAccess chEdgeAccess;
+    private CHEdgeAccess chEdgeAccess;
     int N_CH_REF;
     int shortcutEntryBytes;
     // the nodesCH storage is limited via baseGraph.nodeCount too
@@ -66,6 +66,8 @@ public class CHGraphImpl implements CHGraph, Storable<CHGraph> {
     private int S_SKIP_EDGE1, S_SKIP_EDGE2, S_ORIG_FIRST, S_ORIG_LAST;
     private int shortcutCount = 0;
     private boolean isReadyForContraction;
+    // not null if the shortcuts have been compacted, see compactShortcuts. chEdgeAccess is then a CompactCHEdgeAccess
+    private CompactShortcutLayout compactLayout;
 
     CHGraphImpl(CHConfig chConfig, Directory dir, final BaseGraph baseGraph, int segmentSize) {
         if (chConfig.getWeighting() == null)
@@ -75,7 +77,7 @@ public class CHGraphImpl implements CHGraph, Storable<CHGraph> {
         final String name = chConfig.getName();
         this.nodesCH = dir.find("nodes_ch_" + name, DAType.getPreferredInt(dir.getDefaultType()));
         this.shortcuts = dir.find("shortcuts_" + name, DAType.getPreferredInt(dir.getDefaultType()));
-        this.chEdgeAccess = new CHEdgeAccess(name);
+        this.chEdgeAccess = new CHEdgeAccess(name, shortcuts);
         if (segmentSize >= 0) {
             nodesCH.setSegmentSize(segmentSize);
             shortcuts.setSegmentSize(segmentSize);
@@ -113,6 +115,8 @@ public class CHGraphImpl implements CHGraph, Storable<CHGraph> {
     public int shortcut(int a, int b, int accessFlags, double weight, int skippedEdge1, int skippedEdge2) {
         if (!baseGraph.isFrozen())
             throw new IllegalStateException("Cannot create shortcut if graph is not yet frozen");
+        if (compactLayout != null)
+            throw new IllegalStateException("Cannot create shortcut if the shortcuts are already compacted");
 
         checkNodeId(a);
         checkNodeId(b);
@@ -257,12 +261,79 @@ public class CHGraphImpl implements CHGraph, Storable<CHGraph> {
         isReadyForContraction = true;
     }
 
+    /**
+     * Packs the shortcuts into a {@link CompactShortcutLayout}, which needs less memory. This is meant to be done once
+     * the preparation is finished: afterwards no shortcuts can be added or disconnected anymore, but their weights and
+     * skipped edges can still be changed, e.g. by a customization. The weights are rounded up if
+     * {@link CHConfig#isQuantizeWeights()} is true.
+     */
+    public void compactShortcuts() {
+        if (compactLayout != null)
+            return;
+
+        long maxNodeDelta = 0;
+        int maxWeight = 0;
+        for (int i = 0; i < shortcutCount; i++) {
+            long edgePointer = chEdgeAccess.toShortcutPointer(i);
+            maxNodeDelta = Math.max(maxNodeDelta, Math.abs((long) chEdgeAccess.getNodeB(edgePointer) - chEdgeAccess.getNodeA(edgePointer)));
+            int weight = chEdgeAccess.getShortcutFlags(edgePointer) >>> 2;
+            if (weight != CompactShortcutLayout.INFINITE_WEIGHT)
+                maxWeight = Math.max(maxWeight, weight);
+        }
+        CompactShortcutLayout layout = CompactShortcutLayout.create(getNodes(), maxNodeDelta,
+                baseGraph.edgeCount + shortcutCount, maxWeight, baseGraph.edgeCount, chConfig.isQuantizeWeights(), chConfig.isEdgeBased());
+        // a packed shortcut never needs more bits than an uncompacted one, so we can overwrite them one by one
+        for (int i = 0; i < shortcutCount; i++) {
+            long edgePointer = chEdgeAccess.toShortcutPointer(i);
+            int nodeA = chEdgeAccess.getNodeA(edgePointer);
+            int nodeB = chEdgeAccess.getNodeB(edgePointer);
+            int linkA = chEdgeAccess.getLinkA(edgePointer);
+            int linkB = chEdgeAccess.getLinkB(edgePointer);
+            int flags = chEdgeAccess.getShortcutFlags(edgePointer);
+            int skippedEdge1 = chEdgeAccess.getSkippedEdge1(edgePointer);
+            int skippedEdge2 = chEdgeAccess.getSkippedEdge2(edgePointer);
+            int origFirst = chConfig.isEdgeBased() ? chEdgeAccess.getOrigEdgeFirst(edgePointer) : EdgeIterator.NO_EDGE;
+            int origLast = chConfig.isEdgeBased() ? chEdgeAccess.getOrigEdgeLast(edgePointer) : EdgeIterator.NO_EDGE;
+
+            long compactPointer = layout.toPointer(i);
+            layout.setNodesAndLinks(shortcuts, compactPointer, nodeA, nodeB, linkA, linkB);
+            layout.setFlags(shortcuts, compactPointer, flags);
+            layout.setSkippedEdges(shortcuts, compactPointer, skippedEdge1, skippedEdge2);
+            if (chConfig.isEdgeBased())
+                layout.setOrigEdges(shortcuts, compactPointer, origFirst, origLast);
+        }
+        long bytesBefore = (long) shortcutCount * shortcutEntryBytes;
+        shortcuts.trimTo(layout.getBytes(shortcutCount));
+        setCompactLayout(layout);
+        LOGGER.info("compacted shortcuts of " + chConfig.getName() + " from " + bytesBefore / Helper.MB + "MB to "
+                + layout.getBytes(shortcutCount) / Helper.MB + "MB, bits per shortcut: " + layout);
+    }
+
+    /**
+     * Replaces the shortcut EdgeAccess with one for the specified layout. Edge explorers and iterators created before
+     * must not be used afterwards.
+     */
+    private void setCompactLayout(CompactShortcutLayout layout) {
+        compactLayout = layout;
+        EdgeAccess ea = baseGraph.edgeAccess;
+        chEdgeAccess = layout == null ? new CHEdgeAccess(chConfig.getName(), shortcuts)
+                : new CompactCHEdgeAccess(chConfig.getName(), shortcuts, layout);
+        chEdgeAccess.init(ea.E_NODEA, ea.E_NODEB, ea.E_LINKA, ea.E_LINKB, ea.E_FLAGS);
+    }
+
+    public boolean isCompacted() {
+        return compactLayout != null;
+    }
+
     String toDetailsString() {
-        return toString() + ", shortcuts:" + nf(shortcutCount) + ", nodesCH:(" + nodesCH.getCapacity() / Helper.MB + "MB)";
+        return toString() + ", shortcuts:" + nf(shortcutCount) + ", nodesCH:(" + nodesCH.getCapacity() / Helper.MB + "MB)"
+                + (compactLayout == null ? "" : ", compacted:(" + compactLayout + ")");
     }
 
     @Override
     public void disconnectEdge(int edge, int adjNode, int prevEdge) {
+        if (compactLayout != null)
+            throw new IllegalStateException("Cannot disconnect edge if the shortcuts are already compacted");
         // TODO this is ugly, move this somehow into the underlying iteration logic
         long edgePointer = !EdgeIterator.Edge.isValid(prevEdge) ? -1
                 : isShortcut(prevEdge) ? chEdgeAccess.toPointer(prevEdge) : baseGraph.edgeAccess.toPointer(prevEdge);
@@ -285,12 +356,17 @@ public class CHGraphImpl implements CHGraph, Storable<CHGraph> {
     protected int loadEdgesHeader() {
         shortcutCount = shortcuts.getHeader(0 * 4);
         shortcutEntryBytes = shortcuts.getHeader(1 * 4);
+        setCompactLayout(CompactShortcutLayout.fromHeader(shortcuts, 2 * 4, chConfig.isEdgeBased()));
         return 3;
     }
 
     int setEdgesHeader() {
         shortcuts.setHeader(0 * 4, shortcutCount);
         shortcuts.setHeader(1 * 4, shortcutEntryBytes);
+        if (compactLayout == null)
+            shortcuts.setHeader(2 * 4, 0);
+        else
+            compactLayout.setHeader(shortcuts, 2 * 4);
         return 3;
     }
 
@@ -319,6 +395,7 @@ public class CHGraphImpl implements CHGraph, Storable<CHGraph> {
         tmpG.N_LEVEL = N_LEVEL;
         tmpG.N_CH_REF = N_CH_REF;
         tmpG.nodeCHEntryBytes = nodeCHEntryBytes;
+        tmpG.setCompactLayout(compactLayout);
         return g;
     }
 
@@ -416,12 +493,12 @@ public class CHGraphImpl implements CHGraph, Storable<CHGraph> {
                     chEdgeAccess.getLinkA(edgePointer),
                     chEdgeAccess.getLinkB(edgePointer),
                     chEdgeAccess.getShortcutFlags(edgePointer),
-                    shortcuts.getInt(edgePointer + S_SKIP_EDGE1),
-                    shortcuts.getInt(edgePointer + S_SKIP_EDGE2));
+                    chEdgeAccess.getSkippedEdge1(edgePointer),
+                    chEdgeAccess.getSkippedEdge2(edgePointer));
             if (chConfig.isEdgeBased()) {
                 edgeString += String.format(Locale.ROOT, formatShortcutExt,
-                        shortcuts.getInt(edgePointer + S_ORIG_FIRST),
-                        shortcuts.getInt(edgePointer + S_ORIG_LAST));
+                        chEdgeAccess.getOrigEdgeFirst(edgePointer),
+                        chEdgeAccess.getOrigEdgeLast(edgePointer));
             }
             System.out.println(edgeString);
         }
@@ -516,10 +593,12 @@ public class CHGraphImpl implements CHGraph, Storable<CHGraph> {
         public boolean next() {
             while (true) {
                 allEdgeIterator.edgeId++;
-                allEdgeIterator.edgePointer = (long) allEdgeIterator.edgeId * allEdgeIterator.edgeAccess.getEntryBytes();
                 if (!checkRange())
                     return false;
 
+                allEdgeIterator.edgePointer = isShortcut() ? chEdgeAccess.toShortcutPointer(allEdgeIterator.edgeId)
+                        : (long) allEdgeIterator.edgeId * allEdgeIterator.edgeAccess.getEntryBytes();
+
                 allEdgeIterator.adjNode = allEdgeIterator.edgeAccess.getNodeB(allEdgeIterator.edgePointer);
                 // some edges are deleted and are marked via a negative node
                 if (EdgeAccess.isInvalidNodeB(allEdgeIterator.adjNode))
@@ -547,7 +626,6 @@ public class CHGraphImpl implements CHGraph, Storable<CHGraph> {
             // iterate over shortcuts
             allEdgeIterator.edgeAccess = chEdgeAccess;
             allEdgeIterator.edgeId = 0;
-            allEdgeIterator.edgePointer = (long) allEdgeIterator.edgeId * shortcutEntryBytes;
             return allEdgeIterator.edgeId < shortcutCount;
         }
 
@@ -573,8 +651,8 @@ public class CHGraphImpl implements CHGraph, Storable<CHGraph> {
     private class CHEdgeAccess extends EdgeAccess {
         private final String name;
 
-        public CHEdgeAccess(String name) {
-            super(shortcuts);
+        public CHEdgeAccess(String name, DataAccess edges) {
+            super(edges);
             this.name = name;
         }
 
@@ -666,22 +744,53 @@ public class CHGraphImpl implements CHGraph, Storable<CHGraph> {
                 throw new IllegalStateException("Skipped edges of a shortcut needs "
                         + "to be both valid or invalid but they were not " + edge1 + ", " + edge2);
             }
-            shortcuts.setInt(edgePointer + S_SKIP_EDGE1, edge1);
-            shortcuts.setInt(edgePointer + S_SKIP_EDGE2, edge2);
+            writeSkippedEdges(edgePointer, edge1, edge2);
+        }
+
+        void writeSkippedEdges(long edgePointer, int edge1, int edge2) {
+            edges.setInt(edgePointer + S_SKIP_EDGE1, edge1);
+            edges.setInt(edgePointer + S_SKIP_EDGE2, edge2);
+        }
+
+        int getSkippedEdge1(long edgePointer) {
+            return edges.getInt(edgePointer + S_SKIP_EDGE1);
+        }
+
+        int getSkippedEdge2(long edgePointer) {
+            return edges.getInt(edgePointer + S_SKIP_EDGE2);
         }
 
         public void setFirstAndLastOrigEdges(long edgePointer, int origFirst, int origLast) {
             if (!chConfig.isEdgeBased()) {
                 throw new IllegalStateException("Edge-based shortcuts should only be added when CHGraph is edge-based");
             }
-            shortcuts.setInt(edgePointer + S_ORIG_FIRST, origFirst);
-            shortcuts.setInt(edgePointer + S_ORIG_LAST, origLast);
+            writeOrigEdges(edgePointer, origFirst, origLast);
+        }
+
+        void writeOrigEdges(long edgePointer, int origFirst, int origLast) {
+            edges.setInt(edgePointer + S_ORIG_FIRST, origFirst);
+            edges.setInt(edgePointer + S_ORIG_LAST, origLast);
+        }
+
+        int getOrigEdgeFirst(long edgePointer) {
+            return edges.getInt(edgePointer + S_ORIG_FIRST);
+        }
+
+        int getOrigEdgeLast(long edgePointer) {
+            return edges.getInt(edgePointer + S_ORIG_LAST);
         }
 
         @Override
         final long toPointer(int shortcutId) {
             assert isInBounds(shortcutId) : "shortcutId " + shortcutId + " not in bounds [" + baseGraph.edgeCount + ", " + (baseGraph.edgeCount + shortcutCount) + ")";
-            return (long) (shortcutId - baseGraph.edgeCount) * shortcutEntryBytes;
+            return toShortcutPointer(shortcutId - baseGraph.edgeCount);
+        }
+
+        /**
+         * @param shortcutIndex the shortcut id minus the number of edges of the base graph
+         */
+        long toShortcutPointer(int shortcutIndex) {
+            return (long) shortcutIndex * shortcutEntryBytes;
         }
 
         @Override
@@ -696,6 +805,89 @@ public class CHGraphImpl implements CHGraph, Storable<CHGraph> {
         }
     }
 
+    /**
+     * Reads and writes the shortcuts packed with a {@link CompactShortcutLayout}. The edge pointers of this access are
+     * bit positions. The nodes and links cannot be changed anymore, everything else can, e.g. by a customization.
+     */
+    private class CompactCHEdgeAccess extends CHEdgeAccess {
+        private final CompactShortcutLayout layout;
+
+        CompactCHEdgeAccess(String name, DataAccess edges, CompactShortcutLayout layout) {
+            super(name, edges);
+            this.layout = layout;
+        }
+
+        @Override
+        long toShortcutPointer(int shortcutIndex) {
+            return layout.toPointer(shortcutIndex);
+        }
+
+        @Override
+        int getNodeA(long edgePointer) {
+            return layout.getNodeA(edges, edgePointer);
+        }
+
+        @Override
+        int getNodeB(long edgePointer) {
+            return layout.getNodeB(edges, edgePointer);
+        }
+
+        @Override
+        int getLinkA(long edgePointer) {
+            return layout.getLinkA(edges, edgePointer);
+        }
+
+        @Override
+        int getLinkB(long edgePointer) {
+            return layout.getLinkB(edges, edgePointer);
+        }
+
+        @Override
+        int getShortcutFlags(long edgePointer) {
+            return layout.getFlags(edges, edgePointer);
+        }
+
+        @Override
+        void setShortcutFlags(long edgePointer, int flags) {
+            layout.setFlags(edges, edgePointer, flags);
+        }
+
+        @Override
+        int getSkippedEdge1(long edgePointer) {
+            return layout.getSkippedEdge1(edges, edgePointer);
+        }
+
+        @Override
+        int getSkippedEdge2(long edgePointer) {
+            return layout.getSkippedEdge2(edges, edgePointer);
+        }
+
+        @Override
+        void writeSkippedEdges(long edgePointer, int edge1, int edge2) {
+            layout.setSkippedEdges(edges, edgePointer, edge1, edge2);
+        }
+
+        @Override
+        int getOrigEdgeFirst(long edgePointer) {
+            return layout.getOrigEdgeFirst(edges, edgePointer);
+        }
+
+        @Override
+        int getOrigEdgeLast(long edgePointer) {
+            return layout.getOrigEdgeLast(edges, edgePointer);
+        }
+
+        @Override
+        void writeOrigEdges(long edgePointer, int origFirst, int origLast) {
+            layout.setOrigEdges(edges, edgePointer, origFirst, origLast);
+        }
+
+        @Override
+        public String toString() {
+            return "compact " + super.toString();
+        }
+    }
+
     private abstract class CommonCHEdgeIteratorState implements CHEdgeIteratorState {
         final BaseGraph.CommonEdgeIterator edgeIterable;
 
@@ -756,13 +948,13 @@ public class CHGraphImpl implements CHGraph, Storable<CHGraph> {
         @Override
         public final int getSkippedEdge1() {
             checkShortcut(true, "getSkippedEdge1");
-            return shortcuts.getInt(edgeIterable.edgePointer + S_SKIP_EDGE1);
+            return chEdgeAccess.getSkippedEdge1(edgeIterable.edgePointer);
         }
 
         @Override
         public final int getSkippedEdge2() {
             checkShortcut(true, "getSkippedEdge2");
-            return shortcuts.getInt(edgeIterable.edgePointer + S_SKIP_EDGE2);
+            return chEdgeAccess.getSkippedEdge2(edgeIterable.edgePointer);
         }
 
         @Override
@@ -770,7 +962,7 @@ public class CHGraphImpl implements CHGraph, Storable<CHGraph> {
             if (!isShortcut() || !chConfig.isEdgeBased()) {
                 return getEdge();
             }
-            return shortcuts.getInt(edgeIterable.edgePointer + S_ORIG_FIRST);
+            return chEdgeAccess.getOrigEdgeFirst(edgeIterable.edgePointer);
         }
 
         @Override
@@ -778,7 +970,7 @@ public class CHGraphImpl implements CHGraph, Storable<CHGraph> {
             if (!isShortcut() || !chConfig.isEdgeBased()) {
                 return getEdge();
             }
-            return shortcuts.getInt(edgeIterable.edgePointer + S_ORIG_LAST);
+            return chEdgeAccess.getOrigEdgeLast(edgeIterable.edgePointer);
         }
 
         @Override
@@ -0,0 +1,320 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+/**
+ * Describes the bit packed layout of the shortcuts of a {@link CHGraphImpl} after the preparation. Every shortcut
+ * uses the same number of bits, so a shortcut can still be found in O(1) via its index and every field is read with
+ * at most two int reads. The fields only use as many bits as the largest value of the prepared graph needs:
+ * <ul>
+ * <li>node A with the bits of the largest node id and node B as zigzag encoded difference to node A, which is small
+ * for a sorted graph. If the difference does not need fewer bits node B is stored like node A, which is faster.</li>
+ * <li>the next edges of node A and B and the skipped edges, stored as edge + 1 so that NO_EDGE fits</li>
+ * <li>the two access bits and the weight, which keeps the resolution of the uncompacted shortcuts. There is one
+ * spare bit so that e.g. a customization can still double the largest weight. The all ones value means infinity.
+ * Optionally the weight is quantized instead: it is then stored with a {@link #WEIGHT_EXPONENT_BITS} bit exponent and
+ * a {@link #QUANTIZED_MANTISSA_BITS} bit mantissa and rounded up, i.e. it is never too small and at most 0.05% too
+ * large.</li>
+ * <li>the first and last original edge for edge-based CH, stored as edge + 1</li>
+ * </ul>
+ *
+ * @author Jhon
+ */
+final class CompactShortcutLayout {
+    // see CHGraphImpl: the weight uses 29 bits and its largest value means infinity
+    static final int MAX_WEIGHT_BITS = 29;
+    static final int INFINITE_WEIGHT = (1 << MAX_WEIGHT_BITS) - 1;
+    private static final int ACCESS_BITS = 2;
+    static final int WEIGHT_EXPONENT_BITS = 5;
+    static final int QUANTIZED_MANTISSA_BITS = 12;
+
+    // nodeDeltaBits is 0 if node B is not stored as difference to node A
+    private final int nodeBits, nodeDeltaBits, edgeBits, weightBits, origEdgeBits;
+    // 0 if the weights are not quantized
+    private final int mantissaBits;
+    private final int S_NODEB, S_LINKA, S_LINKB, S_ACCESS, S_WEIGHT, S_SKIP_EDGE1, S_SKIP_EDGE2, S_ORIG_FIRST, S_ORIG_LAST;
+    private final int entryBits;
+    private final int weightMask;
+
+    CompactShortcutLayout(int nodeBits, int nodeDeltaBits, int edgeBits, int weightBits, int origEdgeBits, boolean edgeBased) {
+        this(nodeBits, nodeDeltaBits, edgeBits, weightBits, origEdgeBits, 0, edgeBased);
+    }
+
+    /**
+     * @param mantissaBits the bits of the mantissa of the quantized weights or 0 to store the weights exactly. The
+     *                     weight then needs {@link #WEIGHT_EXPONENT_BITS} more bits.
+     */
+    CompactShortcutLayout(int nodeBits, int nodeDeltaBits, int edgeBits, int weightBits, int origEdgeBits, int mantissaBits, boolean edgeBased) {
+        if (nodeBits > 31 || nodeDeltaBits > 32 || edgeBits > 32 || weightBits > MAX_WEIGHT_BITS || origEdgeBits > 32)
+            throw new IllegalArgumentException("Too many bits for a compact shortcut field: " + nodeBits + ", " + nodeDeltaBits
+                    + ", " + edgeBits + ", " + weightBits + ", " + origEdgeBits);
+        if (mantissaBits != 0 && weightBits != WEIGHT_EXPONENT_BITS + mantissaBits)
+            throw new IllegalArgumentException("The quantized weight needs " + WEIGHT_EXPONENT_BITS + " exponent bits and "
+                    + mantissaBits + " mantissa bits but has " + weightBits + " bits");
+        this.nodeBits = nodeBits;
+        this.nodeDeltaBits = nodeDeltaBits;
+        this.edgeBits = edgeBits;
+        this.weightBits = weightBits;
+        this.mantissaBits = mantissaBits;
+        this.origEdgeBits = edgeBased ? origEdgeBits : 0;
+        weightMask = (1 << weightBits) - 1;
+        // node A starts at bit 0
+        S_NODEB = nodeBits;
+        S_LINKA = S_NODEB + (nodeDeltaBits == 0 ? nodeBits : nodeDeltaBits);
+        S_LINKB = S_LINKA + edgeBits;
+        S_ACCESS = S_LINKB + edgeBits;
+        S_WEIGHT = S_ACCESS + ACCESS_BITS;
+        S_SKIP_EDGE1 = S_WEIGHT + weightBits;
+        S_SKIP_EDGE2 = S_SKIP_EDGE1 + edgeBits;
+        S_ORIG_FIRST = S_SKIP_EDGE2 + edgeBits;
+        S_ORIG_LAST = S_ORIG_FIRST + this.origEdgeBits;
+        entryBits = S_ORIG_LAST + this.origEdgeBits;
+    }
+
+    /**
+     * @param nodes          the number of nodes of the graph
+     * @param maxNodeDelta   the largest absolute difference between the two nodes of a shortcut
+     * @param edges          the number of edges and shortcuts
+     * @param maxWeight      the largest finite weight of a shortcut, as stored in its flags
+     * @param originalEdges  the number of edges of the base graph
+     * @param quantizeWeights true if the weights shall be quantized, which is only done if this needs fewer bits
+     */
+    static CompactShortcutLayout create(int nodes, long maxNodeDelta, int edges, int maxWeight, int originalEdges,
+                                        boolean quantizeWeights, boolean edgeBased) {
+        int weightBits = Math.min(MAX_WEIGHT_BITS, bitsFor(maxWeight) + 1);
+        int mantissaBits = 0;
+        if (quantizeWeights && weightBits > WEIGHT_EXPONENT_BITS + QUANTIZED_MANTISSA_BITS) {
+            mantissaBits = QUANTIZED_MANTISSA_BITS;
+            weightBits = WEIGHT_EXPONENT_BITS + QUANTIZED_MANTISSA_BITS;
+        }
+        int nodeBits = bitsFor(Math.max(0, nodes - 1));
+        int nodeDeltaBits = bitsFor(zigzag(maxNodeDelta));
+        return new CompactShortcutLayout(nodeBits, nodeDeltaBits < nodeBits ? nodeDeltaBits : 0, bitsFor(edges),
+                weightBits, bitsFor(originalEdges), mantissaBits, edgeBased);
+    }
+
+    static int bitsFor(long value) {
+        return Math.max(1, 64 - Long.numberOfLeadingZeros(value));
+    }
+
+    static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    int getEntryBits() {
+        return entryBits;
+    }
+
+    /**
+     * @return the bit position of the shortcut with the specified index
+     */
+    long toPointer(int index) {
+        return (long) index * entryBits;
+    }
+
+    /**
+     * @return the number of bytes needed for the specified number of shortcuts, including the int after the last
+     * shortcut that {@link #read} always reads
+     */
+    long getBytes(int shortcuts) {
+        return (((toPointer(shortcuts) + 31) >>> 5) + 1) << 2;
+    }
+
+    int getNodeA(DataAccess da, long pointer) {
+        return (int) read(da, pointer, nodeBits);
+    }
+
+    int getNodeB(DataAccess da, long pointer) {
+        if (nodeDeltaBits == 0)
+            return (int) read(da, pointer + S_NODEB, nodeBits);
+        return (int) (getNodeA(da, pointer) + unzigzag(read(da, pointer + S_NODEB, nodeDeltaBits)));
+    }
+
+    int getLinkA(DataAccess da, long pointer) {
+        return (int) read(da, pointer + S_LINKA, edgeBits) - 1;
+    }
+
+    int getLinkB(DataAccess da, long pointer) {
+        return (int) read(da, pointer + S_LINKB, edgeBits) - 1;
+    }
+
+    void setNodesAndLinks(DataAccess da, long pointer, int nodeA, int nodeB, int linkA, int linkB) {
+        write(da, pointer, nodeBits, nodeA);
+        if (nodeDeltaBits == 0)
+            write(da, pointer + S_NODEB, nodeBits, nodeB);
+        else
+            write(da, pointer + S_NODEB, nodeDeltaBits, zigzag((long) nodeB - nodeA));
+        write(da, pointer + S_LINKA, edgeBits, linkA + 1L);
+        write(da, pointer + S_LINKB, edgeBits, linkB + 1L);
+    }
+
+    /**
+     * @return the access bits and the weight in the same format as the flags of an uncompacted shortcut
+     */
+    int getFlags(DataAccess da, long pointer) {
+        // the weight directly follows the access bits, so both are read at once
+        int flags = (int) read(da, pointer + S_ACCESS, ACCESS_BITS + weightBits);
+        int weight = flags >>> ACCESS_BITS;
+        if (weight == weightMask)
+            weight = INFINITE_WEIGHT;
+        else if (mantissaBits > 0)
+            weight = dequantize(weight);
+        else
+            return flags;
+        return weight << ACCESS_BITS | flags & ((1 << ACCESS_BITS) - 1);
+    }
+
+    void setFlags(DataAccess da, long pointer, int flags) {
+        int weight = flags >>> ACCESS_BITS;
+        if (weight == INFINITE_WEIGHT)
+            weight = weightMask;
+        else if (mantissaBits > 0)
+            weight = quantize(weight);
+        else if (weight >= weightMask)
+            throw new IllegalStateException("The weight " + weight + " of the shortcut does not fit into the "
+                    + weightBits + " bits of the compact shortcuts");
+        write(da, pointer + S_ACCESS, ACCESS_BITS, flags & ((1 << ACCESS_BITS) - 1));
+        write(da, pointer + S_WEIGHT, weightBits, weight);
+    }
+
+    /**
+     * @return the exponent and the mantissa of the smallest quantized weight that is not smaller than the specified one
+     */
+    int quantize(int weight) {
+        int exponent = Math.max(0, bitsFor(weight) - mantissaBits);
+        int mantissa = (int) ((weight + (1L << exponent) - 1) >>> exponent);
+        if (mantissa >>> mantissaBits != 0) {
+            // rounding up overflowed into the next power of two
+            mantissa >>>= 1;
+            exponent++;
+        }
+        return exponent << mantissaBits | mantissa;
+    }
+
+    /**
+     * @return the weight of the specified exponent and mantissa. The few weights that would be rounded up to
+     * infinity are capped at the largest finite weight instead.
+     */
+    int dequantize(int quantized) {
+        int weight = (quantized & ((1 << mantissaBits) - 1)) << (quantized >>> mantissaBits);
+        return Math.min(weight, INFINITE_WEIGHT - 1);
+    }
+
+    int getSkippedEdge1(DataAccess da, long pointer) {
+        return (int) read(da, pointer + S_SKIP_EDGE1, edgeBits) - 1;
+    }
+
+    int getSkippedEdge2(DataAccess da, long pointer) {
+        return (int) read(da, pointer + S_SKIP_EDGE2, edgeBits) - 1;
+    }
+
+    void setSkippedEdges(DataAccess da, long pointer, int edge1, int edge2) {
+        setSkippedEdge1(da, pointer, edge1);
+        setSkippedEdge2(da, pointer, edge2);
+    }
+
+    void setSkippedEdge1(DataAccess da, long pointer, int edge) {
+        write(da, pointer + S_SKIP_EDGE1, edgeBits, edge + 1L);
+    }
+
+    void setSkippedEdge2(DataAccess da, long pointer, int edge) {
+        write(da, pointer + S_SKIP_EDGE2, edgeBits, edge + 1L);
+    }
+
+    int getOrigEdgeFirst(DataAccess da, long pointer) {
+        return (int) read(da, pointer + S_ORIG_FIRST, origEdgeBits) - 1;
+    }
+
+    int getOrigEdgeLast(DataAccess da, long pointer) {
+        return (int) read(da, pointer + S_ORIG_LAST, origEdgeBits) - 1;
+    }
+
+    void setOrigEdges(DataAccess da, long pointer, int origFirst, int origLast) {
+        setOrigEdgeFirst(da, pointer, origFirst);
+        setOrigEdgeLast(da, pointer, origLast);
+    }
+
+    void setOrigEdgeFirst(DataAccess da, long pointer, int origFirst) {
+        write(da, pointer + S_ORIG_FIRST, origEdgeBits, origFirst + 1L);
+    }
+
+    void setOrigEdgeLast(DataAccess da, long pointer, int origLast) {
+        write(da, pointer + S_ORIG_LAST, origEdgeBits, origLast + 1L);
+    }
+
+    /**
+     * Stores the widths of the fields in the header of the DataAccess, starting at the specified header position.
+     */
+    void setHeader(DataAccess da, int bytePos) {
+        da.setHeader(bytePos, nodeBits);
+        da.setHeader(bytePos + 4, nodeDeltaBits);
+        da.setHeader(bytePos + 8, edgeBits);
+        da.setHeader(bytePos + 12, weightBits);
+        da.setHeader(bytePos + 16, origEdgeBits);
+        da.setHeader(bytePos + 20, mantissaBits);
+    }
+
+    /**
+     * @return the layout stored via {@link #setHeader} or null if the shortcuts are not compacted
+     */
+    static CompactShortcutLayout fromHeader(DataAccess da, int bytePos, boolean edgeBased) {
+        int nodeBits = da.getHeader(bytePos);
+        if (nodeBits == 0)
+            return null;
+        return new CompactShortcutLayout(nodeBits, da.getHeader(bytePos + 4), da.getHeader(bytePos + 8),
+                da.getHeader(bytePos + 12), da.getHeader(bytePos + 16), da.getHeader(bytePos + 20), edgeBased);
+    }
+
+    /**
+     * Reads the specified number of bits (at most 32) starting at the specified bit position. Only aligned ints are
+     * read, so this works for the int based DataAccess implementations too. The following int is always read, even if
+     * the field ends in the first one, because a branch on the bit position of the field is hard to predict and was
+     * slower than the additional read.
+     */
+    static long read(DataAccess da, long bitPos, int bits) {
+        long intPos = (bitPos >>> 5) << 2;
+        long value = (da.getInt(intPos) & 0xFFFF_FFFFL) | (long) da.getInt(intPos + 4) << 32;
+        return (value >>> (bitPos & 31)) & ((1L << bits) - 1);
+    }
+
+    static void write(DataAccess da, long bitPos, int bits, long value) {
+        long mask = (1L << bits) - 1;
+        if (value < 0 || value > mask)
+            throw new IllegalStateException("The value " + value + " does not fit into " + bits + " bits");
+        long intPos = (bitPos >>> 5) << 2;
+        int shift = (int) (bitPos & 31);
+        long lower = da.getInt(intPos) & 0xFFFF_FFFFL;
+        da.setInt(intPos, (int) ((lower & ~(mask << shift)) | (value << shift)));
+        if (shift + bits > 32) {
+            long upperMask = (1L << (shift + bits - 32)) - 1;
+            long upper = da.getInt(intPos + 4) & 0xFFFF_FFFFL;
+            da.setInt(intPos + 4, (int) ((upper & ~upperMask) | (value >>> (32 - shift))));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "node:" + nodeBits + ", node delta:" + (nodeDeltaBits == 0 ? "none" : nodeDeltaBits) + ", edge:" + edgeBits
+                + ", weight:" + weightBits + (mantissaBits > 0 ? " (quantized)" : "") + ", orig edge:" + origEdgeBits
+                + ", entry:" + entryBits;
+    }
+}
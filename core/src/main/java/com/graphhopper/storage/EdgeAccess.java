@@ -94,19 +94,20 @@ abstract class EdgeAccess {
         return newEdgeId;
     }
 
-    final int getNodeA(long edgePointer) {
+    // the getters of the nodes and links are overridden by the compacted shortcuts of CHGraphImpl
+    int getNodeA(long edgePointer) {
         return edges.getInt(edgePointer + E_NODEA);
     }
 
-    final int getNodeB(long edgePointer) {
+    int getNodeB(long edgePointer) {
         return edges.getInt(edgePointer + E_NODEB);
     }
 
-    final int getLinkA(long edgePointer) {
+    int getLinkA(long edgePointer) {
         return edges.getInt(edgePointer + E_LINKA);
     }
 
-    final int getLinkB(long edgePointer) {
+    int getLinkB(long edgePointer) {
         return edges.getInt(edgePointer + E_LINKB);
     }
 
@@ -349,6 +349,16 @@ public final class GraphHopperStorage implements GraphStorage, Graph {
         return baseGraph.isFrozen();
     }
 
+    /**
+     * Iterate the edges of the frozen graph via a compact adjacency array instead of the linked lists of the edges.
+     * This needs about 16 bytes more memory per edge but edge explorers read the edges of a node from one
+     * contiguous block. The array is built when the graph is frozen or immediately if it is frozen already.
+     */
+    public GraphHopperStorage setUseAdjacencyArray(boolean useAdjacencyArray) {
+        baseGraph.setUseAdjacencyArray(useAdjacencyArray);
+        return this;
+    }
+
     @Override
     public String toDetailsString() {
         String str = baseGraph.toDetailsString();
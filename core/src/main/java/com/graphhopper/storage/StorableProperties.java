@@ -102,6 +102,13 @@ public class StorableProperties implements Storable<StorableProperties> {
         return this;
     }
 
+    /**
+     * @return a copy of all properties
+     */
+    public synchronized Map<String, String> getAll() {
+        return new LinkedHashMap<>(map);
+    }
+
     public synchronized String get(String key) {
         if (!key.equals(toLowerCase(key)))
             throw new IllegalArgumentException("Do not use upper case keys (" + key + ") for StorableProperties since 0.7");
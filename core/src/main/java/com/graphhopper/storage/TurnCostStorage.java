@@ -17,6 +17,7 @@
  */
 package com.graphhopper.storage;
 
+import com.carrotsearch.hppc.IntIndexedContainer;
 import com.graphhopper.routing.ev.DecimalEncodedValue;
 import com.graphhopper.routing.ev.TurnCost;
 import com.graphhopper.util.EdgeIterator;
@@ -218,6 +219,25 @@ public class TurnCostStorage implements Storable<TurnCostStorage> {
         return turnCostStorage;
     }
 
+    /**
+     * Copies all turn relations into the specified storage of a renumbered graph, e.g. a sorted one. Turn relations
+     * whose node or edges have no new id (i.e. a negative one) are skipped.
+     */
+    public TurnCostStorage copyTo(TurnCostStorage turnCostStorage, IntIndexedContainer oldToNewNodes, IntIndexedContainer oldToNewEdges) {
+        IntsRef tcFlags = TurnCost.createFlags();
+        Itr iter = new Itr();
+        while (iter.next()) {
+            int viaNode = oldToNewNodes.get(iter.getViaNode());
+            int fromEdge = oldToNewEdges.get(iter.getFromEdge());
+            int toEdge = oldToNewEdges.get(iter.getToEdge());
+            if (viaNode < 0 || fromEdge < 0 || toEdge < 0)
+                continue;
+            tcFlags.ints[0] = turnCosts.getInt(iter.turnCostPtr() + TC_FLAGS);
+            turnCostStorage.merge(tcFlags, fromEdge, viaNode, toEdge);
+        }
+        return turnCostStorage;
+    }
+
     @Override
     public boolean isClosed() {
         return turnCosts.isClosed();
@@ -43,6 +43,7 @@ import static com.graphhopper.util.Helper.DIST_EARTH;
  */
 public class GHUtility {
     private static final Logger LOGGER = LoggerFactory.getLogger(GHUtility.class);
+    private static final int HILBERT_ORDER = 15;
 
     /**
      * This method could throw an exception if problems like index out of bounds etc
@@ -296,9 +297,6 @@ public class GHUtility {
     }
 
     public static Graph shuffle(Graph g, Graph sortedGraph) {
-        if (g.getTurnCostStorage() != null) {
-            throw new IllegalArgumentException("Shuffling the graph is currently not supported in the presence of turn costs");
-        }
         int nodes = g.getNodes();
         GHIntArrayList list = new GHIntArrayList(nodes);
         list.fill(nodes, -1);
@@ -323,9 +321,6 @@ public class GHUtility {
      * significant difference (bfs) for querying or are worse (z-curve).
      */
     public static Graph sortDFS(Graph g, Graph sortedGraph) {
-        if (g.getTurnCostStorage() != null) {
-            throw new IllegalArgumentException("Sorting the graph is currently not supported in the presence of turn costs");
-        }
         int nodes = g.getNodes();
         final GHIntArrayList nodeList = new GHIntArrayList(nodes);
         nodeList.fill(nodes, -1);
@@ -367,11 +362,79 @@ public class GHUtility {
         return createSortedGraph(g, sortedGraph, nodeList, edgeList);
     }
 
+    /**
+     * Sorts the nodes of the graph along a Hilbert curve over its bounds, so nodes that are close to each other get
+     * similar ids. The edges are numbered in the order of their first node.
+     */
+    public static Graph sortHilbert(Graph g, Graph sortedGraph) {
+        int nodes = g.getNodes();
+        NodeAccess na = g.getNodeAccess();
+        BBox bounds = g.getBounds();
+        int cells = 1 << HILBERT_ORDER;
+        double lonFactor = bounds.maxLon > bounds.minLon ? (cells - 1) / (bounds.maxLon - bounds.minLon) : 0;
+        double latFactor = bounds.maxLat > bounds.minLat ? (cells - 1) / (bounds.maxLat - bounds.minLat) : 0;
+        // the hilbert index needs 2 * HILBERT_ORDER bits, the node id the lower 32 bits
+        long[] keys = new long[nodes];
+        for (int node = 0; node < nodes; node++) {
+            int x = (int) ((na.getLongitude(node) - bounds.minLon) * lonFactor);
+            int y = (int) ((na.getLatitude(node) - bounds.minLat) * latFactor);
+            keys[node] = calcHilbertIndex(x, y, cells) << 32 | node;
+        }
+        Arrays.sort(keys);
+
+        GHIntArrayList nodeList = new GHIntArrayList(nodes);
+        nodeList.fill(nodes, -1);
+        int edges = g.getEdges();
+        GHIntArrayList edgeList = new GHIntArrayList(edges);
+        edgeList.fill(edges, -1);
+        GHBitSetImpl edgeBitset = new GHBitSetImpl(edges);
+        int edgeRef = 0;
+        EdgeExplorer explorer = g.createEdgeExplorer();
+        for (int i = 0; i < nodes; i++) {
+            int node = (int) keys[i];
+            nodeList.set(node, i);
+            EdgeIterator iter = explorer.setBaseNode(node);
+            while (iter.next()) {
+                if (!edgeBitset.contains(iter.getEdge())) {
+                    edgeBitset.add(iter.getEdge());
+                    edgeList.set(edgeRef++, iter.getEdge());
+                }
+            }
+        }
+        return createSortedGraph(g, sortedGraph, nodeList, edgeList);
+    }
+
+    /**
+     * @return the position of the cell (x, y) on the Hilbert curve through a grid of cells x cells, where cells has to
+     * be a power of two
+     */
+    static long calcHilbertIndex(int x, int y, int cells) {
+        long index = 0;
+        for (int s = cells / 2; s > 0; s /= 2) {
+            int rx = (x & s) > 0 ? 1 : 0;
+            int ry = (y & s) > 0 ? 1 : 0;
+            index += (long) s * s * ((3 * rx) ^ ry);
+            // rotate the quadrant
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = cells - 1 - x;
+                    y = cells - 1 - y;
+                }
+                int tmp = x;
+                x = y;
+                y = tmp;
+            }
+        }
+        return index;
+    }
+
     static Graph createSortedGraph(Graph fromGraph, Graph toSortedGraph, final IntIndexedContainer oldToNewNodeList, final IntIndexedContainer newToOldEdgeList) {
-        if (fromGraph.getTurnCostStorage() != null) {
-            throw new IllegalArgumentException("Sorting the graph is currently not supported in the presence of turn costs");
+        if (fromGraph.getTurnCostStorage() != null && toSortedGraph.getTurnCostStorage() == null) {
+            throw new IllegalArgumentException("The sorted graph needs turn cost support to keep the turn costs");
         }
         int edges = fromGraph.getEdges();
+        GHIntArrayList oldToNewEdgeList = new GHIntArrayList(edges);
+        oldToNewEdgeList.fill(edges, -1);
         for (int i = 0; i < edges; i++) {
             int edgeId = newToOldEdgeList.get(i);
             if (edgeId < 0)
@@ -388,7 +451,8 @@ public class GHUtility {
             if (newBaseIndex < 0 || newAdjIndex < 0)
                 continue;
 
-            toSortedGraph.edge(newBaseIndex, newAdjIndex).copyPropertiesFrom(eIter);
+            int newEdgeId = toSortedGraph.edge(newBaseIndex, newAdjIndex).copyPropertiesFrom(eIter).getEdge();
+            oldToNewEdgeList.set(edgeId, newEdgeId);
         }
 
         int nodes = fromGraph.getNodes();
@@ -401,6 +465,10 @@ public class GHUtility {
             else
                 sna.setNode(newIndex, na.getLatitude(old), na.getLongitude(old));
         }
+
+        // the turn costs are stored per via node, so they can only be copied once all nodes exist
+        if (fromGraph.getTurnCostStorage() != null)
+            fromGraph.getTurnCostStorage().copyTo(toSortedGraph.getTurnCostStorage(), oldToNewNodeList, oldToNewEdgeList);
         return toSortedGraph;
     }
 
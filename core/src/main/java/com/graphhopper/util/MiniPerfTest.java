@@ -22,6 +22,7 @@ import org.slf4j.LoggerFactory;
 
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
+import java.util.Arrays;
 import java.util.Locale;
 
 /**
@@ -39,17 +40,21 @@ public abstract class MiniPerfTest {
     private long max;
     private long min = Long.MAX_VALUE;
     private int dummySum;
+    // the time of every call, sorted after all calls are done
+    private long[] times = new long[0];
 
     public MiniPerfTest start() {
         int warmupCount = Math.max(1, counts / 3);
         for (int i = 0; i < warmupCount; i++) {
             dummySum += doCalc(true, i);
         }
+        times = new long[counts];
         long startFull = System.nanoTime();
         for (int i = 0; i < counts; i++) {
             long start = System.nanoTime();
             dummySum += doCalc(false, i);
             long time = System.nanoTime() - start;
+            times[i] = time;
             if (time < min)
                 min = time;
 
@@ -57,6 +62,7 @@ public abstract class MiniPerfTest {
                 max = time;
         }
         fullTime = System.nanoTime() - startFull;
+        Arrays.sort(times);
         logger.info("dummySum:" + dummySum);
         return this;
     }
@@ -94,6 +100,19 @@ public abstract class MiniPerfTest {
         return getSum() / counts;
     }
     
+    /**
+     * @param percentile the percentile between 0 and 100, e.g. 50 for the median
+     * @return the time in ms that the specified percentage of calls did not exceed (nearest rank)
+     */
+    public double getPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100)
+            throw new IllegalArgumentException("percentile has to be between 0 and 100 but was " + percentile);
+        if (times.length == 0)
+            return 0;
+        int rank = (int) Math.ceil(percentile / 100 * times.length);
+        return times[Math.max(0, rank - 1)] / NS_PER_MS;
+    }
+
     private String formatDuration(double durationNs) {
         double divisor;
         String unit;
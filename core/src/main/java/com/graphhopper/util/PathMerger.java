@@ -21,8 +21,11 @@ import com.graphhopper.ResponsePath;
 import com.graphhopper.routing.InstructionsFromEdges;
 import com.graphhopper.routing.Path;
 import com.graphhopper.routing.ev.EncodedValueLookup;
+import com.graphhopper.routing.pollution.Pollutant;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.Graph;
+import com.graphhopper.util.details.ExposureDetails;
+import com.graphhopper.util.details.PathDetail;
 import com.graphhopper.util.details.PathDetailsBuilderFactory;
 import com.graphhopper.util.details.PathDetailsFromEdges;
 import com.graphhopper.util.exceptions.ConnectionNotFoundException;
@@ -30,6 +33,8 @@ import com.graphhopper.util.exceptions.ConnectionNotFoundException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 /**
  * This class merges multiple {@link Path} objects into one continuous object that
@@ -134,7 +139,10 @@ public class PathMerger {
                 }
 
                 fullPoints.add(tmpPoints);
-                responsePath.addPathDetails(PathDetailsFromEdges.calcDetails(path, evLookup, weighting, requestedPathDetails, pathBuilderFactory, origPoints));
+                Map<String, List<PathDetail>> pathDetails = PathDetailsFromEdges.calcDetails(path, evLookup, weighting, requestedPathDetails, pathBuilderFactory, origPoints);
+                // sum up before the details of this path are merged with the ones of the previous path
+                addExposures(responsePath, pathDetails);
+                responsePath.addPathDetails(pathDetails);
                 origPoints = fullPoints.size();
             }
 
@@ -168,6 +176,19 @@ public class PathMerger {
         }
     }
 
+    private void addExposures(ResponsePath responsePath, Map<String, List<PathDetail>> pathDetails) {
+        for (Pollutant pollutant : Pollutant.values()) {
+            List<PathDetail> exposureDetails = pathDetails.get(ExposureDetails.getKey(pollutant));
+            if (exposureDetails == null)
+                continue;
+            double exposure = 0;
+            for (PathDetail detail : exposureDetails) {
+                exposure += (Double) detail.getValue();
+            }
+            responsePath.addExposure(pollutant.toString().toLowerCase(Locale.ROOT), exposure);
+        }
+    }
+
     /**
      * This method iterates over all instructions and uses the available context to improve the instructions.
      * If the requests contains a heading, this method can transform the first continue to a u-turn if the heading
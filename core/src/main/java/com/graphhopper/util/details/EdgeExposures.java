@@ -0,0 +1,65 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.util.details;
+
+import com.graphhopper.routing.pollution.EdgeExposureStorage;
+import com.graphhopper.routing.pollution.Pollutant;
+import com.graphhopper.routing.pollution.PollutionGrid;
+import com.graphhopper.routing.querygraph.VirtualEdgeIteratorState;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.FetchMode;
+import com.graphhopper.util.GHUtility;
+
+/**
+ * Calculates the exposure to all pollutants of an edge at once, so that the {@link ExposureDetails} of several
+ * pollutants walk the geometry of every edge only once. The exposure of the edges of the base graph is read from the
+ * {@link EdgeExposureStorage}, if there is one, so that the details match the weights of the route. Virtual edges use
+ * the stored exposure per meter of their original edge, like the {@link com.graphhopper.routing.weighting.PollutionWeighting}.
+ * Only edges without a stored exposure are calculated from the grid.
+ *
+ * @author Jhon
+ */
+final class EdgeExposures {
+    private static final Pollutant[] POLLUTANTS = Pollutant.values();
+    private final EdgeExposureStorage storage;
+    private final PollutionGrid grid;
+    private final double[] exposures = new double[POLLUTANTS.length];
+    private int edgeId = EdgeIterator.NO_EDGE;
+
+    EdgeExposures(EdgeExposureStorage storage, PollutionGrid grid) {
+        this.storage = storage;
+        this.grid = grid;
+    }
+
+    double getExposure(EdgeIteratorState edge, Pollutant pollutant) {
+        if (edge.getEdge() != edgeId) {
+            edgeId = edge.getEdge();
+            int storedEdge = edge instanceof VirtualEdgeIteratorState
+                    ? GHUtility.getEdgeFromEdgeKey(((VirtualEdgeIteratorState) edge).getOriginalEdgeKey()) : edgeId;
+            if (storage != null && storedEdge < storage.getEdges()) {
+                for (int p = 0; p < POLLUTANTS.length; p++) {
+                    exposures[p] = storage.getExposurePerMeter(storedEdge, POLLUTANTS[p]) * edge.getDistance();
+                }
+            } else {
+                grid.calcExposures(edge.fetchWayGeometry(FetchMode.ALL), exposures);
+            }
+        }
+        return exposures[pollutant.ordinal()];
+    }
+}
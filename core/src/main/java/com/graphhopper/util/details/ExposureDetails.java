@@ -0,0 +1,68 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.util.details;
+
+import com.graphhopper.routing.pollution.Pollutant;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.EdgeIteratorState;
+
+import java.util.Locale;
+
+import static com.graphhopper.util.Parameters.Details.EXPOSURE;
+
+/**
+ * Calculate the exposure to a pollutant per edge of a Path, i.e. the pollution value times the meters traveled
+ * within each cell of the pollution grid.
+ *
+ * @author Jhon
+ */
+public class ExposureDetails extends AbstractPathDetailsBuilder {
+
+    private final Pollutant pollutant;
+    private final EdgeExposures exposures;
+    private int edgeId = EdgeIterator.NO_EDGE;
+    private double exposure = 0;
+
+    ExposureDetails(Pollutant pollutant, EdgeExposures exposures) {
+        super(getKey(pollutant));
+        this.pollutant = pollutant;
+        this.exposures = exposures;
+    }
+
+    /**
+     * @return the name of the exposure detail of the specified pollutant, e.g. exposure_pm10
+     */
+    public static String getKey(Pollutant pollutant) {
+        return EXPOSURE + "_" + pollutant.toString().toLowerCase(Locale.ROOT);
+    }
+
+    @Override
+    public boolean isEdgeDifferentToLastEdge(EdgeIteratorState edge) {
+        if (edge.getEdge() != edgeId) {
+            edgeId = edge.getEdge();
+            exposure = exposures.getExposure(edge, pollutant);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public Object getCurrentValue() {
+        return this.exposure;
+    }
+}
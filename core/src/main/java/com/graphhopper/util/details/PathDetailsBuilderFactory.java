@@ -19,6 +19,11 @@ package com.graphhopper.util.details;
 
 import com.graphhopper.coll.MapEntry;
 import com.graphhopper.routing.ev.*;
+import com.graphhopper.routing.pollution.EdgeExposureStorage;
+import com.graphhopper.routing.pollution.Pollutant;
+import com.graphhopper.routing.pollution.PollutionGridProvider;
+import com.graphhopper.routing.weighting.AbstractAdjustedWeighting;
+import com.graphhopper.routing.weighting.PollutionWeighting;
 import com.graphhopper.routing.weighting.Weighting;
 
 import java.util.ArrayList;
@@ -36,6 +41,27 @@ import static com.graphhopper.util.Parameters.Details.*;
  */
 public class PathDetailsBuilderFactory {
 
+    private PollutionGridProvider pollutionGridProvider;
+    private EdgeExposureStorage exposureStorage;
+
+    /**
+     * Enables the exposure details, which are calculated from the current snapshot of the specified provider.
+     */
+    public PathDetailsBuilderFactory setPollutionGridProvider(PollutionGridProvider pollutionGridProvider) {
+        this.pollutionGridProvider = pollutionGridProvider;
+        return this;
+    }
+
+    /**
+     * Reads the exposure details of the edges of the base graph from the specified storage instead of the current
+     * snapshot. A {@link PollutionWeighting} with its own storage, e.g. the one frozen for a CH or LM preparation,
+     * uses that storage instead.
+     */
+    public PathDetailsBuilderFactory setExposureStorage(EdgeExposureStorage exposureStorage) {
+        this.exposureStorage = exposureStorage;
+        return this;
+    }
+
     public List<PathDetailsBuilder> createPathDetailsBuilders(List<String> requestedPathDetails, EncodedValueLookup evl, Weighting weighting) {
         List<PathDetailsBuilder> builders = new ArrayList<>();
 
@@ -57,6 +83,18 @@ public class PathDetailsBuilderFactory {
         if (requestedPathDetails.contains(DISTANCE))
             builders.add(new DistanceDetails());
 
+        if (pollutionGridProvider != null) {
+            // all pollutants of an edge are calculated at once and from the same snapshot
+            EdgeExposures exposures = null;
+            for (Pollutant pollutant : Pollutant.values()) {
+                if (!requestedPathDetails.contains(ExposureDetails.getKey(pollutant)))
+                    continue;
+                if (exposures == null)
+                    exposures = new EdgeExposures(getExposureStorage(weighting), pollutionGridProvider.get());
+                builders.add(new ExposureDetails(pollutant, exposures));
+            }
+        }
+
         for (String checkSuffix : requestedPathDetails) {
             if (checkSuffix.contains(getKey("", "priority")) && evl.hasEncodedValue(checkSuffix))
                 builders.add(new DecimalDetails(checkSuffix, evl.getDecimalEncodedValue(checkSuffix)));
@@ -85,4 +123,12 @@ public class PathDetailsBuilderFactory {
 
         return builders;
     }
+
+    private EdgeExposureStorage getExposureStorage(Weighting weighting) {
+        while (weighting instanceof AbstractAdjustedWeighting)
+            weighting = ((AbstractAdjustedWeighting) weighting).getSuperWeighting();
+        if (weighting instanceof PollutionWeighting && ((PollutionWeighting) weighting).getExposureStorage() != null)
+            return ((PollutionWeighting) weighting).getExposureStorage();
+        return exposureStorage;
+    }
 }
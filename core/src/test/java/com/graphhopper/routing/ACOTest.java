@@ -0,0 +1,172 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.FlagEncoder;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.ShortestWeighting;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.GraphBuilder;
+import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.util.Parameters;
+import org.junit.Test;
+
+import static com.graphhopper.routing.RoutingAlgorithmTest.initTestStorage;
+import static org.junit.Assert.*;
+
+/**
+ * @author Jhon
+ */
+public class ACOTest {
+    private final EncodingManager encodingManager = EncodingManager.create("car");
+    private final FlagEncoder carEncoder = encodingManager.getEncoder("car");
+    private final Weighting weighting = new ShortestWeighting(carEncoder);
+
+    private GraphHopperStorage createGHStorage() {
+        return new GraphBuilder(encodingManager).create();
+    }
+
+    private ACO createACO(GraphHopperStorage graph, long seed) {
+        return new ACO(graph, weighting, TraversalMode.NODE_BASED).setSeed(seed);
+    }
+
+    @Test
+    public void testShortestOfTwoPaths() {
+        //  0---1---2
+        //   \     /
+        //    --3--
+        GraphHopperStorage graph = createGHStorage();
+        graph.edge(0, 1, 1, true);
+        graph.edge(1, 2, 1, true);
+        graph.edge(0, 3, 10, true);
+        graph.edge(3, 2, 10, true);
+        Path p = createACO(graph, 1).calcPath(0, 2);
+        assertTrue(p.isFound());
+        assertEquals(IntArrayList.from(0, 1, 2), p.calcNodes());
+        assertEquals(2, p.getDistance(), 1e-6);
+    }
+
+    @Test
+    public void testSameSeedSamePath() {
+        GraphHopperStorage graph = createGHStorage();
+        initTestStorage(graph);
+        for (long seed = 0; seed < 3; seed++) {
+            Path p1 = createACO(graph, seed).calcPath(0, 7);
+            Path p2 = createACO(graph, seed).calcPath(0, 7);
+            assertTrue(p1.isFound());
+            assertEquals(p1.calcNodes(), p2.calcNodes());
+            assertEquals(p1.getWeight(), p2.getWeight(), 1e-6);
+        }
+    }
+
+    @Test
+    public void testParallelismDoesNotChangePath() {
+        GraphHopperStorage graph = createGHStorage();
+        initTestStorage(graph);
+        Path sequential = createACO(graph, 3).calcPath(0, 7);
+        Path parallel = createACO(graph, 3).setParallelism(4).calcPath(0, 7);
+        assertTrue(parallel.isFound());
+        assertEquals(sequential.calcNodes(), parallel.calcNodes());
+        assertEquals(sequential.getWeight(), parallel.getWeight(), 1e-6);
+    }
+
+    @Test
+    public void testParallelismIsCappedAtSharedThreads() {
+        GraphHopperStorage graph = createGHStorage();
+        initTestStorage(graph);
+        ACO aco = createACO(graph, 3).setParallelism(Integer.MAX_VALUE);
+        assertEquals(ACO.getMaxParallelism(), aco.getParallelism());
+        assertTrue(aco.calcPath(0, 7).isFound());
+    }
+
+    @Test
+    public void testStopsWhenStagnating() {
+        GraphHopperStorage graph = createGHStorage();
+        initTestStorage(graph);
+        ACO aco = createACO(graph, 5).setMaxIterations(1000).setMaxStagnation(3);
+        assertTrue(aco.calcPath(0, 7).isFound());
+        assertTrue(aco.getIterations() < 1000);
+
+        aco = createACO(graph, 5).setMaxIterations(1000).setMaxStagnation(1000).setTimeoutMillis(0);
+        assertTrue(aco.calcPath(0, 7).isFound());
+        assertEquals(1, aco.getIterations());
+    }
+
+    @Test
+    public void testAlgorithmOptionsHints() {
+        GraphHopperStorage graph = createGHStorage();
+        initTestStorage(graph);
+        AlgorithmOptions opts = AlgorithmOptions.start().algorithm(Parameters.Algorithms.ANT_COLONY).
+                weighting(weighting).traversalMode(TraversalMode.NODE_BASED).build();
+        opts.getHints().putObject(Parameters.Algorithms.AntColony.ANTS, 10);
+        opts.getHints().putObject(Parameters.Algorithms.AntColony.MAX_ITERATIONS, 2);
+        opts.getHints().putObject(Parameters.Algorithms.AntColony.MAX_STAGNATION, 1000);
+        ACO aco = (ACO) new RoutingAlgorithmFactorySimple().createAlgo(graph, opts);
+        assertTrue(aco.calcPath(0, 7).isFound());
+        assertEquals(2, aco.getIterations());
+        assertTrue(aco.getVisitedNodes() <= 2 * 10 * graph.getNodes());
+    }
+
+    @Test
+    public void testListener() {
+        GraphHopperStorage graph = createGHStorage();
+        initTestStorage(graph);
+        final IntArrayList iterations = new IntArrayList();
+        final int[] visitedNodes = new int[1];
+        ACO aco = createACO(graph, 7).setMaxIterations(5).setMaxStagnation(1000).setListener(new ACOListener() {
+            @Override
+            public void onIteration(int iteration, double bestWeight, int iterationVisitedNodes, long durationNanos) {
+                iterations.add(iteration);
+                visitedNodes[0] += iterationVisitedNodes;
+                assertTrue(durationNanos >= 0);
+            }
+        });
+        Path p = aco.calcPath(0, 7);
+        assertEquals(IntArrayList.from(0, 1, 2, 3, 4), iterations);
+        assertEquals(aco.getVisitedNodes(), visitedNodes[0]);
+        assertTrue(p.isFound());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidEvaporation() {
+        createACO(createGHStorage(), 1).setEvaporation(1.5);
+    }
+
+    @Test
+    public void testFoundPathIsValid() {
+        GraphHopperStorage graph = createGHStorage();
+        initTestStorage(graph);
+        Path p = createACO(graph, 42).calcPath(0, 7);
+        Path dijkstra = new Dijkstra(graph, weighting, TraversalMode.NODE_BASED).calcPath(0, 7);
+        assertTrue(p.isFound());
+        assertEquals(0, p.calcNodes().get(0));
+        assertEquals(7, p.calcNodes().get(p.calcNodes().size() - 1));
+        assertTrue(p.getWeight() >= dijkstra.getWeight() - 1e-6);
+    }
+
+    @Test
+    public void testNoPath() {
+        GraphHopperStorage graph = createGHStorage();
+        graph.edge(0, 1, 1, true);
+        graph.edge(2, 3, 1, true);
+        Path p = createACO(graph, 1).calcPath(0, 3);
+        assertFalse(p.isFound());
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.FlagEncoder;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.FastestWeighting;
+import com.graphhopper.routing.weighting.ShortestWeighting;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.GraphBuilder;
+import com.graphhopper.storage.GraphHopperStorage;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static com.graphhopper.routing.RoutingAlgorithmTest.initTestStorage;
+import static com.graphhopper.util.GHUtility.setProperties;
+import static org.junit.Assert.*;
+
+/**
+ * @author Jhon
+ */
+public class ParetoLabelSettingTest {
+    private final EncodingManager encodingManager = EncodingManager.create("car");
+    private final FlagEncoder encoder = encodingManager.getEncoder("car");
+    // the weight is the distance, so the two criteria are the distance and the time
+    private final Weighting weighting = new ShortestWeighting(encoder);
+    private GraphHopperStorage graph;
+
+    @Before
+    public void setUp() {
+        graph = new GraphBuilder(encodingManager).create();
+    }
+
+    private ParetoLabelSetting createAlgo(GraphHopperStorage graph) {
+        return new ParetoLabelSetting(graph, weighting, TraversalMode.NODE_BASED);
+    }
+
+    @Test
+    public void testFrontOfTwoRoutes() {
+        //   1       short but slow
+        //  / \
+        // 0   3
+        //  \ /
+        //   2       long but fast
+        //   |
+        //   4-3     long and slow
+        setProperties(graph.edge(0, 1).setDistance(1000), encoder, 10, true, true);
+        setProperties(graph.edge(1, 3).setDistance(1000), encoder, 10, true, true);
+        setProperties(graph.edge(0, 2).setDistance(2000), encoder, 100, true, true);
+        setProperties(graph.edge(2, 3).setDistance(2000), encoder, 100, true, true);
+        setProperties(graph.edge(2, 4).setDistance(2000), encoder, 10, true, true);
+        setProperties(graph.edge(4, 3).setDistance(2000), encoder, 10, true, true);
+
+        List<Path> paths = createAlgo(graph).setEpsilon(0).calcPaths(0, 3);
+        assertEquals(2, paths.size());
+        // the fastest route comes first
+        assertEquals(IntArrayList.from(0, 2, 3), paths.get(0).calcNodes());
+        assertEquals(IntArrayList.from(0, 1, 3), paths.get(1).calcNodes());
+        assertTrue(paths.get(0).getTime() < paths.get(1).getTime());
+        assertEquals(4000, paths.get(0).getWeight(), 1e-6);
+        assertEquals(2000, paths.get(1).getWeight(), 1e-6);
+    }
+
+    // two routes where the faster one is only slightly longer
+    private void createSimilarRoutes() {
+        setProperties(graph.edge(0, 1).setDistance(1000), encoder, 50, true, true);
+        setProperties(graph.edge(1, 3).setDistance(1000), encoder, 50, true, true);
+        setProperties(graph.edge(0, 2).setDistance(1010), encoder, 60, true, true);
+        setProperties(graph.edge(2, 3).setDistance(1010), encoder, 60, true, true);
+    }
+
+    @Test
+    public void testEpsilonDropsSimilarRoutes() {
+        createSimilarRoutes();
+        assertEquals(2, createAlgo(graph).setEpsilon(0).calcPaths(0, 3).size());
+
+        // the shorter route is not 1.5 times better in any criterion, so it is dropped
+        List<Path> paths = createAlgo(graph).setEpsilon(0.5).calcPaths(0, 3);
+        assertEquals(1, paths.size());
+        assertEquals(IntArrayList.from(0, 2, 3), paths.get(0).calcNodes());
+    }
+
+    @Test
+    public void testFrontIsNotDominated() {
+        initTestStorage(graph);
+        List<Path> paths = createAlgo(graph).setEpsilon(0).calcPaths(0, 7);
+        assertFalse(paths.isEmpty());
+        for (int i = 1; i < paths.size(); i++) {
+            assertTrue(paths.get(i - 1).getTime() <= paths.get(i).getTime());
+            assertTrue(paths.get(i - 1).getWeight() > paths.get(i).getWeight());
+        }
+        // the extremes are the fastest and the shortest route
+        Path fastest = new Dijkstra(graph, new FastestWeighting(encoder), TraversalMode.NODE_BASED).calcPath(0, 7);
+        Path shortest = new Dijkstra(graph, weighting, TraversalMode.NODE_BASED).calcPath(0, 7);
+        assertEquals(fastest.getTime(), paths.get(0).getTime());
+        assertEquals(shortest.getWeight(), paths.get(paths.size() - 1).getWeight(), 1e-6);
+    }
+
+    @Test
+    public void testEdgeBasedFrontIsNotDominated() {
+        initTestStorage(graph);
+        // the destination is reached via several edges and the labels of each edge are kept separately
+        List<Path> paths = new ParetoLabelSetting(graph, weighting, TraversalMode.EDGE_BASED).setEpsilon(0).calcPaths(0, 7);
+        assertFalse(paths.isEmpty());
+        for (Path path : paths) {
+            for (Path other : paths) {
+                if (other != path)
+                    assertFalse(other.getTime() <= path.getTime() && other.getWeight() <= path.getWeight());
+            }
+        }
+        // without turn costs the front is the same as the node-based one
+        List<Path> nodeBasedPaths = createAlgo(graph).setEpsilon(0).calcPaths(0, 7);
+        assertEquals(nodeBasedPaths.size(), paths.size());
+        for (int i = 0; i < paths.size(); i++) {
+            assertEquals(nodeBasedPaths.get(i).getTime(), paths.get(i).getTime());
+            assertEquals(nodeBasedPaths.get(i).getWeight(), paths.get(i).getWeight(), 1e-6);
+        }
+    }
+
+    @Test
+    public void testMaxPaths() {
+        initTestStorage(graph);
+        List<Path> all = createAlgo(graph).setEpsilon(0).calcPaths(0, 7);
+        List<Path> limited = createAlgo(graph).setEpsilon(0).setMaxPaths(2).calcPaths(0, 7);
+        assertEquals(Math.min(2, all.size()), limited.size());
+        assertEquals(all.get(0).calcNodes(), limited.get(0).calcNodes());
+        assertEquals(all.get(all.size() - 1).calcNodes(), limited.get(limited.size() - 1).calcNodes());
+    }
+
+    @Test
+    public void testNoPath() {
+        graph.edge(0, 1, 1, true);
+        graph.edge(2, 3, 1, true);
+        List<Path> paths = createAlgo(graph).calcPaths(0, 3);
+        assertEquals(1, paths.size());
+        assertFalse(paths.get(0).isFound());
+    }
+}
@@ -17,14 +17,25 @@
  */
 package com.graphhopper.routing;
 
+import com.graphhopper.ResponsePath;
 import com.graphhopper.reader.ReaderWay;
 import com.graphhopper.routing.ev.*;
+import com.graphhopper.routing.pollution.EdgeExposureStorage;
+import com.graphhopper.routing.pollution.Pollutant;
+import com.graphhopper.routing.pollution.PollutionGrid;
+import com.graphhopper.routing.pollution.PollutionGridProvider;
+import com.graphhopper.routing.querygraph.QueryGraph;
 import com.graphhopper.routing.util.*;
+import com.graphhopper.routing.weighting.BlockAreaWeighting;
 import com.graphhopper.routing.weighting.FastestWeighting;
+import com.graphhopper.routing.weighting.PollutionWeighting;
 import com.graphhopper.routing.weighting.ShortestWeighting;
+import com.graphhopper.routing.weighting.TurnCostProvider;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.*;
+import com.graphhopper.storage.index.QueryResult;
 import com.graphhopper.util.*;
+import com.graphhopper.util.details.ExposureDetails;
 import com.graphhopper.util.details.PathDetail;
 import com.graphhopper.util.details.PathDetailsBuilderFactory;
 import com.graphhopper.util.details.PathDetailsFromEdges;
@@ -422,6 +433,132 @@ public class PathTest {
         assertEquals(5D, distanceDetails.get(3).getValue());
     }
 
+    @Test
+    public void testCalcExposureDetails() {
+        PollutionGrid.Builder builder = new PollutionGrid.Builder().setVersion(1);
+        builder.setValue(Pollutant.PM10, builder.addCell("west", 52.51, 13.34, 52.52, 13.3485), 10);
+        builder.setValue(Pollutant.PM10, builder.addCell("east", 52.51, 13.3485, 52.52, 13.352), 20);
+        PollutionGrid grid = builder.build();
+        PathDetailsBuilderFactory factory = new PathDetailsBuilderFactory().setPollutionGridProvider(PollutionGridProvider.of(grid));
+
+        ShortestWeighting weighting = new ShortestWeighting(encoder);
+        Path p = new Dijkstra(pathDetailGraph, weighting, TraversalMode.NODE_BASED).calcPath(1, 5);
+        assertTrue(p.isFound());
+        String pm10 = ExposureDetails.getKey(Pollutant.PM10), no2 = ExposureDetails.getKey(Pollutant.NO2);
+        assertEquals("exposure_pm10", pm10);
+        Map<String, List<PathDetail>> details = PathDetailsFromEdges.calcDetails(p, carManager, weighting,
+                Arrays.asList(pm10, no2), factory, 0);
+        assertEquals(2, details.size());
+
+        List<PathDetail> pm10Details = details.get(pm10);
+        List<EdgeIteratorState> edges = p.calcEdges();
+        assertEquals(edges.size(), pm10Details.size());
+        double total = 0;
+        for (int i = 0; i < edges.size(); i++) {
+            double expected = grid.calcExposure(Pollutant.PM10, edges.get(i).fetchWayGeometry(FetchMode.ALL));
+            assertTrue(expected > 0);
+            assertEquals(expected, (Double) pm10Details.get(i).getValue(), 1e-6);
+            assertEquals(0, (Double) details.get(no2).get(i).getValue(), 1e-6);
+            total += expected;
+        }
+
+        // the totals are summed up per pollutant
+        ResponsePath responsePath = new ResponsePath();
+        new PathMerger(pathDetailGraph, weighting).setPathDetailsBuilders(factory, Arrays.asList(pm10)).
+                doWork(responsePath, Collections.singletonList(p), carManager, tr);
+        assertEquals(1, responsePath.getExposures().size());
+        assertEquals(total, responsePath.getExposures().get("pm10"), 1e-6);
+
+        try {
+            PathDetailsFromEdges.calcDetails(p, carManager, weighting, Arrays.asList(pm10), new PathDetailsBuilderFactory(), 0);
+            fail("exposure details need a pollution grid");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testExposureDetailsFromStorage() {
+        PollutionGrid.Builder builder = new PollutionGrid.Builder().setVersion(1);
+        builder.setValue(Pollutant.PM10, builder.addCell("west", 52.51, 13.34, 52.52, 13.3485), 10);
+        builder.setValue(Pollutant.PM10, builder.addCell("east", 52.51, 13.3485, 52.52, 13.352), 20);
+        PollutionGrid stored = builder.build();
+        EdgeExposureStorage storage = new EdgeExposureStorage(new RAMDirectory()).create(1000);
+        storage.fill(pathDetailGraph, stored);
+
+        // the current snapshot differs from the stored exposure, e.g. because the storage was frozen for a preparation
+        builder = new PollutionGrid.Builder().setVersion(2);
+        builder.setValue(Pollutant.PM10, builder.addCell("all", 52.51, 13.34, 52.52, 13.352), 100);
+        PollutionGridProvider provider = PollutionGridProvider.of(builder.build());
+        PathDetailsBuilderFactory factory = new PathDetailsBuilderFactory().setPollutionGridProvider(provider);
+        PollutionWeighting weighting = new PollutionWeighting(encoder, new PMap().putObject(PollutionWeighting.POLLUTANTS, "pm10"),
+                TurnCostProvider.NO_TURN_COST_PROVIDER, provider);
+        weighting.setExposureStorage(storage);
+
+        Path p = new Dijkstra(pathDetailGraph, weighting, TraversalMode.NODE_BASED).calcPath(1, 5);
+        assertTrue(p.isFound());
+        String pm10 = ExposureDetails.getKey(Pollutant.PM10);
+        List<PathDetail> details = PathDetailsFromEdges.calcDetails(p, carManager, weighting, Arrays.asList(pm10), factory, 0).get(pm10);
+        // the weighting of a blocked area still uses the storage of the pollution weighting
+        List<PathDetail> blockedDetails = PathDetailsFromEdges.calcDetails(p, carManager,
+                new BlockAreaWeighting(weighting, new GraphEdgeIdFinder.BlockArea(pathDetailGraph)), Arrays.asList(pm10), factory, 0).get(pm10);
+        // other weightings use the storage of the factory
+        factory.setExposureStorage(storage);
+        List<PathDetail> shortestDetails = PathDetailsFromEdges.calcDetails(p, carManager, new ShortestWeighting(encoder),
+                Arrays.asList(pm10), factory, 0).get(pm10);
+        List<EdgeIteratorState> edges = p.calcEdges();
+        double weight = 0;
+        for (int i = 0; i < edges.size(); i++) {
+            double expected = stored.calcExposure(Pollutant.PM10, edges.get(i).fetchWayGeometry(FetchMode.ALL));
+            assertEquals(expected, (Double) details.get(i).getValue(), expected * 1e-6);
+            assertEquals(expected, (Double) blockedDetails.get(i).getValue(), expected * 1e-6);
+            assertEquals(expected, (Double) shortestDetails.get(i).getValue(), expected * 1e-6);
+            weight += (Double) details.get(i).getValue();
+        }
+        // the details match the weight of the route
+        assertEquals(p.getWeight(), weight, p.getWeight() * 1e-6);
+    }
+
+    @Test
+    public void testExposureDetailsOfVirtualEdgesFromStorage() {
+        PollutionGrid.Builder builder = new PollutionGrid.Builder().setVersion(1);
+        builder.setValue(Pollutant.PM10, builder.addCell("west", 52.51, 13.34, 52.52, 13.3485), 10);
+        builder.setValue(Pollutant.PM10, builder.addCell("east", 52.51, 13.3485, 52.52, 13.352), 20);
+        EdgeExposureStorage storage = new EdgeExposureStorage(new RAMDirectory()).create(1000);
+        storage.fill(pathDetailGraph, builder.build());
+
+        builder = new PollutionGrid.Builder().setVersion(2);
+        builder.setValue(Pollutant.PM10, builder.addCell("all", 52.51, 13.34, 52.52, 13.352), 100);
+        PollutionGridProvider provider = PollutionGridProvider.of(builder.build());
+        PathDetailsBuilderFactory factory = new PathDetailsBuilderFactory().setPollutionGridProvider(provider);
+        PollutionWeighting weighting = new PollutionWeighting(encoder, new PMap().putObject(PollutionWeighting.POLLUTANTS, "pm10"),
+                TurnCostProvider.NO_TURN_COST_PROVIDER, provider);
+        weighting.setExposureStorage(storage);
+
+        // the snapped point lies in the east cell, but the virtual edges keep the exposure per meter of edge 1-2
+        EdgeIteratorState edge12 = GHUtility.getEdge(pathDetailGraph, 1, 2);
+        QueryResult qr = new QueryResult(52.514, 13.3487);
+        qr.setClosestEdge(edge12);
+        qr.setWayIndex(0);
+        qr.setSnappedPosition(QueryResult.Position.EDGE);
+        qr.calcSnappedPoint(new DistanceCalcEarth());
+        QueryGraph queryGraph = QueryGraph.create(pathDetailGraph, qr);
+
+        Path p = new Dijkstra(queryGraph, queryGraph.wrapWeighting(weighting), TraversalMode.NODE_BASED).calcPath(qr.getClosestNode(), 5);
+        assertTrue(p.isFound());
+        String pm10 = ExposureDetails.getKey(Pollutant.PM10);
+        List<PathDetail> details = PathDetailsFromEdges.calcDetails(p, carManager, weighting, Arrays.asList(pm10), factory, 0).get(pm10);
+        List<EdgeIteratorState> edges = p.calcEdges();
+        assertEquals(edges.size(), details.size());
+        double expected = storage.getExposurePerMeter(edge12.getEdge(), Pollutant.PM10) * edges.get(0).getDistance();
+        assertEquals(expected, (Double) details.get(0).getValue(), expected * 1e-6);
+        double weight = 0;
+        for (PathDetail detail : details) {
+            weight += (Double) detail.getValue();
+        }
+        assertEquals(p.getWeight(), weight, p.getWeight() * 1e-6);
+    }
+
     /**
      * case with one edge being not an exit
      */
@@ -0,0 +1,139 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.GHRequest;
+import com.graphhopper.ResponsePath;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.util.CarFlagEncoder;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.FlagEncoder;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.storage.GraphBuilder;
+import com.graphhopper.storage.NodeAccess;
+import com.graphhopper.storage.RAMDirectory;
+import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.storage.index.QueryResult;
+import com.graphhopper.util.PointList;
+import com.graphhopper.util.details.PathDetail;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Jhon
+ */
+public class RouteCacheTest {
+
+    @Test
+    public void testLeastRecentlyUsedIsEvicted() {
+        RouteCache cache = new RouteCache(2);
+        cache.put("a", createPaths(1));
+        cache.put("b", createPaths(2));
+        assertEquals(1, cache.get("a").get(0).getDistance(), 1e-6);
+        // b is now the least recently used route
+        cache.put("c", createPaths(3));
+        assertEquals(2, cache.getSize());
+        assertNull(cache.get("b"));
+        assertEquals(1, cache.get("a").get(0).getDistance(), 1e-6);
+        assertEquals(3, cache.get("c").get(0).getDistance(), 1e-6);
+        assertEquals(3, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getEvictions());
+
+        cache.clear();
+        assertEquals(0, cache.getSize());
+        assertNull(cache.get("a"));
+    }
+
+    @Test
+    public void testPathsAreCopied() {
+        RouteCache cache = new RouteCache(2);
+        List<ResponsePath> paths = createPaths(1);
+        cache.put("a", paths);
+        // neither the response that was cached nor the responses of the hits change the cached route
+        paths.get(0).getPoints().set(0, 0, 0, Double.NaN);
+        paths.get(0).getPathDetails().get("distance").clear();
+        ResponsePath hit = cache.get("a").get(0);
+        assertNotSame(paths.get(0), hit);
+        hit.addDebugInfo("hit");
+        hit.getExposures().put("pm10", 100.0);
+        hit.setPointsOrder(Collections.singletonList(1));
+
+        ResponsePath path = cache.get("a").get(0);
+        assertEquals(1, path.getDistance(), 1e-6);
+        assertEquals(50.0, path.getPoints().getLat(0), 1e-6);
+        assertEquals(1, path.getPathDetails().get("distance").size());
+        assertEquals("", path.getDebugInfo());
+        assertEquals(5.0, path.getExposures().get("pm10"), 1e-6);
+        assertTrue(path.getPointsOrder().isEmpty());
+    }
+
+    private static List<ResponsePath> createPaths(double distance) {
+        PointList points = new PointList();
+        points.add(50.0, 10.0);
+        points.add(50.1, 10.1);
+        ResponsePath path = new ResponsePath().setDistance(distance).setPoints(points).addExposure("pm10", 5);
+        PathDetail detail = new PathDetail(distance);
+        detail.setFirst(0);
+        detail.setLast(1);
+        path.addPathDetails(Collections.singletonMap("distance", (List<PathDetail>) new ArrayList<>(Collections.singletonList(detail))));
+        return new ArrayList<>(Collections.singletonList(path));
+    }
+
+    @Test
+    public void testKeyUsesSnappedLocations() {
+        FlagEncoder encoder = new CarFlagEncoder();
+        EncodingManager em = EncodingManager.create(encoder);
+        Graph graph = new GraphBuilder(em).create();
+        NodeAccess na = graph.getNodeAccess();
+        na.setNode(0, 50.000, 10.000);
+        na.setNode(1, 50.000, 10.010);
+        na.setNode(2, 50.010, 10.010);
+        graph.edge(0, 1, 700, true).set(encoder.getAverageSpeedEnc(), 50);
+        graph.edge(1, 2, 1100, true).set(encoder.getAverageSpeedEnc(), 50);
+        LocationIndexTree index = new LocationIndexTree(graph, new RAMDirectory());
+        index.prepareIndex();
+
+        // different points around the ends of the road snap to the same nodes
+        String key1 = createKey(graph, index, new GHRequest(49.9999, 9.9999, 50.0101, 10.0101).setProfile("car"), 1);
+        String key2 = createKey(graph, index, new GHRequest(50.0001, 9.9998, 50.0102, 10.0099).setProfile("car"), 1);
+        assertEquals(key1, key2);
+        assertNotEquals(key1, createKey(graph, index, new GHRequest(49.9999, 9.9999, 50.0101, 10.0101).setProfile("car"), 2));
+        assertNotEquals(key1, createKey(graph, index, new GHRequest(49.9999, 9.9999, 50.0101, 10.0101).setProfile("bike"), 1));
+        GHRequest request = new GHRequest(49.9999, 9.9999, 50.0101, 10.0101).setProfile("car");
+        request.putHint("ch.disable", true);
+        assertNotEquals(key1, createKey(graph, index, request, 1));
+        // a point in the middle of an edge is identified by its snapped position
+        assertNotEquals(key1, createKey(graph, index, new GHRequest(50.0001, 10.005, 50.0101, 10.0101).setProfile("car"), 1));
+    }
+
+    private String createKey(Graph graph, LocationIndexTree index, GHRequest request, long version) {
+        QueryResult from = index.findClosest(request.getPoints().get(0).lat, request.getPoints().get(0).lon, EdgeFilter.ALL_EDGES);
+        QueryResult to = index.findClosest(request.getPoints().get(1).lat, request.getPoints().get(1).lon, EdgeFilter.ALL_EDGES);
+        List<QueryResult> queryResults = Arrays.asList(from, to);
+        QueryGraph.create(graph, queryResults);
+        return RouteCache.createKey(request, queryResults, version);
+    }
+}
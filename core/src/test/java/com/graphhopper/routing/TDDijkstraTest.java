@@ -0,0 +1,152 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.graphhopper.routing.pollution.Pollutant;
+import com.graphhopper.routing.pollution.PollutionForecast;
+import com.graphhopper.routing.pollution.PollutionGrid;
+import com.graphhopper.routing.pollution.PollutionGridProvider;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.FlagEncoder;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.PollutionWeighting;
+import com.graphhopper.routing.weighting.ShortestWeighting;
+import com.graphhopper.routing.weighting.TimeDependentPollutionWeighting;
+import com.graphhopper.storage.GraphBuilder;
+import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.storage.RAMDirectory;
+import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.storage.index.QueryResult;
+import com.graphhopper.util.PMap;
+import com.graphhopper.util.Parameters;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.graphhopper.routing.weighting.TurnCostProvider.NO_TURN_COST_PROVIDER;
+import static com.graphhopper.util.GHUtility.updateDistancesFor;
+import static org.junit.Assert.*;
+
+/**
+ * @author Jhon
+ */
+public class TDDijkstraTest {
+    private static final long HOUR = 3_600_000;
+    private final EncodingManager encodingManager = EncodingManager.create("foot");
+    private final FlagEncoder encoder = encodingManager.getEncoder("foot");
+    private GraphHopperStorage graph;
+
+    @Before
+    public void setUp() {
+        //    1
+        //   / \
+        //  0   3
+        //   \ /
+        //    2
+        graph = new GraphBuilder(encodingManager).create();
+        graph.edge(0, 1, 1, true);
+        graph.edge(1, 3, 1, true);
+        graph.edge(0, 2, 1, true);
+        graph.edge(2, 3, 1, true);
+        updateDistancesFor(graph, 0, 0, 0);
+        updateDistancesFor(graph, 1, 0.01, 0.005);
+        updateDistancesFor(graph, 2, -0.01, 0.005);
+        updateDistancesFor(graph, 3, 0, 0.01);
+    }
+
+    // the north is polluted in the morning and the south in the afternoon
+    private PollutionForecast createForecast() {
+        return new PollutionForecast.Builder()
+                .addLayer(8 * HOUR, createLayer(10, 1))
+                .addLayer(16 * HOUR, createLayer(1, 10))
+                .build();
+    }
+
+    private PollutionGrid createLayer(double north, double south) {
+        PollutionGrid.Builder builder = new PollutionGrid.Builder();
+        builder.setValue(Pollutant.CO, builder.addCell("north", 0, -0.01, 0.02, 0.02), north);
+        builder.setValue(Pollutant.CO, builder.addCell("south", -0.02, -0.01, 0, 0.02), south);
+        return builder.build();
+    }
+
+    private TimeDependentPollutionWeighting createWeighting(PollutionForecast forecast) {
+        return new TimeDependentPollutionWeighting(encoder, new PMap().putObject(PollutionWeighting.POLLUTANTS, "co"),
+                NO_TURN_COST_PROVIDER, PollutionGridProvider.of(forecast.getCells()), forecast);
+    }
+
+    private Path calcPath(long departureTime) {
+        return new TDDijkstra(graph, createWeighting(createForecast()), TraversalMode.NODE_BASED)
+                .setDepartureTime(departureTime).calcPath(0, 3);
+    }
+
+    @Test
+    public void testRouteDependsOnDepartureTime() {
+        assertEquals(IntArrayList.from(0, 2, 3), calcPath(9 * HOUR).calcNodes());
+        assertEquals(IntArrayList.from(0, 1, 3), calcPath(15 * HOUR).calcNodes());
+        // before the first and after the last layer the closest layer applies
+        assertEquals(IntArrayList.from(0, 2, 3), calcPath(0).calcNodes());
+        assertEquals(IntArrayList.from(0, 1, 3), calcPath(24 * HOUR).calcNodes());
+    }
+
+    @Test
+    public void testWeightIsInterpolated() {
+        Path path = calcPath(9 * HOUR);
+        assertTrue(path.isFound());
+        // the south has a value of 1 + 9/8 at 9:00 and increases while walking for about 16 minutes
+        double southValue = 1 + 9.0 / 8;
+        assertTrue(path.getWeight() > southValue * path.getDistance() * 0.99);
+        assertTrue(path.getWeight() < (southValue + 9.0 / 8 * 0.3) * path.getDistance());
+    }
+
+    @Test
+    public void testArrivalTime() {
+        TDDijkstra dijkstra = new TDDijkstra(graph, createWeighting(createForecast()), TraversalMode.NODE_BASED);
+        dijkstra.setDepartureTime(9 * HOUR);
+        Path path = dijkstra.calcPath(0, 3);
+        assertEquals(9 * HOUR + path.getTime(), dijkstra.getArrivalTime(), 10);
+    }
+
+    @Test
+    public void testQueryGraph() {
+        LocationIndexTree index = new LocationIndexTree(graph, new RAMDirectory());
+        index.prepareIndex();
+        // close to 0 on the northern edge and close to 3 on the southern edge
+        QueryResult from = index.findClosest(0.001, 0.0005, EdgeFilter.ALL_EDGES);
+        QueryResult to = index.findClosest(-0.001, 0.0095, EdgeFilter.ALL_EDGES);
+        QueryGraph queryGraph = QueryGraph.create(graph, from, to);
+        AlgorithmOptions opts = AlgorithmOptions.start().algorithm(Parameters.Algorithms.TD_DIJKSTRA)
+                .traversalMode(TraversalMode.NODE_BASED).weighting(createWeighting(createForecast())).build();
+
+        opts.getHints().putObject(Parameters.Algorithms.TimeDependent.DEPARTURE_TIME, 9 * HOUR);
+        RoutingAlgorithm algo = new RoutingAlgorithmFactorySimple().createAlgo(queryGraph, opts);
+        Path path = algo.calcPath(from.getClosestNode(), to.getClosestNode());
+        assertEquals(IntArrayList.from(4, 0, 2, 5), path.calcNodes());
+
+        opts.getHints().putObject(Parameters.Algorithms.TimeDependent.DEPARTURE_TIME, 15 * HOUR);
+        algo = new RoutingAlgorithmFactorySimple().createAlgo(queryGraph, opts);
+        path = algo.calcPath(from.getClosestNode(), to.getClosestNode());
+        assertEquals(IntArrayList.from(4, 1, 3, 5), path.calcNodes());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWithoutTimeDependentWeighting() {
+        new TDDijkstra(graph, new ShortestWeighting(encoder), TraversalMode.NODE_BASED);
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.carrotsearch.hppc.DoubleArrayList;
+import com.graphhopper.routing.AlgorithmOptions;
+import com.graphhopper.routing.Dijkstra;
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.RoutingAlgorithm;
+import com.graphhopper.routing.util.AllCHEdgesIterator;
+import com.graphhopper.routing.util.AllEdgesIterator;
+import com.graphhopper.routing.util.CarFlagEncoder;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.FastestWeighting;
+import com.graphhopper.storage.CHConfig;
+import com.graphhopper.storage.CHGraph;
+import com.graphhopper.storage.GraphBuilder;
+import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.util.GHUtility;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Jhon
+ */
+public class CHCustomizerTest {
+    private static final int SIZE = 15;
+    private final CarFlagEncoder encoder = new CarFlagEncoder();
+    private final EncodingManager em = EncodingManager.create(encoder);
+    private final CHConfig chConfig = CHConfig.nodeBased("c", new FastestWeighting(encoder));
+
+    private GraphHopperStorage createLattice(Random rnd) {
+        GraphHopperStorage graph = new GraphBuilder(em).setCHConfigs(chConfig).create();
+        for (int row = 0; row < SIZE; row++) {
+            for (int col = 0; col < SIZE; col++) {
+                // the coordinates are shifted randomly, so that different paths have different weights
+                graph.getNodeAccess().setNode(row * SIZE + col, 49.4 + row * 0.001 + rnd.nextDouble() * 0.0003,
+                        9.7 + col * 0.001 + rnd.nextDouble() * 0.0003);
+            }
+        }
+        for (int row = 0; row < SIZE; row++) {
+            for (int col = 0; col < SIZE; col++) {
+                int node = row * SIZE + col;
+                if (col + 1 < SIZE)
+                    addEdge(graph, rnd, node, node + 1);
+                if (row + 1 < SIZE)
+                    addEdge(graph, rnd, node, node + SIZE);
+            }
+        }
+        graph.freeze();
+        return graph;
+    }
+
+    private void addEdge(GraphHopperStorage graph, Random rnd, int from, int to) {
+        // every tenth edge is a one-way street
+        boolean bothDir = rnd.nextInt(10) > 0;
+        GHUtility.setProperties(graph.edge(from, to).setDistance(GHUtility.getDistance(from, to, graph.getNodeAccess())),
+                encoder, 10 + rnd.nextInt(100), true, bothDir);
+    }
+
+    private void changeSpeeds(GraphHopperStorage graph, Random rnd) {
+        AllEdgesIterator iter = graph.getAllEdges();
+        while (iter.next()) {
+            iter.set(encoder.getAverageSpeedEnc(), 10 + rnd.nextInt(100));
+        }
+    }
+
+    private void checkQueries(GraphHopperStorage graph, PrepareContractionHierarchies pch, Random rnd, String msg) {
+        CHGraph chGraph = graph.getCHGraph(chConfig);
+        for (int i = 0; i < 100; i++) {
+            int from = rnd.nextInt(SIZE * SIZE);
+            int to = rnd.nextInt(SIZE * SIZE);
+            Path dijkstraPath = new Dijkstra(graph, chConfig.getWeighting(), TraversalMode.NODE_BASED).calcPath(from, to);
+            RoutingAlgorithm chAlgo = pch.getRoutingAlgorithmFactory().createAlgo(chGraph,
+                    AlgorithmOptions.start().weighting(chConfig.getWeighting()).build());
+            Path chPath = chAlgo.calcPath(from, to);
+            assertEquals(msg + ", " + from + "->" + to, dijkstraPath.isFound(), chPath.isFound());
+            assertEquals(msg + ", " + from + "->" + to, dijkstraPath.getWeight(), chPath.getWeight(), 1.e-1);
+            // the unpacked path has to follow the new skipped edges
+            assertEquals(msg + ", " + from + "->" + to, dijkstraPath.calcNodes(), chPath.calcNodes());
+            assertEquals(msg + ", " + from + "->" + to, dijkstraPath.getDistance(), chPath.getDistance(), 1.e-3);
+        }
+    }
+
+    private DoubleArrayList getShortcutWeights(GraphHopperStorage graph) {
+        DoubleArrayList weights = new DoubleArrayList();
+        AllCHEdgesIterator iter = graph.getCHGraph(chConfig).getAllEdges();
+        while (iter.next()) {
+            if (iter.isShortcut())
+                weights.add(iter.getWeight());
+        }
+        return weights;
+    }
+
+    @Test
+    public void testCustomize() {
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        GraphHopperStorage graph = createLattice(rnd);
+        PrepareContractionHierarchies pch = PrepareContractionHierarchies.fromGraphHopperStorage(graph, chConfig)
+                .setMetricIndependent(true);
+        pch.doWork();
+        checkQueries(graph, pch, rnd, "seed: " + seed);
+
+        int shortcuts = graph.getCHGraph(chConfig).getEdges();
+        DoubleArrayList shortcutWeights = getShortcutWeights(graph);
+        for (int i = 0; i < 3; i++) {
+            changeSpeeds(graph, rnd);
+            CHCustomizer customizer = new CHCustomizer(graph.getCHGraph(chConfig), chConfig.getWeighting()).calcWeights();
+            // the graph is only changed when the weights are applied
+            assertEquals("seed: " + seed, shortcutWeights, getShortcutWeights(graph));
+            customizer.apply();
+            shortcutWeights = getShortcutWeights(graph);
+            assertEquals("the shortcuts must not change, seed: " + seed, shortcuts, graph.getCHGraph(chConfig).getEdges());
+            checkQueries(graph, pch, rnd, "seed: " + seed + ", customization: " + i);
+        }
+    }
+}
@@ -1053,6 +1053,20 @@ public class CHTurnCostTest {
         compareWithDijkstraOnRandomGraph_heuristic(seed);
     }
 
+    @Repeat(times = 10)
+    @Test
+    public void testFindPath_heuristic_compareWithDijkstra_compactShortcuts() {
+        long seed = System.nanoTime();
+        LOGGER.info("Seed for testFindPath_heuristic_compareWithDijkstra_compactShortcuts: {}", seed);
+        // the compaction is chosen per CH config, so we need a graph with such a config
+        graph = new GraphBuilder(encodingManager).build();
+        turnCostStorage = graph.getTurnCostStorage();
+        chConfig = new CHConfig("compact", new ShortestWeighting(encoder, new DefaultTurnCostProvider(encoder, turnCostStorage, 50)), true, true);
+        graph.addCHGraph(chConfig).create(1000);
+        compareWithDijkstraOnRandomGraph_heuristic(seed);
+        assertTrue(((CHGraphImpl) chGraph).isCompacted());
+    }
+
     private void compareWithDijkstraOnRandomGraph_heuristic(long seed) {
         GHUtility.buildRandomGraph(graph, new Random(seed), 20, 3.0, true, true, encoder.getAverageSpeedEnc(), 0.7, 0.9, 0.8);
         GHUtility.addRandomTurnCosts(graph, seed, encodingManager, encoder, maxCost, turnCostStorage);
@@ -25,6 +25,7 @@ import com.graphhopper.routing.Path;
 import com.graphhopper.routing.RoutingAlgorithm;
 import com.graphhopper.routing.querygraph.QueryGraph;
 import com.graphhopper.routing.util.*;
+import com.graphhopper.routing.weighting.DefaultTurnCostProvider;
 import com.graphhopper.routing.weighting.FastestWeighting;
 import com.graphhopper.routing.weighting.ShortestWeighting;
 import com.graphhopper.routing.weighting.Weighting;
@@ -666,6 +667,141 @@ public class PrepareContractionHierarchiesTest {
         assertTrue("reusing node ordering should speed up ch contraction", timeMotorCycle < 0.5 * timeCar);
     }
 
+    @Test
+    public void testParallelContraction() {
+        FastestWeighting weighting = new FastestWeighting(carEncoder);
+        CHConfig twoThreads = CHConfig.nodeBased("two_threads", weighting);
+        CHConfig fourThreads = CHConfig.nodeBased("four_threads", weighting);
+        GraphHopperStorage ghStorage = new GraphBuilder(encodingManager).setCHConfigs(twoThreads, fourThreads).create();
+        int numNodes = 2_000;
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        GHUtility.buildRandomGraph(ghStorage, rnd, numNodes, 1.3, true, true, carEncoder.getAverageSpeedEnc(), 0.7, 0.9, 0.8);
+        ghStorage.freeze();
+
+        PrepareContractionHierarchies twoPch = PrepareContractionHierarchies.fromGraphHopperStorage(ghStorage, twoThreads).
+                setContractionThreads(2, true);
+        twoPch.doWork();
+        PrepareContractionHierarchies fourPch = PrepareContractionHierarchies.fromGraphHopperStorage(ghStorage, fourThreads).
+                setContractionThreads(4, true);
+        fourPch.doWork();
+        assertTrue(fourPch.getRounds() > 1);
+        assertTrue(fourPch.getRounds() < numNodes);
+
+        // the deterministic contraction does not depend on the number of threads
+        CHGraph twoCH = ghStorage.getCHGraph(twoThreads);
+        CHGraph fourCH = ghStorage.getCHGraph(fourThreads);
+        assertEquals(twoPch.getRounds(), fourPch.getRounds());
+        assertEquals(twoPch.getShortcuts(), fourPch.getShortcuts());
+        for (int node = 0; node < numNodes; node++) {
+            assertEquals(twoCH.getLevel(node), fourCH.getLevel(node));
+        }
+
+        for (int i = 0; i < 100; ++i) {
+            Dijkstra dijkstra = new Dijkstra(ghStorage, weighting, TraversalMode.NODE_BASED);
+            RoutingAlgorithm chAlgo = fourPch.getRoutingAlgorithmFactory().createAlgo(fourCH, AlgorithmOptions.start().weighting(weighting).build());
+            int from = rnd.nextInt(numNodes);
+            int to = rnd.nextInt(numNodes);
+            assertEquals("seed: " + seed, dijkstra.calcPath(from, to).getWeight(), chAlgo.calcPath(from, to).getWeight(), 1.e-1);
+        }
+    }
+
+    @Test
+    public void testParallelContractionNotDeterministic() {
+        GraphHopperStorage ghStorage = new GraphBuilder(encodingManager).setCHConfigs(chConfig).create();
+        int numNodes = 1_000;
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        GHUtility.buildRandomGraph(ghStorage, rnd, numNodes, 1.3, true, true, carEncoder.getAverageSpeedEnc(), 0.7, 0.9, 0.8);
+        ghStorage.freeze();
+        PrepareContractionHierarchies pch = PrepareContractionHierarchies.fromGraphHopperStorage(ghStorage, chConfig).
+                setContractionThreads(3, false);
+        pch.doWork();
+        CHGraph chGraph = ghStorage.getCHGraph(chConfig);
+        for (int i = 0; i < 100; ++i) {
+            Dijkstra dijkstra = new Dijkstra(ghStorage, weighting, TraversalMode.NODE_BASED);
+            RoutingAlgorithm chAlgo = pch.getRoutingAlgorithmFactory().createAlgo(chGraph, AlgorithmOptions.start().weighting(weighting).build());
+            int from = rnd.nextInt(numNodes);
+            int to = rnd.nextInt(numNodes);
+            assertEquals("seed: " + seed, dijkstra.calcPath(from, to).getWeight(), chAlgo.calcPath(from, to).getWeight(), 1.e-6);
+        }
+    }
+
+    @Test
+    public void testCompactShortcuts() {
+        FastestWeighting weighting = new FastestWeighting(carEncoder);
+        CHConfig plain = CHConfig.nodeBased("plain", weighting);
+        CHConfig compact = new CHConfig("compact", weighting, false, true);
+        GraphHopperStorage ghStorage = new GraphBuilder(encodingManager).setCHConfigs(plain, compact).create();
+        int numNodes = 2_000;
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        GHUtility.buildRandomGraph(ghStorage, rnd, numNodes, 1.3, true, true, carEncoder.getAverageSpeedEnc(), 0.7, 0.9, 0.8);
+        ghStorage.freeze();
+
+        PrepareContractionHierarchies plainPch = PrepareContractionHierarchies.fromGraphHopperStorage(ghStorage, plain);
+        plainPch.doWork();
+        PrepareContractionHierarchies compactPch = PrepareContractionHierarchies.fromGraphHopperStorage(ghStorage, compact);
+        compactPch.doWork();
+        CHGraphImpl plainCH = (CHGraphImpl) ghStorage.getCHGraph(plain);
+        CHGraphImpl compactCH = (CHGraphImpl) ghStorage.getCHGraph(compact);
+        assertFalse(plainCH.isCompacted());
+        assertTrue(compactCH.isCompacted());
+        assertEquals(plainCH.getEdges(), compactCH.getEdges());
+
+        for (int i = 0; i < 100; ++i) {
+            Dijkstra dijkstra = new Dijkstra(ghStorage, weighting, TraversalMode.NODE_BASED);
+            RoutingAlgorithm chAlgo = compactPch.getRoutingAlgorithmFactory().createAlgo(compactCH, AlgorithmOptions.start().weighting(weighting).build());
+            int from = rnd.nextInt(numNodes);
+            int to = rnd.nextInt(numNodes);
+            Path path = chAlgo.calcPath(from, to);
+            assertEquals("seed: " + seed, dijkstra.calcPath(from, to).getWeight(), path.getWeight(), 1.e-1);
+        }
+    }
+
+    @Test
+    public void testCompactShortcutsWithQuantizedWeights() {
+        FastestWeighting weighting = new FastestWeighting(carEncoder);
+        CHConfig quantized = new CHConfig("quantized", weighting, false, true, true);
+        GraphHopperStorage ghStorage = new GraphBuilder(encodingManager).setCHConfigs(quantized).create();
+        int numNodes = 2_000;
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        GHUtility.buildRandomGraph(ghStorage, rnd, numNodes, 1.3, true, true, carEncoder.getAverageSpeedEnc(), 0.7, 0.9, 0.8);
+        ghStorage.freeze();
+
+        PrepareContractionHierarchies pch = PrepareContractionHierarchies.fromGraphHopperStorage(ghStorage, quantized);
+        pch.doWork();
+        CHGraphImpl chGraph = (CHGraphImpl) ghStorage.getCHGraph(quantized);
+        assertTrue(chGraph.isCompacted());
+
+        for (int i = 0; i < 100; ++i) {
+            Dijkstra dijkstra = new Dijkstra(ghStorage, weighting, TraversalMode.NODE_BASED);
+            RoutingAlgorithm chAlgo = pch.getRoutingAlgorithmFactory().createAlgo(chGraph, AlgorithmOptions.start().weighting(weighting).build());
+            int from = rnd.nextInt(numNodes);
+            int to = rnd.nextInt(numNodes);
+            double weight = dijkstra.calcPath(from, to).getWeight();
+            Path path = chAlgo.calcPath(from, to);
+            // the shortcut weights are rounded up by at most 0.05%, the weights of the original edges are exact
+            assertTrue("seed: " + seed + ", " + path.getWeight() + " < " + weight, path.getWeight() >= weight - 1.e-1);
+            assertTrue("seed: " + seed + ", " + path.getWeight() + " > " + weight, path.getWeight() <= weight * 1.0005 + 1.e-1);
+        }
+    }
+
+    @Test
+    public void testParallelContractionNotSupportedForEdgeBased() {
+        CarFlagEncoder encoder = new CarFlagEncoder(5, 5, 10);
+        GraphHopperStorage ghStorage = new GraphBuilder(EncodingManager.create(encoder)).build();
+        CHConfig edgeConfig = CHConfig.edgeBased("edge", new ShortestWeighting(encoder, new DefaultTurnCostProvider(encoder, ghStorage.getTurnCostStorage())));
+        ghStorage.addCHGraph(edgeConfig).create(1000);
+        try {
+            PrepareContractionHierarchies.fromGraphHopperStorage(ghStorage, edgeConfig).setContractionThreads(2, true);
+            fail("edge-based CH cannot be contracted in parallel");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+    }
+
     private void checkPath(GraphHopperStorage g, CHConfig c, int expShortcuts, double expDistance, IntIndexedContainer expNodes) {
         CHGraph lg = g.getCHGraph(c);
         PrepareContractionHierarchies prepare = createPrepareContractionHierarchies(g, c);
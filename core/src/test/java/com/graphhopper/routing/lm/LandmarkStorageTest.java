@@ -26,10 +26,7 @@ import com.graphhopper.routing.util.spatialrules.SpatialRule;
 import com.graphhopper.routing.util.spatialrules.SpatialRuleLookup;
 import com.graphhopper.routing.util.spatialrules.SpatialRuleSet;
 import com.graphhopper.routing.weighting.FastestWeighting;
-import com.graphhopper.storage.DataAccess;
-import com.graphhopper.storage.Directory;
-import com.graphhopper.storage.GraphHopperStorage;
-import com.graphhopper.storage.RAMDirectory;
+import com.graphhopper.storage.*;
 import com.graphhopper.util.EdgeIteratorState;
 import com.graphhopper.util.GHUtility;
 import org.junit.After;
@@ -41,6 +38,7 @@ import org.locationtech.jts.geom.Polygon;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 
 import static org.junit.Assert.*;
 
@@ -184,6 +182,33 @@ public class LandmarkStorageTest {
         assertEquals("[1, 0]", Arrays.toString(storage.getLandmarks(1)));
     }
 
+    @Test
+    public void testConcurrentExplorations() {
+        long seed = System.nanoTime();
+        GHUtility.buildRandomGraph(ghStorage, new Random(seed), 500, 2.2, true, true, encoder.getAverageSpeedEnc(), 0.7, 0.8, 0.8);
+        LMConfig lmConfig = new LMConfig("c", new FastestWeighting(encoder));
+        LandmarkStorage serial = new LandmarkStorage(ghStorage, new RAMDirectory(), lmConfig, 16);
+        serial.setMinimumNodes(50);
+        serial.createLandmarks();
+        // the int based storage would lose weights if two threads wrote into the same int
+        for (DAType type : Arrays.asList(DAType.RAM, DAType.RAM_INT)) {
+            LandmarkStorage concurrent = new LandmarkStorage(ghStorage, new GHDirectory("", type), lmConfig, 16).
+                    setExplorationThreads(4);
+            concurrent.setMinimumNodes(50);
+            concurrent.createLandmarks();
+            assertEquals(serial.getSubnetworksWithLandmarks(), concurrent.getSubnetworksWithLandmarks());
+            for (int subnetwork = 1; subnetwork < serial.getSubnetworksWithLandmarks(); subnetwork++) {
+                assertEquals(Arrays.toString(serial.getLandmarks(subnetwork)), Arrays.toString(concurrent.getLandmarks(subnetwork)));
+            }
+            for (int node = 0; node < ghStorage.getNodes(); node++) {
+                for (int lm = 0; lm < 16; lm++) {
+                    assertEquals("seed: " + seed, serial.getFromWeight(lm, node), concurrent.getFromWeight(lm, node));
+                    assertEquals("seed: " + seed, serial.getToWeight(lm, node), concurrent.getToWeight(lm, node));
+                }
+            }
+        }
+    }
+
     @Test
     public void testWithBorderBlocking() {
         RoutingAlgorithmTest.initBiGraph(ghStorage);
@@ -0,0 +1,207 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.pollution;
+
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.FlagEncoder;
+import com.graphhopper.routing.weighting.BlockAreaWeighting;
+import com.graphhopper.routing.weighting.PollutionWeighting;
+import com.graphhopper.routing.weighting.QueryGraphWeighting;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.GraphBuilder;
+import com.graphhopper.storage.GraphEdgeIdFinder;
+import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.storage.RAMDirectory;
+import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.storage.index.QueryResult;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.FetchMode;
+import com.graphhopper.util.GHUtility;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.PMap;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+
+import static com.graphhopper.util.GHUtility.updateDistancesFor;
+import static org.junit.Assert.*;
+
+/**
+ * @author Jhon
+ */
+public class EdgeExposureStorageTest {
+    private static final String DIR = "./target/exposure-test";
+    private FlagEncoder encoder;
+    private GraphHopperStorage graph;
+
+    @Before
+    public void setUp() {
+        Helper.removeDir(new File(DIR));
+        EncodingManager encodingManager = EncodingManager.create("foot");
+        encoder = encodingManager.getEncoder("foot");
+        graph = new GraphBuilder(encodingManager).create();
+        // 0-1-2
+        graph.edge(0, 1, 1, true);
+        graph.edge(1, 2, 1, true);
+        updateDistancesFor(graph, 0, 0.000, 0.000);
+        updateDistancesFor(graph, 1, 0.000, 0.010);
+        updateDistancesFor(graph, 2, 0.000, 0.020);
+    }
+
+    @After
+    public void tearDown() {
+        Helper.removeDir(new File(DIR));
+    }
+
+    private PollutionGrid createGrid(long version, double coValue) {
+        PollutionGrid.Builder builder = new PollutionGrid.Builder().setVersion(version);
+        int cell = builder.addCell("00_00", -0.005, -0.005, 0.005, 0.015);
+        builder.setValue(Pollutant.CO, cell, coValue);
+        builder.setValue(Pollutant.PM10, cell, 4);
+        return builder.build();
+    }
+
+    @Test
+    public void testFill() {
+        EdgeExposureStorage storage = new EdgeExposureStorage(new RAMDirectory()).create(100);
+        assertEquals(0, storage.getEdges());
+        assertEquals(-1, storage.getVersion());
+
+        PollutionGrid grid = createGrid(5, 2);
+        storage.fill(graph, grid);
+        assertEquals(2, storage.getEdges());
+        assertEquals(5, storage.getVersion());
+        for (int edge = 0; edge < 2; edge++) {
+            EdgeIteratorState state = graph.getEdgeIteratorState(edge, Integer.MIN_VALUE);
+            for (Pollutant pollutant : Pollutant.values()) {
+                assertEquals(grid.calcExposure(pollutant, state.fetchWayGeometry(FetchMode.ALL)),
+                        storage.getExposurePerMeter(edge, pollutant) * state.getDistance(), 0.1);
+            }
+        }
+        // the second edge is only half covered
+        assertEquals(1, storage.getExposurePerMeter(1, Pollutant.CO), 1e-4);
+        assertEquals(2, storage.getExposurePerMeter(1, Pollutant.PM10), 1e-4);
+        assertEquals(0, storage.getExposurePerMeter(1, Pollutant.SO2), 1e-8);
+    }
+
+    @Test
+    public void testStore() {
+        EdgeExposureStorage storage = new EdgeExposureStorage(new RAMDirectory(DIR, true).create()).create(100);
+        storage.fill(graph, createGrid(Long.MAX_VALUE - 1, 2));
+        storage.flush();
+        storage.close();
+
+        storage = new EdgeExposureStorage(new RAMDirectory(DIR, true).create());
+        assertTrue(storage.loadExisting());
+        assertEquals(2, storage.getEdges());
+        assertEquals(Long.MAX_VALUE - 1, storage.getVersion());
+        assertEquals(2, storage.getExposurePerMeter(0, Pollutant.CO), 1e-4);
+        storage.close();
+    }
+
+    @Test
+    public void testRefillUsesSecondBuffer() {
+        EdgeExposureStorage storage = new EdgeExposureStorage(new RAMDirectory(DIR, true).create()).create(100);
+        storage.fill(graph, createGrid(1, 2));
+        long capacity = storage.getCapacity();
+        // the new snapshot is written to a second buffer, the queries keep reading the first one meanwhile
+        storage.fill(graph, createGrid(2, 3));
+        assertEquals(2, storage.getVersion());
+        assertEquals(3, storage.getExposurePerMeter(0, Pollutant.CO), 1e-4);
+        assertEquals(2 * capacity, storage.getCapacity());
+        storage.flush();
+        // the third snapshot re-uses the first buffer
+        storage.fill(graph, createGrid(3, 4));
+        assertEquals(3, storage.getVersion());
+        assertEquals(4, storage.getExposurePerMeter(0, Pollutant.CO), 1e-4);
+        assertEquals(2 * capacity, storage.getCapacity());
+        storage.close();
+
+        // only the second buffer was stored
+        storage = new EdgeExposureStorage(new RAMDirectory(DIR, true).create());
+        assertTrue(storage.loadExisting());
+        assertEquals(2, storage.getVersion());
+        assertEquals(3, storage.getExposurePerMeter(0, Pollutant.CO), 1e-4);
+        storage.fill(graph, createGrid(4, 5));
+        storage.flush();
+        storage.close();
+
+        // the latest of both stored buffers is loaded
+        storage = new EdgeExposureStorage(new RAMDirectory(DIR, true).create());
+        assertTrue(storage.loadExisting());
+        assertEquals(4, storage.getVersion());
+        assertEquals(5, storage.getExposurePerMeter(0, Pollutant.CO), 1e-4);
+        storage.close();
+    }
+
+    @Test
+    public void testWeightingUsesStorage() {
+        EdgeExposureStorage storage = new EdgeExposureStorage(new RAMDirectory()).create(100);
+        final PollutionGridProvider provider = PollutionGridProvider.of(createGrid(1, 2));
+        storage.fill(graph, provider.get());
+        Weighting weighting = new PollutionWeighting(encoder, new PMap().putObject(PollutionWeighting.POLLUTANTS, "co"), provider).
+                setExposureStorage(storage);
+        EdgeIteratorState edge = GHUtility.getEdge(graph, 0, 1);
+        assertEquals(2 * edge.getDistance(), weighting.calcEdgeWeight(edge, false), 0.1);
+
+        // the stored values are used until the storage is refilled from the new snapshot
+        provider.publish(createGrid(2, 3));
+        assertEquals(2 * edge.getDistance(), weighting.calcEdgeWeight(edge, false), 0.1);
+        storage.fill(graph, provider.get());
+        assertEquals(3 * edge.getDistance(), weighting.calcEdgeWeight(edge, false), 0.1);
+    }
+
+    @Test
+    public void testVirtualEdgesUseStoredExposure() {
+        // the location index needs bounds with a non-zero height
+        graph.edge(2, 3, 1, true);
+        updateDistancesFor(graph, 3, 0.010, 0.020);
+        EdgeExposureStorage storage = new EdgeExposureStorage(new RAMDirectory()).create(100);
+        storage.fill(graph, createGrid(1, 2));
+        // the current snapshot differs from the stored exposure, so we can tell which of them is used
+        PollutionGridProvider provider = PollutionGridProvider.of(createGrid(2, 6));
+        PollutionWeighting weighting = new PollutionWeighting(encoder, new PMap().putObject(PollutionWeighting.POLLUTANTS, "co"), provider);
+        assertFalse(weighting.dependsOnOriginalEdge());
+        weighting.setExposureStorage(storage);
+        assertTrue(weighting.dependsOnOriginalEdge());
+
+        LocationIndexTree index = new LocationIndexTree(graph, new RAMDirectory());
+        index.prepareIndex();
+        QueryResult qr = index.findClosest(0.0001, 0.013, EdgeFilter.ALL_EDGES);
+        QueryGraph queryGraph = QueryGraph.create(graph, qr);
+        // the virtual edges split edge 1-2 and use its stored exposure per meter, also if the weighting is wrapped
+        Weighting blockAreaWeighting = new BlockAreaWeighting(weighting, new GraphEdgeIdFinder.BlockArea(graph));
+        assertTrue(QueryGraphWeighting.dependsOnOriginalEdge(blockAreaWeighting));
+        for (Weighting w : new Weighting[]{weighting, blockAreaWeighting}) {
+            Weighting queryGraphWeighting = queryGraph.wrapWeighting(w);
+            EdgeIterator iter = queryGraph.createEdgeExplorer().setBaseNode(qr.getClosestNode());
+            int virtualEdges = 0;
+            while (iter.next()) {
+                assertEquals(w.getName(), storage.getExposurePerMeter(1, Pollutant.CO) * iter.getDistance(),
+                        queryGraphWeighting.calcEdgeWeight(iter, false), 1e-3);
+                virtualEdges++;
+            }
+            assertEquals(2, virtualEdges);
+        }
+    }
+}
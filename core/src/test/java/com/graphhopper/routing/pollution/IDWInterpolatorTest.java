@@ -0,0 +1,128 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.pollution;
+
+import com.graphhopper.util.DistanceCalc;
+import com.graphhopper.util.Helper;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Jhon
+ */
+public class IDWInterpolatorTest {
+    private static final double SIZE = 0.001;
+
+    // a row of 20 cells with a width of about 110m along the equator
+    private PollutionGrid createGrid() {
+        PollutionGrid.Builder builder = new PollutionGrid.Builder().setVersion(1);
+        for (int i = 0; i < 20; i++) {
+            int cell = builder.addCell("c" + i, 0, i * SIZE, SIZE, (i + 1) * SIZE);
+            builder.setValue(Pollutant.CO, cell, 7);
+        }
+        return builder.build();
+    }
+
+    private double centerLon(int cell) {
+        return (cell + 0.5) * SIZE;
+    }
+
+    @Test
+    public void testSingleSensor() {
+        PollutionGrid base = createGrid();
+        IDWInterpolator interpolator = new IDWInterpolator(base, 300, 2);
+        // a single sensor determines the value of all cells in range
+        assertEquals(5, interpolator.add(new SensorReading("s1", SIZE / 2, centerLon(5), Pollutant.CO, 10, 1)));
+        PollutionGrid grid = interpolator.createSnapshot(2);
+        assertEquals(2, grid.getVersion());
+        for (int cell = 0; cell < 20; cell++) {
+            assertEquals("cell " + cell, cell >= 3 && cell <= 7 ? 10 : 7, grid.getValue(Pollutant.CO, cell), 1e-4);
+            assertTrue(Double.isNaN(grid.getValue(Pollutant.NO2, cell)));
+        }
+        // the base snapshot and the snapshot are independent
+        assertEquals(7, base.getValue(Pollutant.CO, 5), 0);
+        assertEquals("c5", grid.getCellId(5));
+    }
+
+    @Test
+    public void testIncrementalEqualsFullInterpolation() {
+        PollutionGrid base = createGrid();
+        DistanceCalc distCalc = Helper.DIST_EARTH;
+        Random random = new Random(1);
+        double[] sensorLons = new double[5];
+        double[] sensorValues = new double[5];
+        for (int s = 0; s < sensorLons.length; s++) {
+            sensorLons[s] = random.nextDouble() * 20 * SIZE;
+        }
+        IDWInterpolator interpolator = new IDWInterpolator(base, 500, 2);
+        for (int time = 0; time < 50; time++) {
+            int s = random.nextInt(sensorLons.length);
+            sensorValues[s] = random.nextDouble() * 100;
+            interpolator.add(new SensorReading("s" + s, SIZE / 2, sensorLons[s], Pollutant.PM10, sensorValues[s], time));
+        }
+        PollutionGrid grid = interpolator.createSnapshot(2);
+        for (int cell = 0; cell < 20; cell++) {
+            double weightedValues = 0, weights = 0;
+            for (int s = 0; s < sensorLons.length; s++) {
+                double distance = distCalc.calcDist(SIZE / 2, sensorLons[s], SIZE / 2, centerLon(cell));
+                if (sensorValues[s] == 0 || distance > 500)
+                    continue;
+                double weight = 1 / Math.pow(Math.max(1, distance), 2);
+                weightedValues += weight * sensorValues[s];
+                weights += weight;
+            }
+            if (weights == 0)
+                assertTrue(Double.isNaN(grid.getValue(Pollutant.PM10, cell)));
+            else
+                assertEquals("cell " + cell, weightedValues / weights, grid.getValue(Pollutant.PM10, cell), 1e-3);
+        }
+    }
+
+    @Test
+    public void testOutdatedReadingsAreIgnored() {
+        IDWInterpolator interpolator = new IDWInterpolator(createGrid(), 100, 2);
+        interpolator.add(new SensorReading("s1", SIZE / 2, centerLon(5), Pollutant.CO, 10, 100));
+        assertEquals(0, interpolator.add(new SensorReading("s1", SIZE / 2, centerLon(5), Pollutant.CO, 20, 99)));
+        assertEquals(0, interpolator.add(new SensorReading("s1", SIZE / 2, centerLon(5), Pollutant.CO, 10, 101)));
+        assertEquals(1, interpolator.getChangedValues());
+        assertEquals(10, interpolator.createSnapshot(2).getValue(Pollutant.CO, 5), 1e-6);
+        assertEquals(0, interpolator.getChangedValues());
+    }
+
+    @Test
+    public void testSensorFeed() {
+        PollutionGridProvider provider = PollutionGridProvider.of(createGrid());
+        SensorFeed feed = new SensorFeed(provider, 100, 2, 3_600_000);
+        // the first reading is published right away
+        feed.accept(new SensorReading("s1", SIZE / 2, centerLon(5), Pollutant.CO, 10, 1));
+        PollutionGrid first = provider.get();
+        assertTrue(first.getVersion() > 1);
+        assertEquals(10, first.getValue(Pollutant.CO, 5), 1e-6);
+
+        // later readings wait for the interval or an explicit publish
+        feed.accept(new SensorReading("s1", SIZE / 2, centerLon(5), Pollutant.CO, 12, 2));
+        assertSame(first, provider.get());
+        assertTrue(feed.publish());
+        assertEquals(12, provider.get().getValue(Pollutant.CO, 5), 1e-6);
+        assertTrue(provider.get().getVersion() > first.getVersion());
+        assertFalse(feed.publish());
+    }
+}
@@ -0,0 +1,263 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.pollution;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.*;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs the loader against a small in-memory stand-in for the sensor database, which answers the queries of the
+ * loader and counts the connections, statements and queries.
+ *
+ * @author Jhon
+ */
+public class JdbcPollutionGridLoaderTest {
+    private static final String URL = "jdbc:stub:sensors";
+    private final StubDatabase database = new StubDatabase();
+
+    @Before
+    public void setUp() throws SQLException {
+        DriverManager.registerDriver(database);
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        DriverManager.deregisterDriver(database);
+    }
+
+    private void addCells(int count) {
+        for (int i = 0; i < count; i++) {
+            String id = "c" + (1000 + i);
+            database.cells.add(Arrays.<Object>asList(id, -12.0 + i * 0.001, -77.0));
+            database.values.add(Arrays.<Object>asList(id, "CO", 10.0 + i));
+        }
+    }
+
+    @Test
+    public void testLoad() {
+        addCells(3);
+        database.values.add(Arrays.<Object>asList("c1001", "NO2", 5.0));
+        database.values.add(Arrays.<Object>asList("c1001", "unknown", 5.0));
+        database.values.add(Arrays.<Object>asList("c9999", "CO", 5.0));
+
+        JdbcConnectionPool pool = new JdbcConnectionPool(URL, "user", "secret", 2, 1000);
+        JdbcPollutionGridLoader loader = new JdbcPollutionGridLoader(pool);
+        PollutionGrid grid = loader.load();
+        assertEquals(3, grid.getCellCount());
+        assertEquals("c1001", grid.getCellId(1));
+        assertEquals(11, grid.getValue(Pollutant.CO, 1), 1e-6);
+        assertEquals(5, grid.getValue(Pollutant.NO2, 1), 1e-6);
+        assertTrue(Double.isNaN(grid.getValue(Pollutant.NO2, 0)));
+        assertEquals(1, grid.findCell(-11.999, -77.0));
+
+        // the second load reuses the connection and its statements
+        loader.load();
+        assertEquals(1, database.connections);
+        assertEquals(2, database.prepared);
+        assertEquals(4, database.queries);
+        assertEquals(2, pool.getExecutions());
+        assertEquals(1, pool.getOpenConnections());
+        assertEquals(0, pool.getActiveConnections());
+        assertEquals("secret", database.lastProperties.getProperty("password"));
+
+        pool.close();
+        assertEquals(0, pool.getOpenConnections());
+        assertEquals(1, database.closedConnections);
+    }
+
+    @Test
+    public void testFailedConnectionIsClosed() {
+        addCells(1);
+        JdbcConnectionPool pool = new JdbcConnectionPool(URL, null, null, 1, 1000);
+        try {
+            pool.execute(new JdbcConnectionPool.Work<Object>() {
+                @Override
+                public Object execute(JdbcConnectionPool.PooledConnection connection) throws SQLException {
+                    throw new SQLException("broken");
+                }
+            });
+            fail();
+        } catch (SQLException ex) {
+            assertEquals("broken", ex.getMessage());
+        }
+        assertEquals(1, pool.getFailures());
+        assertEquals(0, pool.getOpenConnections());
+        assertEquals(1, database.closedConnections);
+
+        // a new connection is opened for the next work
+        assertEquals(1, new JdbcPollutionGridLoader(pool).load().getCellCount());
+        assertEquals(2, database.connections);
+    }
+
+    @Test
+    public void testTimeoutIfAllConnectionsAreUsed() throws SQLException {
+        final JdbcConnectionPool pool = new JdbcConnectionPool(URL, null, null, 1, 50);
+        pool.execute(new JdbcConnectionPool.Work<Object>() {
+            @Override
+            public Object execute(JdbcConnectionPool.PooledConnection connection) throws SQLException {
+                assertEquals(1, pool.getActiveConnections());
+                try {
+                    pool.execute(new JdbcConnectionPool.Work<Object>() {
+                        @Override
+                        public Object execute(JdbcConnectionPool.PooledConnection connection) {
+                            throw new IllegalStateException("no connection expected");
+                        }
+                    });
+                    fail();
+                } catch (SQLException ex) {
+                    assertTrue(ex.getMessage(), ex.getMessage().contains("within 50ms"));
+                }
+                return null;
+            }
+        });
+        assertEquals(0, pool.getActiveConnections());
+        assertEquals(1, pool.getOpenConnections());
+        assertTrue(pool.getWaitNanos() >= 50_000_000);
+    }
+
+    /**
+     * A JDBC driver for the cellsdata and interpolatedmetrics tables, which are joined with the pollutant names
+     * already.
+     */
+    private static class StubDatabase implements Driver {
+        final List<List<Object>> cells = new ArrayList<>();
+        final List<List<Object>> values = new ArrayList<>();
+        int connections, closedConnections, prepared, queries;
+        Properties lastProperties;
+
+        @Override
+        public Connection connect(String url, Properties info) {
+            if (!acceptsURL(url))
+                return null;
+            connections++;
+            lastProperties = info;
+            return proxy(Connection.class, new InvocationHandler() {
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args) {
+                    switch (method.getName()) {
+                        case "prepareStatement":
+                            prepared++;
+                            return createStatement((String) args[0]);
+                        case "isValid":
+                            return true;
+                        case "close":
+                            closedConnections++;
+                            return null;
+                        default:
+                            return defaultValue(method);
+                    }
+                }
+            });
+        }
+
+        private PreparedStatement createStatement(final String query) {
+            return proxy(PreparedStatement.class, new InvocationHandler() {
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args) {
+                    switch (method.getName()) {
+                        case "executeQuery":
+                            queries++;
+                            if (query.contains("FROM cellsdata"))
+                                return createResultSet(cells, "idcell", "midLat", "midLon");
+                            return createResultSet(values, "idcell", "pollutantName", "interpolatedValiue");
+                        default:
+                            return defaultValue(method);
+                    }
+                }
+            });
+        }
+
+        private ResultSet createResultSet(final List<List<Object>> rows, final String... columns) {
+            final Iterator<List<Object>> iterator = rows.iterator();
+            return proxy(ResultSet.class, new InvocationHandler() {
+                List<Object> row;
+
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args) {
+                    switch (method.getName()) {
+                        case "next":
+                            row = iterator.hasNext() ? iterator.next() : null;
+                            return row != null;
+                        case "getString":
+                            return row.get(Arrays.asList(columns).indexOf((String) args[0]));
+                        case "getDouble":
+                            return row.get(Arrays.asList(columns).indexOf((String) args[0]));
+                        default:
+                            return defaultValue(method);
+                    }
+                }
+            });
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+            return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class[]{type}, handler);
+        }
+
+        private static Object defaultValue(Method method) {
+            Class<?> type = method.getReturnType();
+            if (type == boolean.class)
+                return false;
+            if (type == int.class)
+                return 0;
+            if (type == long.class)
+                return 0L;
+            return null;
+        }
+
+        @Override
+        public boolean acceptsURL(String url) {
+            return url.startsWith("jdbc:stub:");
+        }
+
+        @Override
+        public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+            return new DriverPropertyInfo[0];
+        }
+
+        @Override
+        public int getMajorVersion() {
+            return 1;
+        }
+
+        @Override
+        public int getMinorVersion() {
+            return 0;
+        }
+
+        @Override
+        public boolean jdbcCompliant() {
+            return false;
+        }
+
+        @Override
+        public Logger getParentLogger() {
+            return Logger.getGlobal();
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.pollution;
+
+import com.carrotsearch.hppc.IntArrayList;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Jhon
+ */
+public class PollutionCellIndexTest {
+    private final double[] south = new double[220];
+    private final double[] west = new double[220];
+    private final double[] north = new double[220];
+    private final double[] east = new double[220];
+
+    // 200 cells of different size in rows, plus 20 random cells overlapping them
+    private PollutionCellIndex createIndex(Random random) {
+        int cell = 0;
+        double lat = 0;
+        for (int row = 0; row < 10; row++) {
+            double height = 0.001 + random.nextDouble() * 0.004;
+            double lon = 0;
+            for (int col = 0; col < 20; col++) {
+                double width = 0.001 + random.nextDouble() * 0.004;
+                south[cell] = lat;
+                west[cell] = lon;
+                north[cell] = lat + height;
+                east[cell] = lon + width;
+                lon += width;
+                cell++;
+            }
+            lat += height;
+        }
+        for (; cell < south.length; cell++) {
+            south[cell] = random.nextDouble() * 0.03;
+            west[cell] = random.nextDouble() * 0.06;
+            north[cell] = south[cell] + random.nextDouble() * 0.01;
+            east[cell] = west[cell] + random.nextDouble() * 0.02;
+        }
+        return new PollutionCellIndex(south, west, north, east);
+    }
+
+    @Test
+    public void testFindCell() {
+        Random random = new Random(1);
+        PollutionCellIndex index = createIndex(random);
+        for (int i = 0; i < 10_000; i++) {
+            double lat = -0.01 + random.nextDouble() * 0.07, lon = -0.01 + random.nextDouble() * 0.12;
+            int expected = -1;
+            for (int cell = 0; cell < south.length; cell++) {
+                if (lat >= south[cell] && lat <= north[cell] && lon >= west[cell] && lon <= east[cell]) {
+                    expected = cell;
+                    break;
+                }
+            }
+            assertEquals(lat + "," + lon, expected, index.findCell(lat, lon));
+        }
+    }
+
+    @Test
+    public void testSegmentLengthsPerCell() {
+        Random random = new Random(2);
+        PollutionCellIndex index = createIndex(random);
+        final double[] fractions = new double[south.length];
+        for (int i = 0; i < 2_000; i++) {
+            double lat1 = -0.01 + random.nextDouble() * 0.07, lon1 = -0.01 + random.nextDouble() * 0.12;
+            double lat2, lon2;
+            if (i % 10 == 0) {
+                // horizontal segments
+                lat2 = lat1;
+                lon2 = -0.01 + random.nextDouble() * 0.12;
+            } else if (i % 2 == 0) {
+                // short segments like the ones of a road
+                lat2 = lat1 + (random.nextDouble() - 0.5) * 0.004;
+                lon2 = lon1 + (random.nextDouble() - 0.5) * 0.004;
+            } else {
+                lat2 = -0.01 + random.nextDouble() * 0.07;
+                lon2 = -0.01 + random.nextDouble() * 0.12;
+            }
+
+            Arrays.fill(fractions, 0);
+            index.forEachCell(lat1, lon1, lat2, lon2, new PollutionCellIndex.CellVisitor() {
+                @Override
+                public void visit(int cell, double fraction) {
+                    fractions[cell] += fraction;
+                }
+            });
+            for (int cell = 0; cell < south.length; cell++) {
+                double expected = PollutionCellIndex.calcFractionInside(lat1, lon1, lat2, lon2,
+                        south[cell], west[cell], north[cell], east[cell]);
+                assertEquals("segment " + i + ", cell " + cell, expected, fractions[cell], 1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void testFindCellsInRectangle() {
+        Random random = new Random(3);
+        PollutionCellIndex index = createIndex(random);
+        for (int i = 0; i < 1_000; i++) {
+            double south = -0.01 + random.nextDouble() * 0.07, west = -0.01 + random.nextDouble() * 0.12;
+            double north = south + random.nextDouble() * 0.02, east = west + random.nextDouble() * 0.04;
+            IntArrayList cells = new IntArrayList();
+            index.findCells(south, west, north, east, cells);
+            int[] found = cells.toArray();
+            Arrays.sort(found);
+            IntArrayList expected = new IntArrayList();
+            for (int cell = 0; cell < this.south.length; cell++) {
+                if (this.south[cell] <= north && this.north[cell] >= south && this.west[cell] <= east && this.east[cell] >= west)
+                    expected.add(cell);
+            }
+            assertArrayEquals("rectangle " + i, expected.toArray(), found);
+        }
+    }
+
+    @Test
+    public void testEmpty() {
+        PollutionCellIndex index = new PollutionCellIndex(new double[0], new double[0], new double[0], new double[0]);
+        assertEquals(-1, index.findCell(0, 0));
+        IntArrayList cells = new IntArrayList();
+        index.findCells(-1, -1, 1, 1, cells);
+        assertTrue(cells.isEmpty());
+        index.forEachCell(0, 0, 1, 1, new PollutionCellIndex.CellVisitor() {
+            @Override
+            public void visit(int cell, double fraction) {
+                throw new IllegalStateException("no cell expected");
+            }
+        });
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.pollution;
+
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.PointList;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Jhon
+ */
+public class PollutionForecastTest {
+
+    private PollutionGrid createLayer(double west, double east) {
+        PollutionGrid.Builder builder = new PollutionGrid.Builder();
+        int westCell = builder.addCell("00_00", 0, 0, 0.01, 0.01);
+        int eastCell = builder.addCell("00_01", 0, 0.01, 0.01, 0.02);
+        builder.setValue(Pollutant.CO, westCell, west);
+        if (!Double.isNaN(east))
+            builder.setValue(Pollutant.CO, eastCell, east);
+        return builder.build();
+    }
+
+    @Test
+    public void testInterpolation() {
+        PollutionForecast forecast = new PollutionForecast.Builder()
+                .addLayer(1000, createLayer(1, 10))
+                .addLayer(2000, createLayer(3, Double.NaN))
+                .addLayer(4000, createLayer(5, 20))
+                .build();
+        assertEquals(3, forecast.getLayerCount());
+        assertEquals(2000, forecast.getTime(1));
+
+        assertEquals(1, forecast.getValue(Pollutant.CO, 0, 0), 1e-6);
+        assertEquals(1, forecast.getValue(Pollutant.CO, 0, 1000), 1e-6);
+        assertEquals(2, forecast.getValue(Pollutant.CO, 0, 1500), 1e-6);
+        assertEquals(3, forecast.getValue(Pollutant.CO, 0, 2000), 1e-6);
+        assertEquals(4, forecast.getValue(Pollutant.CO, 0, 3000), 1e-6);
+        assertEquals(5, forecast.getValue(Pollutant.CO, 0, 5000), 1e-6);
+        // an unknown value in one layer is taken from the other one
+        assertEquals(10, forecast.getValue(Pollutant.CO, 1, 1500), 1e-6);
+        assertTrue(Double.isNaN(forecast.getValue(Pollutant.CO, 1, 2000)));
+        assertTrue(Double.isNaN(forecast.getValue(Pollutant.NO2, 1, 1500)));
+    }
+
+    @Test
+    public void testExposure() {
+        PollutionForecast forecast = new PollutionForecast.Builder()
+                .addLayer(0, createLayer(1, 3))
+                .addLayer(1000, createLayer(3, 5))
+                .build();
+        PointList points = Helper.createPointList(0.005, 0.005, 0.005, 0.015);
+        double length = Helper.DIST_EARTH.calcDist(0.005, 0.005, 0.005, 0.015);
+        assertEquals(0.5 * length + 1.5 * length, forecast.calcExposure(Pollutant.CO, points, 0), 1e-6);
+        assertEquals(1 * length + 2 * length, forecast.calcExposure(Pollutant.CO, points, 500), 1e-6);
+        assertEquals(forecast.getCells().calcExposure(Pollutant.CO, points), forecast.calcExposure(Pollutant.CO, points, -1), 1e-6);
+    }
+
+    @Test
+    public void testInvalidLayers() {
+        PollutionForecast.Builder builder = new PollutionForecast.Builder().addLayer(1000, createLayer(1, 1));
+        try {
+            builder.addLayer(1000, createLayer(1, 1));
+            fail("layers have to be ordered by time");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+        PollutionGrid.Builder other = new PollutionGrid.Builder();
+        other.addCell("00_00", 0, 0, 0.01, 0.01);
+        try {
+            builder.addLayer(2000, other.build());
+            fail("layers need the same cells");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.pollution;
+
+import com.graphhopper.storage.DAType;
+import com.graphhopper.util.Helper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Jhon
+ */
+public class PollutionGridFileTest {
+    private static final String DIR = "./target/pollution-grid-test";
+
+    @Before
+    @After
+    public void removeDir() {
+        Helper.removeDir(new File(DIR));
+    }
+
+    private PollutionGrid createGrid(long version, int cells) {
+        PollutionGrid.Builder builder = new PollutionGrid.Builder().setVersion(version);
+        for (int i = 0; i < cells; i++) {
+            int cell = builder.addCell("cell-" + i + "-ñ", -12.1 + i * 0.001, -77.05, -12.1 + (i + 1) * 0.001, -77.049);
+            builder.setValue(Pollutant.CO, cell, i * 1.5);
+            if (i % 3 == 0)
+                builder.setValue(Pollutant.PM25, cell, 100 - i);
+        }
+        return builder.build();
+    }
+
+    @Test
+    public void testWriteAndLoad() {
+        PollutionGrid grid = createGrid(1234567890123L, 500);
+        new PollutionGridFile(DIR, DAType.RAM_STORE).write(grid);
+
+        for (DAType type : new DAType[]{DAType.MMAP_RO, DAType.RAM_STORE}) {
+            PollutionGridFile file = new PollutionGridFile(DIR, type);
+            assertTrue(file.exists());
+            PollutionGrid loaded = file.load();
+            assertEquals(grid.getVersion(), loaded.getVersion());
+            assertEquals(grid.getCellCount(), loaded.getCellCount());
+            for (int cell = 0; cell < grid.getCellCount(); cell++) {
+                assertEquals(grid.getCellId(cell), loaded.getCellId(cell));
+                assertEquals(grid.getSouth(cell), loaded.getSouth(cell), 0);
+                assertEquals(grid.getWest(cell), loaded.getWest(cell), 0);
+                assertEquals(grid.getNorth(cell), loaded.getNorth(cell), 0);
+                assertEquals(grid.getEast(cell), loaded.getEast(cell), 0);
+                for (Pollutant pollutant : Pollutant.values()) {
+                    assertEquals(grid.getValue(pollutant, cell), loaded.getValue(pollutant, cell), 0);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testOverwrite() {
+        PollutionGridFile file = new PollutionGridFile(DIR, DAType.MMAP_RO);
+        assertFalse(file.exists());
+        file.write(createGrid(1, 50));
+        file.write(createGrid(2, 3));
+        PollutionGrid loaded = file.load();
+        assertEquals(2, loaded.getVersion());
+        assertEquals(3, loaded.getCellCount());
+        assertTrue(Double.isNaN(loaded.getValue(Pollutant.PM25, 1)));
+    }
+
+    @Test
+    public void testEmptyGrid() {
+        PollutionGridFile file = new PollutionGridFile(DIR, DAType.MMAP_RO);
+        file.write(PollutionGrid.EMPTY);
+        assertTrue(file.load().isEmpty());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testMissingFile() {
+        new PollutionGridFile(DIR, DAType.MMAP_RO).load();
+    }
+}
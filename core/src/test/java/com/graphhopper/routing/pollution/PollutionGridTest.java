@@ -0,0 +1,100 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.pollution;
+
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.PointList;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Jhon
+ */
+public class PollutionGridTest {
+
+    private PollutionGrid createGrid() {
+        PollutionGrid.Builder builder = new PollutionGrid.Builder().setVersion(42);
+        int west = builder.addCell("00_00", 0, 0, 0.01, 0.01);
+        int east = builder.addCell("00_01", 0, 0.01, 0.01, 0.02);
+        builder.setValue(Pollutant.CO, west, 1);
+        builder.setValue(Pollutant.CO, east, 3);
+        builder.setValue(Pollutant.PM10, west, 10);
+        return builder.build();
+    }
+
+    @Test
+    public void testFindCell() {
+        PollutionGrid grid = createGrid();
+        assertEquals(42, grid.getVersion());
+        assertEquals(2, grid.getCellCount());
+        assertEquals("00_00", grid.getCellId(grid.findCell(0.005, 0.005)));
+        assertEquals("00_01", grid.getCellId(grid.findCell(0.005, 0.015)));
+        assertEquals(-1, grid.findCell(0.005, 0.025));
+        assertEquals(-1, PollutionGrid.EMPTY.findCell(0.005, 0.005));
+    }
+
+    @Test
+    public void testExposure() {
+        PollutionGrid grid = createGrid();
+        double length = Helper.DIST_EARTH.calcDist(0.005, 0.005, 0.005, 0.015);
+        // half of the segment in each cell
+        assertEquals(0.5 * length + 1.5 * length, grid.calcExposure(Pollutant.CO, 0.005, 0.005, 0.005, 0.015), 1e-6);
+        assertEquals(grid.calcExposure(Pollutant.CO, 0.005, 0.005, 0.005, 0.015),
+                grid.calcExposure(Pollutant.CO, 0.005, 0.015, 0.005, 0.005), 1e-6);
+        // no value for the eastern cell
+        assertEquals(5 * length, grid.calcExposure(Pollutant.PM10, 0.005, 0.005, 0.005, 0.015), 1e-6);
+        // unknown pollutant
+        assertEquals(0, grid.calcExposure(Pollutant.SO2, 0.005, 0.005, 0.005, 0.015), 1e-6);
+        // outside of the grid
+        assertEquals(0, grid.calcExposure(Pollutant.CO, 0.02, 0.005, 0.02, 0.015), 1e-6);
+        assertEquals(0, PollutionGrid.EMPTY.calcExposure(Pollutant.CO, 0.005, 0.005, 0.005, 0.015), 1e-6);
+
+        // the part outside of the grid does not count
+        PointList points = Helper.createPointList(0.005, 0.015, 0.005, 0.025, 0.015, 0.025);
+        assertEquals(1.5 * length, grid.calcExposure(Pollutant.CO, points), 1e-6);
+    }
+
+    @Test
+    public void testDiagonal() {
+        PollutionGrid grid = createGrid();
+        double length = Helper.DIST_EARTH.calcDist(0, 0, 0.01, 0.02);
+        assertEquals(2 * length, grid.calcExposure(Pollutant.CO, 0, 0, 0.01, 0.02), 1e-6);
+    }
+
+    @Test
+    public void testBuilder() {
+        PollutionGrid.Builder builder = new PollutionGrid.Builder();
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, builder.addCell("00_" + i, 0, i, 1, i + 1));
+        }
+        assertEquals(5, builder.getCell("00_5"));
+        assertEquals(-1, builder.getCell("01_5"));
+        try {
+            builder.addCell("00_5", 0, 0, 1, 1);
+            fail();
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+        PollutionGrid grid = builder.setValue(Pollutant.O3, 99, 7).build();
+        assertEquals(100, grid.getCellCount());
+        assertEquals(7, grid.getValue(Pollutant.O3, 99), 1e-6);
+        assertTrue(Double.isNaN(grid.getValue(Pollutant.O3, 98)));
+        assertEquals(99, grid.getWest(99), 1e-6);
+    }
+}
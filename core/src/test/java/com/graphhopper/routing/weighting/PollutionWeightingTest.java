@@ -0,0 +1,120 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.weighting;
+
+import com.graphhopper.routing.pollution.Pollutant;
+import com.graphhopper.routing.pollution.PollutionGrid;
+import com.graphhopper.routing.pollution.PollutionGridProvider;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.FlagEncoder;
+import com.graphhopper.storage.GraphBuilder;
+import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.GHUtility;
+import com.graphhopper.util.PMap;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.graphhopper.util.GHUtility.updateDistancesFor;
+import static org.junit.Assert.*;
+
+/**
+ * @author Jhon
+ */
+public class PollutionWeightingTest {
+
+    private EncodingManager encodingManager;
+    private FlagEncoder encoder;
+    private GraphHopperStorage graph;
+    private EdgeIteratorState edge;
+
+    @Before
+    public void setUp() {
+        encodingManager = EncodingManager.create("foot");
+        encoder = encodingManager.getEncoder("foot");
+        graph = new GraphBuilder(encodingManager).create();
+        // 0-1
+        graph.edge(0, 1, 1, true);
+        updateDistancesFor(graph, 0, 0.00, 0.00);
+        updateDistancesFor(graph, 1, 0.01, 0.01);
+        edge = GHUtility.getEdge(graph, 0, 1);
+    }
+
+    private PollutionWeighting createWeighting(String pollutants, PollutionGridProvider provider) {
+        return new PollutionWeighting(encoder, new PMap().putObject(PollutionWeighting.POLLUTANTS, pollutants), provider);
+    }
+
+    @Test
+    public void testCOWeight() {
+        Weighting instance = createWeighting("co", PollutionGridProvider.of(PollutionGrid.EMPTY));
+        // should be 0.00 because the coordinates (0.00,0.00) (0.01,0.01) are not covered by the grid
+        assertEquals(0.00, instance.calcEdgeWeight(edge, true), 1e-8);
+    }
+
+    @Test
+    public void testWeightFromGrid() {
+        PollutionGrid.Builder builder = new PollutionGrid.Builder();
+        int cell = builder.addCell("00_00", -0.005, -0.005, 0.005, 0.005);
+        builder.setValue(Pollutant.CO, cell, 2);
+        builder.setValue(Pollutant.NO2, cell, 100);
+        PollutionGridProvider provider = PollutionGridProvider.of(builder.build());
+        Weighting instance = createWeighting("co", provider);
+        // the cell covers the first half of the edge
+        assertEquals(edge.getDistance(), instance.calcEdgeWeight(edge, false), 1);
+        assertEquals(edge.getDistance(), instance.calcEdgeWeight(edge, true), 1);
+
+        // a new snapshot is used for all subsequent calls
+        builder = new PollutionGrid.Builder();
+        cell = builder.addCell("00_00", -0.005, -0.005, 0.015, 0.015);
+        builder.setValue(Pollutant.CO, cell, 3);
+        provider.publish(builder.build());
+        assertEquals(3 * edge.getDistance(), instance.calcEdgeWeight(edge, false), 1);
+    }
+
+    @Test
+    public void testSeveralPollutants() {
+        PollutionGrid.Builder builder = new PollutionGrid.Builder();
+        int cell = builder.addCell("00_00", -0.005, -0.005, 0.015, 0.015);
+        builder.setValue(Pollutant.CO, cell, 2);
+        builder.setValue(Pollutant.NO2, cell, 100);
+        PollutionGridProvider provider = PollutionGridProvider.of(builder.build());
+        assertEquals(102 * edge.getDistance(), createWeighting("CO,no2", provider).calcEdgeWeight(edge, false), 1);
+        assertEquals(52 * edge.getDistance(), createWeighting("co, no2:0.5", provider).calcEdgeWeight(edge, false), 1);
+        assertEquals(0, createWeighting("so2", provider).calcEdgeWeight(edge, false), 1e-8);
+    }
+
+    @Test
+    public void testInvalidPollutants() {
+        PollutionGridProvider provider = PollutionGridProvider.of(PollutionGrid.EMPTY);
+        for (String pollutants : new String[]{"", "xy", "co,co", "co:-1", "co:1:2"}) {
+            try {
+                createWeighting(pollutants, provider);
+                fail("pollutants=" + pollutants + " should be rejected");
+            } catch (IllegalArgumentException ex) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testIsPollutionWeighting() {
+        assertTrue(PollutionWeighting.isPollutionWeighting("pollution"));
+        assertTrue(PollutionWeighting.isPollutionWeighting("qaira_weighting_pmv"));
+        assertFalse(PollutionWeighting.isPollutionWeighting("fastest"));
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.weighting;
+
+import com.graphhopper.routing.AlgorithmOptions;
+import com.graphhopper.routing.Dijkstra;
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.RoutingAlgorithm;
+import com.graphhopper.routing.RoutingAlgorithmFactorySimple;
+import com.graphhopper.routing.pollution.EdgeExposureStorage;
+import com.graphhopper.routing.pollution.Pollutant;
+import com.graphhopper.routing.pollution.PollutionGrid;
+import com.graphhopper.routing.pollution.PollutionGridProvider;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.FlagEncoder;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.storage.GraphBuilder;
+import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.storage.RAMDirectory;
+import com.graphhopper.storage.index.QueryResult;
+import com.graphhopper.util.DistanceCalcEarth;
+import com.graphhopper.util.GHUtility;
+import com.graphhopper.util.PMap;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.graphhopper.util.GHUtility.updateDistancesFor;
+import static com.graphhopper.util.Parameters.Algorithms.ASTAR;
+import static com.graphhopper.util.Parameters.Algorithms.ASTAR_BI;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author Jhon
+ */
+public class QairaWeightApproximatorTest {
+    private static final int SIZE = 6;
+    private GraphHopperStorage graph;
+    private PollutionWeighting weighting;
+    private PollutionGrid.Builder gridBuilder;
+
+    @Before
+    public void setUp() {
+        EncodingManager encodingManager = EncodingManager.create("foot");
+        FlagEncoder encoder = encodingManager.getEncoder("foot");
+        graph = new GraphBuilder(encodingManager).create();
+        // a lattice of SIZE x SIZE nodes with a distance of 0.003 degrees, the last row is not covered by the grid
+        for (int row = 0; row < SIZE; row++) {
+            for (int col = 0; col < SIZE; col++) {
+                int node = row * SIZE + col;
+                if (col > 0)
+                    graph.edge(node - 1, node, 1, true);
+                if (row > 0)
+                    graph.edge(node - SIZE, node, 1, true);
+            }
+        }
+        for (int node = 0; node < SIZE * SIZE; node++) {
+            updateDistancesFor(graph, node, (node / SIZE) * 0.003, (node % SIZE) * 0.003);
+        }
+
+        gridBuilder = new PollutionGrid.Builder().setVersion(1);
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 3; j++) {
+                int cell = gridBuilder.addCell(i + "_" + j, -0.002 + i * 0.005, -0.002 + j * 0.006, 0.003 + i * 0.005, 0.004 + j * 0.006);
+                gridBuilder.setValue(Pollutant.CO, cell, 1 + (i * 7 + j * 3) % 5);
+                gridBuilder.setValue(Pollutant.NO2, cell, 1 + (i + j) % 2);
+            }
+        }
+        weighting = new PollutionWeighting(encoder, new PMap().putObject(PollutionWeighting.POLLUTANTS, "co,no2:2"),
+                PollutionGridProvider.of(gridBuilder.build()));
+    }
+
+    @Test
+    public void testAdmissible() {
+        QairaWeightApproximator approx = new QairaWeightApproximator(graph, weighting);
+        boolean positive = false;
+        for (int to = 0; to < graph.getNodes(); to++) {
+            approx.setTo(to);
+            WeightApproximator reverse = approx.reverse();
+            for (int from = 0; from < graph.getNodes(); from++) {
+                double weight = new Dijkstra(graph, weighting, TraversalMode.NODE_BASED).calcPath(from, to).getWeight();
+                double approximated = approx.approximate(from);
+                assertTrue(from + "->" + to + " " + approximated + " > " + weight, approximated <= weight + 1e-6);
+                reverse.setTo(from);
+                assertEquals(approximated, reverse.approximate(to), 1e-6);
+                positive |= approximated > 0;
+            }
+        }
+        assertTrue(positive);
+    }
+
+    @Test
+    public void testAdmissibleForVirtualNodes() {
+        // the virtual edges use the exposure per meter of the edge they split, which is lower than the weight of the
+        // cell the snapped point is in
+        EdgeExposureStorage storage = new EdgeExposureStorage(new RAMDirectory()).create(100);
+        storage.fill(graph, weighting.getGridProvider().get());
+        weighting.setExposureStorage(storage);
+        QueryResult qr = new QueryResult(0, 0.0055);
+        qr.setClosestEdge(GHUtility.getEdge(graph, 1, 2));
+        qr.setWayIndex(0);
+        qr.setSnappedPosition(QueryResult.Position.EDGE);
+        qr.calcSnappedPoint(new DistanceCalcEarth());
+        QueryGraph queryGraph = QueryGraph.create(graph, qr);
+        Weighting queryWeighting = queryGraph.wrapWeighting(weighting);
+        int virtualNode = qr.getClosestNode();
+
+        QairaWeightApproximator approx = new QairaWeightApproximator(queryGraph, weighting);
+        approx.setTo(virtualNode);
+        WeightApproximator reverse = approx.reverse();
+        for (int node = 0; node < graph.getNodes(); node++) {
+            double weight = new Dijkstra(queryGraph, queryWeighting, TraversalMode.NODE_BASED).calcPath(node, virtualNode).getWeight();
+            double approximated = approx.approximate(node);
+            assertTrue(node + "->" + virtualNode + " " + approximated + " > " + weight, approximated <= weight + 1e-6);
+            reverse.setTo(node);
+            assertEquals(approximated, reverse.approximate(virtualNode), 1e-6);
+        }
+    }
+
+    @Test
+    public void testCellWeightsAreCalculatedOncePerSnapshot() {
+        PollutionGrid grid = weighting.getGridProvider().get();
+        PollutionWeighting other = new PollutionWeighting(weighting.getFlagEncoder(), new PMap().putObject(PollutionWeighting.POLLUTANTS, "co,no2:2"),
+                weighting.getGridProvider());
+        assertSame(weighting.getWeightsPerMeter(grid), other.getWeightsPerMeter(grid));
+        weighting.getGridProvider().publish(gridBuilder.setVersion(2).build());
+        assertNotSame(weighting.getWeightsPerMeter(grid), other.getWeightsPerMeter(weighting.getGridProvider().get()));
+    }
+
+    @Test
+    public void testAStar() {
+        for (String algo : new String[]{ASTAR, ASTAR_BI}) {
+            AlgorithmOptions opts = AlgorithmOptions.start().algorithm(algo).weighting(weighting).
+                    hints(new PMap().putObject(algo + ".approximation", "Qaira")).build();
+            for (int from = 0; from < graph.getNodes(); from += 5) {
+                for (int to = 0; to < graph.getNodes(); to += 3) {
+                    RoutingAlgorithm algorithm = new RoutingAlgorithmFactorySimple().createAlgo(graph, opts);
+                    Path path = algorithm.calcPath(from, to);
+                    Path expected = new Dijkstra(graph, weighting, TraversalMode.NODE_BASED).calcPath(from, to);
+                    assertEquals(algo + " " + from + "->" + to, expected.getWeight(), path.getWeight(), 1e-6);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testRequiresExposureOfCurrentSnapshot() {
+        PollutionGridProvider provider = weighting.getGridProvider();
+        EdgeExposureStorage storage = new EdgeExposureStorage(new RAMDirectory()).create(100);
+        storage.fill(graph, provider.get());
+        weighting.setExposureStorage(storage);
+        new QairaWeightApproximator(graph, weighting);
+
+        // the stored exposure is outdated, e.g. because it was frozen for a preparation, so the cell weights of the
+        // new snapshot are no lower bound anymore
+        provider.publish(gridBuilder.setVersion(2).build());
+        try {
+            new QairaWeightApproximator(graph, weighting);
+            fail("the approximation must not be used for an outdated exposure");
+        } catch (IllegalArgumentException ex) {
+            assertTrue(ex.getMessage(), ex.getMessage().contains("snapshot 2"));
+        }
+
+        storage.fill(graph, provider.get());
+        new QairaWeightApproximator(graph, weighting);
+    }
+}
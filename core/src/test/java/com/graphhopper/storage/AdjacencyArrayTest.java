@@ -0,0 +1,108 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import com.graphhopper.routing.util.CarFlagEncoder;
+import com.graphhopper.routing.util.DefaultEdgeFilter;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.util.*;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Jhon
+ */
+public class AdjacencyArrayTest {
+    private final CarFlagEncoder encoder = new CarFlagEncoder();
+    private final EncodingManager encodingManager = EncodingManager.create(encoder);
+
+    @Test
+    public void testSameEdgesAsLinkedLists() {
+        GraphHopperStorage graph = new GraphBuilder(encodingManager).create();
+        long seed = System.nanoTime();
+        GHUtility.buildRandomGraph(graph, new Random(seed), 200, 2.5, true, true, encoder.getAverageSpeedEnc(), 0.7, 0.8, 0.8);
+        // a loop
+        graph.edge(3, 3, 10, true);
+        graph.freeze();
+
+        EdgeExplorer linkedExplorer = graph.createEdgeExplorer();
+        EdgeExplorer linkedOutExplorer = graph.createEdgeExplorer(DefaultEdgeFilter.outEdges(encoder));
+        graph.setUseAdjacencyArray(true);
+        EdgeExplorer arrayExplorer = graph.createEdgeExplorer();
+        EdgeExplorer arrayOutExplorer = graph.createEdgeExplorer(DefaultEdgeFilter.outEdges(encoder));
+        assertTrue(arrayExplorer instanceof BaseGraph.AdjacencyEdgeIterable);
+        for (int node = 0; node < graph.getNodes(); node++) {
+            assertSameEdges("seed: " + seed + ", node: " + node, linkedExplorer.setBaseNode(node), arrayExplorer.setBaseNode(node));
+            assertSameEdges("seed: " + seed + ", node: " + node, linkedOutExplorer.setBaseNode(node), arrayOutExplorer.setBaseNode(node));
+        }
+        graph.close();
+    }
+
+    private void assertSameEdges(String msg, EdgeIterator expected, EdgeIterator actual) {
+        while (expected.next()) {
+            assertTrue(msg, actual.next());
+            assertEquals(msg, expected.getEdge(), actual.getEdge());
+            assertEquals(msg, expected.getBaseNode(), actual.getBaseNode());
+            assertEquals(msg, expected.getAdjNode(), actual.getAdjNode());
+            assertEquals(msg, expected.getDistance(), actual.getDistance(), 1e-6);
+            assertEquals(msg, expected.get(encoder.getAccessEnc()), actual.get(encoder.getAccessEnc()));
+            assertEquals(msg, expected.getReverse(encoder.getAccessEnc()), actual.getReverse(encoder.getAccessEnc()));
+            assertEquals(msg, expected.fetchWayGeometry(FetchMode.ALL), actual.fetchWayGeometry(FetchMode.ALL));
+            EdgeIteratorState expectedDetached = expected.detach(true);
+            EdgeIteratorState actualDetached = actual.detach(true);
+            assertEquals(msg, expectedDetached.getBaseNode(), actualDetached.getBaseNode());
+            assertEquals(msg, expectedDetached.get(encoder.getAccessEnc()), actualDetached.get(encoder.getAccessEnc()));
+        }
+        assertFalse(msg, actual.next());
+    }
+
+    @Test
+    public void testBuiltOnFreezeAndLoad() {
+        String location = "./target/adjacency-array-test";
+        Helper.removeDir(new File(location));
+        GraphHopperStorage graph = new GraphBuilder(encodingManager).setRAM(location, true).create();
+        graph.setUseAdjacencyArray(true);
+        graph.edge(0, 1, 10, true);
+        graph.edge(1, 2, 10, false);
+        // not frozen yet, so new edges can be added and are found
+        assertFalse(graph.createEdgeExplorer() instanceof BaseGraph.AdjacencyEdgeIterable);
+        graph.freeze();
+        EdgeExplorer explorer = graph.createEdgeExplorer();
+        assertTrue(explorer instanceof BaseGraph.AdjacencyEdgeIterable);
+        assertEquals(2, GHUtility.count(explorer.setBaseNode(1)));
+        graph.flush();
+        graph.close();
+
+        graph = new GraphBuilder(encodingManager).setRAM(location, true).build();
+        graph.setUseAdjacencyArray(true);
+        assertTrue(graph.loadExisting());
+        explorer = graph.createEdgeExplorer(DefaultEdgeFilter.inEdges(encoder));
+        assertTrue(explorer instanceof BaseGraph.AdjacencyEdgeIterable);
+        assertEquals(GHUtility.asSet(0), GHUtility.getNeighbors(explorer.setBaseNode(1)));
+        assertEquals(GHUtility.asSet(1), GHUtility.getNeighbors(explorer.setBaseNode(2)));
+
+        graph.setUseAdjacencyArray(false);
+        assertFalse(graph.createEdgeExplorer() instanceof BaseGraph.AdjacencyEdgeIterable);
+        graph.close();
+        Helper.removeDir(new File(location));
+    }
+}
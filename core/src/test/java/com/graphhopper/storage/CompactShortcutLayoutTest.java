@@ -0,0 +1,180 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import com.graphhopper.util.EdgeIterator;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Jhon
+ */
+public class CompactShortcutLayoutTest {
+
+    @Test
+    public void testReadWriteBits() {
+        DataAccess da = new RAMDirectory().find("shortcuts", DAType.RAM_INT).create(128);
+        // fields of different widths crossing the int boundaries
+        int[] bits = {1, 7, 31, 32, 5, 17, 29, 3, 32, 20};
+        long[] values = new long[bits.length];
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        for (int round = 0; round < 10; round++) {
+            long pos = round;
+            for (int i = 0; i < bits.length; i++) {
+                values[i] = rnd.nextLong() & ((1L << bits[i]) - 1);
+                CompactShortcutLayout.write(da, pos, bits[i], values[i]);
+                pos += bits[i];
+            }
+            pos = round;
+            for (int i = 0; i < bits.length; i++) {
+                assertEquals("seed: " + seed, values[i], CompactShortcutLayout.read(da, pos, bits[i]));
+                pos += bits[i];
+            }
+        }
+
+        try {
+            CompactShortcutLayout.write(da, 0, 3, 8);
+            fail("the value does not fit into three bits");
+        } catch (IllegalStateException ex) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testZigzag() {
+        for (long value : new long[]{0, 1, -1, 2, -2, Integer.MAX_VALUE, -Integer.MAX_VALUE}) {
+            assertEquals(value, CompactShortcutLayout.unzigzag(CompactShortcutLayout.zigzag(value)));
+        }
+        assertEquals(0, CompactShortcutLayout.zigzag(0));
+        assertEquals(1, CompactShortcutLayout.zigzag(-1));
+        assertEquals(2, CompactShortcutLayout.zigzag(1));
+        assertEquals(32, CompactShortcutLayout.bitsFor(CompactShortcutLayout.zigzag(-Integer.MAX_VALUE)));
+    }
+
+    @Test
+    public void testShortcutFields() {
+        CompactShortcutLayout layout = CompactShortcutLayout.create(1000, 600, 5000, 300, 2000, false, true);
+        // the zigzag encoded difference of the nodes would need 11 bits, so node B is stored like node A
+        assertEquals(10 + 10 + 2 * 13 + 2 + 10 + 2 * 13 + 2 * 11, layout.getEntryBits());
+        DataAccess da = new RAMDirectory().find("shortcuts", DAType.RAM_INT).create(layout.getBytes(3));
+        for (int i = 0; i < 3; i++) {
+            long pointer = layout.toPointer(i);
+            layout.setNodesAndLinks(da, pointer, 999 - i, 400 + i, EdgeIterator.NO_EDGE, 4999 - i);
+            layout.setFlags(da, pointer, (300 + i) << 2 | 1);
+            layout.setSkippedEdges(da, pointer, i, EdgeIterator.NO_EDGE);
+            layout.setOrigEdges(da, pointer, 1999, i);
+        }
+        for (int i = 0; i < 3; i++) {
+            long pointer = layout.toPointer(i);
+            assertEquals(999 - i, layout.getNodeA(da, pointer));
+            assertEquals(400 + i, layout.getNodeB(da, pointer));
+            assertEquals(EdgeIterator.NO_EDGE, layout.getLinkA(da, pointer));
+            assertEquals(4999 - i, layout.getLinkB(da, pointer));
+            assertEquals((300 + i) << 2 | 1, layout.getFlags(da, pointer));
+            assertEquals(i, layout.getSkippedEdge1(da, pointer));
+            assertEquals(EdgeIterator.NO_EDGE, layout.getSkippedEdge2(da, pointer));
+            assertEquals(1999, layout.getOrigEdgeFirst(da, pointer));
+            assertEquals(i, layout.getOrigEdgeLast(da, pointer));
+        }
+
+        // infinity is kept, and the weights can grow until twice the largest one
+        long pointer = layout.toPointer(1);
+        layout.setFlags(da, pointer, CompactShortcutLayout.INFINITE_WEIGHT << 2 | 3);
+        assertEquals(CompactShortcutLayout.INFINITE_WEIGHT << 2 | 3, layout.getFlags(da, pointer));
+        layout.setFlags(da, pointer, 1022 << 2);
+        assertEquals(1022 << 2, layout.getFlags(da, pointer));
+        try {
+            layout.setFlags(da, pointer, 1023 << 2);
+            fail("the weight does not fit");
+        } catch (IllegalStateException ex) {
+            // expected
+        }
+        assertEquals(999, layout.getNodeA(da, layout.toPointer(0)));
+        assertEquals(997, layout.getNodeA(da, layout.toPointer(2)));
+    }
+
+    @Test
+    public void testNodeDelta() {
+        CompactShortcutLayout layout = CompactShortcutLayout.create(1000, 100, 5000, 300, 2000, false, false);
+        assertEquals(10 + 8 + 2 * 13 + 2 + 10 + 2 * 13, layout.getEntryBits());
+        DataAccess da = new RAMDirectory().find("shortcuts", DAType.RAM_INT).create(layout.getBytes(2));
+        layout.setNodesAndLinks(da, layout.toPointer(0), 999, 899, 3, 4);
+        layout.setNodesAndLinks(da, layout.toPointer(1), 0, 100, 5, EdgeIterator.NO_EDGE);
+        assertEquals(999, layout.getNodeA(da, layout.toPointer(0)));
+        assertEquals(899, layout.getNodeB(da, layout.toPointer(0)));
+        assertEquals(4, layout.getLinkB(da, layout.toPointer(0)));
+        assertEquals(0, layout.getNodeA(da, layout.toPointer(1)));
+        assertEquals(100, layout.getNodeB(da, layout.toPointer(1)));
+        assertEquals(5, layout.getLinkA(da, layout.toPointer(1)));
+        assertEquals(EdgeIterator.NO_EDGE, layout.getLinkB(da, layout.toPointer(1)));
+    }
+
+    @Test
+    public void testQuantizedWeights() {
+        // the exact weights would need 22 bits, the quantized ones need less
+        CompactShortcutLayout layout = CompactShortcutLayout.create(1000, 600, 5000, 3_000_000, 2000, true, false);
+        CompactShortcutLayout exact = CompactShortcutLayout.create(1000, 600, 5000, 3_000_000, 2000, false, false);
+        assertEquals(exact.getEntryBits() - 23 + 17, layout.getEntryBits());
+        DataAccess da = new RAMDirectory().find("shortcuts", DAType.RAM_INT).create(layout.getBytes(1));
+        long pointer = layout.toPointer(0);
+        Random rand = new Random(0);
+        for (int i = 0; i < 10_000; i++) {
+            int weight = i < 5000 ? i : rand.nextInt(CompactShortcutLayout.INFINITE_WEIGHT);
+            layout.setFlags(da, pointer, weight << 2 | 2);
+            int flags = layout.getFlags(da, pointer);
+            assertEquals(2, flags & 3);
+            int quantized = flags >>> 2;
+            if (weight < 4096)
+                assertEquals(weight, quantized);
+            assertTrue(weight + " was rounded down to " + quantized, quantized >= weight);
+            assertTrue(weight + " was rounded up to " + quantized, quantized - weight <= weight / 2048);
+            // quantizing again does not change the weight
+            layout.setFlags(da, pointer, flags);
+            assertEquals(flags, layout.getFlags(da, pointer));
+        }
+        layout.setFlags(da, pointer, CompactShortcutLayout.INFINITE_WEIGHT << 2 | 1);
+        assertEquals(CompactShortcutLayout.INFINITE_WEIGHT << 2 | 1, layout.getFlags(da, pointer));
+        // the largest finite weights are capped instead of rounded up to infinity
+        layout.setFlags(da, pointer, (CompactShortcutLayout.INFINITE_WEIGHT - 1) << 2);
+        assertEquals((CompactShortcutLayout.INFINITE_WEIGHT - 1) << 2, layout.getFlags(da, pointer));
+
+        // small weights are stored exactly, because this does not need more bits
+        assertEquals(exact.getEntryBits() - 23 + 11, CompactShortcutLayout.create(1000, 600, 5000, 1000, 2000, true, false).getEntryBits());
+    }
+
+    @Test
+    public void testHeader() {
+        DataAccess da = new RAMDirectory().find("shortcuts", DAType.RAM_INT).create(128);
+        assertNull(CompactShortcutLayout.fromHeader(da, 8, false));
+        CompactShortcutLayout layout = CompactShortcutLayout.create(1000, 600, 5000, 300, 2000, false, false);
+        layout.setHeader(da, 8);
+        CompactShortcutLayout loaded = CompactShortcutLayout.fromHeader(da, 8, false);
+        assertEquals(layout.toString(), loaded.toString());
+        assertEquals(10 + 10 + 2 * 13 + 2 + 10 + 2 * 13, loaded.getEntryBits());
+
+        layout = CompactShortcutLayout.create(1000, 600, 5000, 3_000_000, 2000, true, false);
+        layout.setHeader(da, 8);
+        loaded = CompactShortcutLayout.fromHeader(da, 8, false);
+        assertEquals(layout.toString(), loaded.toString());
+        assertEquals(layout.quantize(2_999_999), loaded.quantize(2_999_999));
+    }
+}
@@ -444,6 +444,85 @@ public class GraphHopperStorageCHTest extends GraphHopperStorageTest {
         assertEquals(1, iter.getOrigEdgeLast());
     }
 
+    @Test
+    public void testCompactShortcuts() {
+        // 0 -> 1 -> 2 -> 3
+        graph = newGHStorage(false, true);
+        graph.edge(0, 1, 1, false);
+        graph.edge(1, 2, 3, false);
+        graph.edge(2, 3, 3, false);
+        graph.freeze();
+        CHGraphImpl lg = (CHGraphImpl) getGraph(graph);
+        lg.shortcutEdgeBased(0, 2, PrepareEncoder.getScFwdDir(), 4.5, 0, 1, 0, 1);
+        lg.shortcutEdgeBased(2, 0, PrepareEncoder.getScBwdDir(), Double.POSITIVE_INFINITY, 0, 1, 0, 1);
+        lg.shortcutEdgeBased(0, 3, PrepareEncoder.getScDirMask(), 7.25, 3, 2, 0, 2);
+        long capacity = lg.getCapacity();
+        lg.compactShortcuts();
+        assertTrue(lg.isCompacted());
+        assertTrue(lg.getCapacity() <= capacity);
+        checkCompactShortcuts(lg);
+
+        try {
+            lg.shortcutEdgeBased(1, 3, PrepareEncoder.getScFwdDir(), 6, 1, 2, 1, 2);
+            fail("shortcuts cannot be added after the compaction");
+        } catch (IllegalStateException ex) {
+            // expected
+        }
+        // the weights and skipped edges can still be changed
+        CHEdgeIteratorState shortcut = lg.getEdgeIteratorState(5, 3);
+        shortcut.setWeight(14.5);
+        shortcut.setSkippedEdges(2, 3);
+        assertEquals(14.5, lg.getEdgeIteratorState(5, 3).getWeight(), 1.e-6);
+        assertEquals(2, lg.getEdgeIteratorState(5, 3).getSkippedEdge1());
+        shortcut.setWeight(7.25);
+        shortcut.setSkippedEdges(3, 2);
+
+        graph.flush();
+        graph.close();
+        graph = newGHStorage(new RAMDirectory(defaultGraphLoc, true), false, true, -1);
+        assertTrue(graph.loadExisting());
+        lg = (CHGraphImpl) getGraph(graph);
+        assertTrue(lg.isCompacted());
+        checkCompactShortcuts(lg);
+    }
+
+    private void checkCompactShortcuts(CHGraph lg) {
+        assertEquals(GHUtility.asSet(1, 2, 3), GHUtility.getNeighbors(lg.createEdgeExplorer().setBaseNode(0)));
+        assertEquals(GHUtility.asSet(0, 1, 3), GHUtility.getNeighbors(lg.createEdgeExplorer().setBaseNode(2)));
+        AllCHEdgesIterator iter = lg.getAllEdges();
+        int shortcuts = 0;
+        while (iter.next()) {
+            if (iter.isShortcut())
+                shortcuts++;
+        }
+        assertEquals(3, shortcuts);
+
+        CHEdgeIteratorState sc02 = lg.getEdgeIteratorState(3, 2);
+        assertEquals(0, sc02.getBaseNode());
+        assertEquals(4.5, sc02.getWeight(), 1.e-6);
+        assertTrue(sc02.getFwdAccess());
+        assertFalse(sc02.getBwdAccess());
+        assertEquals(0, sc02.getSkippedEdge1());
+        assertEquals(1, sc02.getSkippedEdge2());
+        assertEquals(0, sc02.getOrigEdgeFirst());
+        assertEquals(1, sc02.getOrigEdgeLast());
+
+        CHEdgeIteratorState sc20 = lg.getEdgeIteratorState(4, 0);
+        assertEquals(2, sc20.getBaseNode());
+        assertEquals(Double.POSITIVE_INFINITY, sc20.getWeight(), 1.e-6);
+        assertFalse(sc20.getFwdAccess());
+        assertTrue(sc20.getBwdAccess());
+
+        CHEdgeIteratorState sc03 = lg.getEdgeIteratorState(5, 3);
+        assertEquals(7.25, sc03.getWeight(), 1.e-6);
+        assertTrue(sc03.getFwdAccess());
+        assertTrue(sc03.getBwdAccess());
+        assertEquals(3, sc03.getSkippedEdge1());
+        assertEquals(2, sc03.getSkippedEdge2());
+        assertEquals(0, sc03.getOrigEdgeFirst());
+        assertEquals(2, sc03.getOrigEdgeLast());
+    }
+
     @Test
     public void testGetEdgeIterator() {
         graph = newGHStorage(false, true);
@@ -19,6 +19,8 @@ package com.graphhopper.util;
 
 import com.graphhopper.coll.GHIntLongHashMap;
 import com.graphhopper.routing.ev.BooleanEncodedValue;
+import com.graphhopper.routing.ev.DecimalEncodedValue;
+import com.graphhopper.routing.ev.TurnCost;
 import com.graphhopper.routing.util.AllEdgesIterator;
 import com.graphhopper.routing.util.CarFlagEncoder;
 import com.graphhopper.routing.util.EncodingManager;
@@ -27,6 +29,8 @@ import com.graphhopper.routing.weighting.FastestWeighting;
 import com.graphhopper.storage.*;
 import org.junit.Test;
 
+import java.util.Arrays;
+
 import static org.junit.Assert.*;
 
 /**
@@ -122,6 +126,111 @@ public class GHUtilityTest {
         GHUtility.sortDFS(g, createGraph());
     }
 
+    @Test
+    public void testSortHilbert() {
+        Graph g = initUnsorted(createGraph());
+        Graph newG = GHUtility.sortHilbert(g, createGraph());
+        assertEquals(g.getNodes(), newG.getNodes());
+        assertEquals(g.getEdges(), newG.getEdges());
+        assertEquals(getLengthOfAllEdges(g), getLengthOfAllEdges(newG), 1e-4);
+        NodeAccess na = newG.getNodeAccess();
+        // the curve starts in the lower left corner of the bounds ...
+        assertEquals(0, na.getLatitude(0), 1e-4);
+        assertEquals(1, na.getLongitude(0), 1e-4);
+        // ... and ends in the lower right one
+        assertEquals(2.5, na.getLatitude(8), 1e-4);
+        assertEquals(4.5, na.getLongitude(8), 1e-4);
+        // the edges are numbered by their first node, so the edge of node 0 comes first
+        assertEquals(0, newG.getEdgeIteratorState(0, Integer.MIN_VALUE).getAdjNode());
+        assertEquals(8, newG.getEdgeIteratorState(0, Integer.MIN_VALUE).getBaseNode());
+    }
+
+    @Test
+    public void testCalcHilbertIndex() {
+        // the curve of order 1 visits the cells in the order (0,0), (0,1), (1,1), (1,0)
+        assertEquals(0, GHUtility.calcHilbertIndex(0, 0, 2));
+        assertEquals(1, GHUtility.calcHilbertIndex(0, 1, 2));
+        assertEquals(2, GHUtility.calcHilbertIndex(1, 1, 2));
+        assertEquals(3, GHUtility.calcHilbertIndex(1, 0, 2));
+
+        // all cells are visited exactly once and consecutive ones are neighbours
+        int cells = 16;
+        int[] xs = new int[cells * cells];
+        int[] ys = new int[cells * cells];
+        boolean[] visited = new boolean[cells * cells];
+        for (int x = 0; x < cells; x++) {
+            for (int y = 0; y < cells; y++) {
+                int index = (int) GHUtility.calcHilbertIndex(x, y, cells);
+                assertFalse(visited[index]);
+                visited[index] = true;
+                xs[index] = x;
+                ys[index] = y;
+            }
+        }
+        for (int i = 1; i < xs.length; i++) {
+            assertEquals(1, Math.abs(xs[i] - xs[i - 1]) + Math.abs(ys[i] - ys[i - 1]));
+        }
+    }
+
+    @Test
+    public void testSortWithTurnCosts() {
+        FlagEncoder encoder = new CarFlagEncoder(5, 5, 3);
+        EncodingManager em = EncodingManager.create(encoder);
+        DecimalEncodedValue turnCostEnc = em.getDecimalEncodedValue(TurnCost.key(encoder.toString()));
+        Graph g = initUnsorted(new GraphBuilder(em).withTurnCosts(true).create());
+        g.getTurnCostStorage().set(turnCostEnc, 2, 1, 4, 2.0);
+        g.getTurnCostStorage().set(turnCostEnc, 5, 1, 2, Double.POSITIVE_INFINITY);
+        g.getTurnCostStorage().set(turnCostEnc, 0, 8, 5, 1.0);
+
+        Graph dfsGraph = GHUtility.sortDFS(g, new GraphBuilder(em).withTurnCosts(true).create());
+        Graph hilbertGraph = GHUtility.sortHilbert(g, new GraphBuilder(em).withTurnCosts(true).create());
+        for (Graph newG : Arrays.asList(dfsGraph, hilbertGraph)) {
+            assertEquals(3, countTurnRelations(newG.getTurnCostStorage()));
+            assertEquals(2.0, getTurnCost(g, newG, turnCostEnc, 0, 1, 2), 1e-4);
+            assertEquals(Double.POSITIVE_INFINITY, getTurnCost(g, newG, turnCostEnc, 8, 1, 0), 1e-4);
+            assertEquals(1.0, getTurnCost(g, newG, turnCostEnc, 2, 8, 1), 1e-4);
+            assertEquals(0, getTurnCost(g, newG, turnCostEnc, 2, 1, 0), 1e-4);
+        }
+
+        try {
+            GHUtility.sortDFS(g, createGraph());
+            fail("the turn costs of the sorted graph cannot be stored");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+    }
+
+    private static int countTurnRelations(TurnCostStorage turnCostStorage) {
+        int count = 0;
+        TurnCostStorage.TurnRelationIterator iter = turnCostStorage.getAllTurnRelations();
+        while (iter.next()) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * @return the turn cost of the sorted graph for the specified nodes of the original graph
+     */
+    private static double getTurnCost(Graph g, Graph sortedG, DecimalEncodedValue turnCostEnc, int from, int via, int to) {
+        int newFrom = findNode(g, sortedG, from);
+        int newVia = findNode(g, sortedG, via);
+        int newTo = findNode(g, sortedG, to);
+        int fromEdge = GHUtility.getEdge(sortedG, newFrom, newVia).getEdge();
+        int toEdge = GHUtility.getEdge(sortedG, newVia, newTo).getEdge();
+        return sortedG.getTurnCostStorage().get(turnCostEnc, fromEdge, newVia, toEdge);
+    }
+
+    private static int findNode(Graph g, Graph sortedG, int node) {
+        NodeAccess na = g.getNodeAccess();
+        NodeAccess sortedNA = sortedG.getNodeAccess();
+        for (int newNode = 0; newNode < sortedG.getNodes(); newNode++) {
+            if (na.getLatitude(node) == sortedNA.getLatitude(newNode) && na.getLongitude(node) == sortedNA.getLongitude(newNode))
+                return newNode;
+        }
+        throw new IllegalStateException("node " + node + " not found");
+    }
+
     @Test
     public void testCopyWithSelfRef() {
         Graph g = initUnsorted(createGraph());
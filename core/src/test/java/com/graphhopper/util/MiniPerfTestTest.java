@@ -0,0 +1,54 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Jhon
+ */
+public class MiniPerfTestTest {
+
+    @Test
+    public void testPercentiles() {
+        MiniPerfTest perf = new MiniPerfTest() {
+            @Override
+            public int doCalc(boolean warmup, int run) {
+                // the last call takes much longer than all others
+                if (!warmup && run == 9) {
+                    try {
+                        Thread.sleep(50);
+                    } catch (InterruptedException ex) {
+                        throw new RuntimeException(ex);
+                    }
+                }
+                return run;
+            }
+        }.setIterations(10).start();
+
+        assertEquals(perf.getMin(), perf.getPercentile(0), 1e-9);
+        assertEquals(perf.getMax(), perf.getPercentile(100), 1e-9);
+        assertTrue(perf.getPercentile(50) < 50);
+        assertTrue(perf.getPercentile(90) < 50);
+        assertTrue(perf.getPercentile(99) >= 50);
+        assertTrue(perf.getPercentile(50) <= perf.getPercentile(90));
+    }
+}
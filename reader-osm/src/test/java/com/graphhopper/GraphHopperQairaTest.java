@@ -24,18 +24,29 @@ import com.graphhopper.reader.ReaderWay;
 import com.graphhopper.reader.dem.SRTMProvider;
 import com.graphhopper.reader.dem.SkadiProvider;
 import com.graphhopper.reader.osm.GraphHopperOSM;
+import com.graphhopper.routing.ACO;
+import com.graphhopper.routing.RouteCache;
 import com.graphhopper.routing.util.CarFlagEncoder;
 import com.graphhopper.routing.util.DefaultFlagEncoderFactory;
 import com.graphhopper.routing.util.EncodingManager;
 import com.graphhopper.routing.util.parsers.OSMMaxSpeedParser;
 import com.graphhopper.routing.util.parsers.OSMRoadEnvironmentParser;
+import com.graphhopper.routing.pollution.Pollutant;
+import com.graphhopper.routing.pollution.PollutionForecast;
+import com.graphhopper.routing.pollution.PollutionGrid;
+import com.graphhopper.routing.pollution.PollutionGridProvider;
+import com.graphhopper.routing.weighting.PollutionWeighting;
+import com.graphhopper.routing.weighting.ShortestWeighting;
 import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.CHConfig;
+import com.graphhopper.storage.CHGraphImpl;
 import com.graphhopper.storage.IntsRef;
 import com.graphhopper.util.*;
 import com.graphhopper.util.Parameters.CH;
 import com.graphhopper.util.Parameters.Landmark;
 import com.graphhopper.util.Parameters.Routing;
 import com.graphhopper.util.details.PathDetail;
+import com.graphhopper.util.exceptions.ConnectionNotFoundException;
 import com.graphhopper.util.exceptions.PointDistanceExceededException;
 import com.graphhopper.util.shapes.BBox;
 import com.graphhopper.util.shapes.GHPoint;
@@ -56,6 +67,7 @@ import static com.graphhopper.util.Parameters.Algorithms.*;
 import static com.graphhopper.util.Parameters.Curbsides.*;
 import static com.graphhopper.util.Parameters.Routing.U_TURN_COSTS;
 import static java.util.Arrays.asList;
+import static org.junit.jupiter.api.Assertions.fail;
 
 /**
  * @author Peter Karich
@@ -71,6 +83,12 @@ public class GraphHopperQairaTest {
     // when creating GH instances make sure to use this as the GH location such that it will be cleaned between tests
     private static final String GH_LOCATION = "target/graphhopper-test-gh";
 
+    @BeforeEach
+    @AfterEach
+    public void setup() {
+        Helper.removeDir(new File(GH_LOCATION));
+    }
+
     @Test
     public void testMonacoDifferentAlgorithms() {
         String algo="aco";
@@ -107,6 +125,269 @@ public class GraphHopperQairaTest {
 
     
 
+    private static PollutionGrid createMonacoGrid(long version, int seed) {
+        PollutionGrid.Builder builder = new PollutionGrid.Builder().setVersion(version);
+        for (int i = 0; i < 10; i++) {
+            for (int j = 0; j < 10; j++) {
+                int cell = builder.addCell(i + "_" + j, 43.72 + i * 0.004, 7.40 + j * 0.005, 43.724 + i * 0.004, 7.405 + j * 0.005);
+                builder.setValue(Pollutant.PM10, cell, 1 + (i * 7 + j * 3 + seed) % 11);
+            }
+        }
+        return builder.build();
+    }
+
+    private GraphHopper createPollutionHopper(PollutionGridProvider provider) {
+        return createPollutionHopper(provider, false);
+    }
+
+    private GraphHopper createPollutionHopper(PollutionGridProvider provider, boolean customizable) {
+        GraphHopper hopper = createGraphHopper("foot").
+                setOSMFile(MONACO).
+                setProfiles(
+                        new Profile("clean_air").setVehicle("foot").setWeighting(PollutionWeighting.NAME).putHint(PollutionWeighting.POLLUTANTS, "pm10"),
+                        new Profile("clean_air_flex").setVehicle("foot").setWeighting(PollutionWeighting.NAME).putHint(PollutionWeighting.POLLUTANTS, "pm10")).
+                setStoreOnFlush(true).
+                setPollutionGridProvider(provider).
+                setPollutionCHCustomizable(customizable);
+        hopper.getCHPreparationHandler().setCHProfiles(new CHProfile("clean_air")).setDisablingAllowed(true);
+        // the landmarks would not follow the new snapshots
+        if (!customizable)
+            hopper.getLMPreparationHandler().setLMProfiles(new LMProfile("clean_air")).setDisablingAllowed(true);
+        return hopper;
+    }
+
+    private GHRequest createPollutionRequest(String profile, boolean ch, boolean lm) {
+        GHRequest req = new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).setProfile(profile);
+        req.putHint(CH.DISABLE, !ch);
+        req.putHint(Landmark.DISABLE, !lm);
+        return req;
+    }
+
+    private GHResponse routePollution(GraphHopper hopper, String profile, boolean ch, boolean lm) {
+        GHResponse rsp = hopper.route(createPollutionRequest(profile, ch, lm));
+        assertFalse(rsp.getErrors().toString(), rsp.hasErrors());
+        return rsp;
+    }
+
+    @Test
+    public void testPollutionCHAndLM() {
+        PollutionGridProvider provider = PollutionGridProvider.of(createMonacoGrid(1, 0));
+        GraphHopper hopper = createPollutionHopper(provider);
+        hopper.importOrLoad();
+        assertEquals("1", hopper.getGraphHopperStorage().getProperties().get("prepare.pollution.version"));
+
+        double expected = routePollution(hopper, "clean_air_flex", false, false).getBest().getRouteWeight();
+        assertTrue(expected > 0);
+        assertEquals(expected, routePollution(hopper, "clean_air", false, false).getBest().getRouteWeight(), 1e-3);
+        assertEquals(expected, routePollution(hopper, "clean_air", true, false).getBest().getRouteWeight(), 1e-3);
+        assertEquals(expected, routePollution(hopper, "clean_air", false, true).getBest().getRouteWeight(), 1e-3);
+
+        // a new snapshot only changes the profile without preparation
+        provider.publish(createMonacoGrid(2, 5));
+        double changed = routePollution(hopper, "clean_air_flex", false, false).getBest().getRouteWeight();
+        assertNotEquals(expected, changed, 1e-3);
+        assertEquals(expected, routePollution(hopper, "clean_air", true, false).getBest().getRouteWeight(), 1e-3);
+        assertEquals(expected, routePollution(hopper, "clean_air", false, true).getBest().getRouteWeight(), 1e-3);
+        hopper.close();
+
+        // the frozen exposure is loaded together with the preparation
+        hopper = createPollutionHopper(PollutionGridProvider.of(createMonacoGrid(3, 5)));
+        hopper.importOrLoad();
+        assertEquals(1, hopper.getPreparedEdgeExposureStorage().getVersion());
+        assertEquals(3, hopper.getEdgeExposureStorage().getVersion());
+        assertEquals(expected, routePollution(hopper, "clean_air", true, false).getBest().getRouteWeight(), 1e-3);
+        assertEquals(changed, routePollution(hopper, "clean_air_flex", false, false).getBest().getRouteWeight(), 1e-3);
+        hopper.close();
+    }
+
+    @Test
+    public void testPollutionProfileWithoutSource() {
+        GraphHopper hopper = createPollutionHopper(null);
+        try {
+            hopper.importOrLoad();
+            fail("a pollution profile needs a pollution source");
+        } catch (IllegalArgumentException ex) {
+            assertTrue(ex.getMessage(), ex.getMessage().contains("no pollution source is configured"));
+        }
+    }
+
+    @Test
+    public void testRouteCache() {
+        PollutionGridProvider provider = PollutionGridProvider.of(createMonacoGrid(1, 0));
+        GraphHopper hopper = createPollutionHopper(provider);
+        RouteCache cache = new RouteCache(10);
+        hopper.setRouteCache(cache);
+        hopper.setMaxVisitedNodes(1_000_000);
+        hopper.importOrLoad();
+
+        GHResponse first = routePollution(hopper, "clean_air_flex", false, false);
+        GHResponse second = routePollution(hopper, "clean_air_flex", false, false);
+        // the cached route is returned again, but as a copy
+        assertEquals(1, cache.getHits());
+        assertTrue(first.getBest() != second.getBest());
+        assertEquals(first.getBest().getRouteWeight(), second.getBest().getRouteWeight(), 1e-6);
+        assertEquals(first.getBest().getPoints(), second.getBest().getPoints());
+        GHResponse ch = routePollution(hopper, "clean_air", true, false);
+        assertEquals(2, cache.getMisses());
+
+        // the paths are calculated without the cache
+        assertFalse(hopper.calcPaths(createPollutionRequest("clean_air_flex", false, false), new GHResponse()).isEmpty());
+        assertEquals(1, cache.getHits());
+        // the request is validated before the cache is used
+        GHRequest invalid = createPollutionRequest("clean_air_flex", false, false);
+        invalid.putHint(Routing.MAX_VISITED_NODES, 2_000_000);
+        assertTrue(hopper.route(invalid).hasErrors());
+
+        // a new snapshot changes the route of the flexible profile but not the one of the prepared profile
+        provider.publish(createMonacoGrid(2, 3));
+        GHResponse third = routePollution(hopper, "clean_air_flex", false, false);
+        assertEquals(3, cache.getMisses());
+        assertNotEquals("weight of the new snapshot", first.getBest().getRouteWeight(), third.getBest().getRouteWeight(), 1e-3);
+        assertEquals(ch.getBest().getRouteWeight(), routePollution(hopper, "clean_air", true, false).getBest().getRouteWeight(), 1e-6);
+        assertEquals(2, cache.getHits());
+        hopper.close();
+    }
+
+    @Test
+    public void testRouteCacheOfTimeDependentRoutes() {
+        long hour = 3600_000L;
+        GraphHopper hopper = createPollutionHopper(PollutionGridProvider.of(createMonacoGrid(1, 0)));
+        hopper.setPollutionForecast(new PollutionForecast.Builder().
+                addLayer(0, createMonacoGrid(1, 0)).
+                addLayer(hour, createMonacoGrid(1, 3)).build());
+        RouteCache cache = new RouteCache(10);
+        hopper.setRouteCache(cache);
+        hopper.importOrLoad();
+
+        // without a departure time the route depends on the time of the request and is not cached
+        GHRequest req = createPollutionRequest("clean_air_flex", false, false).setAlgorithm(TD_DIJKSTRA);
+        assertFalse(hopper.route(req).hasErrors());
+        assertFalse(hopper.route(req).hasErrors());
+        assertEquals(0, cache.getMisses());
+        assertEquals(0, cache.getSize());
+
+        req.putHint(TimeDependent.DEPARTURE_TIME, hour / 2);
+        assertFalse(hopper.route(req).hasErrors());
+        assertFalse(hopper.route(req).hasErrors());
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getHits());
+        hopper.close();
+    }
+
+    @Test
+    public void testACOLimits() {
+        GraphHopper hopper = createPollutionHopper(PollutionGridProvider.of(createMonacoGrid(1, 0)));
+        hopper.importOrLoad();
+        GHRequest req = new GHRequest(43.730729, 7.42135, 43.727697, 7.419199).setProfile("clean_air_flex").
+                setAlgorithm(ANT_COLONY);
+        req.putHint(CH.DISABLE, true);
+        req.putHint(Landmark.DISABLE, true);
+        req.putHint(AntColony.ANTS, 50);
+        req.putHint(AntColony.MAX_ITERATIONS, 20);
+        req.putHint(AntColony.SEED, 1);
+        // the few ants do not necessarily reach the destination, but the request is accepted
+        for (Throwable error : hopper.route(req).getErrors()) {
+            assertTrue(error.toString(), error instanceof ConnectionNotFoundException);
+        }
+
+        req.putHint(AntColony.ANTS, 1_001);
+        assertTrue(hopper.route(req).getErrors().get(0).getMessage().contains(AntColony.ANTS));
+        req.putHint(AntColony.ANTS, 50);
+        req.putHint(AntColony.MAX_ITERATIONS, 1_001);
+        assertTrue(hopper.route(req).getErrors().get(0).getMessage().contains(AntColony.MAX_ITERATIONS));
+        req.putHint(AntColony.MAX_ITERATIONS, 20);
+        req.putHint(AntColony.TIMEOUT_MS, ACO.DEFAULT_TIMEOUT_MILLIS + 1);
+        assertTrue(hopper.route(req).getErrors().get(0).getMessage().contains(AntColony.TIMEOUT_MS));
+        hopper.close();
+    }
+
+    @Test
+    public void testParetoAlternatives() {
+        GraphHopper hopper = createPollutionHopper(PollutionGridProvider.of(createMonacoGrid(1, 0)));
+        hopper.importOrLoad();
+        GHResponse optimum = routePollution(hopper, "clean_air_flex", false, false);
+
+        GHRequest req = new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).setProfile("clean_air_flex").
+                setAlgorithm(PARETO);
+        req.putHint(CH.DISABLE, true);
+        req.putHint(Landmark.DISABLE, true);
+        req.putHint(Pareto.EPSILON, 0.05);
+        GHResponse rsp = hopper.route(req);
+        assertFalse(rsp.getErrors().toString(), rsp.hasErrors());
+        List<ResponsePath> front = rsp.getAll();
+        assertFalse(front.isEmpty());
+        // from the fastest route to the one with the lowest exposure
+        for (int i = 1; i < front.size(); i++) {
+            assertTrue(front.get(i - 1).getTime() <= front.get(i).getTime());
+            assertTrue(front.get(i - 1).getRouteWeight() > front.get(i).getRouteWeight());
+        }
+        double lowest = front.get(front.size() - 1).getRouteWeight();
+        assertTrue(lowest >= optimum.getBest().getRouteWeight() - 1e-3);
+        assertTrue(lowest <= optimum.getBest().getRouteWeight() * 1.05 + 1e-3);
+        hopper.close();
+    }
+
+    @Test
+    public void testCustomizablePollutionCH() {
+        PollutionGridProvider provider = PollutionGridProvider.of(createMonacoGrid(1, 0));
+        GraphHopper hopper = createPollutionHopper(provider, true);
+        hopper.importOrLoad();
+        assertNull(hopper.getPreparedEdgeExposureStorage());
+        assertEquals("1", hopper.getGraphHopperStorage().getProperties().get("prepare.ch.clean_air.pollution.version"));
+
+        // the weights of the shortcuts are stored with three decimal places only
+        double delta = 0.05;
+        double expected = routePollution(hopper, "clean_air_flex", false, false).getBest().getRouteWeight();
+        assertEquals(expected, routePollution(hopper, "clean_air", true, false).getBest().getRouteWeight(), delta);
+
+        // the CH follows a new snapshot
+        provider.publish(createMonacoGrid(2, 5));
+        double changed = routePollution(hopper, "clean_air_flex", false, false).getBest().getRouteWeight();
+        assertNotEquals(expected, changed, 1e-3);
+        assertEquals(changed, routePollution(hopper, "clean_air", true, false).getBest().getRouteWeight(), delta);
+        assertEquals("2", hopper.getGraphHopperStorage().getProperties().get("prepare.ch.clean_air.pollution.version"));
+        hopper.close();
+
+        // an outdated CH is customized when it is loaded
+        hopper = createPollutionHopper(PollutionGridProvider.of(createMonacoGrid(3, 8)), true);
+        hopper.importOrLoad();
+        assertEquals("3", hopper.getGraphHopperStorage().getProperties().get("prepare.ch.clean_air.pollution.version"));
+        assertEquals(routePollution(hopper, "clean_air_flex", false, false).getBest().getRouteWeight(),
+                routePollution(hopper, "clean_air", true, false).getBest().getRouteWeight(), delta);
+        hopper.close();
+    }
+
+    @Test
+    public void testCompactShortcutsAreNotUsedForCustomizablePollutionCH() {
+        PollutionGridProvider provider = PollutionGridProvider.of(createMonacoGrid(1, 0));
+        GraphHopper hopper = createPollutionHopper(provider, true);
+        hopper.getCHPreparationHandler().setCompactShortcuts(true);
+        hopper.importOrLoad();
+        assertFalse(((CHGraphImpl) hopper.getGraphHopperStorage().getCHGraph("clean_air")).isCompacted());
+
+        // a snapshot with much higher values cannot break the customization
+        PollutionGrid.Builder builder = new PollutionGrid.Builder().setVersion(2);
+        int cell = builder.addCell("all", 43.7, 7.38, 43.77, 7.46);
+        builder.setValue(Pollutant.PM10, cell, 100);
+        provider.publish(builder.build());
+        assertEquals("2", hopper.getGraphHopperStorage().getProperties().get("prepare.ch.clean_air.pollution.version"));
+        assertEquals(routePollution(hopper, "clean_air_flex", false, false).getBest().getRouteWeight(),
+                routePollution(hopper, "clean_air", true, false).getBest().getRouteWeight(), 0.05);
+        hopper.close();
+        Helper.removeDir(new File(GH_LOCATION));
+
+        // an explicit compact CH config of a customizable profile is rejected
+        hopper = createPollutionHopper(PollutionGridProvider.of(createMonacoGrid(1, 0)), true);
+        hopper.getCHPreparationHandler().addCHConfig(new CHConfig("clean_air",
+                new ShortestWeighting(EncodingManager.create("foot").getEncoder("foot")), false, true));
+        try {
+            hopper.importOrLoad();
+            fail("compact shortcuts must not be used for a customizable CH");
+        } catch (IllegalArgumentException ex) {
+            assertTrue(ex.getMessage(), ex.getMessage().contains("clean_air"));
+        }
+    }
+
     private void testImportCloseAndLoad(boolean ch, boolean lm, boolean sort) {
         final String profile = "profile";
         final String vehicle = "foot";
@@ -24,6 +24,7 @@ import com.graphhopper.reader.ReaderWay;
 import com.graphhopper.reader.dem.SRTMProvider;
 import com.graphhopper.reader.dem.SkadiProvider;
 import com.graphhopper.reader.osm.GraphHopperOSM;
+import com.graphhopper.routing.util.AllEdgesIterator;
 import com.graphhopper.routing.util.CarFlagEncoder;
 import com.graphhopper.routing.util.DefaultFlagEncoderFactory;
 import com.graphhopper.routing.util.EncodingManager;
@@ -1576,6 +1577,60 @@ public class GraphHopperTest {
         }
     }
 
+    @ParameterizedTest
+    @ValueSource(strings = {"dfs", "hilbert"})
+    public void testSortGraphWithTurnCosts(String sortOrder) {
+        final String profile = "car";
+        final String vehicle = "car";
+        final String weighting = "fastest";
+        List<GHRequest> requests = new ArrayList<>();
+        List<ResponsePath> expectedPaths = new ArrayList<>();
+        GraphHopper hopper = createGraphHopper("car|turn_costs=true").
+                setOSMFile(MOSCOW).
+                setProfiles(new Profile(profile).setVehicle(vehicle).setWeighting(weighting).setTurnCosts(true));
+        hopper.importOrLoad();
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        // The sorted graph can have smaller bounds as unconnected nodes are dropped, so we route between points on
+        // the edges. We do not use the tower nodes, because copying the coordinates can move them by ~1cm, which
+        // changes where they get snapped.
+        List<GHPoint> points = new ArrayList<>();
+        AllEdgesIterator edgeIter = hopper.getGraphHopperStorage().getAllEdges();
+        while (edgeIter.next()) {
+            PointList pointList = edgeIter.fetchWayGeometry(FetchMode.ALL);
+            points.add(new GHPoint((pointList.getLat(0) + pointList.getLat(1)) / 2, (pointList.getLon(0) + pointList.getLon(1)) / 2));
+        }
+        for (int i = 0; i < 50; i++) {
+            GHRequest req = new GHRequest(points.get(rnd.nextInt(points.size())), points.get(rnd.nextInt(points.size()))).
+                    setProfile(profile);
+            requests.add(req);
+            expectedPaths.add(hopper.route(req).getBest());
+        }
+        hopper.close();
+        Helper.removeDir(new File(GH_LOCATION));
+
+        hopper = createGraphHopper("car|turn_costs=true").
+                setOSMFile(MOSCOW).
+                setProfiles(new Profile(profile).setVehicle(vehicle).setWeighting(weighting).setTurnCosts(true)).
+                setSortGraph(true).
+                setSortOrder(sortOrder);
+        hopper.importOrLoad();
+        assertEquals(sortOrder, hopper.getGraphHopperStorage().getProperties().get("graph.sort_order"));
+        assertFalse(hopper.getGraphHopperStorage().getProperties().get("datareader.import.date").isEmpty());
+        for (int i = 0; i < requests.size(); i++) {
+            ResponsePath expected = expectedPaths.get(i);
+            ResponsePath path = hopper.route(requests.get(i)).getBest();
+            String failMessage = "seed: " + seed + ", i=" + i;
+            assertEquals(expected.hasErrors(), path.hasErrors(), failMessage);
+            if (!expected.hasErrors()) {
+                assertEquals(expected.getDistance(), path.getDistance(), 0.1, failMessage);
+                // the copied geometry can differ slightly, see above
+                assertEquals(expected.getRouteWeight(), path.getRouteWeight(), 1.e-2, failMessage);
+            }
+        }
+        hopper.close();
+    }
+
     @Test
     public void testIssue1960() {
         final String profile = "car";
@@ -26,9 +26,10 @@ import com.graphhopper.config.LMProfile;
 import com.graphhopper.config.Profile;
 import com.graphhopper.reader.osm.GraphHopperOSM;
 import com.graphhopper.routing.ch.CHPreparationHandler;
+import com.graphhopper.routing.ch.PrepareContractionHierarchies;
 import com.graphhopper.routing.lm.LMPreparationHandler;
-import com.graphhopper.storage.Graph;
-import com.graphhopper.storage.NodeAccess;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.*;
 import com.graphhopper.util.*;
 import com.graphhopper.util.exceptions.ConnectionNotFoundException;
 import org.slf4j.Logger;
@@ -59,7 +60,7 @@ public class CHMeasurement {
      */
     private static void testPerformanceAutomaticNodeOrdering(String[] args) {
         // example args:
-        // map=berlin.pbf stats_file=stats.dat period_updates=0 lazy_updates=100 neighbor_updates=0 contract_nodes=100 log_messages=20 edge_quotient_weight=1.0 orig_edge_quotient_weight=3.0 hierarchy_depth_weight=2.0 sigma_factor=3.0 min_max_settled_edges=100 reset_interval=10000 landmarks=0 cleanup=true turncosts=true threshold=0.1 seed=456 comp_iterations=10 perf_iterations=100 quick=false
+        // map=berlin.pbf stats_file=stats.dat contraction_threads=8 contraction_deterministic=true period_updates=0 lazy_updates=100 neighbor_updates=0 contract_nodes=100 log_messages=20 edge_quotient_weight=1.0 orig_edge_quotient_weight=3.0 hierarchy_depth_weight=2.0 sigma_factor=3.0 min_max_settled_edges=100 reset_interval=10000 landmarks=0 cleanup=true turncosts=true threshold=0.1 seed=456 comp_iterations=10 perf_iterations=100 quick=false
         long start = nanoTime();
         PMap map = PMap.read(args);
         GraphHopperConfig ghConfig = new GraphHopperConfig(map);
@@ -87,6 +88,8 @@ public class CHMeasurement {
         final int compIterations = ghConfig.getInt("comp_iterations", 100);
         final int perfIterations = ghConfig.getInt("perf_iterations", 1000);
         final boolean quick = ghConfig.getBool("quick", false);
+        final int contractionThreads = ghConfig.getInt("contraction_threads", 0);
+        final boolean contractionDeterministic = ghConfig.getBool("contraction_deterministic", true);
 
         final GraphHopper graphHopper = new GraphHopperOSM();
         String profile = "car_profile";
@@ -143,6 +146,12 @@ public class CHMeasurement {
         results.putObject("_prepare_time", sw.getSeconds());
         LOGGER.info("Import and preparation took {}s", sw.getMillis() / 1000);
 
+        if (contractionThreads > 0) {
+            if (withTurnCosts)
+                throw new IllegalArgumentException("The parallel contraction is only available for node-based CH, use turncosts=false");
+            runContractionSpeedupTest(graphHopper, profile, contractionThreads, contractionDeterministic, results);
+        }
+
         if (!quick) {
             runCompareTest(DIJKSTRA_BI, graphHopper, withTurnCosts, uTurnCosts, seed, compIterations, errorThreshold, results);
             runCompareTest(ASTAR_BI, graphHopper, withTurnCosts, uTurnCosts, seed, compIterations, errorThreshold, results);
@@ -208,6 +217,40 @@ public class CHMeasurement {
         return sb.toString();
     }
 
+    /**
+     * Contracts a copy of the imported graph once with the serial and once with the parallel node contraction and
+     * reports the preparation times, the speedup and the number of shortcuts of both.
+     */
+    private static void runContractionSpeedupTest(GraphHopper graphHopper, String profile, int threads, boolean deterministic,
+                                                  PMap results) {
+        Weighting weighting = graphHopper.createWeighting(graphHopper.getProfile(profile), new PMap());
+        CHConfig serialConfig = CHConfig.nodeBased("serial", weighting);
+        CHConfig parallelConfig = CHConfig.nodeBased("parallel", weighting);
+        GraphHopperStorage ghStorage = new GraphBuilder(graphHopper.getEncodingManager()).
+                setCHConfigs(serialConfig, parallelConfig).create();
+        graphHopper.getGraphHopperStorage().copyTo(ghStorage);
+        ghStorage.freeze();
+
+        LOGGER.info("Running contraction speedup test with {} threads, deterministic: {}", threads, deterministic);
+        PrepareContractionHierarchies serial = PrepareContractionHierarchies.fromGraphHopperStorage(ghStorage, serialConfig);
+        serial.doWork();
+        PrepareContractionHierarchies parallel = PrepareContractionHierarchies.fromGraphHopperStorage(ghStorage, parallelConfig).
+                setContractionThreads(threads, deterministic);
+        parallel.doWork();
+        ghStorage.close();
+
+        double speedup = (double) serial.getTotalPrepareTime() / Math.max(1, parallel.getTotalPrepareTime());
+        LOGGER.info("Contraction took {}ms serial and {}ms with {} threads in {} rounds, speedup: {}",
+                serial.getTotalPrepareTime(), parallel.getTotalPrepareTime(), threads, parallel.getRounds(), fmt(speedup));
+        results.putObject("_contraction.threads", threads);
+        results.putObject("_contraction.time_serial", serial.getTotalPrepareTime());
+        results.putObject("_contraction.time_parallel", parallel.getTotalPrepareTime());
+        results.putObject("_contraction.speedup", fmt(speedup));
+        results.putObject("_contraction.shortcuts_serial", serial.getShortcuts());
+        results.putObject("_contraction.shortcuts_parallel", parallel.getShortcuts());
+        results.putObject("_contraction.rounds", parallel.getRounds());
+    }
+
     private static void runCompareTest(final String algo, final GraphHopper graphHopper, final boolean withTurnCosts, final int uTurnCosts,
                                        long seed, final int iterations, final double threshold, final PMap results) {
         LOGGER.info("Running compare test for {}, using seed {}", algo, seed);
@@ -32,17 +32,23 @@ import com.graphhopper.json.geo.JsonFeatureCollection;
 import com.graphhopper.reader.DataReader;
 import com.graphhopper.reader.osm.GraphHopperOSM;
 import com.graphhopper.routing.lm.PrepareLandmarks;
+import com.graphhopper.routing.pollution.Pollutant;
+import com.graphhopper.routing.pollution.PollutionGrid;
+import com.graphhopper.routing.pollution.PollutionGridLoader;
+import com.graphhopper.routing.pollution.PollutionGridProvider;
 import com.graphhopper.routing.util.*;
 import com.graphhopper.routing.util.spatialrules.AbstractSpatialRule;
 import com.graphhopper.routing.util.spatialrules.SpatialRuleLookup;
 import com.graphhopper.routing.util.spatialrules.SpatialRuleLookupBuilder;
 import com.graphhopper.routing.util.spatialrules.SpatialRuleLookupBuilder.SpatialRuleFactory;
 import com.graphhopper.routing.weighting.custom.CustomProfile;
+import com.graphhopper.routing.weighting.PollutionWeighting;
 import com.graphhopper.routing.weighting.custom.CustomWeighting;
 import com.graphhopper.storage.*;
 import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.util.*;
 import com.graphhopper.util.Parameters.Algorithms;
+import com.graphhopper.util.Parameters.Algorithms.AntColony;
 import com.graphhopper.util.Parameters.CH;
 import com.graphhopper.util.Parameters.Landmark;
 import com.graphhopper.util.shapes.BBox;
@@ -78,6 +84,7 @@ import static com.graphhopper.util.Parameters.Routing.BLOCK_AREA;
  */
 public class Measurement {
     private static final Logger logger = LoggerFactory.getLogger(Measurement.class);
+    private static final String POLLUTION_PROFILE = "pollution_no_tc";
     private final Map<String, Object> properties = new TreeMap<>();
     private long seed;
     private int maxNode;
@@ -134,11 +141,18 @@ public class Measurement {
                 // note that we measure the total time of all (possibly edge&node) CH preparations
                 put(Parameters.CH.PREPARE + "time", sw.stop().getMillis());
                 int edges = getGraphHopperStorage().getEdges();
-                if (!getCHPreparationHandler().getNodeBasedCHConfigs().isEmpty()) {
-                    CHConfig chConfig = getCHPreparationHandler().getNodeBasedCHConfigs().get(0);
-                    int edgesAndShortcuts = getGraphHopperStorage().getCHGraph(chConfig).getEdges();
+                CHConfig nodeBasedConfig = null;
+                for (CHConfig chConfig : getCHPreparationHandler().getNodeBasedCHConfigs()) {
+                    // the pollution profile is measured separately
+                    if (!chConfig.getName().equals(POLLUTION_PROFILE)) {
+                        nodeBasedConfig = chConfig;
+                        break;
+                    }
+                }
+                if (nodeBasedConfig != null) {
+                    int edgesAndShortcuts = getGraphHopperStorage().getCHGraph(nodeBasedConfig).getEdges();
                     put(Parameters.CH.PREPARE + "node.shortcuts", edgesAndShortcuts - edges);
-                    put(Parameters.CH.PREPARE + "node.time", getCHPreparationHandler().getPreparation(chConfig).getTotalPrepareTime());
+                    put(Parameters.CH.PREPARE + "node.time", getCHPreparationHandler().getPreparation(nodeBasedConfig).getTotalPrepareTime());
                 }
                 if (!getCHPreparationHandler().getEdgeBasedCHConfigs().isEmpty()) {
                     CHConfig chConfig = getCHPreparationHandler().getEdgeBasedCHConfigs().get(0);
@@ -177,6 +191,17 @@ public class Measurement {
         hopper.init(createConfigFromArgs(args)).
                 // use server to allow path simplification
                         forServer();
+        final boolean usePollution = args.getBool("measurement.pollution", false);
+        if (usePollution) {
+            final int cellsPerSide = args.getInt("measurement.pollution.cells", 50);
+            // the grid is created when the pollution grid is loaded after the import, i.e. when the bounds are known
+            hopper.setPollutionGridProvider(new PollutionGridProvider(new PollutionGridLoader() {
+                @Override
+                public PollutionGrid load() {
+                    return createSyntheticPollutionGrid(hopper.getGraphHopperStorage().getBounds(), cellsPerSide, seed);
+                }
+            }));
+        }
         if (cleanGraph) {
             hopper.clean();
         }
@@ -215,7 +240,8 @@ public class Measurement {
                             withInstructions().blockArea(blockAreaStr));
             }
 
-            if (hopper.getLMPreparationHandler().isEnabled()) {
+            // the preparations might only exist for the pollution profile, see measurement.pollution
+            if (hopper.getLMPreparationHandler().isEnabled() && args.getBool("measurement.lm", true)) {
                 System.gc();
                 boolean isCH = false;
                 boolean isLM = true;
@@ -240,7 +266,7 @@ public class Measurement {
                 boolean isLM = false;
 //                compareCHWithAndWithoutSOD(hopper, count/5);
                 System.gc();
-                if (!hopper.getCHPreparationHandler().getNodeBasedCHConfigs().isEmpty()) {
+                if (!hopper.getCHPreparationHandler().getNodeBasedCHConfigs().isEmpty() && args.getBool("measurement.ch.node", true)) {
                     CHConfig chConfig = hopper.getCHPreparationHandler().getNodeBasedCHConfigs().get(0);
                     CHGraph lg = g.getCHGraph(chConfig);
                     fillAllowedEdges(lg.getAllEdges(), allowedEdges);
@@ -267,6 +293,9 @@ public class Measurement {
                             edgeBased().withInstructions().withPointHints().simplify());
                 }
             }
+            if (usePollution)
+                printPollutionRouteQueries(hopper, args, count);
+
             if (!isEmpty(countryBordersDirectory)) {
                 printSpatialRuleLookupTest(countryBordersDirectory, count * 100);
             }
@@ -323,6 +352,10 @@ public class Measurement {
             if (turnCosts)
                 profiles.add(new Profile("profile_tc").setVehicle(vehicle).setWeighting(weighting).setTurnCosts(true));
         }
+        boolean usePollution = args.getBool("measurement.pollution", false);
+        if (usePollution)
+            profiles.add(new Profile(POLLUTION_PROFILE).setVehicle(vehicle).setWeighting(PollutionWeighting.NAME).
+                    setTurnCosts(false).putHint(PollutionWeighting.POLLUTANTS, args.getString("measurement.pollution.pollutants", "pm10")));
         ghConfig.setProfiles(profiles);
 
         List<CHProfile> chProfiles = new ArrayList<>();
@@ -330,6 +363,8 @@ public class Measurement {
             chProfiles.add(new CHProfile("profile_no_tc"));
         if (useCHEdge)
             chProfiles.add(new CHProfile("profile_tc"));
+        if (usePollution && args.getBool("measurement.pollution.ch", useCHNode))
+            chProfiles.add(new CHProfile(POLLUTION_PROFILE));
         ghConfig.setCHProfiles(chProfiles);
         List<LMProfile> lmProfiles = new ArrayList<>();
         if (useLM) {
@@ -338,6 +373,9 @@ public class Measurement {
                 // no need for a second LM preparation, we can do cross queries here
                 lmProfiles.add(new LMProfile("profile_tc").setPreparationProfile("profile_no_tc"));
         }
+        if (usePollution && args.getBool("measurement.pollution.lm", useLM))
+            // the landmark weights of the pollution profile differ too much from the ones of the other profiles
+            lmProfiles.add(new LMProfile(POLLUTION_PROFILE));
         ghConfig.setLMProfiles(lmProfiles);
         return ghConfig;
     }
@@ -349,6 +387,10 @@ public class Measurement {
         int activeLandmarks = -1;
         boolean withInstructions, withPointHints, sod, edgeBased, simplify, alternative;
         String blockArea;
+        String profile;
+        String algorithm;
+        double maxAirDistance = -1;
+        final PMap hints = new PMap();
 
         QuerySettings(String prefix, int count, boolean isCH, boolean isLM) {
             this.prefix = prefix;
@@ -396,6 +438,26 @@ public class Measurement {
             blockArea = str;
             return this;
         }
+
+        QuerySettings profile(String profile) {
+            this.profile = profile;
+            return this;
+        }
+
+        QuerySettings algorithm(String algorithm) {
+            this.algorithm = algorithm;
+            return this;
+        }
+
+        QuerySettings maxAirDistance(double meters) {
+            maxAirDistance = meters;
+            return this;
+        }
+
+        QuerySettings hint(String key, Object value) {
+            hints.putObject(key, value);
+            return this;
+        }
     }
 
     void fillAllowedEdges(AllEdgesIterator iter, GHBitSet bs) {
@@ -678,8 +740,18 @@ public class Measurement {
                     fromLon = na.getLongitude(from);
                     toLat = na.getLatitude(to);
                     toLon = na.getLongitude(to);
+                    // slow algorithms are only measured for targets near the start
+                    for (int j = 0; j < 1000 && querySettings.maxAirDistance > 0
+                            && distCalc.calcDist(fromLat, fromLon, toLat, toLon) > querySettings.maxAirDistance; j++) {
+                        to = rand.nextInt(maxNode);
+                        toLat = na.getLatitude(to);
+                        toLon = na.getLongitude(to);
+                    }
                     req = new GHRequest(fromLat, fromLon, toLat, toLon);
-                    req.setProfile(querySettings.edgeBased ? "profile_tc" : "profile_no_tc");
+                    if (querySettings.profile != null)
+                        req.setProfile(querySettings.profile);
+                    else
+                        req.setProfile(querySettings.edgeBased ? "profile_tc" : "profile_no_tc");
                     if (querySettings.blockArea == null)
                         break;
 
@@ -703,6 +775,9 @@ public class Measurement {
 
                 if (querySettings.alternative)
                     req.setAlgorithm(ALT_ROUTE);
+                else if (querySettings.algorithm != null)
+                    req.setAlgorithm(querySettings.algorithm);
+                req.getHints().putAll(querySettings.hints);
 
                 if (querySettings.withInstructions)
                     req.setPathDetails(Arrays.asList(Parameters.Details.AVERAGE_SPEED));
@@ -782,6 +857,8 @@ public class Measurement {
         if (querySettings.ch && !querySettings.sod) {
             algoStr += "_no_sod";
         }
+        if (querySettings.algorithm != null)
+            algoStr = querySettings.algorithm;
         String prefix = querySettings.prefix;
         put(prefix + ".guessed_algorithm", algoStr);
         put(prefix + ".failed_count", failedCount.get());
@@ -795,12 +872,95 @@ public class Measurement {
         print(prefix, miniPerf);
     }
 
+    /**
+     * Runs random routes with the pollution profile over the synthetic grid, see measurement.pollution, for every
+     * algorithm supporting the pollution weighting and for CH and LM if they are prepared for this profile.
+     */
+    private void printPollutionRouteQueries(GraphHopper hopper, PMap args, int count) {
+        put("pollution.grid_cells", hopper.getPollutionGridProvider().get().getCellCount());
+        System.gc();
+        boolean isCH = false;
+        boolean isLM = false;
+        int slowCount = Math.max(1, count / 20);
+        printTimeOfRouteQuery(hopper, new QuerySettings("routingPollution_dijkstra", slowCount, isCH, isLM).
+                profile(POLLUTION_PROFILE).algorithm(Algorithms.DIJKSTRA));
+        printTimeOfRouteQuery(hopper, new QuerySettings("routingPollution_dijkstrabi", slowCount, isCH, isLM).
+                profile(POLLUTION_PROFILE).algorithm(Algorithms.DIJKSTRA_BI));
+        printTimeOfRouteQuery(hopper, new QuerySettings("routingPollution_astar_qaira", slowCount, isCH, isLM).
+                profile(POLLUTION_PROFILE).algorithm(Algorithms.ASTAR).hint(Algorithms.ASTAR + ".approximation", "Qaira"));
+        printTimeOfRouteQuery(hopper, new QuerySettings("routingPollution_astarbi_qaira", slowCount, isCH, isLM).
+                profile(POLLUTION_PROFILE).algorithm(Algorithms.ASTAR_BI).hint(Algorithms.ASTAR_BI + ".approximation", "Qaira"));
+        // the ants are slow and hardly find far targets, so only a few short routes are calculated
+        printTimeOfRouteQuery(hopper, new QuerySettings("routingPollution_aco",
+                args.getInt("measurement.pollution.aco_count", Math.max(1, count / 100)), isCH, isLM).
+                profile(POLLUTION_PROFILE).algorithm(Algorithms.ANT_COLONY).
+                maxAirDistance(args.getDouble("measurement.pollution.aco_max_distance", 2_000)).
+                hint(AntColony.MAX_ITERATIONS, args.getInt("measurement.pollution.aco_iterations", 100)).
+                hint(AntColony.SEED, seed));
+
+        for (CHProfile chProfile : hopper.getCHPreparationHandler().getCHProfiles()) {
+            if (chProfile.getProfile().equals(POLLUTION_PROFILE))
+                printTimeOfRouteQuery(hopper, new QuerySettings("routingPollutionCH", count, true, false).
+                        profile(POLLUTION_PROFILE).sod());
+        }
+        for (LMProfile lmProfile : hopper.getLMPreparationHandler().getLMProfiles()) {
+            if (lmProfile.getProfile().equals(POLLUTION_PROFILE))
+                printTimeOfRouteQuery(hopper, new QuerySettings("routingPollutionLM8", count / 4, false, true).
+                        profile(POLLUTION_PROFILE).activeLandmarks(8));
+        }
+        System.gc();
+        put("routingPollution.usedMB", getUsedMB());
+    }
+
+    /**
+     * Creates a grid of cellsPerSide x cellsPerSide cells over the specified bounds. The value of every pollutant is a
+     * low background level plus a few hot spots decaying with the distance, like the surroundings of busy crossings.
+     */
+    static PollutionGrid createSyntheticPollutionGrid(BBox bounds, int cellsPerSide, long seed) {
+        Random rand = new Random(seed);
+        double latSpan = bounds.maxLat - bounds.minLat, lonSpan = bounds.maxLon - bounds.minLon;
+        double radius = 0.1 * Math.max(latSpan, lonSpan);
+        int hotSpots = 10;
+        double[] spotLat = new double[hotSpots], spotLon = new double[hotSpots], spotValue = new double[hotSpots];
+        for (int i = 0; i < hotSpots; i++) {
+            spotLat[i] = bounds.minLat + rand.nextDouble() * latSpan;
+            spotLon[i] = bounds.minLon + rand.nextDouble() * lonSpan;
+            spotValue[i] = 20 + rand.nextDouble() * 80;
+        }
+        double[] pollutantFactors = new double[Pollutant.values().length];
+        for (int i = 0; i < pollutantFactors.length; i++) {
+            pollutantFactors[i] = 0.5 + rand.nextDouble();
+        }
+
+        double cellLat = latSpan / cellsPerSide, cellLon = lonSpan / cellsPerSide;
+        PollutionGrid.Builder builder = new PollutionGrid.Builder().setVersion(1);
+        for (int row = 0; row < cellsPerSide; row++) {
+            for (int col = 0; col < cellsPerSide; col++) {
+                double south = bounds.minLat + row * cellLat, west = bounds.minLon + col * cellLon;
+                int cell = builder.addCell(row + "_" + col, south, west, south + cellLat, west + cellLon);
+                double centerLat = south + cellLat / 2, centerLon = west + cellLon / 2;
+                double value = 5 + rand.nextDouble() * 5;
+                for (int i = 0; i < hotSpots; i++) {
+                    double dLat = centerLat - spotLat[i], dLon = centerLon - spotLon[i];
+                    value += spotValue[i] * Math.exp(-(dLat * dLat + dLon * dLon) / (radius * radius));
+                }
+                for (Pollutant pollutant : Pollutant.values()) {
+                    builder.setValue(pollutant, cell, value * pollutantFactors[pollutant.ordinal()]);
+                }
+            }
+        }
+        return builder.build();
+    }
+
     void print(String prefix, MiniPerfTest perf) {
         logger.info(prefix + ": " + perf.getReport());
         put(prefix + ".sum", perf.getSum());
         put(prefix + ".min", perf.getMin());
         put(prefix + ".mean", perf.getMean());
         put(prefix + ".max", perf.getMax());
+        put(prefix + ".p50", perf.getPercentile(50));
+        put(prefix + ".p90", perf.getPercentile(90));
+        put(prefix + ".p99", perf.getPercentile(99));
     }
 
     void put(String key, Object val) {
@@ -901,6 +1061,19 @@ public class Measurement {
                 "routingLM8.distance_mean",
                 "routingLM8.mean",
                 "routingLM8.visited_nodes_mean",
+                "routingPollution_dijkstra.mean",
+                "routingPollution_dijkstra.p90",
+                "routingPollution_dijkstra.visited_nodes_mean",
+                "routingPollution_astar_qaira.mean",
+                "routingPollution_astar_qaira.p90",
+                "routingPollution_astar_qaira.visited_nodes_mean",
+                "routingPollution_aco.mean",
+                "routingPollution_aco.p90",
+                "routingPollutionCH.mean",
+                "routingPollutionCH.p90",
+                "routingPollutionLM8.mean",
+                "routingPollutionLM8.p90",
+                "routingPollution.usedMB",
                 "measurement.seed",
                 "measurement.gitinfo",
                 "measurement.timestamp"
@@ -0,0 +1,56 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.tools;
+
+import com.graphhopper.routing.pollution.JdbcConnectionPool;
+import com.graphhopper.routing.pollution.JdbcPollutionGridLoader;
+import com.graphhopper.routing.pollution.PollutionGrid;
+import com.graphhopper.routing.pollution.PollutionGridFile;
+import com.graphhopper.storage.DAType;
+import com.graphhopper.util.PMap;
+import com.graphhopper.util.StopWatch;
+
+/**
+ * Exports the current pollution grid of the sensor database to a file that GraphHopper can load without the database
+ * via pollution.grid_location. Usage:
+ * <pre>
+ * java -cp tools.jar com.graphhopper.tools.PollutionGridImport pollution.db_config=sensors-config/MYSQL.config pollution.grid_location=pollution-grid
+ * </pre>
+ *
+ * @author Jhon
+ */
+public class PollutionGridImport {
+    public static void main(String[] strs) {
+        PMap args = PMap.read(strs);
+        String dbConfig = args.getString("pollution.db_config", "sensors-config/MYSQL.config");
+        String location = args.getString("pollution.grid_location", "");
+        if (location.isEmpty())
+            throw new IllegalArgumentException("You need to specify the target directory via pollution.grid_location");
+
+        StopWatch sw = new StopWatch().start();
+        PollutionGrid grid;
+        JdbcConnectionPool pool = JdbcConnectionPool.fromIni(dbConfig, 1, 30_000);
+        try {
+            grid = new JdbcPollutionGridLoader(pool).load();
+        } finally {
+            pool.close();
+        }
+        new PollutionGridFile(location, DAType.RAM_STORE).write(grid);
+        System.out.println("wrote pollution grid " + grid + " to " + location + " in " + sw.stop().getSeconds() + "s");
+    }
+}
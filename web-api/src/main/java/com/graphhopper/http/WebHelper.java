@@ -182,6 +182,8 @@ public class WebHelper {
                 }
                 jsonPath.putPOJO("legs", p.getLegs());
                 jsonPath.putPOJO("details", p.getPathDetails());
+                if (!p.getExposures().isEmpty())
+                    jsonPath.putPOJO("exposure", p.getExposures());
                 jsonPath.put("ascend", p.getAscend());
                 jsonPath.put("descend", p.getDescend());
             }
@@ -57,6 +57,13 @@ public class PathWrapperDeserializer extends JsonDeserializer<ResponsePath> {
         if (path.has("descend")) {
             responsePath.setDescend(path.get("descend").asDouble());
         }
+        if (path.has("exposure")) {
+            Iterator<Map.Entry<String, JsonNode>> exposures = path.get("exposure").fields();
+            while (exposures.hasNext()) {
+                Map.Entry<String, JsonNode> exposure = exposures.next();
+                responsePath.addExposure(exposure.getKey(), exposure.getValue().asDouble());
+            }
+        }
         if (path.has("weight")) {
             responsePath.setRouteWeight(path.get("weight").asDouble());
         }
@@ -0,0 +1,50 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.graphhopper.routing.ACO;
+import com.graphhopper.routing.ACOListener;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aggregates the iterations of all {@link ACO} requests into the metrics of the server: the duration of the
+ * iterations, the ant steps per iteration and the weight of the best path after every iteration.
+ */
+public class ACOMetrics implements ACOListener {
+    private final Timer iterations;
+    private final Histogram visitedNodes;
+    private final Histogram bestWeights;
+
+    public ACOMetrics(MetricRegistry registry) {
+        iterations = registry.timer(MetricRegistry.name(ACO.class, "iterations"));
+        visitedNodes = registry.histogram(MetricRegistry.name(ACO.class, "visited_nodes"));
+        bestWeights = registry.histogram(MetricRegistry.name(ACO.class, "best_weight"));
+    }
+
+    @Override
+    public void onIteration(int iteration, double bestWeight, int visitedNodes, long durationNanos) {
+        iterations.update(durationNanos, TimeUnit.NANOSECONDS);
+        this.visitedNodes.update(visitedNodes);
+        if (!Double.isInfinite(bestWeight))
+            bestWeights.update(Math.round(bestWeight));
+    }
+}
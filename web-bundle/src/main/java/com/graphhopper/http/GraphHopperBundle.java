@@ -239,12 +239,24 @@ public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConf
         final GraphHopperManaged graphHopperManaged = new GraphHopperManaged(configuration.getGraphHopperConfiguration(), environment.getObjectMapper());
         environment.lifecycle().manage(graphHopperManaged);
         final GraphHopper graphHopper = graphHopperManaged.getGraphHopper();
+        graphHopper.setACOListener(new ACOMetrics(environment.metrics()));
+        if (graphHopper.getPollutionConnectionPool() != null)
+            new JdbcConnectionPoolMetrics(environment.metrics(), graphHopper.getPollutionConnectionPool());
+        if (graphHopper.getRouteCache() != null)
+            new RouteCacheMetrics(environment.metrics(), graphHopper.getRouteCache());
+        if (configuration.getGraphHopperConfiguration().has("pollution.sensor_feed")) {
+            // managed objects are started in order, so the feed starts after the graph was loaded
+            environment.lifecycle().manage(new SensorFeedManaged(configuration.getGraphHopperConfiguration(), graphHopper, environment.getObjectMapper()));
+        }
         environment.jersey().register(new AbstractBinder() {
             @Override
             protected void configure() {
                 bind(configuration.getGraphHopperConfiguration()).to(GraphHopperConfig.class);
                 bind(graphHopper).to(GraphHopper.class);
                 bind(graphHopper).to(GraphHopperAPI.class);
+                // 0 disables the cache of the vector tiles with pollution layers
+                bind(new PollutionTileCache(configuration.getGraphHopperConfiguration().getLong("pollution.tile_cache_mb", 32) * 1024 * 1024))
+                        .to(PollutionTileCache.class);
 
                 bindFactory(ProfileResolverFactory.class).to(ProfileResolver.class);
                 bindFactory(HasElevation.class).to(Boolean.class).named("hasElevation");
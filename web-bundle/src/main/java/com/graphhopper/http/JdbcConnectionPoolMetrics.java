@@ -0,0 +1,48 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.graphhopper.routing.pollution.JdbcConnectionPool;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exposes the usage of the connections to the sensor database as metrics of the server: the open and active
+ * connections, the executed and failed queries and the average time spent executing and waiting for a connection.
+ */
+public class JdbcConnectionPoolMetrics {
+
+    public JdbcConnectionPoolMetrics(MetricRegistry registry, JdbcConnectionPool pool) {
+        String prefix = MetricRegistry.name(JdbcConnectionPool.class);
+        registry.register(MetricRegistry.name(prefix, "max_connections"), (Gauge<Integer>) pool::getMaxConnections);
+        registry.register(MetricRegistry.name(prefix, "open_connections"), (Gauge<Integer>) pool::getOpenConnections);
+        registry.register(MetricRegistry.name(prefix, "active_connections"), (Gauge<Integer>) pool::getActiveConnections);
+        registry.register(MetricRegistry.name(prefix, "executions"), (Gauge<Long>) pool::getExecutions);
+        registry.register(MetricRegistry.name(prefix, "failures"), (Gauge<Long>) pool::getFailures);
+        registry.register(MetricRegistry.name(prefix, "mean_execution_ms"),
+                (Gauge<Double>) () -> mean(pool.getExecutionNanos(), pool.getExecutions()));
+        registry.register(MetricRegistry.name(prefix, "mean_wait_ms"),
+                (Gauge<Double>) () -> mean(pool.getWaitNanos(), pool.getExecutions()));
+    }
+
+    private static double mean(long nanos, long count) {
+        return count == 0 ? 0 : (double) nanos / count / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+
+import java.util.Collection;
+import java.util.TreeSet;
+
+/**
+ * Keeps the recently served vector tiles with pollution layers in memory. A tile is identified by its coordinates,
+ * the version of the pollution snapshot it was created from and the requested attributes, so publishing a new
+ * snapshot implicitly makes all cached tiles outdated and they are evicted as the least recently used ones.
+ */
+public class PollutionTileCache {
+    private final Cache<String, byte[]> tiles;
+
+    /**
+     * @param maxBytes the maximum size of all cached tiles together, 0 disables the cache
+     */
+    public PollutionTileCache(long maxBytes) {
+        tiles = CacheBuilder.newBuilder().
+                maximumWeight(maxBytes).
+                weigher(new Weigher<String, byte[]>() {
+                    @Override
+                    public int weigh(String key, byte[] tile) {
+                        return tile.length;
+                    }
+                }).
+                build();
+    }
+
+    /**
+     * @param details the requested attributes that affect the tile, the order and duplicates are ignored so that e.g.
+     *                details=exposure_pm10&details=road_class and details=road_class&details=exposure_pm10 share a tile
+     */
+    public static String createKey(int z, int x, int y, long version, Collection<String> details, boolean cells) {
+        return z + "/" + x + "/" + y + "/" + version + "/" + new TreeSet<>(details) + "/" + cells;
+    }
+
+    /**
+     * @return the cached tile or null if it is not cached
+     */
+    public byte[] get(String key) {
+        return tiles.getIfPresent(key);
+    }
+
+    public void put(String key, byte[] tile) {
+        tiles.put(key, tile);
+    }
+
+    public long size() {
+        return tiles.size();
+    }
+}
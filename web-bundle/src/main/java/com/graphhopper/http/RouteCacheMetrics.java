@@ -0,0 +1,41 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.graphhopper.routing.RouteCache;
+
+/**
+ * Exposes the usage of the {@link RouteCache} as metrics of the server: the cached routes, hits, misses, evictions and
+ * the hit ratio.
+ */
+public class RouteCacheMetrics {
+
+    public RouteCacheMetrics(MetricRegistry registry, RouteCache cache) {
+        String prefix = MetricRegistry.name(RouteCache.class);
+        registry.register(MetricRegistry.name(prefix, "size"), (Gauge<Integer>) cache::getSize);
+        registry.register(MetricRegistry.name(prefix, "hits"), (Gauge<Long>) cache::getHits);
+        registry.register(MetricRegistry.name(prefix, "misses"), (Gauge<Long>) cache::getMisses);
+        registry.register(MetricRegistry.name(prefix, "evictions"), (Gauge<Long>) cache::getEvictions);
+        registry.register(MetricRegistry.name(prefix, "hit_ratio"), (Gauge<Double>) () -> {
+            long hits = cache.getHits(), requests = hits + cache.getMisses();
+            return requests == 0 ? 0 : (double) hits / requests;
+        });
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.graphhopper.GraphHopper;
+import com.graphhopper.GraphHopperConfig;
+import com.graphhopper.routing.pollution.Pollutant;
+import com.graphhopper.routing.pollution.SensorFeed;
+import com.graphhopper.routing.pollution.SensorReading;
+import io.dropwizard.lifecycle.Managed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+
+import static com.graphhopper.util.Helper.UTF_CS;
+
+/**
+ * Follows a file with one sensor reading as JSON object per line, like
+ * {"sensor":"qH001","lat":-12.07,"lon":-77.08,"pollutant":"CO","value":812.5,"time":1589925600000}, and feeds the
+ * readings into a {@link SensorFeed}. Lines appended to the file are read as they arrive, so that new readings reach
+ * the routes within the publish interval. A line is only parsed once its line break was written, so a reading that is
+ * read while it is still being appended is not lost. This needs to be started after the graph was loaded.
+ */
+public class SensorFeedManaged implements Managed {
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+    private final GraphHopper graphHopper;
+    private final ObjectMapper objectMapper;
+    private final String file;
+    private final double radius;
+    private final double power;
+    private final long publishIntervalMillis;
+    private final long pollIntervalMillis;
+    private Thread thread;
+
+    public SensorFeedManaged(GraphHopperConfig configuration, GraphHopper graphHopper, ObjectMapper objectMapper) {
+        this.graphHopper = graphHopper;
+        this.objectMapper = objectMapper;
+        this.file = configuration.getString("pollution.sensor_feed", "");
+        this.radius = configuration.getDouble("pollution.sensor_feed.radius", 500);
+        this.power = configuration.getDouble("pollution.sensor_feed.power", 2);
+        this.publishIntervalMillis = configuration.getLong("pollution.sensor_feed.publish_interval_ms", 5000);
+        this.pollIntervalMillis = configuration.getLong("pollution.sensor_feed.poll_interval_ms", 1000);
+    }
+
+    @Override
+    public void start() {
+        final SensorFeed feed = new SensorFeed(graphHopper.getPollutionGridProvider(), radius, power, publishIntervalMillis);
+        thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                follow(feed);
+            }
+        }, "sensor-feed");
+        thread.setDaemon(true);
+        thread.start();
+        logger.info("following sensor readings in " + file);
+    }
+
+    private void follow(SensorFeed feed) {
+        // the file is split into lines as bytes, as a multi-byte character might not be written completely yet
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        try (InputStream input = new FileInputStream(file)) {
+            while (!Thread.currentThread().isInterrupted()) {
+                int read = input.read(buffer);
+                if (read < 0) {
+                    // at the end of the file publish the pending readings and wait for new lines, an incomplete last
+                    // line is kept until the rest of it was written
+                    feed.publish();
+                    Thread.sleep(pollIntervalMillis);
+                    continue;
+                }
+                int start = 0;
+                for (int i = 0; i < read; i++) {
+                    if (buffer[i] != '\n')
+                        continue;
+                    line.write(buffer, start, i - start);
+                    accept(feed, new String(line.toByteArray(), UTF_CS));
+                    line.reset();
+                    start = i + 1;
+                }
+                line.write(buffer, start, read - start);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (IOException ex) {
+            logger.error("Cannot read sensor readings from " + file, ex);
+        }
+    }
+
+    private void accept(SensorFeed feed, String line) {
+        if (line.trim().isEmpty())
+            return;
+        try {
+            feed.accept(parse(line));
+        } catch (IOException | IllegalArgumentException ex) {
+            logger.warn("Skipping invalid sensor reading: " + line + ", " + ex.getMessage());
+        }
+    }
+
+    SensorReading parse(String line) throws IOException {
+        JsonNode node = objectMapper.readTree(line);
+        Pollutant pollutant = Pollutant.find(node.path("pollutant").asText());
+        if (pollutant == null)
+            throw new IllegalArgumentException("Unknown pollutant " + node.path("pollutant").asText());
+        if (!node.path("lat").isNumber() || !node.path("lon").isNumber() || !node.path("value").isNumber())
+            throw new IllegalArgumentException("lat, lon and value have to be numbers");
+        return new SensorReading(node.path("sensor").asText(), node.get("lat").asDouble(), node.get("lon").asDouble(),
+                pollutant, node.get("value").asDouble(), node.path("time").asLong(System.currentTimeMillis()));
+    }
+
+    @Override
+    public void stop() throws InterruptedException {
+        if (thread != null) {
+            thread.interrupt();
+            thread.join();
+        }
+    }
+}
@@ -1,12 +1,18 @@
 package com.graphhopper.resources;
 
+import com.carrotsearch.hppc.cursors.IntCursor;
 import com.graphhopper.GraphHopper;
+import com.graphhopper.http.PollutionTileCache;
 import com.graphhopper.routing.ev.*;
+import com.graphhopper.routing.pollution.EdgeExposureStorage;
+import com.graphhopper.routing.pollution.Pollutant;
+import com.graphhopper.routing.pollution.PollutionGrid;
 import com.graphhopper.routing.util.DefaultEdgeFilter;
 import com.graphhopper.routing.util.EncodingManager;
 import com.graphhopper.storage.NodeAccess;
 import com.graphhopper.storage.index.LocationIndexTree;
 import com.graphhopper.util.*;
+import com.graphhopper.util.details.ExposureDetails;
 import com.graphhopper.util.shapes.BBox;
 import com.wdtinc.mapbox_vector_tile.VectorTile;
 import com.wdtinc.mapbox_vector_tile.adapt.jts.IGeometryFilter;
@@ -18,6 +24,7 @@ import com.wdtinc.mapbox_vector_tile.build.MvtLayerParams;
 import com.wdtinc.mapbox_vector_tile.build.MvtLayerProps;
 import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.GeometryFactory;
 import org.locationtech.jts.geom.LineString;
 import org.slf4j.Logger;
@@ -30,9 +37,7 @@ import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
 
 @Path("mvt")
@@ -42,11 +47,13 @@ public class MVTResource {
     private static final MediaType PBF = new MediaType("application", "x-protobuf");
     private final GraphHopper graphHopper;
     private final EncodingManager encodingManager;
+    private final PollutionTileCache tileCache;
 
     @Inject
-    public MVTResource(GraphHopper graphHopper, EncodingManager encodingManager) {
+    public MVTResource(GraphHopper graphHopper, EncodingManager encodingManager, PollutionTileCache tileCache) {
         this.graphHopper = graphHopper;
         this.encodingManager = encodingManager;
+        this.tileCache = tileCache;
     }
 
     @GET
@@ -58,7 +65,8 @@ public class MVTResource {
             @PathParam("z") int zInfo,
             @PathParam("x") int xInfo,
             @PathParam("y") int yInfo,
-            @QueryParam(Parameters.Details.PATH_DETAILS) List<String> pathDetails) {
+            @QueryParam(Parameters.Details.PATH_DETAILS) List<String> pathDetails,
+            @QueryParam("pollution_cells") @DefaultValue("false") boolean pollutionCells) {
 
         if (zInfo <= 9) {
             VectorTile.Tile.Builder mvtBuilder = VectorTile.Tile.newBuilder();
@@ -68,6 +76,32 @@ public class MVTResource {
         }
 
         StopWatch totalSW = new StopWatch().start();
+        // the exposure of the edges is requested like the path details, e.g. details=exposure_pm10
+        final List<Pollutant> exposurePollutants = new ArrayList<>();
+        for (Pollutant pollutant : Pollutant.values()) {
+            if (pathDetails.contains(ExposureDetails.getKey(pollutant)))
+                exposurePollutants.add(pollutant);
+        }
+        // tiles with pollution are cached until a new snapshot is published, all requests for the same tile use the same snapshot
+        final PollutionGrid grid = graphHopper.getPollutionGridProvider().get();
+        String cacheKey = null;
+        if (!exposurePollutants.isEmpty() || pollutionCells) {
+            // unknown attributes are skipped when the tile is created and must not lead to separate cache entries
+            List<String> tileDetails = new ArrayList<>();
+            for (Pollutant pollutant : exposurePollutants) {
+                tileDetails.add(ExposureDetails.getKey(pollutant));
+            }
+            for (String str : pathDetails) {
+                if (!str.contains(",") && encodingManager.hasEncodedValue(str))
+                    tileDetails.add(str);
+            }
+            cacheKey = PollutionTileCache.createKey(zInfo, xInfo, yInfo, grid.getVersion(), tileDetails, pollutionCells);
+            byte[] cached = tileCache.get(cacheKey);
+            if (cached != null)
+                return Response.ok(cached, PBF).header("X-GH-Took", "" + totalSW.stop().getSeconds() * 1000)
+                        .build();
+        }
+
         Coordinate nw = num2deg(xInfo, yInfo, zInfo);
         Coordinate se = num2deg(xInfo + 1, yInfo + 1, zInfo);
         LocationIndexTree locationIndex = (LocationIndexTree) graphHopper.getLocationIndex();
@@ -92,6 +126,10 @@ public class MVTResource {
         // otherwise the decoding won't be successful and "undefined":"undefined" instead of "speed": 30 is the result
         final MvtLayerProps layerProps = new MvtLayerProps();
         final VectorTile.Tile.Layer.Builder layerBuilder = MvtLayerBuild.newLayerBuilder("roads", layerParams);
+        final double[] exposures = new double[Pollutant.values().length];
+        // the stored exposure is only used if it was calculated from the snapshot the tile is cached for
+        EdgeExposureStorage storage = graphHopper.getEdgeExposureStorage();
+        final EdgeExposureStorage exposureStorage = storage != null && storage.getVersion() == grid.getVersion() ? storage : null;
 
         locationIndex.query(bbox, new LocationIndexTree.EdgeVisitor(edgeExplorer) {
             @Override
@@ -118,6 +156,18 @@ public class MVTResource {
                 edgeCounter.incrementAndGet();
                 Map<String, Object> map = new HashMap<>(2);
                 map.put("name", edge.getName());
+                if (!exposurePollutants.isEmpty()) {
+                    if (exposureStorage != null && edge.getEdge() < exposureStorage.getEdges()) {
+                        for (Pollutant pollutant : exposurePollutants) {
+                            map.put(ExposureDetails.getKey(pollutant), exposureStorage.getExposurePerMeter(edge.getEdge(), pollutant) * edge.getDistance());
+                        }
+                    } else {
+                        grid.calcExposures(edge.fetchWayGeometry(FetchMode.ALL), exposures);
+                        for (Pollutant pollutant : exposurePollutants) {
+                            map.put(ExposureDetails.getKey(pollutant), exposures[pollutant.ordinal()]);
+                        }
+                    }
+                }
                 for (String str : pathDetails) {
                     // how to indicate an erroneous parameter?
                     if (str.contains(",") || !encodingManager.hasEncodedValue(str))
@@ -149,13 +199,43 @@ public class MVTResource {
 
         MvtLayerBuild.writeProps(layerBuilder, layerProps);
         mvtBuilder.addLayers(layerBuilder.build());
+        if (pollutionCells)
+            mvtBuilder.addLayers(createCellLayer(grid, bbox, tileEnvelope, geometryFactory, layerParams, converter));
         byte[] bytes = mvtBuilder.build().toByteArray();
+        if (cacheKey != null)
+            tileCache.put(cacheKey, bytes);
         totalSW.stop();
         logger.debug("took: " + totalSW.getSeconds() + ", edges:" + edgeCounter.get());
         return Response.ok(bytes, PBF).header("X-GH-Took", "" + totalSW.getSeconds() * 1000)
                 .build();
     }
 
+    /**
+     * Creates a layer with the cells of the pollution grid within the tile as polygons, with the cell id and the
+     * values of all known pollutants as attributes.
+     */
+    private VectorTile.Tile.Layer createCellLayer(PollutionGrid grid, BBox bbox, Envelope tileEnvelope, GeometryFactory geometryFactory,
+                                                  MvtLayerParams layerParams, UserDataKeyValueMapConverter converter) {
+        MvtLayerProps layerProps = new MvtLayerProps();
+        VectorTile.Tile.Layer.Builder layerBuilder = MvtLayerBuild.newLayerBuilder("pollution", layerParams);
+        for (IntCursor cursor : grid.findCells(bbox.minLat, bbox.minLon, bbox.maxLat, bbox.maxLon)) {
+            int cell = cursor.value;
+            Geometry polygon = geometryFactory.toGeometry(new Envelope(grid.getWest(cell), grid.getEast(cell), grid.getSouth(cell), grid.getNorth(cell)));
+            Map<String, Object> map = new HashMap<>();
+            map.put("id", grid.getCellId(cell));
+            for (Pollutant pollutant : Pollutant.values()) {
+                double value = grid.getValue(pollutant, cell);
+                if (!Double.isNaN(value))
+                    map.put(pollutant.toString().toLowerCase(Locale.ROOT), value);
+            }
+            polygon.setUserData(map);
+            TileGeomResult tileGeom = JtsAdapter.createTileGeom(polygon, tileEnvelope, geometryFactory, layerParams, geometry -> true);
+            layerBuilder.addAllFeatures(JtsAdapter.toFeatures(tileGeom.mvtGeoms, layerProps, converter));
+        }
+        MvtLayerBuild.writeProps(layerBuilder, layerProps);
+        return layerBuilder.build();
+    }
+
     Coordinate num2deg(int xInfo, int yInfo, int zoom) {
         double n = Math.pow(2, zoom);
         double lonDeg = xInfo / n * 360.0 - 180.0;
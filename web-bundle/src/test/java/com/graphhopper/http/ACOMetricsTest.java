@@ -0,0 +1,55 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.graphhopper.routing.ACO;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+public class ACOMetricsTest {
+
+    @Test
+    public void testIterations() {
+        MetricRegistry registry = new MetricRegistry();
+        ACOMetrics metrics = new ACOMetrics(registry);
+        // no ant reached the end node in the first iteration
+        metrics.onIteration(0, Double.POSITIVE_INFINITY, 30, TimeUnit.MILLISECONDS.toNanos(2));
+        metrics.onIteration(1, 120.4, 50, TimeUnit.MILLISECONDS.toNanos(4));
+        metrics.onIteration(2, 99.6, 40, TimeUnit.MILLISECONDS.toNanos(3));
+
+        Timer iterations = registry.getTimers().get(MetricRegistry.name(ACO.class, "iterations"));
+        assertEquals(3, iterations.getCount());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(4), iterations.getSnapshot().getMax());
+
+        Histogram visitedNodes = registry.getHistograms().get(MetricRegistry.name(ACO.class, "visited_nodes"));
+        assertEquals(3, visitedNodes.getCount());
+        assertEquals(30, visitedNodes.getSnapshot().getMin());
+        assertEquals(50, visitedNodes.getSnapshot().getMax());
+
+        Histogram bestWeights = registry.getHistograms().get(MetricRegistry.name(ACO.class, "best_weight"));
+        assertEquals(2, bestWeights.getCount());
+        assertEquals(100, bestWeights.getSnapshot().getMin());
+        assertEquals(120, bestWeights.getSnapshot().getMax());
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.graphhopper.routing.pollution.JdbcConnectionPool;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.*;
+
+public class JdbcConnectionPoolMetricsTest {
+    private static final String URL = "jdbc:metrics-stub:sensors";
+    private final StubDriver driver = new StubDriver();
+    private final MetricRegistry registry = new MetricRegistry();
+    private JdbcConnectionPool pool;
+
+    @Before
+    public void setUp() throws SQLException {
+        DriverManager.registerDriver(driver);
+        pool = new JdbcConnectionPool(URL, null, null, 3, 1000);
+        new JdbcConnectionPoolMetrics(registry, pool);
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        pool.close();
+        DriverManager.deregisterDriver(driver);
+    }
+
+    private Object getValue(String name) {
+        Gauge<?> gauge = registry.getGauges().get(MetricRegistry.name(JdbcConnectionPool.class, name));
+        assertNotNull("no gauge " + name, gauge);
+        return gauge.getValue();
+    }
+
+    @Test
+    public void testGauges() throws SQLException {
+        assertEquals(3, getValue("max_connections"));
+        assertEquals(0, getValue("open_connections"));
+        assertEquals(0L, getValue("executions"));
+        // no division by zero before the first execution
+        assertEquals(0.0, getValue("mean_execution_ms"));
+        assertEquals(0.0, getValue("mean_wait_ms"));
+
+        pool.execute(connection -> {
+            assertEquals(1, getValue("active_connections"));
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException ex) {
+                throw new IllegalStateException(ex);
+            }
+            return null;
+        });
+        assertEquals(0, getValue("active_connections"));
+        assertEquals(1, getValue("open_connections"));
+        assertEquals(1L, getValue("executions"));
+        assertEquals(0L, getValue("failures"));
+        assertTrue((Double) getValue("mean_execution_ms") >= 20);
+
+        try {
+            pool.execute(connection -> {
+                throw new SQLException("broken");
+            });
+            fail();
+        } catch (SQLException ex) {
+            assertEquals("broken", ex.getMessage());
+        }
+        // the failed connection is closed
+        assertEquals(0, getValue("open_connections"));
+        assertEquals(2L, getValue("executions"));
+        assertEquals(1L, getValue("failures"));
+    }
+
+    /**
+     * Opens connections that do nothing.
+     */
+    private static class StubDriver implements Driver {
+        @Override
+        public Connection connect(String url, Properties info) {
+            if (!acceptsURL(url))
+                return null;
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class[]{Connection.class},
+                    (proxy, method, args) -> method.getReturnType() == boolean.class ? true : null);
+        }
+
+        @Override
+        public boolean acceptsURL(String url) {
+            return url.startsWith("jdbc:metrics-stub:");
+        }
+
+        @Override
+        public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+            return new DriverPropertyInfo[0];
+        }
+
+        @Override
+        public int getMajorVersion() {
+            return 1;
+        }
+
+        @Override
+        public int getMinorVersion() {
+            return 0;
+        }
+
+        @Override
+        public boolean jdbcCompliant() {
+            return false;
+        }
+
+        @Override
+        public Logger getParentLogger() {
+            return Logger.getGlobal();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class PollutionTileCacheTest {
+
+    @Test
+    public void testKeyIgnoresOrderOfDetails() {
+        assertEquals(PollutionTileCache.createKey(14, 1, 2, 3, Arrays.asList("exposure_pm10", "road_class"), false),
+                PollutionTileCache.createKey(14, 1, 2, 3, Arrays.asList("road_class", "exposure_pm10", "road_class"), false));
+        assertNotEquals(PollutionTileCache.createKey(14, 1, 2, 3, Arrays.asList("exposure_pm10"), false),
+                PollutionTileCache.createKey(14, 1, 2, 4, Arrays.asList("exposure_pm10"), false));
+        assertNotEquals(PollutionTileCache.createKey(14, 1, 2, 3, Arrays.asList("exposure_pm10"), false),
+                PollutionTileCache.createKey(14, 1, 2, 3, Arrays.asList("exposure_pm10"), true));
+    }
+}
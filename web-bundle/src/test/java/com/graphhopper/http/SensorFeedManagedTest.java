@@ -0,0 +1,136 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.graphhopper.GraphHopper;
+import com.graphhopper.GraphHopperConfig;
+import com.graphhopper.routing.pollution.Pollutant;
+import com.graphhopper.routing.pollution.PollutionGrid;
+import com.graphhopper.routing.pollution.PollutionGridProvider;
+import com.graphhopper.routing.pollution.SensorReading;
+import com.graphhopper.util.Helper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static com.graphhopper.util.Helper.UTF_CS;
+import static org.junit.Assert.*;
+
+public class SensorFeedManagedTest {
+    private static final String DIR = "./target/sensor-feed-test";
+    private static final String FILE = DIR + "/readings.jsonl";
+    private final BlockingQueue<PollutionGrid> published = new LinkedBlockingQueue<>();
+    private PollutionGridProvider provider;
+    private SensorFeedManaged sensorFeed;
+
+    @Before
+    public void setUp() throws IOException {
+        Helper.removeDir(new File(DIR));
+        new File(DIR).mkdirs();
+        append("");
+
+        PollutionGrid.Builder builder = new PollutionGrid.Builder().setVersion(1);
+        int cell = builder.addCell("c0", -12.08, -77.09, -12.06, -77.07);
+        builder.setValue(Pollutant.CO, cell, 100);
+        provider = PollutionGridProvider.of(builder.build());
+        provider.addListener(published::add);
+
+        GraphHopperConfig config = new GraphHopperConfig().
+                putObject("pollution.sensor_feed", FILE).
+                putObject("pollution.sensor_feed.publish_interval_ms", 0).
+                putObject("pollution.sensor_feed.poll_interval_ms", 10);
+        sensorFeed = new SensorFeedManaged(config, new GraphHopper().setPollutionGridProvider(provider), new ObjectMapper());
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        sensorFeed.stop();
+        Helper.removeDir(new File(DIR));
+    }
+
+    private static void append(String text) throws IOException {
+        try (OutputStream output = new FileOutputStream(FILE, true)) {
+            output.write(text.getBytes(UTF_CS));
+        }
+    }
+
+    private static String reading(double value, long time) {
+        // the sensor is at the center of the cell, so the interpolated value is the value of the reading
+        return "{\"sensor\":\"qH001\",\"lat\":-12.07,\"lon\":-77.08,\"pollutant\":\"CO\",\"value\":" + value
+                + ",\"time\":" + time + "}";
+    }
+
+    @Test
+    public void testParse() throws IOException {
+        SensorReading reading = sensorFeed.parse(reading(812.5, 1589925600000L));
+        assertEquals("qH001", reading.getSensorId());
+        assertEquals(Pollutant.CO, reading.getPollutant());
+        assertEquals(-12.07, reading.getLat(), 1e-8);
+        assertEquals(-77.08, reading.getLon(), 1e-8);
+        assertEquals(812.5, reading.getValue(), 1e-8);
+        assertEquals(1589925600000L, reading.getTime());
+
+        for (String line : new String[]{
+                "{\"sensor\":\"qH001\",\"lat\":-12.07,\"lon\":-77.08,\"pollutant\":\"XY\",\"value\":1}",
+                "{\"sensor\":\"qH001\",\"lat\":\"north\",\"lon\":-77.08,\"pollutant\":\"CO\",\"value\":1}",
+                "{\"sensor\":\"qH001\",\"lat\":-12.07,\"lon\":-77.08,\"pollutant\":\"CO\"}"}) {
+            try {
+                sensorFeed.parse(line);
+                fail("invalid reading was accepted: " + line);
+            } catch (IllegalArgumentException ex) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testFollowFile() throws Exception {
+        sensorFeed.start();
+        append(reading(200, 1) + "\n");
+        PollutionGrid grid = published.poll(10, TimeUnit.SECONDS);
+        assertNotNull("the reading was not published", grid);
+        assertEquals(200, grid.getValue(Pollutant.CO, 0), 1e-3);
+        assertSame(grid, provider.get());
+
+        // a reading is only applied once its line is complete
+        String line = reading(300, 2);
+        append(line.substring(0, 20));
+        assertNull(published.poll(200, TimeUnit.MILLISECONDS));
+        append(line.substring(20) + "\n");
+        grid = published.poll(10, TimeUnit.SECONDS);
+        assertNotNull("the completed reading was not published", grid);
+        assertEquals(300, grid.getValue(Pollutant.CO, 0), 1e-3);
+
+        // invalid lines are skipped
+        append("no reading\n\n" + reading(400, 3) + "\n");
+        grid = published.poll(10, TimeUnit.SECONDS);
+        assertNotNull("the reading after the invalid line was not published", grid);
+        assertEquals(400, grid.getValue(Pollutant.CO, 0), 1e-3);
+
+        sensorFeed.stop();
+        append(reading(500, 4) + "\n");
+        assertNull("a reading was published after stop", published.poll(200, TimeUnit.MILLISECONDS));
+        assertEquals(400, provider.get().getValue(Pollutant.CO, 0), 1e-3);
+    }
+}
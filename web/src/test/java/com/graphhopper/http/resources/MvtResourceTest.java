@@ -21,6 +21,11 @@ import com.graphhopper.config.Profile;
 import com.graphhopper.http.GraphHopperApplication;
 import com.graphhopper.http.GraphHopperServerConfiguration;
 import com.graphhopper.http.util.GraphHopperServerTestConfiguration;
+import com.graphhopper.routing.pollution.Pollutant;
+import com.graphhopper.routing.pollution.PollutionGrid;
+import com.graphhopper.routing.pollution.PollutionGridFile;
+import com.graphhopper.routing.weighting.PollutionWeighting;
+import com.graphhopper.storage.DAType;
 import com.graphhopper.util.Helper;
 import com.wdtinc.mapbox_vector_tile.adapt.jts.MvtReader;
 import com.wdtinc.mapbox_vector_tile.adapt.jts.TagKeyValueMapConverter;
@@ -37,16 +42,15 @@ import org.locationtech.jts.geom.GeometryFactory;
 import org.locationtech.jts.geom.MultiLineString;
 
 import javax.ws.rs.core.Response;
-import java.io.File;
-import java.io.IOException;
-import java.io.InputStream;
-import java.util.Collections;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
 import static com.graphhopper.http.util.TestUtils.clientTarget;
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.*;
 
 /**
  * @author Peter Karich
@@ -54,9 +58,12 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 @ExtendWith(DropwizardExtensionsSupport.class)
 public class MvtResourceTest {
     private static final String DIR = "./target/andorra-gh/";
+    private static final String POLLUTION_DIR = "./target/andorra-pollution/";
+    private static final String SENSOR_FEED = POLLUTION_DIR + "sensor-feed";
     private static final DropwizardAppExtension<GraphHopperServerConfiguration> app = new DropwizardAppExtension<>(GraphHopperApplication.class, createConfig());
 
     private static GraphHopperServerConfiguration createConfig() {
+        createPollution();
         GraphHopperServerConfiguration config = new GraphHopperServerTestConfiguration();
         config.getGraphHopperConfiguration().
                 putObject("graph.flag_encoders", "car").
@@ -64,10 +71,30 @@ public class MvtResourceTest {
                 putObject("prepare.min_network_size", 0).
                 putObject("datareader.file", "../core/files/andorra.osm.pbf").
                 putObject("graph.location", DIR).
-                setProfiles(Collections.singletonList(new Profile("car").setVehicle("car").setWeighting("fastest")));
+                putObject("pollution.grid_location", POLLUTION_DIR).
+                putObject("pollution.sensor_feed", SENSOR_FEED).
+                putObject("pollution.sensor_feed.publish_interval_ms", 0).
+                putObject("pollution.sensor_feed.poll_interval_ms", 100).
+                setProfiles(Arrays.asList(
+                        new Profile("car").setVehicle("car").setWeighting("fastest"),
+                        new Profile("car_clean_air").setVehicle("car").setWeighting(PollutionWeighting.NAME).putHint(PollutionWeighting.POLLUTANTS, "pm10")));
         return config;
     }
 
+    // one cell covers the tile 15/16528/12099 and all edges around it and the other one is far away from it
+    private static void createPollution() {
+        Helper.removeDir(new File(POLLUTION_DIR));
+        PollutionGrid.Builder builder = new PollutionGrid.Builder().setVersion(1);
+        builder.setValue(Pollutant.PM10, builder.addCell("tile", 42.50, 1.55, 42.55, 1.62), 10);
+        builder.setValue(Pollutant.PM10, builder.addCell("west", 42.45, 1.42, 42.49, 1.50), 20);
+        new PollutionGridFile(POLLUTION_DIR, DAType.RAM_STORE).write(builder.build());
+        try {
+            new FileOutputStream(SENSOR_FEED).close();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
     @BeforeAll
     @AfterAll
     public static void cleanUp() {
@@ -115,4 +142,70 @@ public class MvtResourceTest {
         map = (Map) ((Geometry) layerGeoList.get(12)).getUserData();
         assertEquals("bridge", map.get("road_environment"));
     }
+
+    private static JtsMvt getTile(String path) throws IOException {
+        final Response response = clientTarget(app, path).request().buildGet().invoke();
+        assertEquals(200, response.getStatus());
+        return MvtReader.loadMvt(response.readEntity(InputStream.class), new GeometryFactory(), new TagKeyValueMapConverter());
+    }
+
+    @Test
+    public void testPollutionCells() throws IOException {
+        Map<String, JtsLayer> layers = getTile("/mvt/15/16528/12099.mvt?pollution_cells=true").getLayersByName();
+        assertEquals(2, layers.size());
+        assertTrue(layers.containsKey("roads"));
+        List<Geometry> cells = new ArrayList<>(layers.get("pollution").getGeometries());
+        // only the cell within the tile
+        assertEquals(1, cells.size());
+        Map map = (Map) cells.get(0).getUserData();
+        assertEquals("tile", map.get("id"));
+        assertTrue(map.containsKey("pm10"));
+        assertFalse(map.containsKey("no2"));
+    }
+
+    @Test
+    public void testExposureOfEdges() throws IOException {
+        JtsLayer layer = getTile("/mvt/15/16528/12099.mvt?details=exposure_pm10").getLayersByName().get("roads");
+        assertFalse(layer.getGeometries().isEmpty());
+        for (Geometry geometry : layer.getGeometries()) {
+            Map map = (Map) geometry.getUserData();
+            // the tile is within the cell, so every edge has an exposure
+            assertTrue((Double) map.get("exposure_pm10") > 0, map.toString());
+        }
+    }
+
+    @Test
+    public void testTileIsRecreatedForNewSnapshot() throws Exception {
+        String path = "/mvt/15/16528/12099.mvt?pollution_cells=true&details=exposure_pm10";
+        double value = getCellValue(getTile(path));
+        double exposure = getExposureSum(getTile(path));
+        assertTrue(exposure > 0);
+
+        // a sensor in the center of the cell changes its value, which must not be hidden by the cached tile
+        double newValue = value + 40;
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(SENSOR_FEED, true), StandardCharsets.UTF_8)) {
+            writer.write("{\"sensor\":\"s1\",\"lat\":42.525,\"lon\":1.585,\"pollutant\":\"PM10\",\"value\":" + newValue + "}\n");
+        }
+        long end = System.currentTimeMillis() + 10_000;
+        JtsMvt tile = getTile(path);
+        while (getCellValue(tile) == value && System.currentTimeMillis() < end) {
+            Thread.sleep(100);
+            tile = getTile(path);
+        }
+        assertEquals(newValue, getCellValue(tile), 1e-3);
+        assertEquals(exposure * newValue / value, getExposureSum(tile), exposure * newValue / value * 1e-3);
+    }
+
+    private static double getCellValue(JtsMvt tile) {
+        Geometry cell = tile.getLayersByName().get("pollution").getGeometries().iterator().next();
+        return ((Number) ((Map) cell.getUserData()).get("pm10")).doubleValue();
+    }
+
+    private static double getExposureSum(JtsMvt tile) {
+        double sum = 0;
+        for (Geometry geometry : tile.getLayersByName().get("roads").getGeometries()) {
+            sum += (Double) ((Map) geometry.getUserData()).get("exposure_pm10");
+        }
+        return sum;
+    }
 }